@@ -0,0 +1,142 @@
+package com.example.chafon_h103_rfid;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.content.Context;
+import android.os.ParcelUuid;
+
+import com.cf.ble.interfaces.IBtScanCallback;
+import com.cf.ble.interfaces.IOnNotifyCallback;
+import com.cf.zsdk.BleCore;
+import com.cf.zsdk.CfSdk;
+import com.cf.zsdk.SdkC;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link ReaderTransport} over the vendor BleCore singleton, which holds one connection.
+ * BleCore dispatches notifications itself (typed bean, then raw frame).
+ */
+final class BleCoreTransport implements ReaderTransport {
+
+    private final BleCore bleCore;
+    private final Context context;
+    private final UUID serviceUuid;
+    private final UUID writeUuid;
+    private final UUID notifyUuid;
+    private final ParcelUuid serviceParcelUuid;
+    // The connection BleCore opened; its GATT callback stays private to BleCore
+    private volatile BluetoothGatt gatt;
+
+    BleCoreTransport(Context context, UUID serviceUuid, UUID writeUuid, UUID notifyUuid) {
+        CfSdk.load();
+        this.bleCore = (BleCore) CfSdk.get(SdkC.BLE);
+        this.bleCore.init(context);
+        this.context = context;
+        this.serviceUuid = serviceUuid;
+        this.writeUuid = writeUuid;
+        this.notifyUuid = notifyUuid;
+        this.serviceParcelUuid = new ParcelUuid(serviceUuid);
+    }
+
+    @Override
+    public boolean write(byte[] frame) {
+        return bleCore.writeData(serviceUuid, writeUuid, frame);
+    }
+
+    @Override
+    public void setNotifyCallback(IOnNotifyCallback callback) {
+        bleCore.setOnNotifyCallback(callback);
+    }
+
+    @Override
+    public void setConnectionListener(ConnectionListener listener) {
+        if (listener == null) {
+            bleCore.setIConnectDoneCallback(null);
+            bleCore.setIBleDisConnectCallback(null);
+            return;
+        }
+        bleCore.setIConnectDoneCallback(listener::onConnectDone);
+        bleCore.setIBleDisConnectCallback(listener::onLinkLost);
+    }
+
+    @Override
+    public boolean connect(String address, Object device) {
+        BluetoothDevice d = device instanceof BluetoothDevice ? (BluetoothDevice) device : remoteDevice(address);
+        if (d == null) return false;
+        gatt = bleCore.connectDevice(d, context, true);
+        return true;
+    }
+
+    @Override
+    public boolean enableNotify() {
+        return bleCore.setNotifyState(serviceUuid, notifyUuid, true);
+    }
+
+    @Override
+    public void disconnect() {
+        gatt = null;
+        bleCore.disconnectedDevice();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return bleCore.isConnect();
+    }
+
+    @Override
+    public boolean requestMtu(int mtu) {
+        BluetoothGatt g = gatt;
+        return g != null && bleCore.isConnect() && g.requestMtu(mtu);
+    }
+
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        BluetoothGatt g = gatt;
+        return g != null && bleCore.isConnect() && g.requestConnectionPriority(priority);
+    }
+
+    /** BleCore receives onMtuChanged itself (for its own 512 request) and does not pass it on. */
+    @Override
+    public int mtu() {
+        return 0;
+    }
+
+    @Override
+    public void startScan(ScanListener listener) {
+        bleCore.startScan(new IBtScanCallback() {
+            @Override
+            public void onBtScanResult(ScanResult result) {
+                BluetoothDevice device = result.getDevice();
+                if (device == null || device.getAddress() == null) return;
+                // Only what the advertisement carries: BluetoothDevice.getName() is an IPC
+                ScanRecord record = result.getScanRecord();
+                List<ParcelUuid> uuids = record != null ? record.getServiceUuids() : null;
+                boolean readerService = uuids != null && uuids.contains(serviceParcelUuid);
+                String name = record != null ? record.getDeviceName() : null;
+                listener.onAdvertisement(device.getAddress(), name, result.getRssi(), readerService, device);
+            }
+
+            @Override
+            public void onBtScanFail(int errorCode) {
+                listener.onScanFailed(errorCode);
+            }
+        });
+    }
+
+    @Override
+    public void stopScan() {
+        bleCore.stopScan();
+    }
+
+    /** For a valid MAC address, a device that can be connected without scanning first. */
+    static BluetoothDevice remoteDevice(String address) {
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        if (adapter == null || !BluetoothAdapter.checkBluetoothAddress(address)) return null;
+        return adapter.getRemoteDevice(address);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed-capacity event queue between the SDK notify thread and the main thread.
+ * When full, the overflow policy decides which event is lost; counters record every
+ * enqueue, delivery and drop so Dart can see when it falls behind.
+ */
+class BoundedEventQueue {
+
+    enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        // Replace a queued event with the same key (EPC); otherwise drop oldest
+        COALESCE_BY_KEY;
+
+        static OverflowPolicy fromName(String name) {
+            if (name == null) return null;
+            switch (name) {
+                case "dropOldest": return DROP_OLDEST;
+                case "dropNewest": return DROP_NEWEST;
+                case "coalesceByEpc": return COALESCE_BY_KEY;
+                default: return null;
+            }
+        }
+
+        String dartName() {
+            switch (this) {
+                case DROP_NEWEST: return "dropNewest";
+                case COALESCE_BY_KEY: return "coalesceByEpc";
+                default: return "dropOldest";
+            }
+        }
+    }
+
+    private static final class Slot {
+        final Object key;
+        Object event;
+
+        Slot(Object key, Object event) {
+            this.key = key;
+            this.event = event;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+    private final Map<Object, Slot> byKey = new HashMap<>();
+
+    private int capacity;
+    private OverflowPolicy policy;
+
+    private long enqueued;
+    private long delivered;
+    private long dropped;
+    private long coalesced;
+    private int highWater;
+
+    BoundedEventQueue(int capacity, OverflowPolicy policy) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+    }
+
+    void configure(int capacity, OverflowPolicy policy) {
+        synchronized (lock) {
+            this.capacity = Math.max(1, capacity);
+            this.policy = policy;
+            byKey.clear();
+            while (queue.size() > this.capacity) {
+                queue.pollFirst();
+                dropped++;
+            }
+            if (policy == OverflowPolicy.COALESCE_BY_KEY) {
+                for (Slot s : queue) {
+                    if (s.key != null) byKey.put(s.key, s);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an event; key may be null when coalescing does not apply.
+     *
+     * @return true if the queue was empty before, i.e. a drain needs to be scheduled
+     */
+    boolean offer(Object key, Object event) {
+        synchronized (lock) {
+            enqueued++;
+
+            if (policy == OverflowPolicy.COALESCE_BY_KEY && key != null) {
+                Slot existing = byKey.get(key);
+                if (existing != null) {
+                    existing.event = event;
+                    coalesced++;
+                    return false;
+                }
+            }
+
+            if (queue.size() >= capacity) {
+                if (policy == OverflowPolicy.DROP_NEWEST) {
+                    dropped++;
+                    return false;
+                }
+                Slot oldest = queue.pollFirst();
+                dropped++;
+                if (oldest != null && oldest.key != null && byKey.get(oldest.key) == oldest) {
+                    byKey.remove(oldest.key);
+                }
+            }
+
+            boolean wasEmpty = queue.isEmpty();
+            Slot slot = new Slot(key, event);
+            queue.addLast(slot);
+            if (policy == OverflowPolicy.COALESCE_BY_KEY && key != null) byKey.put(key, slot);
+            if (queue.size() > highWater) highWater = queue.size();
+            return wasEmpty;
+        }
+    }
+
+    /**
+     * Removes the next event, or returns null when empty. Counts it as delivered.
+     */
+    Object poll() {
+        synchronized (lock) {
+            Slot slot = queue.pollFirst();
+            if (slot == null) return null;
+            if (slot.key != null && byKey.get(slot.key) == slot) byKey.remove(slot.key);
+            delivered++;
+            return slot.event;
+        }
+    }
+
+    boolean isEmpty() {
+        synchronized (lock) {
+            return queue.isEmpty();
+        }
+    }
+
+    void clear() {
+        synchronized (lock) {
+            dropped += queue.size();
+            queue.clear();
+            byKey.clear();
+        }
+    }
+
+    Map<String, Object> stats() {
+        synchronized (lock) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("enqueued", enqueued);
+            m.put("delivered", delivered);
+            m.put("dropped", dropped);
+            m.put("coalesced", coalesced);
+            m.put("queued", queue.size());
+            m.put("highWater", highWater);
+            m.put("capacity", capacity);
+            m.put("policy", policy.dartName());
+            return m;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads one memory-bank range from each tag in a list of EPCs.
+ *
+ * The H103 read command (0x03) has no target field and is answered by whichever tag
+ * replies first, so each tag is isolated with a Select on its full EPC before its reads.
+ * Every command of the batch is queued up front on the session's CommandScheduler, which
+ * writes the next one as soon as the previous response arrives; there are no round trips
+ * to Dart in between. Ranges longer than chunkWords are split into several reads.
+ * A failed chunk is retried at the end of the queue, behind a fresh Select.
+ *
+ * All callbacks run on the scheduler's executor thread, so job state needs no locking.
+ */
+final class BulkTagReader {
+
+    interface Listener {
+        /** Called once, on the executor thread, when every tag has data or has run out of attempts. */
+        void onComplete(Map<String, Object> report);
+    }
+
+    static final int DEFAULT_CHUNK_WORDS = 16;
+    static final int DEFAULT_RETRIES = 2;
+    static final long DEFAULT_TIMEOUT_MS = 1500;
+
+    private final class Job {
+        final byte[] epc;
+        final String epcHex;
+        final InventoryFilter select;
+        final byte[] data = new byte[wordCount * 2];
+        final boolean[] chunkDone = new boolean[chunks];
+        int attempts;
+        int pending;
+        String errorCode;
+        String errorMessage;
+
+        Job(byte[] epc) {
+            this.epc = epc;
+            this.epcHex = HexCodec.encode(epc);
+            this.select = new InventoryFilter(0, epc, epc.length * 8);
+        }
+    }
+
+    private final CommandScheduler scheduler;
+    private final FrameEncoder encoder;
+    private final byte[] password;
+    private final byte bank;
+    private final int wordPtr;
+    private final int wordCount;
+    private final int chunkWords;
+    private final int chunks;
+    private final int retries;
+    private final long timeoutMs;
+    private final byte[] restoreSelect;
+    private final Listener listener;
+
+    private final Job[] jobs;
+    private int remaining;
+    private long startNs;
+    private boolean aborted;
+
+    /**
+     * @param epcs          hex EPCs; duplicates are read once
+     * @param password      4-byte access password
+     * @param restoreSelect Select frame sent after the batch (the session filter, or an empty mask)
+     */
+    BulkTagReader(CommandScheduler scheduler, FrameEncoder encoder, List<String> epcs,
+                  byte[] password, int bank, int wordPtr, int wordCount, int chunkWords,
+                  int retries, long timeoutMs, byte[] restoreSelect, Listener listener) {
+        if (password.length != 4) throw new IllegalArgumentException("password must be 4 bytes");
+        if (wordCount < 1) throw new IllegalArgumentException("wordCount must be positive");
+        if (wordPtr < 0 || wordPtr + wordCount > 0x10000) throw new IllegalArgumentException("wordPtr out of range");
+        this.scheduler = scheduler;
+        this.encoder = encoder;
+        this.password = password.clone();
+        this.bank = (byte) bank;
+        this.wordPtr = wordPtr;
+        this.wordCount = wordCount;
+        this.chunkWords = Math.max(1, Math.min(0xFF, chunkWords));
+        this.chunks = (wordCount + this.chunkWords - 1) / this.chunkWords;
+        this.retries = Math.max(0, retries);
+        this.timeoutMs = timeoutMs;
+        this.restoreSelect = restoreSelect;
+        this.listener = listener;
+
+        Map<String, Job> unique = new LinkedHashMap<>();
+        for (String hex : epcs) {
+            byte[] epc = HexCodec.decodeStrict(hex);
+            if (epc.length == 0 || epc.length * 8 > InventoryFilter.MAX_BITS) {
+                throw new IllegalArgumentException("Invalid EPC: " + hex);
+            }
+            String key = HexCodec.encode(epc);
+            if (!unique.containsKey(key)) unique.put(key, new Job(epc));
+        }
+        this.jobs = unique.values().toArray(new Job[0]);
+    }
+
+    int size() {
+        return jobs.length;
+    }
+
+    /** Queues the batch; job state is only touched on the executor thread from here on. */
+    void start() {
+        scheduler.execute(this::run);
+    }
+
+    private void run() {
+        startNs = System.nanoTime();
+        remaining = jobs.length;
+        if (jobs.length == 0) {
+            listener.onComplete(report());
+            return;
+        }
+        for (Job job : jobs) submitAttempt(job);
+    }
+
+    private void submitAttempt(Job job) {
+        job.attempts++;
+        job.errorCode = null;
+        scheduler.submit(CommandScheduler.Command.request("bulkSelect",
+                job.select.frame(), FrameEncoder.CMD_SELECT_MASK, timeoutMs, noop()).exclusive());
+
+        for (int c = 0; c < chunks; c++) {
+            if (job.chunkDone[c]) continue;
+            job.pending++;
+            int chunk = c;
+            int ptr = wordPtr + c * chunkWords;
+            int count = Math.min(chunkWords, wordCount - c * chunkWords);
+            byte[] ptrBytes = {(byte) (ptr >> 8), (byte) ptr};
+            scheduler.submit(CommandScheduler.Command.request("bulkRead",
+                    () -> encoder.readTag(password, bank, ptrBytes, (byte) count),
+                    FrameEncoder.CMD_READ_TAG, timeoutMs, new CommandScheduler.Callback() {
+                        @Override
+                        public void onResponse(byte[] frame) {
+                            onChunk(job, chunk, count, frame);
+                        }
+
+                        @Override
+                        public void onError(String code, String message) {
+                            chunkFailed(job, code, message);
+                        }
+                    }));
+        }
+    }
+
+    private void onChunk(Job job, int chunk, int count, byte[] frame) {
+        int len = frame[4] & 0xFF;
+        int status = len >= 1 ? frame[5] & 0xFF : -1;
+        if (status != 0 || len < 9 || frame.length < 5 + len) {
+            chunkFailed(job, "TAG_ERROR", "Read status 0x" + Integer.toHexString(status));
+            return;
+        }
+        int epcLen = frame[12] & 0xFF;
+        int dataOff = 14 + epcLen;
+        int words = 13 + epcLen < 5 + len ? frame[13 + epcLen] & 0xFF : 0;
+        if (!sameEpc(job.epc, frame, 13, epcLen)) {
+            chunkFailed(job, "WRONG_TAG", "Answered by " + HexCodec.encode(frame, 13, Math.min(epcLen, frame.length - 13)));
+            return;
+        }
+        if (words < count || dataOff + count * 2 > frame.length) {
+            chunkFailed(job, "SHORT_READ", "Expected " + count + " words, got " + words);
+            return;
+        }
+        System.arraycopy(frame, dataOff, job.data, chunk * chunkWords * 2, count * 2);
+        job.chunkDone[chunk] = true;
+        chunkResolved(job);
+    }
+
+    private void chunkFailed(Job job, String code, String message) {
+        // Link gone: let the remaining commands fail without queueing retries
+        if ("DISCONNECTED".equals(code) || "DETACHED".equals(code)) aborted = true;
+        job.errorCode = code;
+        job.errorMessage = message;
+        chunkResolved(job);
+    }
+
+    private void chunkResolved(Job job) {
+        if (--job.pending > 0) return;
+        if (job.errorCode != null && job.attempts <= retries && !aborted) {
+            submitAttempt(job);
+            return;
+        }
+        if (--remaining == 0) {
+            // Put back the session's own filter before reporting
+            scheduler.submit(CommandScheduler.Command.request("bulkRestoreSelect",
+                    restoreSelect, FrameEncoder.CMD_SELECT_MASK, timeoutMs, noop()).exclusive());
+            listener.onComplete(report());
+        }
+    }
+
+    private Map<String, Object> report() {
+        long elapsedNs = System.nanoTime() - startNs;
+        Map<String, Object> results = new LinkedHashMap<>();
+        int succeeded = 0;
+        int attempts = 0;
+        for (Job job : jobs) {
+            Map<String, Object> r = new HashMap<>();
+            attempts += job.attempts;
+            if (job.errorCode == null) {
+                r.put("data", HexCodec.encode(job.data));
+                succeeded++;
+            } else {
+                r.put("error", job.errorCode);
+                r.put("message", job.errorMessage);
+            }
+            r.put("attempts", job.attempts);
+            results.put(job.epcHex, r);
+        }
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("results", results);
+        m.put("succeeded", succeeded);
+        m.put("failed", jobs.length - succeeded);
+        m.put("attempts", attempts);
+        m.put("elapsedMs", elapsedNs / 1_000_000);
+        m.put("tagsPerSecond", elapsedNs <= 0 ? 0.0 : succeeded * 1e9 / elapsedNs);
+        return m;
+    }
+
+    static boolean sameEpc(byte[] epc, byte[] frame, int offset, int length) {
+        if (length != epc.length || offset + length > frame.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (epc[i] != frame[offset + i]) return false;
+        }
+        return true;
+    }
+
+    private static CommandScheduler.Callback noop() {
+        return new CommandScheduler.Callback() {
+            @Override public void onResponse(byte[] frame) {}
+            @Override public void onError(String code, String message) {}
+        };
+    }
+}
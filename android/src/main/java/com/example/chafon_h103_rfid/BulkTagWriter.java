@@ -0,0 +1,386 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes memory-bank data to a list of tags and confirms every write with a read-back.
+ *
+ * Each job isolates its tag with a Select on the target EPC, writes its data in chunks
+ * (0x04), then reads the range back (0x03) and compares, including the EPC that answered.
+ * When the job wrote the EPC itself, the read-back selects the tag by its new EPC. A job's
+ * writes are queued only once its Select is acknowledged, so a lost Select never leaves
+ * them going to the previous job's tag; the next job's Select is queued right behind them.
+ *
+ * Jobs that fail are retried in further passes. Before the first retry pass the reader
+ * can be switched to another output power (RAM only), and is switched back at the end.
+ * Progress is reported every progressEvery finished jobs and at the end of each pass.
+ *
+ * All callbacks run on the scheduler's executor thread, so job state needs no locking.
+ */
+final class BulkTagWriter {
+
+    interface Listener {
+        /** done, total, succeeded, failed, pass; on the executor thread. */
+        void onProgress(Map<String, Object> progress);
+
+        /** Called once, on the executor thread, after the last pass. */
+        void onComplete(Map<String, Object> report);
+    }
+
+    static final int DEFAULT_CHUNK_WORDS = 16;
+    static final int DEFAULT_RETRIES = 2;
+    static final long DEFAULT_TIMEOUT_MS = 2000;
+    static final int DEFAULT_PROGRESS_EVERY = 25;
+
+    private static final int BANK_EPC = 0x01;
+    // EPC bank: word 0 is the StoredCRC, word 1 the PC, the EPC starts at word 2
+    private static final int EPC_WORD = 2;
+
+    /** One write: target tag, bank, word pointer, data (whole words) and access password. */
+    static final class WriteJob {
+        final byte[] target;
+        final int bank;
+        final int wordPtr;
+        final byte[] data;
+        final byte[] password;
+
+        WriteJob(byte[] target, int bank, int wordPtr, byte[] data, byte[] password) {
+            if (target.length == 0 || target.length * 8 > InventoryFilter.MAX_BITS) {
+                throw new IllegalArgumentException("Invalid target EPC");
+            }
+            if (data.length == 0 || data.length % 2 != 0) {
+                throw new IllegalArgumentException("Data must be a non-empty whole number of words");
+            }
+            if (wordPtr < 0 || wordPtr + data.length / 2 > 0x10000) {
+                throw new IllegalArgumentException("wordPtr out of range");
+            }
+            if (password.length != 4) throw new IllegalArgumentException("password must be 4 bytes");
+            this.target = target;
+            this.bank = bank;
+            this.wordPtr = wordPtr;
+            this.data = data;
+            this.password = password;
+        }
+
+        /** EPC the tag answers with once this job's data is written. */
+        byte[] epcAfterWrite() {
+            int start = (wordPtr - EPC_WORD) * 2;
+            if (bank != BANK_EPC || start + data.length <= 0 || start >= target.length) return target;
+            byte[] epc = target.clone();
+            for (int i = Math.max(0, start); i < Math.min(epc.length, start + data.length); i++) {
+                epc[i] = data[i - start];
+            }
+            return epc;
+        }
+    }
+
+    private static final class State {
+        final WriteJob job;
+        final String targetHex;
+        final InventoryFilter before;
+        final InventoryFilter after;
+        int attempts;
+        int pending;
+        boolean written;
+        String errorCode;
+        String errorMessage;
+        boolean done;
+
+        State(WriteJob job) {
+            this.job = job;
+            this.targetHex = HexCodec.encode(job.target);
+            byte[] epcAfter = job.epcAfterWrite();
+            this.before = new InventoryFilter(0, job.target, job.target.length * 8);
+            this.after = epcAfter == job.target ? before : new InventoryFilter(0, epcAfter, epcAfter.length * 8);
+        }
+    }
+
+    private final CommandScheduler scheduler;
+    private final FrameEncoder encoder;
+    private final State[] states;
+    private final int chunkWords;
+    private final int retries;
+    private final long timeoutMs;
+    private final CommandScheduler.FrameSource retryPower;
+    private final CommandScheduler.FrameSource restorePower;
+    private final byte[] restoreSelect;
+    private final int progressEvery;
+    private final Listener listener;
+
+    // Jobs of the current pass whose Select is not queued yet
+    private final ArrayDeque<State> toSelect = new ArrayDeque<>();
+    private int pass;
+    private int passPending;
+    private int finished;
+    private int succeeded;
+    private int lastProgress;
+    private boolean powerChanged;
+    private boolean aborted;
+    private long startNs;
+
+    /**
+     * @param retryPower    set-all-param frame used for retry passes, or null to keep the power
+     * @param restorePower  frame that puts the original parameters back; required with retryPower
+     * @param restoreSelect Select frame sent after the batch (the session filter, or an empty mask)
+     */
+    BulkTagWriter(CommandScheduler scheduler, FrameEncoder encoder, List<WriteJob> jobs, int chunkWords, int retries,
+                  long timeoutMs, CommandScheduler.FrameSource retryPower,
+                  CommandScheduler.FrameSource restorePower, byte[] restoreSelect,
+                  int progressEvery, Listener listener) {
+        this.scheduler = scheduler;
+        this.encoder = encoder;
+        this.states = new State[jobs.size()];
+        for (int i = 0; i < states.length; i++) states[i] = new State(jobs.get(i));
+        this.chunkWords = Math.max(1, Math.min(0x7F, chunkWords));
+        this.retries = Math.max(0, retries);
+        this.timeoutMs = timeoutMs;
+        this.retryPower = retryPower;
+        this.restorePower = restorePower;
+        this.restoreSelect = restoreSelect;
+        this.progressEvery = Math.max(1, progressEvery);
+        this.listener = listener;
+    }
+
+    int size() {
+        return states.length;
+    }
+
+    /** Queues the batch; job state is only touched on the executor thread from here on. */
+    void start() {
+        scheduler.execute(this::run);
+    }
+
+    private void run() {
+        startNs = System.nanoTime();
+        if (states.length == 0) {
+            listener.onComplete(report());
+            return;
+        }
+        runPass();
+    }
+
+    private void runPass() {
+        pass++;
+        List<State> todo = new ArrayList<>();
+        for (State s : states) {
+            if (!s.done) todo.add(s);
+        }
+        if (pass > 1 && retryPower != null && !powerChanged) {
+            powerChanged = true;
+            scheduler.submit(CommandScheduler.Command.request("bulkRetryPower",
+                    retryPower, FrameEncoder.CMD_SET_ALL_PARAM, timeoutMs, noop()).exclusive());
+        }
+        passPending = todo.size();
+        toSelect.addAll(todo);
+        selectNext();
+    }
+
+    private void selectNext() {
+        State s = toSelect.poll();
+        if (s == null) return;
+        s.attempts++;
+        s.errorCode = null;
+        s.pending = 1;
+
+        // A tag whose EPC was already rewritten answers only to its new EPC
+        InventoryFilter target = s.written ? s.after : s.before;
+        scheduler.submit(CommandScheduler.Command.request("bulkSelect",
+                target.frame(), FrameEncoder.CMD_SELECT_MASK, timeoutMs, new CommandScheduler.Callback() {
+                    @Override
+                    public void onResponse(byte[] frame) {
+                        int len = frame[4] & 0xFF;
+                        int status = len >= 1 && frame.length > 5 ? frame[5] & 0xFF : -1;
+                        if (status == 0) {
+                            submitWrites(s);
+                        } else {
+                            failed(s, "SELECT_FAILED", "Select status 0x" + Integer.toHexString(status));
+                        }
+                        selectNext();
+                        resolved(s);
+                    }
+
+                    @Override
+                    public void onError(String code, String message) {
+                        // The reader may still hold the previous mask: nothing is written
+                        failed(s, code, message);
+                        selectNext();
+                        resolved(s);
+                    }
+                }).exclusive());
+    }
+
+    /** Queues the writes and read-backs of an attempt whose Select was acknowledged. */
+    private void submitWrites(State s) {
+        WriteJob job = s.job;
+        int words = job.data.length / 2;
+        boolean[] writesOk = {true};
+        int[] writesLeft = {(words + chunkWords - 1) / chunkWords};
+        for (int off = 0; off < words; off += chunkWords) {
+            int ptr = job.wordPtr + off;
+            int count = Math.min(chunkWords, words - off);
+            int dataOff = off * 2;
+            s.pending++;
+            scheduler.submit(CommandScheduler.Command.request("bulkWrite",
+                    () -> FrameEncoder.writeTag(job.password, (byte) job.bank, ptr, count, job.data, dataOff),
+                    FrameEncoder.CMD_WRITE_TAG, timeoutMs, new CommandScheduler.Callback() {
+                        @Override
+                        public void onResponse(byte[] frame) {
+                            int len = frame[4] & 0xFF;
+                            int status = len >= 1 && frame.length > 5 ? frame[5] & 0xFF : -1;
+                            if (status != 0) {
+                                writesOk[0] = false;
+                                failed(s, "TAG_ERROR", "Write status 0x" + Integer.toHexString(status));
+                            }
+                            if (--writesLeft[0] == 0 && writesOk[0]) s.written = true;
+                            resolved(s);
+                        }
+
+                        @Override
+                        public void onError(String code, String message) {
+                            writesOk[0] = false;
+                            --writesLeft[0];
+                            failed(s, code, message);
+                            resolved(s);
+                        }
+                    }));
+        }
+
+        if (s.after != s.before) {
+            scheduler.submit(CommandScheduler.Command.request("bulkSelect",
+                    s.after.frame(), FrameEncoder.CMD_SELECT_MASK, timeoutMs, noop()).exclusive());
+        }
+
+        for (int off = 0; off < words; off += chunkWords) {
+            int ptr = job.wordPtr + off;
+            int count = Math.min(chunkWords, words - off);
+            int dataOff = off * 2;
+            byte[] ptrBytes = {(byte) (ptr >> 8), (byte) ptr};
+            s.pending++;
+            scheduler.submit(CommandScheduler.Command.request("bulkVerify",
+                    () -> encoder.readTag(job.password, (byte) job.bank, ptrBytes, (byte) count),
+                    FrameEncoder.CMD_READ_TAG, timeoutMs, new CommandScheduler.Callback() {
+                        @Override
+                        public void onResponse(byte[] frame) {
+                            verify(s, frame, count, dataOff);
+                            resolved(s);
+                        }
+
+                        @Override
+                        public void onError(String code, String message) {
+                            failed(s, code, message);
+                            resolved(s);
+                        }
+                    }));
+        }
+    }
+
+    private void verify(State s, byte[] frame, int count, int dataOff) {
+        int len = frame[4] & 0xFF;
+        int status = len >= 1 && frame.length > 5 ? frame[5] & 0xFF : -1;
+        if (status != 0 || len < 9 || frame.length < 5 + len) {
+            failed(s, "VERIFY_FAILED", "Read-back status 0x" + Integer.toHexString(status));
+            return;
+        }
+        int epcLen = frame[12] & 0xFF;
+        int at = 14 + epcLen;
+        int words = 13 + epcLen < 5 + len ? frame[13 + epcLen] & 0xFF : 0;
+        if (!BulkTagReader.sameEpc(s.after.mask, frame, 13, epcLen)) {
+            failed(s, "WRONG_TAG", "Answered by " + HexCodec.encode(frame, 13, Math.min(epcLen, frame.length - 13)));
+            return;
+        }
+        if (words < count || at + count * 2 > frame.length) {
+            failed(s, "VERIFY_FAILED", "Read-back returned " + words + " of " + count + " words");
+            return;
+        }
+        for (int i = 0; i < count * 2; i++) {
+            if (frame[at + i] != s.job.data[dataOff + i]) {
+                failed(s, "VERIFY_MISMATCH", "Read-back differs at word " + (s.job.wordPtr + (dataOff + i) / 2));
+                return;
+            }
+        }
+    }
+
+    private void failed(State s, String code, String message) {
+        // Link gone: let the remaining commands fail without queueing retries
+        if ("DISCONNECTED".equals(code) || "DETACHED".equals(code)) aborted = true;
+        if (s.errorCode != null) return; // keep the first error of the attempt
+        s.errorCode = code;
+        s.errorMessage = message;
+    }
+
+    private void resolved(State s) {
+        if (--s.pending > 0) return;
+        boolean last = s.errorCode == null || pass > retries || aborted;
+        if (last) {
+            s.done = true;
+            finished++;
+            if (s.errorCode == null) succeeded++;
+            if (finished - lastProgress >= progressEvery) progress();
+        }
+        if (--passPending > 0) return;
+
+        if (finished < states.length && !aborted) {
+            if (finished != lastProgress) progress();
+            runPass();
+            return;
+        }
+        if (powerChanged) {
+            scheduler.submit(CommandScheduler.Command.request("bulkRestorePower",
+                    restorePower, FrameEncoder.CMD_SET_ALL_PARAM, timeoutMs, noop()).exclusive());
+        }
+        scheduler.submit(CommandScheduler.Command.request("bulkRestoreSelect",
+                restoreSelect, FrameEncoder.CMD_SELECT_MASK, timeoutMs, noop()).exclusive());
+        if (finished != lastProgress) progress();
+        listener.onComplete(report());
+    }
+
+    private void progress() {
+        lastProgress = finished;
+        Map<String, Object> m = new HashMap<>();
+        m.put("done", finished);
+        m.put("total", states.length);
+        m.put("succeeded", succeeded);
+        m.put("failed", finished - succeeded);
+        m.put("pass", pass);
+        listener.onProgress(m);
+    }
+
+    private Map<String, Object> report() {
+        long elapsedNs = System.nanoTime() - startNs;
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (State s : states) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("target", s.targetHex);
+            if (s.after != s.before) r.put("epc", HexCodec.encode(s.after.mask));
+            r.put("ok", s.errorCode == null && s.done);
+            if (s.errorCode != null) {
+                r.put("error", s.errorCode);
+                r.put("message", s.errorMessage);
+            }
+            r.put("attempts", s.attempts);
+            results.add(r);
+        }
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("results", results);
+        m.put("succeeded", succeeded);
+        m.put("failed", states.length - succeeded);
+        m.put("passes", pass);
+        m.put("powerChanged", powerChanged);
+        m.put("elapsedMs", elapsedNs / 1_000_000);
+        m.put("tagsPerSecond", elapsedNs <= 0 ? 0.0 : succeeded * 1e9 / elapsedNs);
+        return m;
+    }
+
+    private static CommandScheduler.Callback noop() {
+        return new CommandScheduler.Callback() {
+            @Override public void onResponse(byte[] frame) {}
+            @Override public void onError(String code, String message) {}
+        };
+    }
+}
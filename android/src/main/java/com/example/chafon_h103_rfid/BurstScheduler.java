@@ -0,0 +1,174 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Duty-cycled inventory: the radio runs in bursts with off periods in between.
+ *
+ * A burst lasts burstMs and is extended by extendMs while new EPCs (never read since
+ * start) keep arriving, up to maxBurstMs. After a burst that found new tags the radio
+ * is off for minOffMs; after a burst in a static field the off period doubles, up to
+ * maxOffMs. As the battery falls below configured levels the duty cycle
+ * (on / (on + off)) is capped further by stretching the off period.
+ *
+ * The caller starts/stops inventory as told by each {@link Step} and calls
+ * {@link #tick} when the step's duration has elapsed. {@link #onRead} is called from
+ * the notify thread, the rest from the command executor.
+ */
+final class BurstScheduler {
+
+    static final long DEFAULT_BURST_MS = 2000;
+    static final long DEFAULT_EXTEND_MS = 1000;
+    static final long DEFAULT_MAX_BURST_MS = 10000;
+    static final long DEFAULT_MIN_OFF_MS = 1000;
+    static final long DEFAULT_MAX_OFF_MS = 30000;
+
+    /** What the radio should do now, and for how long before the next {@link #tick}. */
+    static final class Step {
+        final boolean on;
+        final long durationMs;
+        final String reason;
+
+        Step(boolean on, long durationMs, String reason) {
+            this.on = on;
+            this.durationMs = durationMs;
+            this.reason = reason;
+        }
+    }
+
+    private final long burstMs;
+    private final long extendMs;
+    private final long maxBurstMs;
+    private final long minOffMs;
+    private final long maxOffMs;
+    // Battery levels (descending) and the highest duty cycle allowed at or below each
+    private final int[] batteryLevels;
+    private final double[] maxDuty;
+
+    private final EpcHashSet seen = new EpcHashSet();
+    private boolean on;
+    private long phaseStartMs;
+    private long lastNewMs = Long.MIN_VALUE / 2;
+    private int burstNew;
+    private long offMs;
+
+    private int battery = -1;
+    private int batteryStart = -1;
+    private long readsAtBatteryStart;
+
+    private long reads;
+    private long bursts;
+    private long extensions;
+    private long onTimeMs;
+    private long offTimeMs;
+
+    /**
+     * @param batteryLevels battery percentages; below or at batteryLevels[i] the duty
+     *                      cycle is capped at maxDuty[i]
+     */
+    BurstScheduler(long burstMs, long extendMs, long maxBurstMs, long minOffMs, long maxOffMs,
+                   int[] batteryLevels, double[] maxDuty) {
+        if (batteryLevels.length != maxDuty.length) {
+            throw new IllegalArgumentException("batteryLevels and maxDuty differ in length");
+        }
+        this.burstMs = Math.max(100, burstMs);
+        this.extendMs = Math.max(0, extendMs);
+        this.maxBurstMs = Math.max(this.burstMs, maxBurstMs);
+        this.minOffMs = Math.max(0, minOffMs);
+        this.maxOffMs = Math.max(this.minOffMs, maxOffMs);
+        this.batteryLevels = batteryLevels.clone();
+        this.maxDuty = new double[maxDuty.length];
+        for (int i = 0; i < maxDuty.length; i++) this.maxDuty[i] = Math.max(0.01, Math.min(1.0, maxDuty[i]));
+        this.offMs = this.minOffMs;
+    }
+
+    synchronized void onRead(byte[] buf, int offset, int length, long nowMs) {
+        reads++;
+        if (seen.add(buf, offset, length)) {
+            burstNew++;
+            lastNewMs = nowMs;
+        }
+    }
+
+    synchronized void onBattery(int level, long nowMs) {
+        if (batteryStart < 0 || level > batteryStart) {
+            // First reading, or the reader was charged: measure from here
+            batteryStart = level;
+            readsAtBatteryStart = reads;
+        }
+        battery = level;
+    }
+
+    /** First burst. */
+    synchronized Step start(long nowMs) {
+        return startBurst(nowMs, "start");
+    }
+
+    synchronized Step tick(long nowMs) {
+        if (!on) {
+            offTimeMs += nowMs - phaseStartMs;
+            return startBurst(nowMs, "burst");
+        }
+
+        long burstLength = nowMs - phaseStartMs;
+        if (nowMs - lastNewMs < extendMs && burstLength + extendMs <= maxBurstMs) {
+            extensions++;
+            return new Step(true, extendMs, "new_tags");
+        }
+
+        onTimeMs += burstLength;
+        offMs = burstNew > 0 ? minOffMs : Math.min(maxOffMs, Math.max(minOffMs, offMs * 2));
+        long off = offMs;
+        String reason = burstNew > 0 ? "new_tags_seen" : "static_field";
+        double duty = dutyLimit();
+        if (duty < 1.0) {
+            long batteryOff = (long) Math.ceil(burstLength * (1 - duty) / duty);
+            if (batteryOff > off) {
+                off = batteryOff;
+                reason = "battery_low";
+            }
+        }
+        on = false;
+        phaseStartMs = nowMs;
+        return new Step(false, off, reason);
+    }
+
+    synchronized Map<String, Object> stats(long nowMs) {
+        long onMs = onTimeMs + (on ? nowMs - phaseStartMs : 0);
+        long offTotal = offTimeMs + (on ? 0 : nowMs - phaseStartMs);
+        Map<String, Object> m = new HashMap<>();
+        m.put("on", on);
+        m.put("bursts", bursts);
+        m.put("extensions", extensions);
+        m.put("reads", reads);
+        m.put("uniqueTags", seen.size());
+        m.put("onTimeMs", onMs);
+        m.put("offTimeMs", offTotal);
+        m.put("dutyCycle", onMs + offTotal == 0 ? 1.0 : (double) onMs / (onMs + offTotal));
+        m.put("maxDutyCycle", dutyLimit());
+        m.put("offMs", offMs);
+        m.put("battery", battery);
+        m.put("batteryStart", batteryStart);
+        int used = batteryStart - battery;
+        m.put("readsPerBatteryPercent", batteryStart >= 0 && used > 0 ? (double) (reads - readsAtBatteryStart) / used : null);
+        return m;
+    }
+
+    private Step startBurst(long nowMs, String reason) {
+        on = true;
+        phaseStartMs = nowMs;
+        burstNew = 0;
+        bursts++;
+        return new Step(true, burstMs, reason);
+    }
+
+    private double dutyLimit() {
+        double limit = 1.0;
+        if (battery < 0) return limit;
+        for (int i = 0; i < batteryLevels.length; i++) {
+            if (battery <= batteryLevels[i]) limit = Math.min(limit, maxDuty[i]);
+        }
+        return limit;
+    }
+}
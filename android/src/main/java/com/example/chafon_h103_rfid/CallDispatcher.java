@@ -0,0 +1,46 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs method calls in arrival order, either on the calling thread (the channel's serial
+ * background TaskQueue) or posted to the main thread for calls that own main-thread state.
+ *
+ * A call that could run inline while main-thread calls are still pending is posted behind
+ * them instead, so a getter never overtakes the setter sent before it (resetMetrics then
+ * getMetrics, setRawFrameDecoding then getFrameDecoderStats). Once the main thread has
+ * caught up, calls run inline again.
+ *
+ * dispatch() is called from one thread at a time.
+ */
+final class CallDispatcher {
+
+    private final Executor main;
+    private final AtomicInteger pendingOnMain = new AtomicInteger();
+
+    CallDispatcher(Executor main) {
+        this.main = main;
+    }
+
+    void dispatch(boolean needsMain, Runnable call) {
+        // Only the main thread lowers the count, so 0 here means every earlier call has run
+        if (!needsMain && pendingOnMain.get() == 0) {
+            call.run();
+            return;
+        }
+        pendingOnMain.incrementAndGet();
+        main.execute(() -> {
+            try {
+                call.run();
+            } finally {
+                pendingOnMain.decrementAndGet();
+            }
+        });
+    }
+
+    /** Calls posted to the main thread that have not finished yet. */
+    int pendingOnMain() {
+        return pendingOnMain.get();
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.chafon_h103_rfid;
 
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.le.ScanResult;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
@@ -15,76 +14,228 @@ import com.cf.beans.BatteryCapacityBean;
 import com.cf.beans.CmdData;
 import com.cf.beans.TagInfoBean;
 import com.cf.beans.TagOperationBean;
-import com.cf.ble.interfaces.IBtScanCallback;
-import com.cf.ble.interfaces.IConnectDoneCallback;
 import com.cf.ble.interfaces.IOnNotifyCallback;
-import com.cf.zsdk.BleCore;
-import com.cf.zsdk.CfSdk;
-import com.cf.zsdk.SdkC;
-import com.cf.zsdk.cmd.CmdBuilder;
 import com.cf.zsdk.cmd.CmdType;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.StandardMethodCodec;
 
 public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.MethodCallHandler {
     private MethodChannel channel;
     private Context context;
-    private BleCore bleCore;
-    private final Map<String, BluetoothDevice> discoveredDevices = new HashMap<>();
-    private IBtScanCallback scanCallback;
-    private boolean isScanning = false;
-
-    private MethodChannel.Result pendingGetConfigResult;
-    private MethodChannel.Result pendingSaveFlashResult;
-
-    private String radarEpc = null;
-    private boolean radarActive = false;
-
-    private Handler batteryTimeoutHandler = new Handler(Looper.getMainLooper());
-    private Runnable batteryTimeoutRunnable;
-
-    private Handler flashTimeoutHandler = new Handler(Looper.getMainLooper());
-    private Runnable flashTimeoutRunnable;
-
-    private AllParamBean latestAllParam = null;
-
-    // BLE ready/notify active flag and operation lock
-    private volatile boolean bleReady = false;
-    private final AtomicBoolean opInProgress = new AtomicBoolean(false);
-
-    // Flag to track inventory status
-    private volatile boolean inventoryRunning = false;
+    // Link of the primary reader: BleCore, or a simulated reader (useSimulatedReader)
+    private volatile ReaderTransport transport;
+    private BleCoreTransport bleTransport;
+    // Scan results (platform handles for connect), evicted when not seen for a while; replaced by each startScan
+    private volatile DeviceCache<Object> discoveredDevices = new DeviceCache<>(
+            DeviceCache.DEFAULT_TTL_MS, DeviceCache.DEFAULT_MAX_DEVICES, DeviceCache.DEFAULT_UPDATE_INTERVAL_MS);
+    private volatile boolean isScanning = false;
+    // Scan filter: 0xFFE0 in the advertised services and/or a name pattern; checked first
+    private volatile boolean scanMatchService = false;
+    @Nullable private volatile Pattern scanNamePattern = null;
+    private volatile long scanRejected = 0;
+    // > 0: sightings are reported in onScanBatch events at this interval instead of onDeviceFound
+    private long scanBatchIntervalMs = 0;
+    private final Runnable scanBatchRunnable = this::flushScanBatch;
+
+    // Radar mode: target EPCs with smoothed RSSI, reported by a main-thread ticker
+    private volatile RadarTracker radar = null;
+    // Filter of the primary reader before radar replaced it with the targets' common prefix
+    private InventoryFilter radarSavedFilter = null;
+    private boolean radarOwnsFilter = false;
+    private final Runnable radarTickRunnable = this::flushRadar;
+
+    // Reader connected through the transport; its session holds connection, parameter and inventory state
+    private ReaderSession primary;
+    // Additional readers, each on its own GATT connection, keyed by MAC address
+    private final Map<String, ReaderSession> extraReaders = new ConcurrentHashMap<>();
+    private final Map<String, GattReaderLink> extraLinks = new ConcurrentHashMap<>();
+    // Additional readers that dropped and wait for their next reconnect attempt
+    private final Map<String, ReaderSession> reconnectingReaders = new ConcurrentHashMap<>();
+    // Readers connected before, for connect-by-address without a scan
+    private KnownReaders knownReaders;
+
+    // All writes to readers go through their command schedulers (one shared executor thread)
+    private ScheduledExecutorService commandExecutor;
+    // Encodes parameterized frames at write time; only touched on commandExecutor
+    private final FrameEncoder frameEncoder = new FrameEncoder();
+
+    // Tag delivery: one shared main-thread handler, optional batching of reads
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CallDispatcher dispatcher = new CallDispatcher(mainHandler::post);
+    private final TagBatcher tagBatcher = new TagBatcher();
+    private final Runnable tagBatchFlushRunnable = this::flushTagBatch;
+
+    // Binary tag transport: fixed-layout records on a BasicMessageChannel next to the method channel
+    private BasicMessageChannel<ByteBuffer> tagChannel;
+    private final TagRecordBuffer tagRecords = new TagRecordBuffer();
+    private volatile boolean binaryTagTransport = false;
+
+    // Stage latencies notify -> decode -> main-thread post -> channel call (off by default)
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final PipelineMetrics.Delivery tagFlushDelivery = metrics.new Delivery(false);
+
+    // EventChannel streams fed from bounded queues; without a listener the method channel is used
+    private final QueuedEventStream tagEvents = new QueuedEventStream(mainHandler, 1024,
+            BoundedEventQueue.OverflowPolicy.DROP_OLDEST, metrics.new Delivery(false));
+    private final QueuedEventStream radarEvents = new QueuedEventStream(mainHandler, 64,
+            BoundedEventQueue.OverflowPolicy.COALESCE_BY_KEY);
+    // Radar reports are timed from the oldest target read waiting for the next tick
+    private final PipelineMetrics.Delivery radarTickDelivery = metrics.new Delivery(true);
+    private final QueuedEventStream batteryEvents =
+            new QueuedEventStream(mainHandler, 8, BoundedEventQueue.OverflowPolicy.DROP_OLDEST);
+
+    // EPC bytes -> hex String, reused across repeated reads of the same tag
+    private final EpcStringCache epcStrings = new EpcStringCache();
+
+    // Per-EPC aggregates; in "unique" mode only first sightings + periodic deltas go to Dart
+    private final TagAggregator tagAggregator = new TagAggregator();
+    private volatile boolean uniqueInventoryMode = false;
+    private int inventoryDeltaIntervalMs = 1000;
+    private final Runnable inventoryDeltaRunnable = this::flushInventoryDelta;
+
+    // Optional on-disk journal of every read, kept whether or not Dart is listening;
+    // opening, reading, compacting and truncating run on journalExecutor
+    private volatile TagJournal journal;
+    private ExecutorService journalExecutor;
+
+    // Notify trace replay into the primary session, run on replayExecutor
+    // (trace files are written on journalExecutor)
+    private volatile TraceReplayer traceReplayer;
+    private ExecutorService replayExecutor;
+
+    // Optional in-place decoding of raw tag frames; when on, TagInfoBean callbacks are ignored
+    private volatile boolean rawFrameDecoding = false;
 
     // Power range
     private static final int POWER_MIN = 5;
     private static final int POWER_MAX = 33; // slider up to 33
 
+    // Largest readJournal page: 16384 records of 48 bytes
+    private static final int JOURNAL_MAX_PAGE = 16384;
+
+    // Battery reading interval while burst inventory runs
+    private static final long BURST_BATTERY_POLL_MS = 60_000;
+
+    // Per-command response timeouts
+    private static final long ACK_TIMEOUT_MS        = 1000;
+    private static final long PRECAUTION_STOP_MS    = 300;
+    private static final long CONFIG_TIMEOUT_MS     = 2000;
+    private static final long READ_TAG_TIMEOUT_MS   = 3000;
+    private static final long BATTERY_TIMEOUT_MS    = 5000;
+    private static final long NOTIFY_PROBE_TIMEOUT_MS = 700;
+    private static final int NOTIFY_PROBE_ATTEMPTS   = 3;
+    private static final long CONNECT_ATTEMPT_TIMEOUT_MS = 15_000;
+
     private static final UUID SERVICE_UUID = UUID.fromString("0000ffe0-0000-1000-8000-00805f9b34fb");
     private static final UUID WRITE_UUID   = UUID.fromString("0000ffe3-0000-1000-8000-00805f9b34fb");
     private static final UUID NOTIFY_UUID  = UUID.fromString("0000ffe4-0000-1000-8000-00805f9b34fb");
+    private static final String DEFAULT_SCAN_NAME_PATTERN = "(?i)h103";
+    // How long config calls wait for a reader that is still connecting
+    private static final long READY_WAIT_MS = 1000;
+
+    // Handled on the main thread; the rest on the background TaskQueue (see onMethodCall)
+    static final Set<String> MAIN_THREAD_METHODS = new HashSet<>(Arrays.asList(
+            "startScan", "stopScan",
+            "connect", "disconnect", "connectReader", "disconnectReader", "useSimulatedReader",
+            "startAdaptiveQ", "stopAdaptiveQ",
+            "startInventory", "setInventoryFilter", "clearInventoryFilter", "stopInventory",
+            "startBurstInventory", "stopBurstInventory", "readSingleTag", "readTagsBulk", "writeTagsBulk",
+            "startRadarTracking", "stopRadarTracking", "setInventoryMode", "clearInventorySnapshot",
+            "setTagTransport", "setTagBatching", "setRawFrameDecoding", "configureEventQueue",
+            "setMetricsEnabled", "resetMetrics", "replayTrace"));
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
         context = flutterPluginBinding.getApplicationContext();
-        channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "chafon_h103_rfid");
+        knownReaders = new KnownReaders(context.getSharedPreferences(KnownReaders.PREFS_NAME, Context.MODE_PRIVATE));
+        BinaryMessenger messenger = flutterPluginBinding.getBinaryMessenger();
+        // Calls arrive on a background queue, not the main thread (see onMethodCall)
+        channel = new MethodChannel(messenger, "chafon_h103_rfid", StandardMethodCodec.INSTANCE,
+                messenger.makeBackgroundTaskQueue());
         channel.setMethodCallHandler(this);
+        tagChannel = new BasicMessageChannel<>(flutterPluginBinding.getBinaryMessenger(),
+                "chafon_h103_rfid/tags", BinaryCodec.INSTANCE);
+
+        new EventChannel(flutterPluginBinding.getBinaryMessenger(), "chafon_h103_rfid/tag_events")
+                .setStreamHandler(tagEvents);
+        new EventChannel(flutterPluginBinding.getBinaryMessenger(), "chafon_h103_rfid/radar_events")
+                .setStreamHandler(radarEvents);
+        new EventChannel(flutterPluginBinding.getBinaryMessenger(), "chafon_h103_rfid/battery_events")
+                .setStreamHandler(batteryEvents);
+
+        bleTransport = new BleCoreTransport(context, SERVICE_UUID, WRITE_UUID, NOTIFY_UUID);
+        transport = bleTransport;
+
+        commandExecutor = Executors.newSingleThreadScheduledExecutor();
+        journalExecutor = Executors.newSingleThreadExecutor();
+        replayExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "TraceReplay"));
+        primary = newSession(null, frame -> transport.write(frame));
+        universalNotifyCallback = new SessionNotifyCallback(primary);
+        transport.setNotifyCallback(universalNotifyCallback);
+    }
+
+    private ReaderSession newSession(@Nullable String address, CommandScheduler.FrameWriter writer) {
+        ReaderSession session = new ReaderSession(address, commandExecutor, writer, this::handleInventoryRead);
+        session.scheduler.setRoundTripListener((name, nanos) -> metrics.onCommandRoundTrip(nanos));
+        session.params.setFlashListener(new ParamCache.FlashListener() {
+            @Override
+            public void onFlashSaved() {
+                Log.d("CHAFON_PLUGIN", "💾 Parameters saved to FLASH");
+                Map<String, Object> info = new HashMap<>();
+                if (!extraReaders.isEmpty()) info.put("reader", session.address);
+                mainHandler.post(() -> channel.invokeMethod("onFlashSaved", info));
+            }
 
-        CfSdk.load();
-        bleCore = (BleCore) CfSdk.get(SdkC.BLE);
-        bleCore.init(context);
-        bleCore.setOnNotifyCallback(universalNotifyCallback);
+            @Override
+            public void onFlashFailed(String code, String message) {
+                Log.w("CHAFON_PLUGIN", "FLASH save failed (" + code + "): " + message);
+            }
+        });
+        return session;
     }
 
+    /**
+     * Called on the channel's background TaskQueue, one call at a time. Calls that own
+     * main-thread state (scan/batch/radar timers, reconnect tasks, inventory and event
+     * delivery settings) continue on the main thread; the rest, including all parameter
+     * and config calls, are handled here unless main-thread calls sent before them are
+     * still pending (see CallDispatcher). No handler blocks: waits are scheduled continuations.
+     */
     @Override
     public void onMethodCall(@NonNull MethodCall call, @NonNull MethodChannel.Result result) {
+        dispatcher.dispatch(MAIN_THREAD_METHODS.contains(call.method), () -> handleMethodCall(call, result));
+    }
+
+    private void handleMethodCall(MethodCall call, MethodChannel.Result result) {
         try {
             Log.d("CHAFON_PLUGIN", "📞 Method called: " + call.method);
             switch (call.method) {
@@ -92,14 +243,24 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                     result.success("Android " + android.os.Build.VERSION.RELEASE);
                     break;
 
-                case "getBatteryLevel":
-                    getBatteryLevel(result);
+                case "getBatteryLevel": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) getBatteryLevel(session, result);
                     break;
+                }
 
                 case "startScan":
-                    startScan(result);
+                    startScan(call, result);
                     break;
 
+                case "getScanStats": {
+                    Map<String, Object> stats = discoveredDevices.stats();
+                    stats.put("scanning", isScanning);
+                    stats.put("rejected", scanRejected);
+                    result.success(stats);
+                    break;
+                }
+
                 case "stopScan":
                     stopScan(result);
                     break;
@@ -107,7 +268,7 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                 case "connect": {
                     String address = call.argument("address");
                     if (address != null && !address.isEmpty()) {
-                        connect(address, result);
+                        connect(address, call, result);
                     } else {
                         result.error("INVALID_ARGUMENT", "Address is null or empty", null);
                     }
@@ -115,16 +276,89 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                 }
 
                 case "isConnected":
-                    result.success(bleCore != null && bleCore.isConnect());
+                    result.success(transport != null && transport.isConnected());
+                    break;
+
+                case "useSimulatedReader":
+                    useSimulatedReader(call, result);
                     break;
 
                 case "disconnect":
                     disconnect(result);
                     break;
 
-                case "getAllDeviceConfig":
-                    getAllDeviceConfig(result);
+                case "connectReader": {
+                    String address = call.argument("address");
+                    if (address != null && !address.isEmpty()) {
+                        connectReader(address, call, result);
+                    } else {
+                        result.error("INVALID_ARGUMENT", "Address is null or empty", null);
+                    }
+                    break;
+                }
+
+                case "disconnectReader": {
+                    String address = call.argument("address");
+                    if (address != null && !address.isEmpty()) {
+                        disconnectReader(address, result);
+                    } else {
+                        result.error("INVALID_ARGUMENT", "Address is null or empty", null);
+                    }
+                    break;
+                }
+
+                case "getReaders":
+                    result.success(readerStats());
+                    break;
+
+                case "getLinkStats": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) result.success(session.linkStats(System.nanoTime()));
+                    break;
+                }
+
+                case "getKnownReaders":
+                    result.success(knownReaders.toList());
+                    break;
+
+                case "forgetReader": {
+                    String address = call.argument("address");
+                    if (address != null) {
+                        result.success(knownReaders.forget(address));
+                    } else {
+                        knownReaders.clear();
+                        result.success(true);
+                    }
+                    break;
+                }
+
+                case "startAdaptiveQ": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) startAdaptiveQ(session, call, result);
+                    break;
+                }
+
+                case "stopAdaptiveQ": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) result.success(stopAdaptiveQ(session));
+                    break;
+                }
+
+                case "getAdaptiveQStats": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    QTuner tuner = session.qTuner;
+                    Map<String, Object> stats = tuner != null ? tuner.stats() : new HashMap<>();
+                    stats.put("running", tuner != null);
+                    result.success(stats);
                     break;
+                }
+
+                case "getAllDeviceConfig": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) getAllDeviceConfig(session, result);
+                    break;
+                }
 
                 case "sendAndSaveAllParams": {
                     Integer power   = call.argument("power");
@@ -156,14 +390,92 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                     break;
                 }
 
+                case "updateParams": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) updateParams(session, call, result);
+                    break;
+                }
+
+                case "flushParams": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+                    session.params.flush(() -> reply.success(session.params.stats()));
+                    break;
+                }
+
+                case "getParamCacheStats": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) result.success(session.params.stats());
+                    break;
+                }
+
+
+                case "startInventory": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    if (call.argument("mask") != null) {
+                        InventoryFilter filter = parseInventoryFilter(call, result);
+                        if (filter == null) break;
+                        session.filter = filter;
+                    }
+                    stopBurstTimer(session); // continuous from now on
+                    startInventory(session, result);
+                    break;
+                }
+
+                case "setInventoryFilter": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    InventoryFilter filter = parseInventoryFilter(call, result);
+                    if (filter != null) setInventoryFilter(session, filter, result);
+                    break;
+                }
 
-                case "startInventory":
-                    startInventory(result);
+                case "clearInventoryFilter": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) setInventoryFilter(session, null, result);
                     break;
+                }
+
+                case "stopInventory": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    stopBurstTimer(session);
+                    stopInventory(session, result);
+                    break;
+                }
+
+                case "startBurstInventory": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) startBurstInventory(session, call, result);
+                    break;
+                }
+
+                case "stopBurstInventory": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    Map<String, Object> stats = stopBurstTimer(session);
+                    if (session.inventoryRunning) {
+                        submitStopInventory(session, new CommandScheduler.Callback() {
+                            @Override public void onSent() { session.inventoryRunning = false; }
+                            @Override public void onResponse(byte[] frame) {}
+                            @Override public void onError(String code, String message) {}
+                        });
+                    }
+                    result.success(stats);
+                    break;
+                }
 
-                case "stopInventory":
-                    stopInventory(result);
+                case "getBurstStats": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    BurstScheduler burst = session.burst;
+                    Map<String, Object> stats = burst != null ? burst.stats(System.currentTimeMillis()) : new HashMap<>();
+                    stats.put("running", burst != null);
+                    result.success(stats);
                     break;
+                }
 
                 case "readSingleTag": {
                     Integer memoryBank = call.argument("memoryBank");
@@ -175,12 +487,47 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                     break;
                 }
 
+                case "readTagsBulk": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) readTagsBulk(session, call, result);
+                    break;
+                }
+
+                case "writeTagsBulk": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) writeTagsBulk(session, call, result);
+                    break;
+                }
+
                 case "startRadarTracking": {
+                    List<String> epcs = new ArrayList<>();
                     String radarEpcValue = call.argument("epc");
-                    if (radarEpcValue == null || radarEpcValue.isEmpty()) {
+                    List<String> radarEpcValues = call.argument("epcs");
+                    if (radarEpcValue != null && !radarEpcValue.isEmpty()) epcs.add(radarEpcValue);
+                    if (radarEpcValues != null) epcs.addAll(radarEpcValues);
+
+                    String filter = call.argument("filter");
+                    Number alpha = call.argument("alpha");
+                    Number processNoise = call.argument("processNoise");
+                    Number measurementNoise = call.argument("measurementNoise");
+                    Integer maxRateHz = call.argument("maxRateHz");
+                    RadarTracker tracker;
+                    try {
+                        tracker = new RadarTracker(epcs,
+                                "kalman".equals(filter) ? RadarTracker.Filter.KALMAN : RadarTracker.Filter.EMA,
+                                alpha != null ? alpha.doubleValue() : RadarTracker.DEFAULT_ALPHA,
+                                processNoise != null ? processNoise.doubleValue() : RadarTracker.DEFAULT_PROCESS_NOISE,
+                                measurementNoise != null ? measurementNoise.doubleValue() : RadarTracker.DEFAULT_MEASUREMENT_NOISE,
+                                maxRateHz != null ? maxRateHz : RadarTracker.DEFAULT_MAX_RATE_HZ);
+                    } catch (IllegalArgumentException e) {
+                        result.error("INVALID_ARGUMENT", e.getMessage(), null);
+                        break;
+                    }
+                    Boolean selectOnReader = call.argument("selectOnReader");
+                    if (tracker.size() == 0) {
                         result.error("INVALID_ARGUMENT", "EPC cannot be empty", null);
                     } else {
-                        startRadarTracking(radarEpcValue, result);
+                        startRadarTracking(tracker, selectOnReader != null && selectOnReader, result);
                     }
                     break;
                 }
@@ -189,6 +536,192 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                     stopRadarTracking(result);
                     break;
 
+                case "setInventoryMode": {
+                    String mode = call.argument("mode");
+                    Integer deltaIntervalMs = call.argument("deltaIntervalMs");
+                    setInventoryMode(mode != null ? mode : "raw",
+                            deltaIntervalMs != null ? deltaIntervalMs : 1000,
+                            result);
+                    break;
+                }
+
+                case "getInventorySnapshot":
+                    result.success(tagAggregator.snapshot(epcStrings));
+                    break;
+
+                case "clearInventorySnapshot":
+                    tagAggregator.clear();
+                    result.success(true);
+                    break;
+
+                case "setTagTransport": {
+                    Boolean binary = call.argument("binary");
+                    setTagTransport(binary != null && binary, result);
+                    break;
+                }
+
+                case "enableJournal": {
+                    Boolean enabled = call.argument("enabled");
+                    Integer segmentRecords = call.argument("segmentRecords");
+                    Integer maxSegments = call.argument("maxSegments");
+                    setJournalEnabled(enabled == null || enabled,
+                            segmentRecords != null ? segmentRecords : TagJournal.DEFAULT_SEGMENT_RECORDS,
+                            maxSegments != null ? maxSegments : TagJournal.DEFAULT_MAX_SEGMENTS,
+                            result);
+                    break;
+                }
+
+                case "getJournalStats":
+                    journalStats(result);
+                    break;
+
+                case "readJournal": {
+                    Number cursor = call.argument("cursor");
+                    Integer maxRecords = call.argument("maxRecords");
+                    int max = Math.max(1, Math.min(JOURNAL_MAX_PAGE, maxRecords != null ? maxRecords : 4096));
+                    long from = cursor != null ? cursor.longValue() : 0;
+                    withJournal(result, j -> j.read(from, max));
+                    break;
+                }
+
+                case "compactJournal":
+                    withJournal(result, TagJournal::compact);
+                    break;
+
+                case "truncateJournal": {
+                    Number before = call.argument("before");
+                    long cursor = before != null ? before.longValue() : -1;
+                    withJournal(result, j -> {
+                        long dropped = j.truncate(cursor);
+                        Map<String, Object> m = j.stats();
+                        m.put("dropped", dropped);
+                        return m;
+                    });
+                    break;
+                }
+
+                case "startTraceRecording": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    String path = call.argument("path");
+                    Number maxBytes = call.argument("maxBytes");
+                    startTraceRecording(session, path,
+                            maxBytes != null ? maxBytes.longValue() : TraceRecorder.DEFAULT_MAX_BYTES, result);
+                    break;
+                }
+
+                case "stopTraceRecording": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    TraceRecorder trace = session.trace;
+                    session.trace = null;
+                    if (trace != null) trace.close();
+                    result.success(trace != null ? trace.stats(System.nanoTime()) : null);
+                    break;
+                }
+
+                case "replayTrace": {
+                    String path = call.argument("path");
+                    Number speed = call.argument("speed");
+                    if (path == null || path.isEmpty()) {
+                        result.error("INVALID_ARGUMENT", "path is required", null);
+                        break;
+                    }
+                    replayTrace(new File(path), speed != null ? speed.doubleValue() : 1.0, result);
+                    break;
+                }
+
+                case "stopTraceReplay": {
+                    TraceReplayer replayer = traceReplayer;
+                    if (replayer != null) replayer.cancel();
+                    result.success(replayer != null);
+                    break;
+                }
+
+                case "setRawFrameDecoding": {
+                    Boolean enabled = call.argument("enabled");
+                    // Applied by each link's notify thread before it feeds again
+                    primary.decoder.requestReset();
+                    for (ReaderSession session : extraReaders.values()) session.decoder.requestReset();
+                    rawFrameDecoding = enabled != null && enabled;
+                    result.success(rawFrameDecoding ? "raw_decoding_enabled" : "raw_decoding_disabled");
+                    break;
+                }
+
+                case "getFrameDecoderStats": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) result.success(session.decoder.stats());
+                    break;
+                }
+
+                case "configureEventQueue": {
+                    String stream = call.argument("stream");
+                    Integer capacity = call.argument("capacity");
+                    String policy = call.argument("policy");
+                    configureEventQueue(stream != null ? stream : "tag", capacity, policy, result);
+                    break;
+                }
+
+                case "getEventQueueStats":
+                    result.success(getEventQueueStats());
+                    break;
+
+                case "setMetricsEnabled": {
+                    Boolean enabled = call.argument("enabled");
+                    Boolean reset = call.argument("reset");
+                    if (reset != null && reset) metrics.reset();
+                    metrics.setEnabled(enabled != null && enabled);
+                    result.success(metrics.isEnabled());
+                    break;
+                }
+
+                case "getMetrics":
+                    result.success(metrics.snapshot());
+                    break;
+
+                case "resetMetrics":
+                    metrics.reset();
+                    result.success(true);
+                    break;
+
+                case "configureCommandQueue": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session == null) break;
+                    Integer inFlightDepth = call.argument("inFlightDepth");
+                    Integer writeAttempts = call.argument("writeAttempts");
+                    Integer retryBackoffMs = call.argument("retryBackoffMs");
+                    session.scheduler.configure(
+                            inFlightDepth != null ? inFlightDepth : session.scheduler.getMaxInFlight(),
+                            writeAttempts != null ? writeAttempts : 3,
+                            retryBackoffMs != null ? retryBackoffMs : 120);
+                    result.success(session.scheduler.stats());
+                    break;
+                }
+
+                case "getCommandQueueStats": {
+                    ReaderSession session = sessionFor(call.argument("address"), result);
+                    if (session != null) result.success(session.scheduler.stats());
+                    break;
+                }
+
+                case "getSimulatedReaderStats": {
+                    ReaderTransport t = transport;
+                    result.success(t instanceof SimulatedH103 ? ((SimulatedH103) t).stats() : null);
+                    break;
+                }
+
+                case "setTagBatching": {
+                    Boolean enabled = call.argument("enabled");
+                    Integer intervalMs = call.argument("intervalMs");
+                    Integer maxTags = call.argument("maxTags");
+                    setTagBatching(
+                            enabled != null && enabled,
+                            intervalMs != null ? intervalMs : TagBatcher.DEFAULT_INTERVAL_MS,
+                            maxTags != null ? maxTags : TagBatcher.DEFAULT_MAX_TAGS,
+                            result);
+                    break;
+                }
+
                 default:
                     result.error("UNSUPPORTED_METHOD",
                             "Method " + call.method + " not supported",
@@ -200,9 +733,24 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
     }
 
     // ==== NOTIFY CALLBACK ====
-    private final IOnNotifyCallback universalNotifyCallback = new IOnNotifyCallback() {
+    private IOnNotifyCallback universalNotifyCallback;
+
+    /**
+     * Handles one reader's notifications. The transport calls it for the primary reader,
+     * GattReaderLink for additional readers, with the same typed-then-raw sequence.
+     */
+    private final class SessionNotifyCallback implements IOnNotifyCallback {
+        private final ReaderSession session;
+
+        SessionNotifyCallback(ReaderSession session) {
+            this.session = session;
+        }
+
         @Override
         public void onNotify(int cmdType, CmdData cmdData) {
+            TraceRecorder trace = session.trace;
+            if (trace != null) trace.onTyped(cmdType, System.nanoTime());
+            metrics.onNotify();
             try {
                 Object obj = cmdData.getData();
 
@@ -212,17 +760,15 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                         if (obj instanceof BatteryCapacityBean) {
                             int battery = ((BatteryCapacityBean) obj).mBatteryCapacity;
 
-                            if (batteryTimeoutRunnable != null) {
-                                batteryTimeoutHandler.removeCallbacks(batteryTimeoutRunnable);
-                                batteryTimeoutRunnable = null;
-                            }
-
                             Map<String, Object> batteryMap = new HashMap<>();
                             batteryMap.put("level", battery);
+                            if (!extraReaders.isEmpty()) batteryMap.put("reader", session.address);
+                            BurstScheduler burst = session.burst;
+                            if (burst != null) burst.onBattery(battery, System.currentTimeMillis());
 
-                            new Handler(Looper.getMainLooper()).post(() -> {
-                                channel.invokeMethod("onBatteryLevel", batteryMap);
-                            });
+                            if (!batteryEvents.offer(null, batteryMap)) {
+                                mainHandler.post(() -> channel.invokeMethod("onBatteryLevel", batteryMap));
+                            }
                         }
                         break;
                     }
@@ -241,20 +787,8 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
 
                     case CmdType.TYPE_GET_ALL_PARAM: {
                         if (obj instanceof AllParamBean) {
-                            AllParamBean param = (AllParamBean) obj;
-                            latestAllParam = param;
-
-                            if (pendingGetConfigResult != null) {
-                                Map<String, Object> config = new HashMap<>();
-                                config.put("power",   (int) param.mRfidPower);
-                                config.put("region",  (int) param.mRfidFreq.mREGION);
-                                config.put("qValue",  (int) param.mQValue);
-                                config.put("session", (int) param.mSession);
-
-                                MethodChannel.Result callback = pendingGetConfigResult;
-                                pendingGetConfigResult = null;
-                                callback.success(config);
-                            }
+                            // Typed callback runs before the raw frame, which completes getAllDeviceConfig
+                            session.params.load((AllParamBean) obj);
                         }
                         break;
                     }
@@ -265,39 +799,18 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
 
                     case CmdType.TYPE_INVENTORY: {
                         if (obj instanceof TagInfoBean) {
+                            if (rawFrameDecoding) break; // decoded from the raw frame instead
                             TagInfoBean tag = (TagInfoBean) obj;
                             if (tag.mEPCNum == null || tag.mEPCNum.length == 0) return;
 
-                            String epc = bytesToHexString(tag.mEPCNum);
-                            int rssi = tag.mRSSI;
-
-                            if (radarActive && radarEpc != null && epc.equalsIgnoreCase(radarEpc)) {
-                                Log.d("CHAFON_PLUGIN", "🎯 RADAR FOUND: EPC=" + epc + ", RSSI=" + rssi);
-
-                                Map<String, Object> radarMap = new HashMap<>();
-                                radarMap.put("epc", epc);
-                                radarMap.put("rssi", rssi);
-
-                                new Handler(Looper.getMainLooper()).post(() -> {
-                                    channel.invokeMethod("onRadarSignal", radarMap);
-                                });
-                            } else {
-                                Map<String, Object> tagMap = new HashMap<>();
-                                tagMap.put("epc", epc);
-                                tagMap.put("rssi", rssi);
-                                tagMap.put("antenna", tag.mAntenna);
-                                tagMap.put("timestamp", System.currentTimeMillis());
-
-                                new Handler(Looper.getMainLooper()).post(() -> {
-                                    channel.invokeMethod("onTagRead", tagMap);
-                                });
-                            }
+                            handleInventoryRead(session, tag.mEPCNum, 0, tag.mEPCNum.length, tag.mRSSI, tag.mAntenna);
                         }
                         break;
                     }
 
                     case CmdType.TYPE_READ_TAG: {
-                        if (obj instanceof TagOperationBean) {
+                        // Bulk reads are answered as one batch by BulkTagReader
+                        if (obj instanceof TagOperationBean && !session.bulkOperation) {
                             TagOperationBean tagOp = (TagOperationBean) obj;
 
                             int status = tagOp.mTagStatus;
@@ -315,7 +828,7 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                                 tagMap.put("status", status);
                                 tagMap.put("timestamp", System.currentTimeMillis());
 
-                                new Handler(Looper.getMainLooper()).post(() -> {
+                                mainHandler.post(() -> {
                                     channel.invokeMethod("onTagReadSingle", tagMap);
                                 });
                             } else {
@@ -330,19 +843,8 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
                         Object any = cmdData.getData();
                         if (any instanceof TagInfoBean) {
                             TagInfoBean tag = (TagInfoBean) any;
-                            if (tag.mEPCNum != null && tag.mEPCNum.length > 0) {
-                                String epc = bytesToHexString(tag.mEPCNum);
-                                int rssi = tag.mRSSI;
-
-                                Map<String, Object> tagMap = new HashMap<>();
-                                tagMap.put("epc", epc);
-                                tagMap.put("rssi", rssi);
-                                tagMap.put("antenna", tag.mAntenna);
-                                tagMap.put("timestamp", System.currentTimeMillis());
-
-                                new Handler(Looper.getMainLooper()).post(() -> {
-                                    channel.invokeMethod("onTagRead", tagMap);
-                                });
+                            if (!rawFrameDecoding && tag.mEPCNum != null && tag.mEPCNum.length > 0) {
+                                handleInventoryRead(session, tag.mEPCNum, 0, tag.mEPCNum.length, tag.mRSSI, tag.mAntenna);
                             }
                         } else {
                             Log.d("CHAFON_PLUGIN", "⚠️ Fallback: unknown cmdType=" + cmdType + " obj=" + any);
@@ -360,37 +862,36 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
 
         @Override
         public void onNotify(byte[] bytes) {
-            if (bytes == null || bytes.length < 5) return;
+            if (bytes == null) return;
+            TraceRecorder trace = session.trace;
+            if (trace != null) trace.onRaw(bytes, System.nanoTime());
+            session.countNotify(bytes);
+
+            // Tag frames (possibly several per notification, or split across two) decoded in place
+            if (rawFrameDecoding) {
+                metrics.onNotify();
+                session.decoder.feed(bytes, 0, bytes.length);
+            }
+
+            // The rest of a frame split across notifications only matters to the decoder
+            if (bytes.length < 5 || (bytes[0] & 0xFF) != 0xCF || (bytes[1] & 0xFF) != 0xFF) return;
 
             int cmd = bytes[3] & 0xFF;   // CMD
             int len = bytes[4] & 0xFF;   // LEN
             Log.d("CHAFON_PLUGIN", "🔍 CMD Header: " + cmd);
 
-            // FLASH ack (0x79)
-            if (cmd == 0x79) {
-                Log.d("CHAFON_PLUGIN", "💾 FLASH command successfully acknowledged");
-
-                if (flashTimeoutRunnable != null) {
-                    flashTimeoutHandler.removeCallbacks(flashTimeoutRunnable);
-                    flashTimeoutRunnable = null;
-                }
-                if (pendingSaveFlashResult != null) {
-                    pendingSaveFlashResult.success("flash_saved");
-                    pendingSaveFlashResult = null;
-                }
-                // Note: We don't resend 0x88/0x8E here.
-                return;
-            }
+            // Complete the in-flight command waiting for this CMD (0x79 flash ack, 0x72 config, ...)
+            session.scheduler.onFrame(bytes);
 
             // START INVENTORY ack (0x01, len=0x01, status byte)
             if (cmd == 0x01 && len == 0x01 && bytes.length >= 6) {
                 int status = bytes[5] & 0xFF; // 0x00=OK
                 if (status == 0x00) {
                     Log.d("CHAFON_PLUGIN", "✅ Inventory START ack (OK)");
-                    inventoryRunning = true;
+                    session.inventoryRunning = true;
                 } else {
                     Log.w("CHAFON_PLUGIN", "❌ Inventory START ack status=0x" + Integer.toHexString(status));
-                    inventoryRunning = false;
+                    session.inventoryRunning = false;
                 }
                 return;
             }
@@ -399,41 +900,50 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
             if (cmd == 0x02 && len == 0x01 && bytes.length >= 6) {
                 int status = bytes[5] & 0xFF;
                 Log.d("CHAFON_PLUGIN", "↩️ STOP ack status=0x" + Integer.toHexString(status));
-                inventoryRunning = false;
+                session.inventoryRunning = false;
                 return;
             }
 
-            // No need for remaining raw frames (e.g. tag stream 0x01 len>1) – we handle with TagInfoBean.
+            // Remaining raw frames (tag stream 0x01 len>1) come through TagInfoBean unless rawFrameDecoding is on.
         }
-    };
+    }
 
     // ==== BLE commands ====
 
-    private void getBatteryLevel(MethodChannel.Result result) {
-        if (bleCore == null || !bleCore.isConnect()) {
+    private void getBatteryLevel(ReaderSession session, MethodChannel.Result result) {
+        if (session == primary ? transport == null || !transport.isConnected() : !session.bleReady) {
             result.error("DISCONNECTED", "Device not connected", null);
             return;
         }
 
-        byte[] cmd = CmdBuilder.buildGetBatteryCapacityCmd();
-        boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
-
-        if (sent) {
-            Log.d("CHAFON_PLUGIN", "🔋 Battery level command sent.");
-            result.success("battery_request_sent");
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        session.scheduler.submit(CommandScheduler.Command.request("getBattery",
+                FrameEncoder.GET_BATTERY, FrameEncoder.CMD_GET_BATTERY, BATTERY_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override
+                    public void onSent() {
+                        Log.d("CHAFON_PLUGIN", "🔋 Battery level command sent.");
+                        reply.success("battery_request_sent");
+                    }
 
-            batteryTimeoutRunnable = () -> {
-                Log.w("CHAFON_PLUGIN", "⏰ Battery response not received (timeout)");
-                channel.invokeMethod("onBatteryTimeout", null);
-            };
-            batteryTimeoutHandler.postDelayed(batteryTimeoutRunnable, 5000);
+                    @Override
+                    public void onResponse(byte[] frame) {
+                        // Level is delivered from the typed TYPE_GET_BATTERY_CAPACITY callback
+                    }
 
-        } else {
-            result.error("BATTERY_FAILED", "Unable to send battery command", null);
-        }
+                    @Override
+                    public void onError(String code, String message) {
+                        if ("TIMEOUT".equals(code)) {
+                            Log.w("CHAFON_PLUGIN", "⏰ Battery response not received (timeout)");
+                            mainHandler.post(() -> channel.invokeMethod("onBatteryTimeout", null));
+                        } else {
+                            reply.error("BATTERY_FAILED", "Unable to send battery command", null);
+                        }
+                    }
+                }));
     }
 
-    private void startScan(MethodChannel.Result result) {
+    private void startScan(MethodCall call, MethodChannel.Result result) {
         Log.d("CHAFON_PLUGIN", "▶️ startScan method called");
 
         if (isScanning) {
@@ -442,37 +952,74 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
             return;
         }
 
+        String filter = call.argument("filter");
+        String namePattern = call.argument("namePattern");
+        Integer batchIntervalMs = call.argument("batchIntervalMs");
+        Integer rssiIntervalMs = call.argument("rssiIntervalMs");
+        Integer ttlMs = call.argument("ttlMs");
+        Integer maxDevices = call.argument("maxDevices");
+
+        String mode = filter != null ? filter : "none";
+        if (!Arrays.asList("none", "service", "name", "h103").contains(mode)) {
+            result.error("INVALID_ARGUMENT", "Unknown scan filter: " + mode, Arrays.asList("none", "service", "name", "h103"));
+            return;
+        }
+        Pattern pattern = null;
+        if (mode.equals("name") || mode.equals("h103")) {
+            try {
+                pattern = Pattern.compile(namePattern != null ? namePattern : DEFAULT_SCAN_NAME_PATTERN);
+            } catch (PatternSyntaxException e) {
+                result.error("INVALID_ARGUMENT", "Bad namePattern: " + e.getDescription(), null);
+                return;
+            }
+        }
+        scanMatchService = mode.equals("service") || mode.equals("h103");
+        scanNamePattern = pattern;
+        scanRejected = 0;
+        scanBatchIntervalMs = batchIntervalMs != null ? Math.max(50, batchIntervalMs) : 0;
+        DeviceCache<Object> cache = new DeviceCache<>(
+                ttlMs != null ? ttlMs : DeviceCache.DEFAULT_TTL_MS,
+                maxDevices != null ? maxDevices : DeviceCache.DEFAULT_MAX_DEVICES,
+                rssiIntervalMs != null ? rssiIntervalMs : DeviceCache.DEFAULT_UPDATE_INTERVAL_MS);
+        discoveredDevices = cache;
+        boolean batched = scanBatchIntervalMs > 0;
+
         try {
-            scanCallback = new IBtScanCallback() {
+            transport.startScan(new ReaderTransport.ScanListener() {
                 @Override
-                public void onBtScanResult(ScanResult pResult) {
-                    BluetoothDevice device = pResult.getDevice();
-                    if (device != null && device.getAddress() != null) {
-                        if (!discoveredDevices.containsKey(device.getAddress())) {
-                            discoveredDevices.put(device.getAddress(), device);
-                            Map<String, Object> deviceInfo = new HashMap<>();
-                            deviceInfo.put("name", device.getName() != null ? device.getName() : "Unknown");
-                            deviceInfo.put("address", device.getAddress());
-                            deviceInfo.put("rssi", pResult.getRssi());
-
-                            new Handler(Looper.getMainLooper()).post(() -> {
-                                channel.invokeMethod("onDeviceFound", deviceInfo);
-                            });
-                        }
+                public void onAdvertisement(String address, String advertisedName, int rssi,
+                                            boolean readerService, Object device) {
+                    // Other devices are dropped here, before any lookup or allocation
+                    if (!matchesScanFilter(readerService, advertisedName)) {
+                        scanRejected++;
+                        return;
+                    }
+                    String name = advertisedName;
+                    if (name == null && device instanceof BluetoothDevice) name = deviceName((BluetoothDevice) device);
+
+                    boolean isNew = cache.onSighting(address, device, name, rssi, System.currentTimeMillis());
+                    if (isNew && !batched) {
+                        Map<String, Object> deviceInfo = new HashMap<>();
+                        deviceInfo.put("name", name != null ? name : "Unknown");
+                        deviceInfo.put("address", address);
+                        deviceInfo.put("rssi", rssi);
+
+                        mainHandler.post(() -> {
+                            channel.invokeMethod("onDeviceFound", deviceInfo);
+                        });
                     }
                 }
 
                 @Override
-                public void onBtScanFail(int pErrorCode) {
+                public void onScanFailed(int pErrorCode) {
                     Log.e("CHAFON_PLUGIN", "❌ Scan failed. Code: " + pErrorCode);
-                    new Handler(Looper.getMainLooper()).post(() -> {
+                    mainHandler.post(() -> {
                         channel.invokeMethod("onScanError", "Scan error: " + pErrorCode);
                     });
                 }
-            };
-
-            bleCore.startScan(scanCallback);
+            });
             isScanning = true;
+            if (batched) mainHandler.postDelayed(scanBatchRunnable, scanBatchIntervalMs);
             Log.d("CHAFON_PLUGIN", "🚀 Scan started!");
             result.success("scan_started");
         } catch (Exception e) {
@@ -481,6 +1028,30 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
         }
     }
 
+    private boolean matchesScanFilter(boolean readerService, @Nullable String name) {
+        boolean matchService = scanMatchService;
+        Pattern pattern = scanNamePattern;
+        if (!matchService && pattern == null) return true;
+        if (matchService && readerService) return true;
+        return pattern != null && name != null && pattern.matcher(name).find();
+    }
+
+    // Runs on the main thread while a batched scan is on
+    private void flushScanBatch() {
+        if (!isScanning || scanBatchIntervalMs <= 0) return;
+        DeviceCache<Object> cache = discoveredDevices;
+        List<Map<String, Object>> devices = cache.drainUpdates(System.currentTimeMillis());
+        List<String> lost = cache.drainLost();
+        if (devices != null || lost != null) {
+            Map<String, Object> batch = new HashMap<>();
+            batch.put("devices", devices != null ? devices : new ArrayList<>());
+            batch.put("lost", lost != null ? lost : new ArrayList<>());
+            batch.put("total", cache.size());
+            channel.invokeMethod("onScanBatch", batch);
+        }
+        mainHandler.postDelayed(scanBatchRunnable, scanBatchIntervalMs);
+    }
+
     private void stopScan(@Nullable MethodChannel.Result result) {
         if (!isScanning) {
             if (result != null) result.success("scan_already_stopped");
@@ -488,8 +1059,9 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
         }
 
         try {
-            bleCore.stopScan();
+            transport.stopScan();
             isScanning = false;
+            mainHandler.removeCallbacks(scanBatchRunnable);
             if (result != null) result.success("scan_stopped");
         } catch (Exception e) {
             if (result != null) {
@@ -498,67 +1070,217 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
         }
     }
 
-    private void connect(String address, MethodChannel.Result result) {
+    private void connect(String address, MethodCall call, MethodChannel.Result result) {
         if (isScanning) {
             stopScan(null);
         }
 
-        BluetoothDevice device = discoveredDevices.get(address);
-        if (device == null) {
-            result.error("DEVICE_NOT_FOUND", "Device not found: " + address, null);
+        LinkTuning tuning = linkTuning(call, result);
+        if (tuning == null) return;
+
+        cancelReconnect(primary);
+        primary.linkTuning = tuning;
+        primary.reconnect = reconnectBackoff(call);
+        primary.connectStartNs = System.nanoTime();
+        openPrimary(address, discoveredDevices.get(address), new MainThreadResult(mainHandler, result));
+    }
+
+    /**
+     * Switches the primary reader's link to an in-process simulated H103 (enabled, the
+     * default) or back to BLE. Only while no primary reader is connected or reconnecting.
+     */
+    private void useSimulatedReader(MethodCall call, MethodChannel.Result result) {
+        if (primary.address != null || primary.reconnectTask != null) {
+            result.error("BUSY", "Disconnect the reader first", null);
             return;
         }
+        Boolean enabled = call.argument("enabled");
+        ReaderTransport previous = transport;
+        if (previous instanceof SimulatedH103) ((SimulatedH103) previous).shutdown();
+        if (enabled != null && !enabled) {
+            transport = bleTransport;
+            result.success(null);
+            return;
+        }
+
+        SimulatedH103.Config config = new SimulatedH103.Config();
+        Integer tags = call.argument("tags");
+        Integer readsPerSecond = call.argument("readsPerSecond");
+        Integer ackLatencyMs = call.argument("ackLatencyMs");
+        Integer ackJitterMs = call.argument("ackJitterMs");
+        Double ackLoss = call.argument("ackLoss");
+        Integer connectLatencyMs = call.argument("connectLatencyMs");
+        Integer battery = call.argument("battery");
+        Number seed = call.argument("seed");
+        if (tags != null) config.tags = tags;
+        if (readsPerSecond != null) config.readsPerSecond = readsPerSecond;
+        if (ackLatencyMs != null) config.ackLatencyMs = ackLatencyMs;
+        if (ackJitterMs != null) config.ackJitterMs = ackJitterMs;
+        if (ackLoss != null) config.ackLoss = ackLoss;
+        if (connectLatencyMs != null) config.connectLatencyMs = connectLatencyMs;
+        if (battery != null) config.battery = battery;
+        if (seed != null) config.seed = seed.longValue();
+
+        transport = new SimulatedH103(config);
+        Log.d("CHAFON_PLUGIN", "🧪 Simulated reader " + config.address + ": " + config.tags + " tags, "
+                + config.readsPerSecond + " reads/s");
+        result.success(config.address);
+    }
+
+    /** A scanned device, or for a valid MAC address one connected without scanning first. */
+    @Nullable
+    private BluetoothDevice resolveDevice(String address) {
+        Object device = discoveredDevices.get(address);
+        if (device instanceof BluetoothDevice) return (BluetoothDevice) device;
+        return BleCoreTransport.remoteDevice(address);
+    }
+
+    /** device: the scanned handle, or null to let the transport connect by address. */
+    private void openPrimary(String address, @Nullable Object device, MethodChannel.Result result) {
+        String name = device instanceof BluetoothDevice ? deviceName((BluetoothDevice) device) : null;
+
+        // disconnect() detaches the callbacks; reattach them for this connection
+        transport.setNotifyCallback(universalNotifyCallback);
+        transport.setConnectionListener(new ReaderTransport.ConnectionListener() {
+            @Override
+            public void onLinkLost() {
+                mainHandler.post(() -> onPrimaryLost());
+            }
 
-        bleCore.setIConnectDoneCallback(new IConnectDoneCallback() {
             @Override
             public void onConnectDone(boolean success) {
-                if (success) {
-                    bleReady = false;
-                    boolean notifySet = bleCore.setNotifyState(SERVICE_UUID, NOTIFY_UUID, true);
-                    if (notifySet) {
-                        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                            bleReady = true;
-                            configureAfterConnection(result);
-                        }, 200);
-                    } else {
-                        result.error("NOTIFY_FAILED", "Failed to enable notifications", null);
-                    }
-                } else {
+                if (!success) {
                     result.error("CONNECTION_FAILED", "Connection failed", null);
+                    return;
+                }
+                primary.address = address;
+                primary.bleReady = false;
+                if (!transport.enableNotify()) {
+                    result.error("NOTIFY_FAILED", "Failed to enable notifications", null);
+                    return;
                 }
+                // The transport does not report the CCCD descriptor write; the reader's answer to
+                // get-all-param arriving through notify confirms it (and fills the parameter cache)
+                probeNotify(primary, NOTIFY_PROBE_ATTEMPTS, ok -> {
+                    if (ok) {
+                        mainHandler.post(() -> configureAfterConnection(name, result));
+                    } else {
+                        result.error("NOTIFY_FAILED", "No notification from the reader after enabling notify", null);
+                    }
+                });
             }
         });
 
         try {
-            bleCore.connectDevice(device, context, true);
+            if (!transport.connect(address, device)) {
+                result.error("DEVICE_NOT_FOUND", "Device not found: " + address, null);
+            }
         } catch (Exception e) {
             result.error("CONNECTION_EXCEPTION", "Connection error: " + e.getMessage(), null);
         }
     }
 
-    private void configureAfterConnection(MethodChannel.Result result) {
-        try {
-            // Like official app: we don't send special 0x88/0x8E after connection
-            bleReady = true;
-            result.success(true);
-        } catch (Exception e) {
-            result.error("CONFIGURATION_FAILED", "Config error: " + e.getMessage(), null);
-        }
+    private interface ProbeDone {
+        void onProbe(boolean ok);
+    }
+
+    private void probeNotify(ReaderSession session, int attemptsLeft, ProbeDone done) {
+        session.scheduler.submit(CommandScheduler.Command.request("notifyProbe",
+                FrameEncoder.GET_ALL_PARAM, FrameEncoder.CMD_GET_ALL_PARAM, NOTIFY_PROBE_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override
+                    public void onResponse(byte[] frame) {
+                        done.onProbe(true);
+                    }
+
+                    @Override
+                    public void onError(String code, String message) {
+                        if (attemptsLeft > 1 && !"DISCONNECTED".equals(code)) {
+                            probeNotify(session, attemptsLeft - 1, done);
+                        } else {
+                            done.onProbe(false);
+                        }
+                    }
+                }));
+    }
+
+    private void configureAfterConnection(String name, MethodChannel.Result result) {
+        try {
+            // Like official app: we don't send special 0x88/0x8E after connection
+            primary.bleReady = true;
+            tunePrimaryLink();
+            knownReaders.remember(primary.address, name, System.currentTimeMillis());
+            restoreSession(primary);
+            result.success(true);
+        } catch (Exception e) {
+            result.error("CONFIGURATION_FAILED", "Config error: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Requests the primary link's connection priority now that notify is on. BleCore has
+     * negotiated its 512-byte MTU before reporting the connection; another MTU is only
+     * requested when the connect call gives one, and commands queued during that exchange
+     * are retried by the scheduler.
+     */
+    private void tunePrimaryLink() {
+        LinkTuning tuning = primary.linkTuning;
+        if (tuning == null) return;
+        try {
+            tuning.applyTo(transport, System.currentTimeMillis());
+        } catch (SecurityException e) {
+            Log.w("CHAFON_PLUGIN", "⚠️ Link tuning not permitted: " + e.getMessage());
+        }
+        reportLinkTuned(primary);
+    }
+
+    private void reportLinkTuned(ReaderSession session) {
+        Map<String, Object> info = session.linkStats(System.nanoTime());
+        Log.d("CHAFON_PLUGIN", "📶 Link tuned: " + info);
+        mainHandler.post(() -> channel.invokeMethod("onLinkTuned", info));
+    }
+
+    /** MTU and priority for a connect call; null after replying INVALID_ARGUMENT. */
+    @Nullable
+    private static LinkTuning linkTuning(MethodCall call, MethodChannel.Result result) {
+        try {
+            return LinkTuning.of(call.argument("linkProfile"), call.argument("mtu"),
+                    call.argument("connectionPriority"));
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static String deviceName(BluetoothDevice device) {
+        try {
+            return device.getName();
+        } catch (SecurityException e) {
+            return null;
+        }
     }
 
     private void disconnect(MethodChannel.Result result) {
+        cancelReconnect(primary);
+        stopAdaptiveQ(primary);
+        stopBurstTimer(primary);
+        // A FLASH save still waiting for idle goes out before the link is dropped
+        primary.params.flush(() -> mainHandler.post(() -> closePrimary(result)));
+    }
+
+    private void closePrimary(MethodChannel.Result result) {
         try {
-            bleCore.setIConnectDoneCallback(null);
-            bleCore.setOnNotifyCallback(null);
-            bleCore.disconnectedDevice();
+            transport.setConnectionListener(null);
+            transport.setNotifyCallback(null);
+            transport.disconnect();
 
-            bleReady = false;
-            latestAllParam = null;
-            inventoryRunning = false;
+            primary.onDisconnected("DISCONNECTED");
+            primary.address = null;
 
             result.success(true);
 
-            new Handler(Looper.getMainLooper()).post(() -> {
+            mainHandler.post(() -> {
                 channel.invokeMethod("onDisconnected", null);
             });
         } catch (Exception e) {
@@ -566,229 +1288,516 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
         }
     }
 
-    private void getAllDeviceConfig(MethodChannel.Result result) {
-        try {
-            if (!waitBleReady(1000)) {
-                result.error("BLE_NOT_READY", "Notify not ready", null);
-                return;
-            }
-            byte[] cmd = CmdBuilder.buildGetAllParamCmd();
-            boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
+    // ==== Automatic reconnect ====
+
+    /** Backoff from the autoReconnect (default true) / reconnect* arguments of a connect call, or null. */
+    @Nullable
+    private static ReconnectBackoff reconnectBackoff(MethodCall call) {
+        Boolean enabled = call.argument("autoReconnect");
+        if (enabled != null && !enabled) return null;
+        Integer maxAttempts = call.argument("reconnectMaxAttempts");
+        Integer initialMs = call.argument("reconnectInitialMs");
+        Integer maxMs = call.argument("reconnectMaxMs");
+        return new ReconnectBackoff(
+                initialMs != null ? initialMs : ReconnectBackoff.DEFAULT_INITIAL_MS,
+                maxMs != null ? maxMs : ReconnectBackoff.DEFAULT_MAX_MS,
+                maxAttempts != null ? maxAttempts : ReconnectBackoff.DEFAULT_MAX_ATTEMPTS,
+                ReconnectBackoff.DEFAULT_JITTER, new Random());
+    }
 
-            if (sent) {
-                pendingGetConfigResult = result; // response will come from notify
-            } else {
-                result.error("READ_CONFIG_FAILED", "BLE read command not sent", null);
-            }
-        } catch (Exception e) {
-            result.error("READ_CONFIG_EXCEPTION", "Error: " + e.getMessage(), null);
-        }
+    /** Remembers what to bring back after a reconnect; call before session.onDisconnected. */
+    private void captureRestoreState(ReaderSession session) {
+        session.restoreParams = session.params.device();
+        // Burst inventory is stopped with the link; its timer decides when the radio runs
+        session.restoreInventory = session.burst == null
+                && (session.inventoryRunning || (session == primary && radar != null));
     }
 
-    private void saveParamsToFlash(MethodChannel.Result result) {
-        try {
-            Log.d("CHAFON_PLUGIN", "💾 FLASH write command being sent...");
+    /** After a (re)connect: parameters the reader had before the drop, then inventory or radar. */
+    private void restoreSession(ReaderSession session) {
+        AllParamBean saved = session.restoreParams;
+        boolean inventory = session.restoreInventory;
+        session.restoreParams = null;
+        session.restoreInventory = false;
 
-            pendingSaveFlashResult = result;
+        if (saved != null) {
+            session.params.restore(saved, new ParamCache.Callback() {
+                @Override
+                public void onDone(boolean written) {
+                    Log.d("CHAFON_PLUGIN", written ? "♻️ Parameters restored" : "♻️ Reader kept its parameters");
+                }
 
-            byte[] cmd = new byte[]{ (byte) 0xCF, (byte) 0xFF, 0x00, (byte) 0x79, 0x00, 0x00, 0x00 };
-            int crc = calculateCRC16(cmd, 5);
-            cmd[5] = (byte) ((crc >> 8) & 0xFF);
-            cmd[6] = (byte) (crc & 0xFF);
+                @Override
+                public void onError(String code, String message) {
+                    Log.w("CHAFON_PLUGIN", "Parameters not restored (" + code + "): " + message);
+                }
+            });
+        }
+        if (inventory) {
+            // Queued behind the parameter write; radar mode keeps its filter and tick
+            submitStartInventory(session, new CommandScheduler.Callback() {
+                @Override public void onSent() { session.inventoryRunning = true; }
+                @Override public void onResponse(byte[] frame) {}
+                @Override public void onError(String code, String message) {}
+            });
+        }
+    }
 
-            boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
-            if (!sent) {
-                pendingSaveFlashResult = null;
-                result.error("FLASH_WRITE_FAILED", "FLASH command could not be sent", null);
-                return;
-            }
+    // The transport reports every link loss here, on its own thread (posted to main)
+    private void onPrimaryLost() {
+        if (primary.address == null || !primary.bleReady) return; // not connected, or an attempt failing
+        String address = primary.address;
+        Log.w("CHAFON_PLUGIN", "⚠️ Reader dropped: " + address);
 
-            // Timeout: if 0x79 ack not received within 2s, error
-            flashTimeoutRunnable = () -> {
-                if (pendingSaveFlashResult != null) {
-                    MethodChannel.Result r = pendingSaveFlashResult;
-                    pendingSaveFlashResult = null;
-                    r.error("FLASH_TIMEOUT", "FLASH response not received", null);
-                }
-            };
-            flashTimeoutHandler.postDelayed(flashTimeoutRunnable, 2000);
+        captureRestoreState(primary);
+        stopAdaptiveQ(primary);
+        stopBurstTimer(primary);
+        primary.onDisconnected("DISCONNECTED");
+        channel.invokeMethod("onDisconnected", null);
 
-        } catch (Exception e) {
-            result.error("FLASH_EXCEPTION", "Error occurred: " + e.getMessage(), null);
-        }
+        scheduleReconnect(primary, address, () -> reconnectPrimary(address));
     }
 
-    // ==== NEW: Simple API that only writes power ====
-    private void setOnlyOutputPower(int power,
-                                    boolean saveToFlash,
-                                    boolean resumeInventory,
-                                    int regionOrMinus1, // -1 if region should not be touched
-                                    MethodChannel.Result result) {
-        Log.d("CHAFON_PLUGIN", "⚙️ setOnlyOutputPower(power=" + power + ", save=" + saveToFlash +
-                ", resume=" + resumeInventory + ", region=" + regionOrMinus1 + ")");
+    private void reconnectPrimary(String address) {
+        primary.reconnectTask = null;
+        if (primary.reconnect == null) return;
+        primary.connectStartNs = System.nanoTime();
+        openPrimary(address, discoveredDevices.get(address), reconnectAttempt(primary, address,
+                () -> transport.disconnect(), () -> reconnectPrimary(address)));
+    }
 
-        if (!opInProgress.compareAndSet(false, true)) {
-            result.error("BUSY", "Another operation is in progress", null);
+    private void reconnectReader(String address, ReaderSession session) {
+        session.reconnectTask = null;
+        BluetoothDevice device = resolveDevice(address);
+        if (session.reconnect == null || reconnectingReaders.get(address) != session || device == null) return;
+        session.connectStartNs = System.nanoTime();
+        openReaderLink(address, device, session, reconnectAttempt(session, address, () -> {
+            GattReaderLink stale = extraLinks.remove(address);
+            if (stale != null) stale.close();
+        }, () -> reconnectReader(address, session)));
+    }
+
+    /** Next attempt after the backoff delay, or onReconnectFailed once the attempts are used up. */
+    private void scheduleReconnect(ReaderSession session, String address, Runnable attempt) {
+        ReconnectBackoff backoff = session.reconnect;
+        long delay = backoff != null ? backoff.nextDelayMs() : -1;
+        if (delay < 0) {
+            reconnectingReaders.remove(address, session);
+            session.restoreParams = null;
+            session.restoreInventory = false;
+            if (backoff != null) {
+                Map<String, Object> info = new HashMap<>();
+                info.put("address", address);
+                info.put("attempts", backoff.attempts());
+                mainHandler.post(() -> channel.invokeMethod("onReconnectFailed", info));
+            }
             return;
         }
 
-        boolean wasRunning = inventoryRunning;
+        Map<String, Object> info = new HashMap<>();
+        info.put("address", address);
+        info.put("attempt", backoff.attempts());
+        info.put("delayMs", delay);
+        mainHandler.post(() -> channel.invokeMethod("onReconnecting", info));
+        session.reconnectTask = commandExecutor.schedule(() -> mainHandler.post(attempt), delay, TimeUnit.MILLISECONDS);
+    }
 
-        try {
-            if (!waitBleReady(1000) || bleCore == null || !bleCore.isConnect()) {
-                opInProgress.set(false);
-                result.error("BLE_NOT_READY", "Device not connected or notify not ready", null);
-                return;
+    /**
+     * Completion of one reconnect attempt. Success reports onReconnected; failure or no
+     * ready link within CONNECT_ATTEMPT_TIMEOUT_MS runs cleanup and schedules the next one.
+     */
+    private MethodChannel.Result reconnectAttempt(ReaderSession session, String address,
+                                                  Runnable cleanup, Runnable retry) {
+        MethodChannel.Result attempt = new MainThreadResult(mainHandler, new MethodChannel.Result() {
+            @Override
+            public void success(Object value) {
+                ReconnectBackoff backoff = session.reconnect;
+                Map<String, Object> info = new HashMap<>();
+                info.put("address", address);
+                info.put("attempts", backoff != null ? backoff.attempts() : 0);
+                info.put("inventoryRunning", session.inventoryRunning);
+                if (backoff != null) backoff.reset();
+                session.reconnects++;
+                reconnectingReaders.remove(address, session);
+                Log.d("CHAFON_PLUGIN", "🔁 Reader reconnected: " + address);
+                channel.invokeMethod("onReconnected", info);
             }
 
-            if (wasRunning) {
-                internalStopInventory();
-                try { Thread.sleep(150); } catch (InterruptedException ignored) {}
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                Log.w("CHAFON_PLUGIN", "Reconnect to " + address + " failed (" + errorCode + ")");
+                if (session.reconnect == null) return; // cancelled meanwhile
+                cleanup.run();
+                scheduleReconnect(session, address, retry);
             }
 
-            if (latestAllParam == null) {
-                // if latestAllParam doesn't exist: use provided region, otherwise default ETSI(2)
-                int effectiveRegion = (regionOrMinus1 == -1) ? 2 : regionOrMinus1;
-                latestAllParam = makeAllParamsFromDefaults(power, effectiveRegion, /*q*/4, /*session*/0);
-            } else {
-                int p = Math.max(POWER_MIN, Math.min(POWER_MAX, power));
-                latestAllParam.mRfidPower = (byte) p;
+            @Override
+            public void notImplemented() {}
+        });
+        commandExecutor.schedule(() -> attempt.error("TIMEOUT", "Reader not ready in time", null),
+                CONNECT_ATTEMPT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        return attempt;
+    }
 
-                // if region param is provided, also update frequency table
-                if (regionOrMinus1 != -1) {
-                    latestAllParam.mRfidFreq = buildFreqByRegion(regionOrMinus1);
-                }
-            }
+    private void cancelReconnect(ReaderSession session) {
+        session.reconnect = null;
+        if (session.reconnectTask != null) {
+            session.reconnectTask.cancel(false);
+            session.reconnectTask = null;
+        }
+        session.restoreParams = null;
+        session.restoreInventory = false;
+    }
 
-            // Write to RAM
-            byte[] cmd = CmdBuilder.buildSetAllParamCmd(latestAllParam);
-            boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
-            if (!sent) {
-                if (resumeInventory && wasRunning) internalStartInventory();
-                opInProgress.set(false);
-                result.error("WRITE_FAILED", "Parameters not written to RAM", null);
-                return;
-            }
+    // ==== Additional readers ====
 
-            if (saveToFlash) {
-                saveParamsToFlash(new MethodChannel.Result() {
-                    @Override public void success(Object res) {
-                        if (resumeInventory && wasRunning) internalStartInventory();
-                        opInProgress.set(false);
-                        result.success(res); // "flash_saved"
-                    }
-                    @Override public void error(String code, String msg, Object details) {
-                        if (resumeInventory && wasRunning) internalStartInventory();
-                        opInProgress.set(false);
-                        result.error(code, msg, details);
+    /** Session for an optional address argument; null address means the primary reader. */
+    @Nullable
+    private ReaderSession sessionFor(@Nullable String address, MethodChannel.Result result) {
+        if (address == null || address.equalsIgnoreCase(primary.address)) return primary;
+        ReaderSession session = extraReaders.get(address);
+        if (session == null) {
+            result.error("READER_NOT_CONNECTED", "Reader not connected: " + address, null);
+        }
+        return session;
+    }
+
+    private void connectReader(String address, MethodCall call, MethodChannel.Result result) {
+        if (address.equalsIgnoreCase(primary.address) && primary.bleReady) {
+            result.success(true);
+            return;
+        }
+        if (extraLinks.containsKey(address)) {
+            result.error("ALREADY_CONNECTING", "Reader already connected or connecting: " + address, null);
+            return;
+        }
+
+        BluetoothDevice device = resolveDevice(address);
+        if (device == null) {
+            result.error("DEVICE_NOT_FOUND", "Device not found: " + address, null);
+            return;
+        }
+        LinkTuning tuning = linkTuning(call, result);
+        if (tuning == null) return;
+
+        // A reader waiting for its next reconnect attempt keeps its session (filter, counters)
+        ReaderSession session = reconnectingReaders.remove(address);
+        if (session != null) {
+            cancelReconnect(session);
+        } else {
+            session = newSession(address, frame -> {
+                GattReaderLink link = extraLinks.get(address);
+                return link != null && link.write(frame);
+            });
+        }
+        session.linkTuning = tuning;
+        session.reconnect = reconnectBackoff(call);
+        session.connectStartNs = System.nanoTime();
+        openReaderLink(address, device, session, new MainThreadResult(mainHandler, result));
+    }
+
+    private void openReaderLink(String address, BluetoothDevice device, ReaderSession session,
+                                MethodChannel.Result reply) {
+        String name = deviceName(device);
+        boolean[] replied = new boolean[1];
+        GattReaderLink link = new GattReaderLink(SERVICE_UUID, WRITE_UUID, NOTIFY_UUID,
+                new SessionNotifyCallback(session), new GattReaderLink.Listener() {
+                    @Override
+                    public void onReady() {
+                        session.bleReady = true;
+                        extraReaders.put(address, session);
+                        knownReaders.remember(address, name, System.currentTimeMillis());
+                        if (session.linkTuning != null) reportLinkTuned(session);
+                        loadParams(session);
+                        restoreSession(session);
+                        Log.d("CHAFON_PLUGIN", "✅ Reader ready: " + address);
+                        if (!replied[0]) {
+                            replied[0] = true;
+                            reply.success(true);
+                        }
                     }
-                    @Override public void notImplemented() {
-                        if (resumeInventory && wasRunning) internalStartInventory();
-                        opInProgress.set(false);
-                        result.notImplemented();
+
+                    @Override
+                    public void onDisconnected(boolean wasReady) {
+                        extraLinks.remove(address);
+                        extraReaders.remove(address);
+                        if (wasReady) captureRestoreState(session);
+                        stopAdaptiveQ(session);
+                        stopBurstTimer(session);
+                        session.onDisconnected("DISCONNECTED");
+                        if (!replied[0]) {
+                            replied[0] = true;
+                            reply.error("CONNECTION_FAILED", "Connection failed: " + address, null);
+                            return;
+                        }
+                        Map<String, Object> info = new HashMap<>();
+                        info.put("address", address);
+                        mainHandler.post(() -> channel.invokeMethod("onReaderDisconnected", info));
+                        if (session.reconnect != null) {
+                            reconnectingReaders.put(address, session);
+                            mainHandler.post(() -> scheduleReconnect(session, address,
+                                    () -> reconnectReader(address, session)));
+                        }
                     }
-                });
-            } else {
-                if (resumeInventory && wasRunning) internalStartInventory();
-                opInProgress.set(false);
-                result.success("ok");
-            }
+                }, session.linkTuning);
+        extraLinks.put(address, link);
 
+        try {
+            link.connect(context, device);
         } catch (Exception e) {
-            if (resumeInventory && wasRunning) internalStartInventory();
-            opInProgress.set(false);
-            result.error("SET_POWER_EXCEPTION", e.getMessage(), null);
+            extraLinks.remove(address);
+            reply.error("CONNECTION_EXCEPTION", "Connection error: " + e.getMessage(), null);
         }
     }
 
+    private void disconnectReader(String address, MethodChannel.Result result) {
+        if (address.equalsIgnoreCase(primary.address)) {
+            disconnect(result);
+            return;
+        }
+        ReaderSession waiting = reconnectingReaders.remove(address);
+        if (waiting != null) cancelReconnect(waiting);
+        GattReaderLink link = extraLinks.get(address);
+        ReaderSession session = extraReaders.get(address);
+        if (link == null) {
+            result.success(waiting != null);
+            return;
+        }
+        if (session == null) {
+            closeReader(address, link, null, result);
+            return;
+        }
+        cancelReconnect(session);
+        stopAdaptiveQ(session);
+        stopBurstTimer(session);
+        // A FLASH save still waiting for idle goes out before the link is dropped
+        session.params.flush(() -> mainHandler.post(() -> closeReader(address, link, session, result)));
+    }
 
-    // ==== MAIN CHANGE: Version that works without getAllDeviceConfig ====
-    private void sendAndSaveAllParams(int power, int region, int qValue, int session, MethodChannel.Result result) {
-        Log.d("CHAFON_PLUGIN", "📦 sendAndSaveAllParams(power=" + power + ", region=" + region + ", q=" + qValue + ", s=" + session + ")");
-
-        if (!opInProgress.compareAndSet(false, true)) {
-            result.error("BUSY", "Another parameters operation is in progress", null);
+    private void closeReader(String address, GattReaderLink link, @Nullable ReaderSession session,
+                             MethodChannel.Result result) {
+        if (extraLinks.get(address) != link) {
+            // Dropped by the reader while the FLASH save was going out
+            result.success(true);
             return;
         }
+        extraLinks.remove(address);
+        extraReaders.remove(address);
+        link.close();
+        if (session != null) session.onDisconnected("DISCONNECTED");
+        result.success(true);
+    }
 
-        boolean wasRunning = inventoryRunning;
+    private List<Map<String, Object>> readerStats() {
+        List<Map<String, Object>> readers = new ArrayList<>();
+        if (primary.address != null) {
+            Map<String, Object> m = primary.stats();
+            m.put("primary", true);
+            readers.add(m);
+        }
+        for (ReaderSession session : extraReaders.values()) {
+            Map<String, Object> m = session.stats();
+            m.put("primary", false);
+            readers.add(m);
+        }
+        return readers;
+    }
 
+    private void getAllDeviceConfig(ReaderSession session, MethodChannel.Result result) {
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        whenReady(session, "Notify not ready", reply, () -> readAllDeviceConfig(session, reply));
+    }
+
+    private void readAllDeviceConfig(ReaderSession session, MethodChannel.Result reply) {
         try {
-            if (!waitBleReady(1000) || bleCore == null || !bleCore.isConnect()) {
-                opInProgress.set(false);
-                result.error("BLE_NOT_READY", "Notify/CCCD not ready or device not connected", null);
-                return;
-            }
+            session.scheduler.submit(CommandScheduler.Command.request("getAllParam",
+                    FrameEncoder.GET_ALL_PARAM, FrameEncoder.CMD_GET_ALL_PARAM, CONFIG_TIMEOUT_MS,
+                    new CommandScheduler.Callback() {
+                        @Override
+                        public void onResponse(byte[] frame) {
+                            AllParamBean param = session.params.device();
+                            if (param == null) {
+                                reply.error("READ_CONFIG_FAILED", "Config response could not be parsed", null);
+                                return;
+                            }
+                            Map<String, Object> config = new HashMap<>();
+                            config.put("power",   (int) param.mRfidPower);
+                            config.put("region",  (int) param.mRfidFreq.mREGION);
+                            config.put("qValue",  (int) param.mQValue);
+                            config.put("session", (int) param.mSession);
+                            reply.success(config);
+                        }
+
+                        @Override
+                        public void onError(String code, String message) {
+                            if ("TIMEOUT".equals(code)) {
+                                reply.error("READ_CONFIG_TIMEOUT", "Config response not received", null);
+                            } else {
+                                reply.error("READ_CONFIG_FAILED", "BLE read command not sent", null);
+                            }
+                        }
+                    }));
+        } catch (Exception e) {
+            reply.error("READ_CONFIG_EXCEPTION", "Error: " + e.getMessage(), null);
+        }
+    }
+
+    // ==== NEW: Simple API that only writes power ====
+    // resumeInventory is accepted for compatibility: the write no longer stops inventory
+    private void setOnlyOutputPower(int power,
+                                    boolean saveToFlash,
+                                    boolean resumeInventory,
+                                    int regionOrMinus1, // -1 if region should not be touched
+                                    MethodChannel.Result result) {
+        Log.d("CHAFON_PLUGIN", "⚙️ setOnlyOutputPower(power=" + power + ", save=" + saveToFlash +
+                ", resume=" + resumeInventory + ", region=" + regionOrMinus1 + ")");
 
-            // If inventory is running, stop it
-            if (wasRunning) {
-                internalStopInventory();
-                try { Thread.sleep(150); } catch (InterruptedException ignored) {}
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        whenReady(primary, "Device not connected or notify not ready", reply, () -> {
+            try {
+                // Used only if the parameters could not be read at connect: region given, otherwise ETSI(2)
+                int effectiveRegion = (regionOrMinus1 == -1) ? 2 : regionOrMinus1;
+                int p = Math.max(POWER_MIN, Math.min(POWER_MAX, power));
+                primary.params.update(makeAllParamsFromDefaults(p, effectiveRegion, /*q*/4, /*session*/0), params -> {
+                    params.mRfidPower = (byte) p;
+                    // if region param is provided, also update frequency table
+                    if (regionOrMinus1 != -1) params.mRfidFreq = buildFreqByRegion(regionOrMinus1);
+                }, saveToFlash, paramsReply("Parameters not written to RAM", reply));
+            } catch (Exception e) {
+                reply.error("SET_POWER_EXCEPTION", e.getMessage(), null);
             }
+        });
+    }
+
 
-            if (latestAllParam == null) {
-                latestAllParam = makeAllParamsFromDefaults(power, region, qValue, session); // <<< region used here
-            } else {
+    // ==== MAIN CHANGE: Version that works without getAllDeviceConfig ====
+    private void sendAndSaveAllParams(int power, int region, int qValue, int session, MethodChannel.Result result) {
+        Log.d("CHAFON_PLUGIN", "📦 sendAndSaveAllParams(power=" + power + ", region=" + region + ", q=" + qValue + ", s=" + session + ")");
+
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        whenReady(primary, "Notify/CCCD not ready or device not connected", reply, () -> {
+            try {
                 int p = Math.max(POWER_MIN, Math.min(POWER_MAX, power));
-                latestAllParam.mRfidPower = (byte) p;
-                latestAllParam.mQValue    = (byte) qValue;
-                latestAllParam.mSession   = (byte) session;
-                latestAllParam.mRfidFreq  = buildFreqByRegion(region); // <<< here too!
-            }
-
-            // Write to RAM
-            byte[] cmd = CmdBuilder.buildSetAllParamCmd(latestAllParam);
-            boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
-            if (!sent) {
-                if (wasRunning) internalStartInventory();
-                opInProgress.set(false);
-                result.error("WRITE_FAILED", "Parameters could not be written to RAM", null);
-                return;
+                primary.params.update(makeAllParamsFromDefaults(p, region, qValue, session), params -> {
+                    params.mRfidPower = (byte) p;
+                    params.mQValue    = (byte) qValue;
+                    params.mSession   = (byte) session;
+                    params.mRfidFreq  = buildFreqByRegion(region);
+                }, true, paramsReply("Parameters could not be written to RAM", reply));
+            } catch (Exception e) {
+                reply.error("WRITE_EXCEPTION", "Error occurred: " + e.getMessage(), null);
             }
+        });
+    }
 
-            // Save to FLASH
-            saveParamsToFlash(new MethodChannel.Result() {
-                @Override public void success(Object res) {
-                    if (wasRunning) internalStartInventory();
-                    opInProgress.set(false);
-                    result.success(res); // "flash_saved"
-                }
-                @Override public void error(String code, String msg, Object details) {
-                    if (wasRunning) internalStartInventory();
-                    opInProgress.set(false);
-                    result.error(code, msg, details);
-                }
-                @Override public void notImplemented() {
-                    if (wasRunning) internalStartInventory();
-                    opInProgress.set(false);
-                    result.notImplemented();
+    /**
+     * Replies "ok" once the reader has the parameters in RAM (or already had them). A
+     * requested FLASH save follows when the reader is idle and is reported by onFlashSaved.
+     * reply is called from the command executor, so it must be a MainThreadResult.
+     */
+    private ParamCache.Callback paramsReply(String writeFailedMessage, MethodChannel.Result reply) {
+        return new ParamCache.Callback() {
+            @Override
+            public void onDone(boolean written) {
+                syncAdaptiveQ(primary);
+                reply.success("ok");
+            }
+
+            @Override
+            public void onError(String code, String message) {
+                if ("TIMEOUT".equals(code)) {
+                    reply.error("WRITE_TIMEOUT", "RAM write not acknowledged", null);
+                } else {
+                    reply.error("WRITE_FAILED", writeFailedMessage, null);
                 }
-            });
+            }
+        };
+    }
 
-        } catch (Exception e) {
-            if (wasRunning) internalStartInventory();
-            opInProgress.set(false);
-            result.error("WRITE_EXCEPTION", "Error occurred: " + e.getMessage(), null);
+    /**
+     * Changes any of power, region, qValue and session in one RAM write. Fields that are
+     * not given keep the reader's values; nothing is sent when nothing changes. With
+     * persist (default true) the FLASH save is deferred until the reader is idle or
+     * disconnects, or flushParams is called.
+     */
+    private void updateParams(ReaderSession session, MethodCall call, MethodChannel.Result result) {
+        Integer power = call.argument("power");
+        Integer region = call.argument("region");
+        Integer qValue = call.argument("qValue");
+        Integer sessionArg = call.argument("session");
+        Boolean persist = call.argument("persist");
+
+        if (!session.bleReady) {
+            result.error("BLE_NOT_READY", "Notify/connection not ready", null);
+            return;
+        }
+        if ((qValue != null && (qValue < 0 || qValue > 15)) || (sessionArg != null && (sessionArg < 0 || sessionArg > 3))) {
+            result.error("INVALID_ARGUMENT", "qValue must be 0..15 and session 0..3", null);
+            return;
         }
+
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        session.params.update(null, p -> {
+            if (power != null) p.mRfidPower = (byte) Math.max(POWER_MIN, Math.min(POWER_MAX, power));
+            if (region != null) p.mRfidFreq = buildFreqByRegion(region);
+            if (qValue != null) p.mQValue = (byte) (int) qValue;
+            if (sessionArg != null) p.mSession = (byte) (int) sessionArg;
+        }, persist == null || persist, new ParamCache.Callback() {
+            @Override
+            public void onDone(boolean written) {
+                syncAdaptiveQ(session);
+                Map<String, Object> m = new HashMap<>();
+                m.put("written", written);
+                m.put("flashPending", session.params.stats().get("flashPending"));
+                reply.success(m);
+            }
+
+            @Override
+            public void onError(String code, String message) {
+                if ("PARAMS_UNKNOWN".equals(code)) {
+                    reply.error(code, "Reader parameters not read yet; call getAllDeviceConfig", null);
+                } else if ("TIMEOUT".equals(code)) {
+                    reply.error("WRITE_TIMEOUT", "RAM write not acknowledged", null);
+                } else {
+                    reply.error(code, message, null);
+                }
+            }
+        });
     }
 
-    // ==== Helpers ====
+    /** Lets a running adaptive Q tuner adopt Q/session written by the app. */
+    private void syncAdaptiveQ(ReaderSession session) {
+        QTuner tuner = session.qTuner;
+        AllParamBean params = session.params.device();
+        if (tuner != null && params != null) tuner.sync(params.mQValue, params.mSession);
+    }
 
-    private boolean waitBleReady(long timeoutMs) {
-        long end = System.currentTimeMillis() + timeoutMs;
-        while (!bleReady && System.currentTimeMillis() < end) {
-            try { Thread.sleep(50); } catch (InterruptedException ignored) {}
-        }
-        return bleReady;
+    /** Reads the reader's parameters into its cache; the typed GET_ALL_PARAM callback loads them. */
+    private void loadParams(ReaderSession session) {
+        session.scheduler.submit(CommandScheduler.Command.request("loadParams",
+                FrameEncoder.GET_ALL_PARAM, FrameEncoder.CMD_GET_ALL_PARAM, CONFIG_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override public void onResponse(byte[] frame) {}
+
+                    @Override
+                    public void onError(String code, String message) {
+                        Log.w("CHAFON_PLUGIN", "Parameters not read at connect (" + code + ")");
+                    }
+                }));
     }
 
-    private boolean writeWithRetry(UUID service, UUID write, byte[] data) {
-        for (int i = 0; i < 3; i++) {
-            boolean ok = bleCore.writeData(service, write, data);
-            if (ok) return true;
-            try { Thread.sleep(120L * (i + 1)); } catch (InterruptedException ignored) {}
-        }
-        return false;
+    // ==== Helpers ====
+
+    /**
+     * Runs next once the session's notify path is confirmed (for the primary reader, with
+     * the link up), or fails reply with BLE_NOT_READY after READY_WAIT_MS. A reader still
+     * connecting is polled on the command executor; the calling thread is not held.
+     */
+    private void whenReady(ReaderSession session, String notReadyMessage, MethodChannel.Result reply, Runnable next) {
+        ReadyWait.when(commandExecutor,
+                () -> session.bleReady && (session != primary || (transport != null && transport.isConnected())),
+                READY_WAIT_MS, ReadyWait.DEFAULT_POLL_MS, next,
+                () -> reply.error("BLE_NOT_READY", notReadyMessage, null));
     }
 
     private AllParamBean.RfidFreq buildFreqByRegion(int region) {
@@ -823,90 +1832,539 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
         return b;
     }
 
-    private int calculateCRC16(byte[] data, int length) {
-        int crc = 0xFFFF;
-        for (int i = 0; i < length; i++) {
-            crc ^= data[i] & 0xFF;
-            for (int j = 0; j < 8; j++) {
-                if ((crc & 0x0001) != 0) {
-                    crc = (crc >> 1) ^ 0x8408;
-                } else {
-                    crc >>= 1;
+    private void startInventory(ReaderSession session, MethodChannel.Result result) {
+        if (!session.bleReady || (session == primary && (transport == null || !transport.isConnected()))) {
+            result.error("BLE_NOT_READY", "Notify/connection not ready", null);
+            return;
+        }
+
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+
+        // 1) STOP as precaution (0x02); a missing ack is fine when nothing was running
+        session.scheduler.submit(CommandScheduler.Command.ack("precautionStop",
+                FrameEncoder.STOP_INVENTORY, FrameEncoder.CMD_STOP_INVENTORY, PRECAUTION_STOP_MS,
+                new CommandScheduler.Callback() {
+                    @Override public void onResponse(byte[] frame) {}
+                    @Override public void onError(String code, String message) {}
+                }).exclusive());
+
+        // 2) Program (or clear) the Select mask so only matching tags answer
+        submitSelect(session);
+
+        // 3) START (0x01) – like official app, we don't change read-mode/out-mode
+        session.scheduler.submit(CommandScheduler.Command.ack("startInventory",
+                FrameEncoder.START_INVENTORY, FrameEncoder.CMD_START_INVENTORY, ACK_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override
+                    public void onSent() {
+                        session.inventoryRunning = true;
+                        reply.success("inventory_started");
+                    }
+
+                    @Override
+                    public void onResponse(byte[] frame) {}
+
+                    @Override
+                    public void onError(String code, String message) {
+                        if ("TIMEOUT".equals(code)) {
+                            Log.w("CHAFON_PLUGIN", "⏰ Inventory START ack not received");
+                        } else {
+                            session.inventoryRunning = false;
+                            reply.error("INVENTORY_FAILED", "start cmd not sent", null);
+                        }
+                    }
+                }));
+    }
+
+    private void stopInventory(ReaderSession session, MethodChannel.Result result) {
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        submitStopInventory(session, new CommandScheduler.Callback() {
+            @Override
+            public void onSent() {
+                session.inventoryRunning = false;
+                reply.success("inventory_stopped");
+            }
+
+            @Override
+            public void onResponse(byte[] frame) {}
+
+            @Override
+            public void onError(String code, String message) {
+                if (!"TIMEOUT".equals(code)) {
+                    reply.error("INVENTORY_STOP_FAILED", "stop cmd not sent", null);
                 }
             }
+        });
+    }
+
+    // Internal stop (doesn't return result)
+    private void internalStopInventory() {
+        submitStopInventory(primary, new CommandScheduler.Callback() {
+            @Override public void onSent() { primary.inventoryRunning = false; }
+            @Override public void onResponse(byte[] frame) {}
+            @Override public void onError(String code, String message) {}
+        });
+    }
+
+    private void submitStartInventory(ReaderSession session, CommandScheduler.Callback callback) {
+        submitSelect(session);
+        session.scheduler.submit(CommandScheduler.Command.ack("startInventory",
+                FrameEncoder.START_INVENTORY, FrameEncoder.CMD_START_INVENTORY, ACK_TIMEOUT_MS,
+                callback));
+    }
+
+    // Exclusive: later commands wait for the stop ack instead of a fixed sleep
+    private void submitStopInventory(ReaderSession session, CommandScheduler.Callback callback) {
+        session.scheduler.submit(CommandScheduler.Command.ack("stopInventory",
+                FrameEncoder.STOP_INVENTORY, FrameEncoder.CMD_STOP_INVENTORY, ACK_TIMEOUT_MS,
+                callback).exclusive());
+    }
+
+    // ==== Reader-side filtering ====
+
+    /** Filter from bank / bitPointer / mask / bitLength arguments; reports the error and returns null if invalid. */
+    @Nullable
+    private InventoryFilter parseInventoryFilter(MethodCall call, MethodChannel.Result result) {
+        Object bank = call.argument("bank");
+        if (bank != null && !"epc".equals(bank) && !Integer.valueOf(0x01).equals(bank)) {
+            // The H103 select command (0x07) has no bank field and always matches the EPC
+            result.error("UNSUPPORTED_BANK", "Reader-side filtering only supports the EPC bank", null);
+            return null;
+        }
+        String mask = call.argument("mask");
+        Integer bitPointer = call.argument("bitPointer");
+        Integer bitLength = call.argument("bitLength");
+        try {
+            byte[] maskBytes = HexCodec.decodeStrict(mask);
+            return new InventoryFilter(bitPointer != null ? bitPointer : 0, maskBytes,
+                    bitLength != null ? bitLength : Math.min(InventoryFilter.MAX_BITS, maskBytes.length * 8));
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return null;
+        }
+    }
+
+    /** Stores the filter (null clears it) and programs the reader now if it is connected. */
+    private void setInventoryFilter(ReaderSession session, @Nullable InventoryFilter filter,
+                                    MethodChannel.Result result) {
+        if (session == primary) radarOwnsFilter = false; // an explicit filter outlives radar mode
+        session.filter = filter;
+        Map<String, Object> info = filter != null ? filter.toMap() : new HashMap<>();
+        if (!session.bleReady) {
+            // Sent before the next inventory start
+            result.success(info);
+            return;
+        }
+
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        boolean wasRunning = session.inventoryRunning;
+        if (wasRunning) {
+            submitStopInventory(session, new CommandScheduler.Callback() {
+                @Override public void onResponse(byte[] frame) {}
+                @Override public void onError(String code, String message) {}
+            });
+        }
+        submitSelect(session, new CommandScheduler.Callback() {
+            @Override
+            public void onResponse(byte[] frame) {
+                reply.success(info);
+            }
+
+            @Override
+            public void onError(String code, String message) {
+                reply.error("FILTER_FAILED", "Select mask not applied: " + message, null);
+            }
+        });
+        if (wasRunning) {
+            session.scheduler.submit(CommandScheduler.Command.ack("startInventory",
+                    FrameEncoder.START_INVENTORY, FrameEncoder.CMD_START_INVENTORY, ACK_TIMEOUT_MS,
+                    new CommandScheduler.Callback() {
+                        @Override public void onSent() { session.inventoryRunning = true; }
+                        @Override public void onResponse(byte[] frame) {}
+                        @Override public void onError(String code, String message) {}
+                    }));
         }
-        return crc;
     }
 
-    private void startInventory(MethodChannel.Result result) {
-        if (!bleReady || bleCore == null || !bleCore.isConnect()) {
+    private void submitSelect(ReaderSession session) {
+        submitSelect(session, null);
+    }
+
+    /**
+     * Sends the session's Select mask, or clears a mask left on the reader. Nothing is sent
+     * when neither is needed, so unfiltered starts cost no extra round trip.
+     */
+    private void submitSelect(ReaderSession session, @Nullable CommandScheduler.Callback callback) {
+        InventoryFilter filter = session.filter;
+        if (filter == null && !session.selectProgrammed && callback == null) return;
+
+        byte[] frame = filter != null ? filter.frame() : FrameEncoder.CLEAR_SELECT;
+        if (filter != null) session.selectProgrammed = true;
+        session.scheduler.submit(CommandScheduler.Command.request("selectMask",
+                frame, FrameEncoder.CMD_SELECT_MASK, ACK_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override
+                    public void onResponse(byte[] response) {
+                        if (filter == null) session.selectProgrammed = false;
+                        if (callback != null) callback.onResponse(response);
+                    }
+
+                    @Override
+                    public void onError(String code, String message) {
+                        Log.w("CHAFON_PLUGIN", "⚠️ Select mask not acknowledged: " + code);
+                        if (callback != null) callback.onError(code, message);
+                    }
+                }).exclusive());
+    }
+
+    private void readTagsBulk(ReaderSession session, MethodCall call, MethodChannel.Result result) {
+        List<String> epcs = call.argument("epcs");
+        Integer bank = call.argument("bank");
+        Integer wordPtr = call.argument("wordPtr");
+        Integer wordCount = call.argument("wordCount");
+        String password = call.argument("password");
+        Integer chunkWords = call.argument("chunkWords");
+        Integer retries = call.argument("retries");
+        Integer timeoutMs = call.argument("timeoutMs");
+        if (epcs == null) {
+            result.error("INVALID_ARGUMENT", "Missing 'epcs'", null);
+            return;
+        }
+        if (!session.bleReady) {
             result.error("BLE_NOT_READY", "Notify/connection not ready", null);
             return;
         }
-        if (!opInProgress.compareAndSet(false, true)) {
-            result.error("BUSY", "Another operation is in progress", null);
+        if (session.bulkOperation) {
+            result.error("BUSY", "A bulk tag operation is already running", null);
             return;
         }
 
-        new Thread(() -> {
-            try {
-                // 1) STOP as precaution (0x02)
-                writeWithRetry(SERVICE_UUID, WRITE_UUID, CmdBuilder.buildStopInventoryCmd());
-                try { Thread.sleep(120); } catch (InterruptedException ignored) {}
-
-                // 2) START (0x01) – like official app, we don't change read-mode/out-mode
-                byte[] invCmd = CmdBuilder.buildInventoryISOContinueCmd((byte) 0x00, 0);
-                boolean ok = writeWithRetry(SERVICE_UUID, WRITE_UUID, invCmd);
-                if (ok) inventoryRunning = true;
-
-                final boolean okFinal = ok;
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    if (okFinal) result.success("inventory_started");
-                    else         result.error("INVENTORY_FAILED", "start cmd not sent", null);
-                });
-            } catch (Exception e) {
-                inventoryRunning = false;
-                new Handler(Looper.getMainLooper()).post(
-                        () -> result.error("INVENTORY_EXCEPTION", e.getMessage(), null)
-                );
-            } finally {
-                opInProgress.set(false);
-            }
-        }).start();
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        boolean wasRunning = session.inventoryRunning;
+        InventoryFilter filter = session.filter;
+        BulkTagReader bulk;
+        try {
+            bulk = new BulkTagReader(session.scheduler, frameEncoder, epcs,
+                    password != null ? HexCodec.decodeStrict(password) : new byte[4],
+                    bank != null ? bank : 0x02, wordPtr != null ? wordPtr : 0, wordCount != null ? wordCount : 6,
+                    chunkWords != null ? chunkWords : BulkTagReader.DEFAULT_CHUNK_WORDS,
+                    retries != null ? retries : BulkTagReader.DEFAULT_RETRIES,
+                    timeoutMs != null ? timeoutMs : BulkTagReader.DEFAULT_TIMEOUT_MS,
+                    filter != null ? filter.frame() : FrameEncoder.CLEAR_SELECT,
+                    report -> {
+                        session.bulkOperation = false;
+                        session.selectProgrammed = filter != null;
+                        if (wasRunning) {
+                            submitStartInventory(session, new CommandScheduler.Callback() {
+                                @Override public void onSent() { session.inventoryRunning = true; }
+                                @Override public void onResponse(byte[] frame) {}
+                                @Override public void onError(String code, String message) {}
+                            });
+                        }
+                        reply.success(report);
+                    });
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
+        }
+
+        session.bulkOperation = true;
+        session.selectProgrammed = true;
+        if (wasRunning) {
+            submitStopInventory(session, new CommandScheduler.Callback() {
+                @Override public void onSent() { session.inventoryRunning = false; }
+                @Override public void onResponse(byte[] frame) {}
+                @Override public void onError(String code, String message) {}
+            });
+        }
+        bulk.start();
     }
 
-    private void stopInventory(MethodChannel.Result result) {
+    private void writeTagsBulk(ReaderSession session, MethodCall call, MethodChannel.Result result) {
+        List<Map<String, Object>> jobArgs = call.argument("jobs");
+        Integer chunkWords = call.argument("chunkWords");
+        Integer retries = call.argument("retries");
+        Integer timeoutMs = call.argument("timeoutMs");
+        Integer retryPower = call.argument("retryPower");
+        Integer progressEvery = call.argument("progressEvery");
+        if (jobArgs == null) {
+            result.error("INVALID_ARGUMENT", "Missing 'jobs'", null);
+            return;
+        }
+        if (!session.bleReady) {
+            result.error("BLE_NOT_READY", "Notify/connection not ready", null);
+            return;
+        }
+        if (session.bulkOperation) {
+            result.error("BUSY", "A bulk tag operation is already running", null);
+            return;
+        }
+
+        // Retry power is applied to the reader's current parameters, RAM only
+        AllParamBean params = session.params.device();
+        if (retryPower != null && params == null) {
+            result.error("PARAMS_UNKNOWN", "Call getAllDeviceConfig before using retryPower", null);
+            return;
+        }
+        CommandScheduler.FrameSource raised = null;
+        CommandScheduler.FrameSource restored = null;
+        if (retryPower != null) {
+            int p = Math.max(POWER_MIN, Math.min(POWER_MAX, retryPower));
+            int original = params.mRfidPower;
+            raised = () -> frameEncoder.setAllParam(params, p);
+            restored = () -> frameEncoder.setAllParam(params, original);
+        }
+
+        List<BulkTagWriter.WriteJob> jobs = new ArrayList<>();
         try {
-            byte[] stopCmd = CmdBuilder.buildStopInventoryCmd();
-            boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, stopCmd);
-            if (sent) {
-                inventoryRunning = false;
-                result.success("inventory_stopped");
-            } else {
-                result.error("INVENTORY_STOP_FAILED", "stop cmd not sent", null);
+            for (Map<String, Object> a : jobArgs) {
+                Object target = a.get("target");
+                Object data = a.get("data");
+                if (!(target instanceof String) || !(data instanceof String)) {
+                    throw new IllegalArgumentException("Each job needs 'target' and 'data'");
+                }
+                Object bank = a.get("bank");
+                Object wordPtr = a.get("wordPtr");
+                Object password = a.get("password");
+                jobs.add(new BulkTagWriter.WriteJob(HexCodec.decodeStrict((String) target),
+                        bank instanceof Number ? ((Number) bank).intValue() : 0x03,
+                        wordPtr instanceof Number ? ((Number) wordPtr).intValue() : 0,
+                        HexCodec.decodeStrict((String) data),
+                        password instanceof String ? HexCodec.decodeStrict((String) password) : new byte[4]));
             }
-        } catch (Exception e) {
-            result.error("INVENTORY_STOP_EXCEPTION", e.getMessage(), null);
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
+        }
+
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        boolean wasRunning = session.inventoryRunning;
+        InventoryFilter filter = session.filter;
+        String reader = extraReaders.isEmpty() ? null : session.address;
+        BulkTagWriter bulk = new BulkTagWriter(session.scheduler, frameEncoder, jobs,
+                chunkWords != null ? chunkWords : BulkTagWriter.DEFAULT_CHUNK_WORDS,
+                retries != null ? retries : BulkTagWriter.DEFAULT_RETRIES,
+                timeoutMs != null ? timeoutMs : BulkTagWriter.DEFAULT_TIMEOUT_MS,
+                raised, restored,
+                filter != null ? filter.frame() : FrameEncoder.CLEAR_SELECT,
+                progressEvery != null ? progressEvery : BulkTagWriter.DEFAULT_PROGRESS_EVERY,
+                new BulkTagWriter.Listener() {
+                    @Override
+                    public void onProgress(Map<String, Object> progress) {
+                        if (reader != null) progress.put("reader", reader);
+                        mainHandler.post(() -> channel.invokeMethod("onBulkWriteProgress", progress));
+                    }
+
+                    @Override
+                    public void onComplete(Map<String, Object> report) {
+                        session.bulkOperation = false;
+                        session.selectProgrammed = filter != null;
+                        if (wasRunning) {
+                            submitStartInventory(session, new CommandScheduler.Callback() {
+                                @Override public void onSent() { session.inventoryRunning = true; }
+                                @Override public void onResponse(byte[] frame) {}
+                                @Override public void onError(String code, String message) {}
+                            });
+                        }
+                        reply.success(report);
+                    }
+                });
+
+        session.bulkOperation = true;
+        session.selectProgrammed = true;
+        if (wasRunning) {
+            submitStopInventory(session, new CommandScheduler.Callback() {
+                @Override public void onSent() { session.inventoryRunning = false; }
+                @Override public void onResponse(byte[] frame) {}
+                @Override public void onError(String code, String message) {}
+            });
         }
+        bulk.start();
     }
 
-    // Internal start/stop (doesn't return result)
-    private void internalStartInventory() {
-        try {
-            byte[] invCmd = CmdBuilder.buildInventoryISOContinueCmd((byte) 0x00, 0);
-            if (writeWithRetry(SERVICE_UUID, WRITE_UUID, invCmd)) {
-                inventoryRunning = true;
+    // ==== Duty-cycled burst inventory ====
+
+    private void startBurstInventory(ReaderSession session, MethodCall call, MethodChannel.Result result) {
+        if (!session.bleReady) {
+            result.error("BLE_NOT_READY", "Notify/connection not ready", null);
+            return;
+        }
+        List<Integer> levels = call.argument("batteryLevels");
+        List<Number> duties = call.argument("maxDutyCycles");
+        int n = levels != null ? levels.size() : 0;
+        if (n != (duties != null ? duties.size() : 0)) {
+            result.error("INVALID_ARGUMENT", "batteryLevels and maxDutyCycles must have the same length", null);
+            return;
+        }
+        int[] batteryLevels = new int[n];
+        double[] maxDuty = new double[n];
+        for (int i = 0; i < n; i++) {
+            batteryLevels[i] = levels.get(i);
+            maxDuty[i] = duties.get(i).doubleValue();
+        }
+        Integer burstMs = call.argument("burstMs");
+        Integer extendMs = call.argument("extendMs");
+        Integer maxBurstMs = call.argument("maxBurstMs");
+        Integer minOffMs = call.argument("minOffMs");
+        Integer maxOffMs = call.argument("maxOffMs");
+        Integer batteryPollMs = call.argument("batteryPollMs");
+        long pollMs = batteryPollMs != null ? batteryPollMs : BURST_BATTERY_POLL_MS;
+
+        stopBurstTimer(session);
+        BurstScheduler burst = new BurstScheduler(
+                burstMs != null ? burstMs : BurstScheduler.DEFAULT_BURST_MS,
+                extendMs != null ? extendMs : BurstScheduler.DEFAULT_EXTEND_MS,
+                maxBurstMs != null ? maxBurstMs : BurstScheduler.DEFAULT_MAX_BURST_MS,
+                minOffMs != null ? minOffMs : BurstScheduler.DEFAULT_MIN_OFF_MS,
+                maxOffMs != null ? maxOffMs : BurstScheduler.DEFAULT_MAX_OFF_MS,
+                batteryLevels, maxDuty);
+        session.burst = burst;
+        // Starting level, so reads per battery percent can be measured
+        pollBattery(session);
+        commandExecutor.execute(() -> runBurstStep(session, burst, burst.start(System.currentTimeMillis()), pollMs));
+
+        Map<String, Object> stats = burst.stats(System.currentTimeMillis());
+        stats.put("running", true);
+        result.success(stats);
+    }
+
+    /** Cancels the burst timer; the radio is left as it is. */
+    private Map<String, Object> stopBurstTimer(ReaderSession session) {
+        BurstScheduler burst = session.burst;
+        session.burst = null;
+        ScheduledFuture<?> task = session.burstTask;
+        if (task != null) task.cancel(false);
+        Map<String, Object> stats = burst != null ? burst.stats(System.currentTimeMillis()) : new HashMap<>();
+        stats.put("running", false);
+        return stats;
+    }
+
+    // Runs on commandExecutor: switches the radio as the step says and times the next one
+    private void runBurstStep(ReaderSession session, BurstScheduler burst, BurstScheduler.Step step, long batteryPollMs) {
+        if (session.burst != burst) return;
+        if (step.on) {
+            if (!session.inventoryRunning && !session.bulkOperation) {
+                submitStartInventory(session, new CommandScheduler.Callback() {
+                    @Override public void onSent() { session.inventoryRunning = true; }
+                    @Override public void onResponse(byte[] frame) {}
+                    @Override public void onError(String code, String message) {}
+                });
             }
-        } catch (Exception ignore) {}
+        } else if (session.inventoryRunning && !session.bulkOperation) {
+            submitStopInventory(session, new CommandScheduler.Callback() {
+                @Override public void onSent() { session.inventoryRunning = false; }
+                @Override public void onResponse(byte[] frame) {}
+                @Override public void onError(String code, String message) {}
+            });
+            // The link is idle until the next burst: a good time for a battery reading
+            if (System.currentTimeMillis() - session.lastBatteryPollMs >= batteryPollMs) pollBattery(session);
+        }
+        session.burstTask = commandExecutor.schedule(
+                () -> runBurstStep(session, burst, burst.tick(System.currentTimeMillis()), batteryPollMs),
+                step.durationMs, TimeUnit.MILLISECONDS);
     }
 
-    private void internalStopInventory() {
-        try {
-            byte[] stopCmd = CmdBuilder.buildStopInventoryCmd();
-            if (writeWithRetry(SERVICE_UUID, WRITE_UUID, stopCmd)) {
-                inventoryRunning = false;
+    // Level arrives through the typed battery callback
+    private void pollBattery(ReaderSession session) {
+        session.lastBatteryPollMs = System.currentTimeMillis();
+        session.scheduler.submit(CommandScheduler.Command.request("burstBattery",
+                FrameEncoder.GET_BATTERY, FrameEncoder.CMD_GET_BATTERY, BATTERY_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override public void onResponse(byte[] frame) {}
+                    @Override public void onError(String code, String message) {}
+                }));
+    }
+
+    // ==== Adaptive Q / session ====
+
+    private void startAdaptiveQ(ReaderSession session, MethodCall call, MethodChannel.Result result) {
+        AllParamBean params = session.params.device();
+        if (params == null) {
+            result.error("PARAMS_UNKNOWN", "Call getAllDeviceConfig before startAdaptiveQ", null);
+            return;
+        }
+        Integer windowMs = call.argument("windowMs");
+        Integer holdWindows = call.argument("holdWindows");
+        Integer minIntervalMs = call.argument("minIntervalMs");
+        Integer minQ = call.argument("minQ");
+        Integer maxQ = call.argument("maxQ");
+        Boolean tuneSession = call.argument("tuneSession");
+        Integer sessionHighTags = call.argument("sessionHighTags");
+        Integer sessionLowTags = call.argument("sessionLowTags");
+
+        stopAdaptiveQ(session);
+        QTuner tuner = new QTuner(params.mQValue, params.mSession,
+                windowMs != null ? windowMs : QTuner.DEFAULT_WINDOW_MS,
+                holdWindows != null ? holdWindows : QTuner.DEFAULT_HOLD_WINDOWS,
+                minIntervalMs != null ? minIntervalMs : QTuner.DEFAULT_MIN_INTERVAL_MS,
+                minQ != null ? minQ : 0, maxQ != null ? maxQ : 15,
+                tuneSession == null || tuneSession,
+                sessionHighTags != null ? sessionHighTags : QTuner.DEFAULT_SESSION_HIGH_TAGS,
+                sessionLowTags != null ? sessionLowTags : QTuner.DEFAULT_SESSION_LOW_TAGS,
+                System.currentTimeMillis());
+        session.qTuner = tuner;
+        session.qTunerTask = commandExecutor.scheduleAtFixedRate(() -> tuneQ(session, tuner),
+                tuner.windowMs(), tuner.windowMs(), TimeUnit.MILLISECONDS);
+
+        Map<String, Object> stats = tuner.stats();
+        stats.put("running", true);
+        result.success(stats);
+    }
+
+    /** Stops tuning; the reader keeps the Q and session it has (RAM only, not saved to flash). */
+    private Map<String, Object> stopAdaptiveQ(ReaderSession session) {
+        QTuner tuner = session.qTuner;
+        session.qTuner = null;
+        if (session.qTunerTask != null) {
+            session.qTunerTask.cancel(false);
+            session.qTunerTask = null;
+        }
+        Map<String, Object> stats = tuner != null ? tuner.stats() : new HashMap<>();
+        stats.put("running", false);
+        return stats;
+    }
+
+    // Runs on commandExecutor once per window. The change goes out as a RAM-only
+    // set-all-param while inventory keeps running: no stop/restart, no flash write.
+    private void tuneQ(ReaderSession session, QTuner tuner) {
+        long now = System.currentTimeMillis();
+        AllParamBean params = session.params.device();
+        if (params == null || !session.inventoryRunning || session.bulkOperation) {
+            tuner.idle(now);
+        } else {
+            tuner.sync(params.mQValue, params.mSession);
+            QTuner.Decision d = tuner.evaluate(now);
+            if (d != null) applyQDecision(session, tuner, d);
+        }
+        QTuner.Decision measured = tuner.takeMeasured();
+        if (measured != null) reportQDecision(session, measured);
+    }
+
+    private void applyQDecision(ReaderSession session, QTuner tuner, QTuner.Decision d) {
+        // Through the parameter cache, so a user write in flight and this change share one RAM write
+        session.params.update(null, p -> {
+            p.mQValue = (byte) d.toQ;
+            p.mSession = (byte) d.toSession;
+        }, false, new ParamCache.Callback() {
+            @Override
+            public void onDone(boolean written) {
+                tuner.applied(d, true, null, System.currentTimeMillis());
+                Log.d("CHAFON_PLUGIN", "🎚️ Q " + d.fromQ + "->" + d.toQ + ", S" + d.fromSession
+                        + "->S" + d.toSession + " (" + d.reason + ", " + d.activeTags + " tags)");
             }
-        } catch (Exception ignore) {}
+
+            @Override
+            public void onError(String code, String message) {
+                tuner.applied(d, false, code, System.currentTimeMillis());
+                reportQDecision(session, d);
+            }
+        });
+    }
+
+    private void reportQDecision(ReaderSession session, QTuner.Decision d) {
+        Map<String, Object> m = d.toMap();
+        if (!extraReaders.isEmpty()) m.put("reader", session.address);
+        mainHandler.post(() -> channel.invokeMethod("onQAdjust", m));
     }
 
     private void readTagByMemoryBank(byte memBank, MethodChannel.Result result) {
@@ -920,73 +2378,496 @@ public class ChafonH103RfidPlugin implements FlutterPlugin, MethodChannel.Method
         }
         byte wordCount = 6;
 
-        byte[] cmd = CmdBuilder.buildReadISOTagCmd(accPwd, memBank, wordPtr, wordCount);
-        boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        primary.scheduler.submit(CommandScheduler.Command.request("readTag",
+                () -> frameEncoder.readTag(accPwd, memBank, wordPtr, wordCount), FrameEncoder.CMD_READ_TAG, READ_TAG_TIMEOUT_MS,
+                new CommandScheduler.Callback() {
+                    @Override
+                    public void onSent() {
+                        reply.success("read_tag_command_sent");
+                    }
 
-        if (sent) {
-            result.success("read_tag_command_sent");
-        } else {
-            result.error("SEND_FAIL", "Unable to send readTag command", null);
-        }
+                    @Override
+                    public void onResponse(byte[] frame) {
+                        // Data is delivered from the typed TYPE_READ_TAG callback (onTagReadSingle)
+                    }
+
+                    @Override
+                    public void onError(String code, String message) {
+                        if (!"TIMEOUT".equals(code)) {
+                            reply.error("SEND_FAIL", "Unable to send readTag command", null);
+                        }
+                    }
+                }));
     }
 
     private String bytesToHex(byte[] bytes) {
-        if (bytes == null) return "";
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X", b));
-        }
-        return sb.toString();
+        return HexCodec.encode(bytes);
     }
 
     public String bytesToHexString(byte[] bytes) {
-        if (bytes == null || bytes.length == 0) return "";
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X", b));
+        return HexCodec.encode(bytes);
+    }
+
+    // ==== Tag delivery ====
+
+    // Called from the SDK notify thread for every inventory read
+    // epc is a slice of buf, only valid for this call
+    private void handleInventoryRead(ReaderSession session, byte[] buf, int off, int len, int rssi, int antenna) {
+        metrics.onDecoded();
+        session.countRead();
+        if (session.connectStartNs != 0) {
+            long ns = session.firstTagAfterConnect(System.nanoTime());
+            if (ns >= 0) metrics.onConnectToFirstTag(ns);
+        }
+        long now = System.currentTimeMillis();
+        TagJournal j = journal;
+        if (j != null) j.append(buf, off, len, rssi, antenna, now);
+        QTuner tuner = session.qTuner;
+        if (tuner != null) tuner.onRead(buf, off, len);
+        BurstScheduler burst = session.burst;
+        if (burst != null) burst.onRead(buf, off, len, now);
+
+        // Reads carry their reader only when several readers are connected
+        String reader = extraReaders.isEmpty() ? null : session.address;
+        RadarTracker tracker = radar;
+        if (tracker != null && tracker.record(buf, off, len, rssi, antenna, reader, now)) {
+            radarTickDelivery.queued();
+            return;
         }
-        return sb.toString();
+
+        boolean firstSighting = tagAggregator.record(buf, off, len, rssi, antenna, now);
+        if (uniqueInventoryMode && !firstSighting) return; // reported by the next delta
+
+        deliverTagRead(buf, off, len, rssi, antenna, now, reader);
     }
 
-    private void startRadarTracking(String epc, MethodChannel.Result result) {
-        radarEpc = epc;
-        radarActive = true;
+    /** One read as sent in onTagRead and in each onTagBatch entry. */
+    static Map<String, Object> tagMap(String epc, int rssi, int antenna, long timestamp, @Nullable String reader) {
+        Map<String, Object> tagMap = new HashMap<>();
+        tagMap.put("epc", epc);
+        tagMap.put("rssi", rssi);
+        tagMap.put("antenna", antenna);
+        tagMap.put("timestamp", timestamp);
+        if (reader != null) tagMap.put("reader", reader);
+        return tagMap;
+    }
 
-        byte[] cmd = CmdBuilder.buildInventoryISOContinueCmd((byte) 0x00, 0); // time-based
-        boolean sent = writeWithRetry(SERVICE_UUID, WRITE_UUID, cmd);
+    private void deliverTagRead(byte[] buf, int off, int len, int rssi, int antenna, long timestamp,
+                                @Nullable String reader) {
+        if (binaryTagTransport) {
+            int buffered = tagRecords.append(buf, off, len, rssi, antenna, timestamp);
+            if (buffered < 0) {
+                Log.w("CHAFON_PLUGIN", "⚠️ Binary tag buffer full, read dropped");
+                return;
+            }
+            tagFlushDelivery.queued();
+            scheduleTagFlush(buffered);
+            return;
+        }
 
-        if (sent) {
-            inventoryRunning = true;
-            result.success("radar_started");
-        } else {
-            result.error("RADAR_START_FAIL", "Radar tracking not started", null);
+        String epc = epcStrings.get(buf, off, len);
+        Map<String, Object> tagMap = tagMap(epc, rssi, antenna, timestamp, reader);
+
+        if (!tagBatcher.isEnabled()) {
+            if (!tagEvents.offer(epc, tagMap)) {
+                long notifyNs = metrics.notifyNanos(), decodedNs = metrics.decodedNanos();
+                mainHandler.post(() -> {
+                    long postRunNs = System.nanoTime();
+                    channel.invokeMethod("onTagRead", tagMap);
+                    metrics.delivered(notifyNs, decodedNs, postRunNs, false);
+                });
+            }
+            return;
+        }
+        int buffered = tagBatcher.add(tagMap);
+        tagFlushDelivery.queued();
+        scheduleTagFlush(buffered);
+    }
+
+    // ==== Notify trace ====
+
+    private void startTraceRecording(ReaderSession session, @Nullable String path, long maxBytes,
+                                     MethodChannel.Result result) {
+        if (session.trace != null) {
+            result.error("ALREADY_RECORDING", "A trace is already being recorded", session.trace.stats(System.nanoTime()));
+            return;
+        }
+        File file = path != null && !path.isEmpty() ? new File(path)
+                : new File(new File(context.getFilesDir(), "chafon_traces"), "trace-" + System.currentTimeMillis() + ".cft");
+        try {
+            TraceRecorder trace = new TraceRecorder(file, journalExecutor, maxBytes, System.nanoTime(),
+                    System.currentTimeMillis());
+            session.trace = trace;
+            result.success(trace.stats(System.nanoTime()));
+        } catch (IOException e) {
+            Log.e("CHAFON_PLUGIN", "❌ Trace could not be created", e);
+            result.error("TRACE_IO", e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Feeds a recorded trace into the primary session's notify path on its own thread, as
+     * if the reader had sent it; speed 0 replays as fast as possible. The primary reader
+     * must be disconnected, and its session is reset afterwards.
+     */
+    private void replayTrace(File file, double speed, MethodChannel.Result result) {
+        if (primary.bleReady || primary.address != null) {
+            result.error("BUSY", "Disconnect the reader before replaying a trace", null);
+            return;
+        }
+        if (traceReplayer != null) {
+            result.error("BUSY", "A trace is already being replayed", null);
+            return;
+        }
+        TraceReplayer replayer;
+        try {
+            replayer = new TraceReplayer(file);
+        } catch (IOException e) {
+            result.error("TRACE_IO", e.getMessage(), null);
+            return;
+        }
+        traceReplayer = replayer;
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        replayExecutor.execute(() -> {
+            try {
+                Map<String, Object> summary = replayer.replay(universalNotifyCallback, speed);
+                summary.put("recordedAt", replayer.startWallMs());
+                reply.success(summary);
+            } catch (InterruptedException e) {
+                reply.error("REPLAY_INTERRUPTED", "Replay interrupted", null);
+            } catch (RuntimeException e) {
+                Log.e("CHAFON_PLUGIN", "❌ Trace replay failed", e);
+                reply.error("REPLAY_FAILED", e.getMessage(), null);
+            } finally {
+                traceReplayer = null;
+                // Nothing of the replayed reader (inventory state, parameters) outlives the replay
+                try {
+                    commandExecutor.execute(() -> primary.onDisconnected("REPLAY_DONE"));
+                } catch (RejectedExecutionException e) {
+                    // Detached while replaying: the session is gone with the executor
+                }
+            }
+        });
+    }
+
+    // ==== Tag journal ====
+
+    private interface JournalCall {
+        Map<String, Object> run(TagJournal journal) throws IOException;
+    }
+
+    private void setJournalEnabled(boolean enabled, int segmentRecords, int maxSegments, MethodChannel.Result result) {
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        journalExecutor.execute(() -> {
+            TagJournal previous = journal;
+            journal = null;
+            if (previous != null) previous.close();
+            if (!enabled) {
+                Map<String, Object> m = new HashMap<>();
+                m.put("enabled", false);
+                reply.success(m);
+                return;
+            }
+            try {
+                TagJournal opened = new TagJournal(new File(context.getFilesDir(), "chafon_journal"),
+                        segmentRecords, maxSegments);
+                journal = opened;
+                Map<String, Object> m = opened.stats();
+                m.put("enabled", true);
+                reply.success(m);
+            } catch (IOException e) {
+                Log.e("CHAFON_PLUGIN", "❌ Journal could not be opened", e);
+                reply.error("JOURNAL_IO", e.getMessage(), null);
+            }
+        });
+    }
+
+    private void journalStats(MethodChannel.Result result) {
+        TagJournal j = journal;
+        Map<String, Object> m = j != null ? j.stats() : new HashMap<>();
+        m.put("enabled", j != null);
+        result.success(m);
+    }
+
+    private void withJournal(MethodChannel.Result result, JournalCall action) {
+        TagJournal j = journal;
+        if (j == null) {
+            result.error("JOURNAL_DISABLED", "Call enableJournal first", null);
+            return;
+        }
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        journalExecutor.execute(() -> {
+            try {
+                reply.success(action.run(j));
+            } catch (IOException e) {
+                reply.error("JOURNAL_IO", e.getMessage(), null);
+            } catch (IllegalStateException e) {
+                reply.error("BUSY", e.getMessage(), null);
+            }
+        });
+    }
+
+    private void scheduleTagFlush(int buffered) {
+        if (!tagBatcher.isEnabled()) {
+            // Binary transport without batching: one message per main-looper turn
+            if (buffered == 1) mainHandler.post(tagBatchFlushRunnable);
+            return;
+        }
+        int action = tagBatcher.flushAction(buffered);
+        if (action == TagBatcher.FLUSH_NOW) {
+            mainHandler.removeCallbacks(tagBatchFlushRunnable);
+            mainHandler.post(tagBatchFlushRunnable);
+        } else if (action == TagBatcher.FLUSH_AFTER_INTERVAL) {
+            mainHandler.postDelayed(tagBatchFlushRunnable, tagBatcher.getIntervalMs());
         }
     }
 
+    // Runs on the main thread
+    private void flushTagBatch() {
+        tagFlushDelivery.flushStarted();
+
+        ByteBuffer records = tagRecords.drain();
+        if (records != null && tagChannel != null) {
+            tagChannel.send(records);
+            tagFlushDelivery.flushed();
+        }
+
+        List<Map<String, Object>> tags = tagBatcher.drain();
+        if (tags == null) return;
+
+        Map<String, Object> batchMap = new HashMap<>();
+        batchMap.put("count", tags.size());
+        batchMap.put("tags", tags);
+        channel.invokeMethod("onTagBatch", batchMap);
+        tagFlushDelivery.flushed();
+    }
+
+    private void setTagTransport(boolean binary, MethodChannel.Result result) {
+        if (binaryTagTransport != binary) {
+            binaryTagTransport = binary;
+            // Hand over reads buffered in the previous format
+            mainHandler.removeCallbacks(tagBatchFlushRunnable);
+            mainHandler.post(tagBatchFlushRunnable);
+        }
+        result.success(binary ? "binary" : "map");
+    }
+
+    private void setTagBatching(boolean enabled, int intervalMs, int maxTags, MethodChannel.Result result) {
+        boolean wasEnabled = tagBatcher.isEnabled();
+        tagBatcher.configure(enabled, intervalMs, maxTags);
+        if (wasEnabled && !enabled) {
+            // Hand over whatever is still buffered before switching back to per-tag calls
+            mainHandler.removeCallbacks(tagBatchFlushRunnable);
+            mainHandler.post(tagBatchFlushRunnable);
+        }
+        Log.d("CHAFON_PLUGIN", "📦 Tag batching enabled=" + enabled +
+                " interval=" + tagBatcher.getIntervalMs() + "ms max=" + tagBatcher.getMaxTags());
+        result.success(enabled ? "batching_enabled" : "batching_disabled");
+    }
+
+    // ==== Event streams ====
+
+    @Nullable
+    private QueuedEventStream eventStreamByName(String name) {
+        switch (name) {
+            case "tag": return tagEvents;
+            case "radar": return radarEvents;
+            case "battery": return batteryEvents;
+            default: return null;
+        }
+    }
+
+    private void configureEventQueue(String stream, @Nullable Integer capacity, @Nullable String policy,
+                                     MethodChannel.Result result) {
+        QueuedEventStream events = eventStreamByName(stream);
+        if (events == null) {
+            result.error("INVALID_ARGUMENT", "Unknown stream: " + stream, Arrays.asList("tag", "radar", "battery"));
+            return;
+        }
+
+        Map<String, Object> current = events.queue().stats();
+        BoundedEventQueue.OverflowPolicy p = (policy == null)
+                ? BoundedEventQueue.OverflowPolicy.fromName((String) current.get("policy"))
+                : BoundedEventQueue.OverflowPolicy.fromName(policy);
+        if (p == null) {
+            result.error("INVALID_ARGUMENT", "Unknown overflow policy: " + policy,
+                    Arrays.asList("dropOldest", "dropNewest", "coalesceByEpc"));
+            return;
+        }
+        int cap = (capacity != null) ? capacity : (Integer) current.get("capacity");
+
+        events.queue().configure(cap, p);
+        result.success(events.queue().stats());
+    }
+
+    private Map<String, Object> getEventQueueStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tag", tagEvents.queue().stats());
+        stats.put("radar", radarEvents.queue().stats());
+        stats.put("battery", batteryEvents.queue().stats());
+        return stats;
+    }
+
+    // ==== Inventory aggregation ====
+
+    private void setInventoryMode(String mode, int deltaIntervalMs, MethodChannel.Result result) {
+        boolean unique = "unique".equals(mode);
+        if (!unique && !"raw".equals(mode)) {
+            result.error("INVALID_ARGUMENT", "Unknown inventory mode: " + mode, Arrays.asList("raw", "unique"));
+            return;
+        }
+
+        mainHandler.removeCallbacks(inventoryDeltaRunnable);
+        inventoryDeltaIntervalMs = Math.max(100, deltaIntervalMs);
+        uniqueInventoryMode = unique;
+        if (unique) {
+            mainHandler.postDelayed(inventoryDeltaRunnable, inventoryDeltaIntervalMs);
+        }
+        result.success(mode);
+    }
+
+    // Runs on the main thread while unique mode is on
+    private void flushInventoryDelta() {
+        if (!uniqueInventoryMode) return;
+
+        List<Map<String, Object>> changed = tagAggregator.drainChanged(epcStrings);
+        if (changed != null) {
+            Map<String, Object> deltaMap = new HashMap<>();
+            deltaMap.put("count", changed.size());
+            deltaMap.put("uniqueTotal", tagAggregator.size());
+            deltaMap.put("tags", changed);
+            channel.invokeMethod("onInventoryDelta", deltaMap);
+        }
+        mainHandler.postDelayed(inventoryDeltaRunnable, inventoryDeltaIntervalMs);
+    }
+
+    private void startRadarTracking(RadarTracker tracker, boolean selectOnReader, MethodChannel.Result result) {
+        mainHandler.removeCallbacks(radarTickRunnable);
+        restoreRadarFilter();
+        if (selectOnReader) {
+            // Only tags sharing the targets' leading EPC bits answer; below one byte it is not worth it
+            InventoryFilter prefix = InventoryFilter.commonEpcPrefix(tracker.targetEpcs(), 8);
+            if (prefix != null) {
+                radarSavedFilter = primary.filter;
+                radarOwnsFilter = true;
+                primary.filter = prefix;
+            }
+        }
+        radar = tracker;
+        mainHandler.postDelayed(radarTickRunnable, tracker.intervalMs());
+
+        MethodChannel.Result reply = new MainThreadResult(mainHandler, result);
+        submitStartInventory(primary, new CommandScheduler.Callback() { // time-based
+            @Override
+            public void onSent() {
+                primary.inventoryRunning = true;
+                reply.success("radar_started");
+            }
+
+            @Override
+            public void onResponse(byte[] frame) {}
+
+            @Override
+            public void onError(String code, String message) {
+                if (!"TIMEOUT".equals(code)) {
+                    reply.error("RADAR_START_FAIL", "Radar tracking not started", null);
+                }
+            }
+        });
+    }
+
     private void stopRadarTracking(MethodChannel.Result result) {
-        radarEpc = null;
-        radarActive = false;
+        radar = null;
+        mainHandler.removeCallbacks(radarTickRunnable);
+        restoreRadarFilter(); // the reader gets it with the next inventory start
 
-        byte[] stopCmd = CmdBuilder.buildStopInventoryCmd();
-        writeWithRetry(SERVICE_UUID, WRITE_UUID, stopCmd);
+        internalStopInventory();
 
-        inventoryRunning = false;
+        primary.inventoryRunning = false;
         result.success("radar_stopped");
     }
 
+    private void restoreRadarFilter() {
+        if (!radarOwnsFilter) return;
+        primary.filter = radarSavedFilter;
+        radarSavedFilter = null;
+        radarOwnsFilter = false;
+    }
+
+    private void flushRadar() {
+        RadarTracker tracker = radar;
+        if (tracker == null) return;
+
+        radarTickDelivery.flushStarted();
+        List<Map<String, Object>> reports = tracker.drain(System.currentTimeMillis());
+        if (reports != null) {
+            for (Map<String, Object> report : reports) {
+                if (!radarEvents.offer(report.get("epc"), report)) {
+                    channel.invokeMethod("onRadarSignal", report);
+                }
+            }
+            radarTickDelivery.flushed();
+        }
+        mainHandler.postDelayed(radarTickRunnable, tracker.intervalMs());
+    }
+
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
-        if (bleCore != null) {
-            bleCore.disconnectedDevice();
-            bleCore.setOnNotifyCallback(null);
-            bleCore.setIConnectDoneCallback(null);
-            bleCore.setIBleDisConnectCallback(null);
+        if (transport != null) {
+            transport.disconnect();
+            transport.setNotifyCallback(null);
+            transport.setConnectionListener(null);
+            if (transport instanceof SimulatedH103) ((SimulatedH103) transport).shutdown();
+            transport = bleTransport;
         }
         discoveredDevices.clear();
+        mainHandler.removeCallbacks(scanBatchRunnable);
+        mainHandler.removeCallbacks(tagBatchFlushRunnable);
+        tagBatcher.clear();
+        tagRecords.clear();
+        binaryTagTransport = false;
+        epcStrings.clear();
+        uniqueInventoryMode = false;
+        mainHandler.removeCallbacks(inventoryDeltaRunnable);
+        tagAggregator.clear();
+        radar = null;
+        mainHandler.removeCallbacks(radarTickRunnable);
         channel.setMethodCallHandler(null);
 
-        bleReady = false;
-        latestAllParam = null;
-        inventoryRunning = false;
+        for (ReaderSession session : reconnectingReaders.values()) cancelReconnect(session);
+        reconnectingReaders.clear();
+        for (GattReaderLink link : extraLinks.values()) link.close();
+        extraLinks.clear();
+        for (ReaderSession session : extraReaders.values()) {
+            session.onDisconnected("DETACHED");
+            if (session.trace != null) session.trace.close();
+        }
+        extraReaders.clear();
+
+        // Stop a replay before the command executor it feeds goes away
+        TraceReplayer replayer = traceReplayer;
+        if (replayer != null) replayer.cancel();
+        if (replayExecutor != null) replayExecutor.shutdownNow();
+
+        if (primary != null) {
+            cancelReconnect(primary);
+            primary.onDisconnected("DETACHED");
+            stopAdaptiveQ(primary);
+            stopBurstTimer(primary);
+            commandExecutor.shutdownNow();
+        }
+
+        if (primary != null && primary.trace != null) primary.trace.close();
+
+        TagJournal j = journal;
+        journal = null;
+        if (journalExecutor != null) {
+            // Let queued journal calls finish, then seal the open segment
+            journalExecutor.execute(() -> {
+                if (j != null) j.close();
+            });
+            journalExecutor.shutdown();
+        }
     }
 }
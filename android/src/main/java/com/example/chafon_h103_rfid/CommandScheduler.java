@@ -0,0 +1,344 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single owner of the reader's write characteristic.
+ *
+ * Commands are queued and written in order from one executor thread, with up to
+ * maxInFlight commands awaiting their response at the same time. Response frames
+ * (CF FF CMDH CMDL LEN ...) are matched to the oldest in-flight command expecting that
+ * CMD, so two commands with the same response CMD are never in flight together.
+ * Every command completes exactly once: response, timeout, write failure or cancel.
+ */
+class CommandScheduler {
+
+    /** Writes one frame to the reader; returns false if the write was not accepted. */
+    interface FrameWriter {
+        boolean write(byte[] frame);
+    }
+
+    /**
+     * Produces the frame at write time, on the executor thread. Lets parameterized frames
+     * be encoded into one reusable buffer: it is only needed until write() returns.
+     */
+    interface FrameSource {
+        byte[] frame();
+    }
+
+    interface Callback {
+        /** Frame accepted by the BLE stack. */
+        default void onSent() {}
+
+        /** Matching response frame, or null for commands that expect no response. */
+        void onResponse(byte[] frame);
+
+        void onError(String code, String message);
+    }
+
+    /** Write-to-response time of a completed command. */
+    interface RoundTripListener {
+        void onRoundTrip(String name, long nanos);
+    }
+
+    static final int NO_RESPONSE = -1;
+    static final int ANY_LENGTH = -1;
+
+    static final class Command {
+        final String name;
+        final FrameSource source;
+        final int responseCmd;
+        final int responseLen;
+        final long timeoutMs;
+        final Callback callback;
+        boolean exclusive;
+
+        // guarded by scheduler lock
+        private boolean done;
+        private ScheduledFuture<?> timeout;
+        private long sentNanos;
+
+        private Command(String name, FrameSource source, int responseCmd, int responseLen,
+                        long timeoutMs, Callback callback) {
+            this.name = name;
+            this.source = source;
+            this.responseCmd = responseCmd;
+            this.responseLen = responseLen;
+            this.timeoutMs = timeoutMs;
+            this.callback = callback;
+        }
+
+        /** Command completed by the first response frame carrying responseCmd. */
+        static Command request(String name, byte[] frame, int responseCmd, long timeoutMs, Callback callback) {
+            return request(name, () -> frame, responseCmd, timeoutMs, callback);
+        }
+
+        static Command request(String name, FrameSource source, int responseCmd, long timeoutMs, Callback callback) {
+            return new Command(name, source, responseCmd, ANY_LENGTH, timeoutMs, callback);
+        }
+
+        /** Command completed by a status-only ack (LEN == 1) carrying responseCmd. */
+        static Command ack(String name, byte[] frame, int responseCmd, long timeoutMs, Callback callback) {
+            return ack(name, () -> frame, responseCmd, timeoutMs, callback);
+        }
+
+        static Command ack(String name, FrameSource source, int responseCmd, long timeoutMs, Callback callback) {
+            return new Command(name, source, responseCmd, 1, timeoutMs, callback);
+        }
+
+        /** Command completed as soon as the frame is written. */
+        static Command send(String name, byte[] frame, Callback callback) {
+            return new Command(name, () -> frame, NO_RESPONSE, ANY_LENGTH, 0, callback);
+        }
+
+        /** Sent only when nothing else is in flight, and holds the link until it completes. */
+        Command exclusive() {
+            this.exclusive = true;
+            return this;
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final FrameWriter writer;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Command> queue = new ArrayDeque<>();
+    private volatile RoundTripListener roundTripListener;
+    private final List<Command> inFlight = new ArrayList<>();
+
+    private volatile int maxInFlight = 1;
+    private volatile int writeAttempts = 3;
+    private volatile long retryBackoffMs = 120;
+
+    private long completed;
+    private long timedOut;
+    private long failed;
+
+    CommandScheduler(ScheduledExecutorService executor, FrameWriter writer) {
+        this.executor = executor;
+        this.writer = writer;
+    }
+
+    void configure(int maxInFlight, int writeAttempts, long retryBackoffMs) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.writeAttempts = Math.max(1, writeAttempts);
+        this.retryBackoffMs = Math.max(0, retryBackoffMs);
+        executor.execute(this::pump);
+    }
+
+    void setRoundTripListener(RoundTripListener listener) {
+        this.roundTripListener = listener;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /** Runs a task on the executor thread, in order with command callbacks. */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    Command submit(Command command) {
+        synchronized (lock) {
+            queue.addLast(command);
+        }
+        executor.execute(this::pump);
+        return command;
+    }
+
+    /**
+     * Cancels a command that has not been written yet.
+     *
+     * @return true if it was still queued; its callback gets CANCELLED
+     */
+    boolean cancel(Command command) {
+        synchronized (lock) {
+            if (command.done || !queue.remove(command)) return false;
+            command.done = true;
+        }
+        executor.execute(() -> command.callback.onError("CANCELLED", command.name + " cancelled"));
+        return true;
+    }
+
+    /**
+     * Fails everything queued or in flight, e.g. after a disconnect.
+     */
+    void failAll(String code, String message) {
+        List<Command> dropped = new ArrayList<>();
+        synchronized (lock) {
+            dropped.addAll(inFlight);
+            dropped.addAll(queue);
+            inFlight.clear();
+            queue.clear();
+            for (Command c : dropped) {
+                c.done = true;
+                if (c.timeout != null) c.timeout.cancel(false);
+            }
+            failed += dropped.size();
+        }
+        for (Command c : dropped) {
+            executor.execute(() -> c.callback.onError(code, message));
+        }
+    }
+
+    /**
+     * Offers a raw notify frame to the in-flight commands.
+     *
+     * @return true if the frame completed a command
+     */
+    boolean onFrame(byte[] frame) {
+        if (frame == null || frame.length < 5 || (frame[0] & 0xFF) != 0xCF) return false;
+        int cmd = ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+        int len = frame[4] & 0xFF;
+        long now = System.nanoTime();
+
+        Command matched = null;
+        synchronized (lock) {
+            for (Iterator<Command> it = inFlight.iterator(); it.hasNext(); ) {
+                Command c = it.next();
+                if (c.responseCmd == cmd && (c.responseLen == ANY_LENGTH || c.responseLen == len)) {
+                    it.remove();
+                    c.done = true;
+                    if (c.timeout != null) c.timeout.cancel(false);
+                    completed++;
+                    matched = c;
+                    break;
+                }
+            }
+        }
+        if (matched == null) return false;
+
+        Command c = matched;
+        RoundTripListener listener = roundTripListener;
+        if (listener != null && c.sentNanos != 0) {
+            listener.onRoundTrip(c.name, now - c.sentNanos);
+        }
+        executor.execute(() -> {
+            c.callback.onResponse(frame);
+            pump();
+        });
+        return true;
+    }
+
+    Map<String, Object> stats() {
+        synchronized (lock) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("queued", queue.size());
+            m.put("inFlight", inFlight.size());
+            m.put("maxInFlight", maxInFlight);
+            m.put("completed", completed);
+            m.put("timedOut", timedOut);
+            m.put("failed", failed);
+            return m;
+        }
+    }
+
+    // ==== Executor thread ====
+
+    private void pump() {
+        while (true) {
+            Command next;
+            synchronized (lock) {
+                next = nextSendable();
+                if (next == null) return;
+                queue.remove(next);
+                inFlight.add(next);
+            }
+            write(next, 0);
+        }
+    }
+
+    // Called with lock held
+    private Command nextSendable() {
+        if (queue.isEmpty() || inFlight.size() >= maxInFlight) return null;
+        for (Command c : inFlight) {
+            if (c.exclusive) return null;
+        }
+
+        Command head = queue.peekFirst();
+        if (head.exclusive && !inFlight.isEmpty()) return null;
+        if (head.responseCmd != NO_RESPONSE) {
+            for (Command c : inFlight) {
+                if (c.responseCmd == head.responseCmd) return null; // keep responses unambiguous
+            }
+        }
+        return head;
+    }
+
+    private void write(Command c, int attempt) {
+        synchronized (lock) {
+            if (c.done) return;
+        }
+
+        boolean ok;
+        try {
+            ok = writer.write(c.source.frame());
+        } catch (Exception e) {
+            ok = false;
+        }
+
+        if (!ok) {
+            if (attempt + 1 < writeAttempts) {
+                executor.schedule(() -> write(c, attempt + 1), retryBackoffMs * (attempt + 1), TimeUnit.MILLISECONDS);
+            } else {
+                fail(c, "WRITE_FAILED", c.name + " could not be written");
+            }
+            return;
+        }
+
+        c.sentNanos = System.nanoTime();
+        c.callback.onSent();
+
+        if (c.responseCmd == NO_RESPONSE) {
+            synchronized (lock) {
+                if (c.done) return;
+                c.done = true;
+                inFlight.remove(c);
+                completed++;
+            }
+            c.callback.onResponse(null);
+            pump();
+            return;
+        }
+
+        ScheduledFuture<?> timeout = executor.schedule(() -> onTimeout(c), c.timeoutMs, TimeUnit.MILLISECONDS);
+        synchronized (lock) {
+            if (c.done) {
+                timeout.cancel(false);
+            } else {
+                c.timeout = timeout;
+            }
+        }
+    }
+
+    private void onTimeout(Command c) {
+        synchronized (lock) {
+            if (c.done) return;
+            c.done = true;
+            inFlight.remove(c);
+            timedOut++;
+        }
+        c.callback.onError("TIMEOUT", c.name + " response not received");
+        pump();
+    }
+
+    private void fail(Command c, String code, String message) {
+        synchronized (lock) {
+            if (c.done) return;
+            c.done = true;
+            inFlight.remove(c);
+            failed++;
+        }
+        c.callback.onError(code, message);
+        pump();
+    }
+}
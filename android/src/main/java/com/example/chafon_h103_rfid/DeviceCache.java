@@ -0,0 +1,151 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Devices seen by the BLE scan, least recently seen first.
+ *
+ * A sighting moves the device to the tail, so expiry only looks at the head: devices
+ * not seen within ttlMs are evicted, and beyond maxDevices the least recently seen go
+ * first. RSSI updates are throttled per device: {@link #drainUpdates} returns a device
+ * when it is new, or when it has been seen again at least updateIntervalMs after its
+ * last reported sighting.
+ *
+ * @param <D> the platform device handle, kept for connecting
+ */
+final class DeviceCache<D> {
+
+    static final long DEFAULT_TTL_MS = 30_000;
+    static final int DEFAULT_MAX_DEVICES = 256;
+    static final long DEFAULT_UPDATE_INTERVAL_MS = 1000;
+
+    private static final class Entry<D> {
+        final String address;
+        D device;
+        String name;
+        int rssi;
+        long firstSeenMs;
+        long lastSeenMs;
+        long reportedMs = -1;
+        boolean changed;
+
+        Entry(String address) {
+            this.address = address;
+        }
+    }
+
+    private final long ttlMs;
+    private final int maxDevices;
+    private final long updateIntervalMs;
+
+    // Insertion order = order of last sighting
+    private final LinkedHashMap<String, Entry<D>> entries = new LinkedHashMap<>();
+    private final List<String> lost = new ArrayList<>();
+    private long sightings;
+    private long evicted;
+
+    DeviceCache(long ttlMs, int maxDevices, long updateIntervalMs) {
+        this.ttlMs = Math.max(1, ttlMs);
+        this.maxDevices = Math.max(1, maxDevices);
+        this.updateIntervalMs = Math.max(0, updateIntervalMs);
+    }
+
+    /** @return true if the device was not in the cache */
+    synchronized boolean onSighting(String address, D device, String name, int rssi, long nowMs) {
+        sightings++;
+        Entry<D> e = entries.remove(address);
+        boolean isNew = e == null;
+        if (isNew) {
+            e = new Entry<>(address);
+            e.firstSeenMs = nowMs;
+        }
+        e.device = device;
+        if (name != null) e.name = name;
+        e.rssi = rssi;
+        e.lastSeenMs = nowMs;
+        e.changed = true;
+        entries.put(address, e);
+        expire(nowMs);
+        return isNew;
+    }
+
+    synchronized D get(String address) {
+        Entry<D> e = entries.get(address);
+        return e != null ? e.device : null;
+    }
+
+    /**
+     * Devices to report now, as maps with address, name, rssi, firstSeen, lastSeen and
+     * isNew; null if there are none.
+     */
+    synchronized List<Map<String, Object>> drainUpdates(long nowMs) {
+        expire(nowMs);
+        List<Map<String, Object>> out = null;
+        for (Entry<D> e : entries.values()) {
+            if (!e.changed) continue;
+            boolean isNew = e.reportedMs < 0;
+            if (!isNew && nowMs - e.reportedMs < updateIntervalMs) continue;
+            e.changed = false;
+            e.reportedMs = nowMs;
+            if (out == null) out = new ArrayList<>();
+            out.add(toMap(e, isNew));
+        }
+        return out;
+    }
+
+    /** Addresses evicted since the last call, or null. */
+    synchronized List<String> drainLost() {
+        if (lost.isEmpty()) return null;
+        List<String> out = new ArrayList<>(lost);
+        lost.clear();
+        return out;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        lost.clear();
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("devices", entries.size());
+        m.put("sightings", sightings);
+        m.put("evicted", evicted);
+        m.put("ttlMs", ttlMs);
+        m.put("maxDevices", maxDevices);
+        m.put("updateIntervalMs", updateIntervalMs);
+        return m;
+    }
+
+    private void expire(long nowMs) {
+        Iterator<Entry<D>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<D> e = it.next();
+            if (entries.size() <= maxDevices && nowMs - e.lastSeenMs <= ttlMs) break;
+            it.remove();
+            evicted++;
+            // Only devices the app was told about are reported as lost
+            if (e.reportedMs >= 0) lost.add(e.address);
+        }
+    }
+
+    private static Map<String, Object> toMap(Entry<?> e, boolean isNew) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("address", e.address);
+        m.put("name", e.name != null ? e.name : "Unknown");
+        m.put("rssi", e.rssi);
+        m.put("firstSeen", e.firstSeenMs);
+        m.put("lastSeen", e.lastSeenMs);
+        m.put("isNew", isNew);
+        return m;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.Arrays;
+
+/**
+ * Set of EPCs kept as 64-bit FNV-1a hashes in an open-addressing table, for counting
+ * distinct tags on the read path without allocating per read. Two EPCs sharing a
+ * hash are counted once, which is negligible at 64 bits.
+ */
+final class EpcHashSet {
+
+    private long[] slots = new long[64];
+    private int size;
+
+    /** @return true if the EPC was not in the set yet */
+    boolean add(byte[] buf, int offset, int length) {
+        return add(hash(buf, offset, length));
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    /** Adds a value from {@link #hash}, so one hash can go into several sets. */
+    boolean add(long v) {
+        int mask = slots.length - 1;
+        int i = (int) (v ^ (v >>> 32)) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == v) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = v;
+        if (++size * 2 > slots.length) grow();
+        return true;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        size = 0;
+        for (long v : old) {
+            if (v != 0) add(v);
+        }
+    }
+
+    // 0 is kept free as the empty slot marker
+    static long hash(byte[] buf, int offset, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h ^= buf[i] & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.chafon_h103_rfid;
+
+/**
+ * Bounded EPC → hex String cache keyed on the raw EPC bytes.
+ * The same tags are read thousands of times per session, so repeated reads
+ * reuse the String built on the first sighting instead of encoding again.
+ *
+ * Direct-mapped: a colliding EPC simply replaces the slot. Entries are immutable,
+ * so concurrent readers see either the old or the new entry, never a torn one.
+ */
+final class EpcStringCache {
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private static final class Entry {
+        final byte[] key;
+        final int hash;
+        final String value;
+
+        Entry(byte[] key, int hash, String value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private final Entry[] slots;
+    private final int mask;
+
+    EpcStringCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    EpcStringCache(int capacity) {
+        int size = 16;
+        while (size < capacity) size <<= 1;
+        slots = new Entry[size];
+        mask = size - 1;
+    }
+
+    String get(byte[] epc) {
+        if (epc == null || epc.length == 0) return "";
+        return get(epc, 0, epc.length);
+    }
+
+    String get(byte[] buf, int offset, int length) {
+        if (length <= 0) return "";
+        int hash = hash(buf, offset, length);
+        int idx = hash & mask;
+
+        Entry e = slots[idx];
+        if (e != null && e.hash == hash && matches(e.key, buf, offset, length)) {
+            return e.value;
+        }
+
+        byte[] key = new byte[length];
+        System.arraycopy(buf, offset, key, 0, length);
+        String value = HexCodec.encode(key, 0, length);
+        slots[idx] = new Entry(key, hash, value);
+        return value;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(slots, null);
+    }
+
+    static int hash(byte[] buf, int offset, int length) {
+        int h = 0x811C9DC5; // FNV-1a
+        for (int i = 0; i < length; i++) {
+            h ^= buf[offset + i] & 0xFF;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(byte[] key, byte[] buf, int offset, int length) {
+        if (key.length != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buf[offset + i]) return false;
+        }
+        return true;
+    }
+}
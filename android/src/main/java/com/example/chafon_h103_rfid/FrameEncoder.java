@@ -0,0 +1,164 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.AllParamBean;
+
+/**
+ * Builds reader command frames (CF FF CMDH CMDL LEN DATA[LEN] CRCH CRCL).
+ *
+ * Constant frames are built once and shared; callers must not modify them.
+ * Parameterized frames are encoded into a buffer owned by the encoder and are only
+ * valid until the next call for the same command, so an encoder instance belongs to
+ * one thread (the command executor). Output is byte-for-byte what CmdBuilder produces.
+ */
+final class FrameEncoder {
+
+    static final int CMD_START_INVENTORY = 0x01;
+    static final int CMD_STOP_INVENTORY  = 0x02;
+    static final int CMD_READ_TAG        = 0x03;
+    static final int CMD_WRITE_TAG       = 0x04;
+    static final int CMD_SELECT_MASK     = 0x07;
+    static final int CMD_SET_ALL_PARAM   = 0x71;
+    static final int CMD_GET_ALL_PARAM   = 0x72;
+    static final int CMD_SAVE_FLASH      = 0x79;
+    static final int CMD_GET_BATTERY     = 0x83;
+
+    // CRC16, reflected poly 0x8408, init 0xFFFF (same result as the bit-by-bit loop)
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x8408 : crc >>> 1;
+            }
+            CRC_TABLE[i] = crc;
+        }
+    }
+
+    /** Continuous inventory, read mode 0, no time limit (CmdBuilder.buildInventoryISOContinueCmd(0, 0)). */
+    static final byte[] START_INVENTORY = constant(CMD_START_INVENTORY, 0x00, 0x00, 0x00, 0x00, 0x00);
+    static final byte[] STOP_INVENTORY  = constant(CMD_STOP_INVENTORY);
+    static final byte[] SAVE_FLASH      = constant(CMD_SAVE_FLASH);
+    static final byte[] GET_BATTERY     = constant(CMD_GET_BATTERY);
+    static final byte[] GET_ALL_PARAM   = constant(CMD_GET_ALL_PARAM);
+    /** Select with an empty mask: every tag answers again. */
+    static final byte[] CLEAR_SELECT    = constant(CMD_SELECT_MASK, 0x00, 0x00, 0x00);
+
+    private final byte[] setAllParam = header(new byte[32], CMD_SET_ALL_PARAM);
+    private final byte[] readTag = header(new byte[16], CMD_READ_TAG);
+
+    static int crc16(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    /** Same frame as CmdBuilder.buildSetAllParamCmd(p), in the encoder's buffer. */
+    byte[] setAllParam(AllParamBean p) {
+        return setAllParam(p, p.mRfidPower);
+    }
+
+    /** As {@link #setAllParam(AllParamBean)} with the output power replaced; p is not modified. */
+    byte[] setAllParam(AllParamBean p, int power) {
+        return setAllParam(p, power, p.mQValue, p.mSession);
+    }
+
+    /** As {@link #setAllParam(AllParamBean)} with power, Q and session replaced; p is not modified. */
+    byte[] setAllParam(AllParamBean p, int power, int qValue, int session) {
+        byte[] f = setAllParam;
+        f[5]  = p.mAddr;
+        f[6]  = p.mRFIDPRO;
+        f[7]  = p.mWorkMode;
+        f[8]  = p.mInterface;
+        f[9]  = p.mBaudrate;
+        f[10] = p.mWGSet;
+        f[11] = p.mAnt;
+        f[12] = p.mRfidFreq.mREGION;
+        f[13] = p.mRfidFreq.mSTRATFREI[0];
+        f[14] = p.mRfidFreq.mSTRATFREI[1];
+        f[15] = p.mRfidFreq.mSTRATFRED[0];
+        f[16] = p.mRfidFreq.mSTRATFRED[1];
+        f[17] = p.mRfidFreq.mSTEPFRE[0];
+        f[18] = p.mRfidFreq.mSTEPFRE[1];
+        f[19] = p.mRfidFreq.mCN;
+        f[20] = (byte) power;
+        f[21] = p.mInquiryArea;
+        f[22] = (byte) qValue;
+        f[23] = (byte) session;
+        f[24] = p.mAcsAddr;
+        f[25] = p.mAcsDataLen;
+        f[26] = p.mFilterTime;
+        f[27] = p.mTriggerTime;
+        f[28] = p.mBuzzerTime;
+        f[29] = p.mPollingInterval;
+        return seal(f);
+    }
+
+    /** Same frame as CmdBuilder.buildReadISOTagCmd(accessPwd, memBank, wordPtr, wordCount), in the encoder's buffer. */
+    byte[] readTag(byte[] accessPwd, byte memBank, byte[] wordPtr, byte wordCount) {
+        byte[] f = readTag;
+        f[5] = 0x00;
+        System.arraycopy(accessPwd, 0, f, 6, 4);
+        f[10] = memBank;
+        System.arraycopy(wordPtr, 0, f, 11, 2);
+        f[13] = wordCount;
+        return seal(f);
+    }
+
+    /**
+     * Select mask frame: 16-bit bit pointer, bit length, then the mask bytes.
+     * selectMask(0, m, m.length * 8) equals CmdBuilder.buildSelectMaskCmd(m). Built once per
+     * filter rather than per write, so it returns a new array.
+     */
+    static byte[] selectMask(int bitPointer, byte[] mask, int bitLength) {
+        byte[] f = header(new byte[5 + 3 + mask.length + 2], CMD_SELECT_MASK);
+        f[5] = (byte) (bitPointer >> 8);
+        f[6] = (byte) bitPointer;
+        f[7] = (byte) bitLength;
+        System.arraycopy(mask, 0, f, 8, mask.length);
+        return seal(f);
+    }
+
+    /**
+     * Same frame as CmdBuilder.buildWriteISOTagCmd(accessPwd, memBank, wordPtr, wordCount, data)
+     * for wordCount words of data starting at dataOffset. The length varies per call, so it
+     * returns a new array.
+     */
+    static byte[] writeTag(byte[] accessPwd, byte memBank, int wordPtr, int wordCount, byte[] data, int dataOffset) {
+        byte[] f = header(new byte[16 + wordCount * 2], CMD_WRITE_TAG);
+        f[5] = 0x00;
+        System.arraycopy(accessPwd, 0, f, 6, 4);
+        f[10] = memBank;
+        f[11] = (byte) (wordPtr >> 8);
+        f[12] = (byte) wordPtr;
+        f[13] = (byte) wordCount;
+        System.arraycopy(data, dataOffset, f, 14, wordCount * 2);
+        return seal(f);
+    }
+
+    private static byte[] constant(int cmd, int... data) {
+        byte[] f = header(new byte[5 + data.length + 2], cmd);
+        for (int i = 0; i < data.length; i++) {
+            f[5 + i] = (byte) data[i];
+        }
+        return seal(f);
+    }
+
+    private static byte[] header(byte[] f, int cmd) {
+        f[0] = (byte) 0xCF;
+        f[1] = (byte) 0xFF;
+        f[2] = (byte) (cmd >> 8);
+        f[3] = (byte) cmd;
+        f[4] = (byte) (f.length - 7);
+        return f;
+    }
+
+    private static byte[] seal(byte[] f) {
+        int crc = crc16(f, 0, f.length - 2);
+        f[f.length - 2] = (byte) (crc >> 8);
+        f[f.length - 1] = (byte) crc;
+        return f;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.chafon_h103_rfid;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.cf.beans.CmdData;
+import com.cf.ble.interfaces.IOnNotifyCallback;
+import com.cf.zsdk.cmd.CmdHandler;
+
+import java.util.UUID;
+
+/**
+ * GATT connection to an additional reader.
+ *
+ * BleCore is a process-wide singleton holding one BluetoothGatt, so every reader beyond
+ * the first is driven through its own connection here. Like BleCore it asks for a 512-byte
+ * MTU on connect and dispatches notifications as a CmdHandler typed callback, then the raw
+ * bytes, so the plugin handles both kinds of connection with the same IOnNotifyCallback code.
+ */
+final class GattReaderLink extends BluetoothGattCallback implements CommandScheduler.FrameWriter {
+
+    interface Listener {
+        /** Notifications are enabled and the reader accepts writes. */
+        void onReady();
+
+        /** Connection failed before becoming ready, or was lost afterwards. */
+        void onDisconnected(boolean wasReady);
+    }
+
+    private static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+    // Asked for on every connect, as BleCore does: at the default 23 a tag frame needs two notifications
+    static final int CONNECT_MTU = 512;
+
+    private final UUID serviceUuid;
+    private final UUID writeUuid;
+    private final UUID notifyUuid;
+    private final IOnNotifyCallback notifyCallback;
+    private final Listener listener;
+    @Nullable
+    private final LinkTuning tuning;
+
+    private volatile BluetoothGatt gatt;
+    private volatile BluetoothGattCharacteristic writeCharacteristic;
+    private volatile boolean ready = false;
+    private volatile boolean closed = false;
+    private volatile int mtu = LinkTuning.DEFAULT_MTU;
+    // Written once the connect-time MTU exchange is over (binder thread only)
+    private BluetoothGattDescriptor pendingCccd;
+
+    /** tuning: MTU and connection priority requested before the link reports ready, or null. */
+    GattReaderLink(UUID serviceUuid, UUID writeUuid, UUID notifyUuid,
+                   IOnNotifyCallback notifyCallback, Listener listener, @Nullable LinkTuning tuning) {
+        this.serviceUuid = serviceUuid;
+        this.writeUuid = writeUuid;
+        this.notifyUuid = notifyUuid;
+        this.notifyCallback = notifyCallback;
+        this.listener = listener;
+        this.tuning = tuning;
+    }
+
+    void connect(Context context, BluetoothDevice device) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            gatt = device.connectGatt(context, false, this, BluetoothDevice.TRANSPORT_LE);
+        } else {
+            gatt = device.connectGatt(context, false, this);
+        }
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    void close() {
+        closed = true;
+        ready = false;
+        BluetoothGatt g = gatt;
+        if (g != null) {
+            g.disconnect();
+            g.close();
+        }
+    }
+
+    @Override
+    public boolean write(byte[] frame) {
+        BluetoothGatt g = gatt;
+        BluetoothGattCharacteristic c = writeCharacteristic;
+        if (!ready || g == null || c == null) return false;
+        c.setValue(frame);
+        // false while another GATT operation is outstanding; the scheduler retries
+        return g.writeCharacteristic(c);
+    }
+
+    @Override
+    public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
+        if (newState == BluetoothProfile.STATE_CONNECTED && status == BluetoothGatt.GATT_SUCCESS) {
+            g.discoverServices();
+            return;
+        }
+        if (newState == BluetoothProfile.STATE_DISCONNECTED || status != BluetoothGatt.GATT_SUCCESS) {
+            boolean wasReady = ready;
+            ready = false;
+            g.close();
+            if (!closed) listener.onDisconnected(wasReady);
+        }
+    }
+
+    @Override
+    public void onServicesDiscovered(BluetoothGatt g, int status) {
+        BluetoothGattService service = status == BluetoothGatt.GATT_SUCCESS ? g.getService(serviceUuid) : null;
+        BluetoothGattCharacteristic write = service != null ? service.getCharacteristic(writeUuid) : null;
+        BluetoothGattCharacteristic notify = service != null ? service.getCharacteristic(notifyUuid) : null;
+        BluetoothGattDescriptor cccd = notify != null ? notify.getDescriptor(CCCD_UUID) : null;
+        if (write == null || cccd == null || !g.setCharacteristicNotification(notify, true)) {
+            Log.w("CHAFON_PLUGIN", "❌ Reader service/characteristics not found");
+            g.disconnect();
+            return;
+        }
+
+        writeCharacteristic = write;
+        pendingCccd = cccd;
+        if (!g.requestMtu(CONNECT_MTU)) enableNotify(g);
+    }
+
+    private void enableNotify(BluetoothGatt g) {
+        BluetoothGattDescriptor cccd = pendingCccd;
+        pendingCccd = null;
+        cccd.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        if (!g.writeDescriptor(cccd)) g.disconnect();
+    }
+
+    @Override
+    public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor descriptor, int status) {
+        if (!CCCD_UUID.equals(descriptor.getUuid())) return;
+        if (status != BluetoothGatt.GATT_SUCCESS) {
+            g.disconnect();
+            return;
+        }
+        LinkTuning t = tuning;
+        if (t != null) {
+            t.begin(System.currentTimeMillis());
+            t.onMtuNegotiated(mtu);
+            // A link layer update: it does not occupy the GATT queue the MTU exchange needs
+            if (t.priority != LinkTuning.KEEP) t.onPriorityRequested(g.requestConnectionPriority(t.priority));
+            if (t.mtu != LinkTuning.KEEP) {
+                boolean requested = g.requestMtu(t.mtu);
+                t.onMtuRequested(requested);
+                if (requested) return; // ready once onMtuChanged reports the exchange
+            }
+        }
+        onLinkReady();
+    }
+
+    @Override
+    public void onMtuChanged(BluetoothGatt g, int mtu, int status) {
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            this.mtu = mtu;
+            LinkTuning t = tuning;
+            if (t != null) t.onMtuNegotiated(mtu);
+        } else {
+            Log.w("CHAFON_PLUGIN", "⚠️ MTU exchange failed, status " + status);
+        }
+        if (pendingCccd != null) {
+            enableNotify(g); // the connect-time exchange
+        } else if (!ready && !closed) {
+            onLinkReady(); // the one link tuning asked for
+        }
+    }
+
+    private void onLinkReady() {
+        ready = true;
+        listener.onReady();
+    }
+
+    @Override
+    public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic characteristic) {
+        byte[] value = characteristic.getValue();
+        if (value == null) return;
+
+        // Typed bean first, then the raw bytes, like BleCore. Unlike BleCore every notification
+        // is passed on raw, so the raw frame decoder can join a frame split across two. No bean
+        // for a continuation, nor for a frame head whose rest follows: its EPC would be cut short.
+        int cmdType = CmdHandler.getCmdType(value);
+        if (cmdType != -1 && (value.length < 5 || value.length >= 7 + (value[4] & 0xFF))) {
+            CmdData data = new CmdData();
+            data.setData(CmdHandler.handleCmd(cmdType, value));
+            notifyCallback.onNotify(cmdType, data);
+        }
+        notifyCallback.onNotify(value);
+    }
+}
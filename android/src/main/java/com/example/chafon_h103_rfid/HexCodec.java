@@ -0,0 +1,94 @@
+package com.example.chafon_h103_rfid;
+
+/**
+ * Table-driven hex encoding shared by {@link FormatUtil} and the plugin.
+ * Encoding allocates only the result String; no per-byte formatting.
+ */
+final class HexCodec {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // Nibble value per ASCII char, -1 for non-hex characters
+    private static final byte[] NIBBLES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(NIBBLES, (byte) -1);
+        for (int i = 0; i < 10; i++) NIBBLES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            NIBBLES['A' + i] = (byte) (10 + i);
+            NIBBLES['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {}
+
+    static String encode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return "";
+        return encode(bytes, 0, bytes.length);
+    }
+
+    static String encode(byte[] bytes, int offset, int length) {
+        if (length <= 0) return "";
+        char[] out = new char[length * 2];
+        for (int i = 0, j = 0; i < length; i++) {
+            int v = bytes[offset + i] & 0xFF;
+            out[j++] = HEX_DIGITS[v >>> 4];
+            out[j++] = HEX_DIGITS[v & 0x0F];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decodes hex text, skipping whitespace without a regex pass.
+     * A trailing odd nibble is ignored and non-hex characters decode as 0.
+     */
+    static byte[] decode(String hex) {
+        if (hex == null || hex.isEmpty()) return new byte[0];
+        int len = hex.length();
+
+        int digits = 0;
+        for (int i = 0; i < len; i++) {
+            if (!Character.isWhitespace(hex.charAt(i))) digits++;
+        }
+
+        byte[] result = new byte[digits / 2];
+        int high = -1;
+        int pos = 0;
+        for (int i = 0; i < len && pos < result.length; i++) {
+            char c = hex.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+            int nibble = c < 128 ? NIBBLES[c] : -1;
+            if (nibble < 0) nibble = 0;
+            if (high < 0) {
+                high = nibble;
+            } else {
+                result[pos++] = (byte) ((high << 4) | nibble);
+                high = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes hex text supplied by a caller (masks, EPCs, passwords, tag data), skipping
+     * whitespace like {@link #decode}.
+     *
+     * @throws IllegalArgumentException on a non-hex character or an odd number of digits
+     */
+    static byte[] decodeStrict(String hex) {
+        if (hex == null || hex.isEmpty()) return new byte[0];
+        int digits = 0;
+        for (int i = 0; i < hex.length(); i++) {
+            char c = hex.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+            if (c >= 128 || NIBBLES[c] < 0) {
+                throw new IllegalArgumentException("Invalid hex character '" + c + "' in: " + hex);
+            }
+            digits++;
+        }
+        if ((digits & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits in: " + hex);
+        }
+        return decode(hex);
+    }
+}
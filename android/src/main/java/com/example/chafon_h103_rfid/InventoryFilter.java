@@ -0,0 +1,76 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader-side Gen2 Select mask, sent as command 0x07 before inventory starts so only
+ * matching tags answer and non-matching reads never cross the BLE link.
+ *
+ * The H103 select command carries a bit pointer, a bit length and the mask
+ * (CF FF 00 07 LEN PTRH PTRL BITS MASK...) but no memory bank: it always matches
+ * against the EPC, with the pointer counted from the first EPC bit.
+ */
+final class InventoryFilter {
+
+    static final int MAX_BITS = 255;
+
+    final int bitPointer;
+    final int bitLength;
+    final byte[] mask;
+    private final byte[] frame;
+
+    /**
+     * @param mask      at least ceil(bitLength / 8) bytes; bits past bitLength are ignored
+     * @param bitLength 1..255
+     */
+    InventoryFilter(int bitPointer, byte[] mask, int bitLength) {
+        if (bitPointer < 0 || bitPointer > 0xFFFF) {
+            throw new IllegalArgumentException("bitPointer out of range: " + bitPointer);
+        }
+        if (bitLength < 1 || bitLength > MAX_BITS || mask.length * 8 < bitLength) {
+            throw new IllegalArgumentException("bitLength must be 1.." + Math.min(MAX_BITS, mask.length * 8));
+        }
+        this.bitPointer = bitPointer;
+        this.bitLength = bitLength;
+        this.mask = new byte[(bitLength + 7) / 8];
+        System.arraycopy(mask, 0, this.mask, 0, this.mask.length);
+        int spare = this.mask.length * 8 - bitLength;
+        this.mask[this.mask.length - 1] &= (byte) (0xFF << spare);
+        this.frame = FrameEncoder.selectMask(bitPointer, this.mask, bitLength);
+    }
+
+    /** Select frame for this mask; shared, must not be modified. */
+    byte[] frame() {
+        return frame;
+    }
+
+    /** Longest common leading bits of the EPCs, or null if shorter than minBits. */
+    static InventoryFilter commonEpcPrefix(List<byte[]> epcs, int minBits) {
+        if (epcs.isEmpty()) return null;
+        byte[] first = epcs.get(0);
+        int bits = Math.min(first.length * 8, MAX_BITS);
+        for (byte[] epc : epcs) {
+            bits = Math.min(bits, epc.length * 8);
+            for (int i = 0; i < bits; i++) {
+                int a = (first[i >> 3] >> (7 - (i & 7))) & 1;
+                int b = (epc[i >> 3] >> (7 - (i & 7))) & 1;
+                if (a != b) {
+                    bits = i;
+                    break;
+                }
+            }
+        }
+        return bits < Math.max(1, minBits) ? null : new InventoryFilter(0, first, bits);
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("bank", "epc");
+        m.put("bitPointer", bitPointer);
+        m.put("bitLength", bitLength);
+        m.put("mask", HexCodec.encode(mask));
+        return m;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.chafon_h103_rfid;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Readers that have been connected before, persisted so the app can reconnect by MAC
+ * address at start without scanning first.
+ *
+ * Stored as one preferences string, one reader per line: address, last connect time and
+ * name separated by tabs. Most recently connected first, at most MAX_READERS.
+ */
+final class KnownReaders {
+
+    static final int MAX_READERS = 16;
+    static final String PREFS_NAME = "chafon_h103_rfid";
+    private static final String KEY = "known_readers";
+
+    static final class Reader {
+        final String address;
+        final String name;
+        final long lastConnectedMs;
+
+        Reader(String address, String name, long lastConnectedMs) {
+            this.address = address;
+            this.name = name;
+            this.lastConnectedMs = lastConnectedMs;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("address", address);
+            m.put("name", name);
+            m.put("lastConnected", lastConnectedMs);
+            return m;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final List<Reader> readers;
+
+    KnownReaders(SharedPreferences prefs) {
+        this.prefs = prefs;
+        this.readers = parse(prefs.getString(KEY, ""));
+    }
+
+    synchronized void remember(String address, String name, long nowMs) {
+        String previous = null;
+        for (int i = 0; i < readers.size(); i++) {
+            if (readers.get(i).address.equalsIgnoreCase(address)) {
+                previous = readers.remove(i).name;
+                break;
+            }
+        }
+        // A reconnect by address has no advertised name; keep the one from the scan
+        String keep = name != null && !name.isEmpty() ? name : previous;
+        readers.add(0, new Reader(address.toUpperCase(), keep != null ? keep : "", nowMs));
+        while (readers.size() > MAX_READERS) readers.remove(readers.size() - 1);
+        save();
+    }
+
+    synchronized boolean forget(String address) {
+        for (int i = 0; i < readers.size(); i++) {
+            if (readers.get(i).address.equalsIgnoreCase(address)) {
+                readers.remove(i);
+                save();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void clear() {
+        readers.clear();
+        save();
+    }
+
+    synchronized List<Map<String, Object>> toList() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Reader r : readers) list.add(r.toMap());
+        return list;
+    }
+
+    private void save() {
+        prefs.edit().putString(KEY, format(readers)).apply();
+    }
+
+    static List<Reader> parse(String stored) {
+        List<Reader> list = new ArrayList<>();
+        if (stored == null) return list;
+        for (String line : stored.split("\n")) {
+            String[] f = line.split("\t", 3);
+            if (f.length < 2 || f[0].isEmpty()) continue;
+            try {
+                list.add(new Reader(f[0], f.length > 2 ? f[2] : "", Long.parseLong(f[1])));
+            } catch (NumberFormatException ignored) {
+                // skip a damaged line rather than losing the rest
+            }
+        }
+        return list;
+    }
+
+    static String format(List<Reader> list) {
+        StringBuilder sb = new StringBuilder();
+        for (Reader r : list) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(r.address).append('\t').append(r.lastConnectedMs).append('\t')
+                    .append(r.name.replace('\n', ' ').replace('\t', ' '));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram in microseconds.
+ *
+ * Log-linear buckets: exact below 8 µs, then 8 linear sub-buckets per power of two
+ * (at most 12.5% relative error) up to ~67 s. Recording is one index computation and
+ * one atomic increment; no allocation.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_MAGNITUDE = 26; // 2^26 µs ~ 67 s
+    private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        record(Math.max(0, nanos / 1000));
+    }
+
+    void record(long micros) {
+        counts.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long m;
+        while (micros > (m = max.get()) && !max.compareAndSet(m, micros)) {
+            // retry
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    /** Upper bound of the bucket holding the given quantile (0..1), capped at the max seen. */
+    long percentile(double quantile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /** count, p50, p90, p99, max and mean, all in microseconds. */
+    Map<String, Object> snapshot() {
+        Map<String, Object> m = new HashMap<>();
+        long n = count.get();
+        m.put("count", n);
+        m.put("p50", percentile(0.50));
+        m.put("p90", percentile(0.90));
+        m.put("p99", percentile(0.99));
+        m.put("max", max.get());
+        m.put("mean", n == 0 ? 0.0 : (double) sum.get() / n);
+        return m;
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_COUNT) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > MAX_MAGNITUDE) return BUCKETS - 1;
+        int sub = (int) (micros >>> (magnitude - SUB_BITS)) & (SUB_COUNT - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int magnitude = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        long width = 1L << (magnitude - SUB_BITS);
+        return ((long) (SUB_COUNT + sub) << (magnitude - SUB_BITS)) + width - 1;
+    }
+}
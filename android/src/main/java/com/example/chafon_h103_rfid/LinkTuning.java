@@ -0,0 +1,159 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Link settings requested once a reader is connected (connection priority and, when asked
+ * for, an ATT MTU), and what came of the request.
+ *
+ * Both links already ask for a 512-byte MTU while connecting (BleCore itself, and
+ * GattReaderLink likewise), so tag frames arrive whole and the profiles leave the MTU as
+ * negotiated; an explicit MTU is requested on top. What the profiles choose is the
+ * connection interval: high priority gets more notifications out per second at a higher
+ * radio duty cycle, balanced and low power trade read rate for battery.
+ */
+final class LinkTuning {
+
+    static final String PROFILE_THROUGHPUT = "throughput";
+    static final String PROFILE_BALANCED = "balanced";
+    static final String PROFILE_LOW_POWER = "lowPower";
+    static final String PROFILE_NONE = "none";
+
+    // Same values as BluetoothGatt.CONNECTION_PRIORITY_*
+    static final int PRIORITY_BALANCED = 0;
+    static final int PRIORITY_HIGH = 1;
+    static final int PRIORITY_LOW_POWER = 2;
+    /** mtu or priority: leave as the stack set it. */
+    static final int KEEP = -1;
+
+    static final int DEFAULT_MTU = 23;
+    static final int MAX_MTU = 517;
+    static final int ATT_HEADER_SIZE = 3;
+
+    final String profile;
+    final int mtu;
+    final int priority;
+
+    // Outcome of the last apply, written by the link's thread
+    private volatile boolean mtuRequested;
+    private volatile int negotiatedMtu;
+    private volatile boolean priorityRequested;
+    private volatile long appliedAtMs;
+
+    LinkTuning(String profile, int mtu, int priority) {
+        if (mtu != KEEP && (mtu < DEFAULT_MTU || mtu > MAX_MTU)) {
+            throw new IllegalArgumentException("mtu must be " + DEFAULT_MTU + ".." + MAX_MTU + ": " + mtu);
+        }
+        if (priority != KEEP && (priority < PRIORITY_BALANCED || priority > PRIORITY_LOW_POWER)) {
+            throw new IllegalArgumentException("Unknown connection priority: " + priority);
+        }
+        this.profile = profile;
+        this.mtu = mtu;
+        this.priority = priority;
+    }
+
+    /**
+     * Settings for a connect call: the profile's priority (default throughput), overridden
+     * when given, and an MTU only when one is given.
+     */
+    static LinkTuning of(String profile, Integer mtu, String priority) {
+        String p = profile != null ? profile : PROFILE_THROUGHPUT;
+        int profilePriority;
+        switch (p) {
+            case PROFILE_THROUGHPUT:
+                profilePriority = PRIORITY_HIGH;
+                break;
+            case PROFILE_BALANCED:
+                profilePriority = PRIORITY_BALANCED;
+                break;
+            case PROFILE_LOW_POWER:
+                profilePriority = PRIORITY_LOW_POWER;
+                break;
+            case PROFILE_NONE:
+                profilePriority = KEEP;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown link profile: " + p);
+        }
+        return new LinkTuning(p, mtu != null ? mtu : KEEP,
+                priority != null ? priority(priority) : profilePriority);
+    }
+
+    static int priority(String name) {
+        switch (name) {
+            case "high":
+                return PRIORITY_HIGH;
+            case "balanced":
+                return PRIORITY_BALANCED;
+            case "lowPower":
+                return PRIORITY_LOW_POWER;
+            default:
+                throw new IllegalArgumentException("Unknown connection priority: " + name);
+        }
+    }
+
+    static String priorityName(int priority) {
+        switch (priority) {
+            case PRIORITY_HIGH:
+                return "high";
+            case PRIORITY_BALANCED:
+                return "balanced";
+            case PRIORITY_LOW_POWER:
+                return "lowPower";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Requests the settings on a connected transport. Priority goes first: it is a link
+     * layer update and does not hold the GATT queue the MTU exchange needs.
+     */
+    void applyTo(ReaderTransport transport, long nowMs) {
+        begin(nowMs);
+        if (priority != KEEP) priorityRequested = transport.requestConnectionPriority(priority);
+        if (mtu != KEEP) mtuRequested = transport.requestMtu(mtu);
+        negotiatedMtu = transport.mtu();
+    }
+
+    /** Clears the outcome of a previous connection. */
+    void begin(long nowMs) {
+        mtuRequested = false;
+        negotiatedMtu = 0;
+        priorityRequested = false;
+        appliedAtMs = nowMs;
+    }
+
+    void onPriorityRequested(boolean accepted) {
+        priorityRequested = accepted;
+    }
+
+    void onMtuRequested(boolean accepted) {
+        mtuRequested = accepted;
+    }
+
+    void onMtuNegotiated(int mtu) {
+        negotiatedMtu = mtu;
+    }
+
+    /**
+     * @param largestNotify largest notification received on this connection; when the
+     *                      transport does not report the negotiated MTU (BleCore) it bounds
+     *                      it from below
+     */
+    Map<String, Object> toMap(int largestNotify) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("profile", profile);
+        m.put("requestedMtu", mtu != KEEP ? mtu : null);
+        m.put("requestedPriority", priorityName(priority));
+        m.put("mtuRequested", mtuRequested);
+        m.put("priorityRequested", priorityRequested);
+        int negotiated = negotiatedMtu;
+        m.put("mtu", negotiated > 0 ? negotiated : null);
+        m.put("effectiveMtu", negotiated > 0 ? negotiated
+                : Math.max(DEFAULT_MTU, largestNotify + ATT_HEADER_SIZE));
+        m.put("appliedAtMs", appliedAtMs);
+        return m;
+    }
+}
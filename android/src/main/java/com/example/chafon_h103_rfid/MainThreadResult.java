@@ -0,0 +1,42 @@
+package com.example.chafon_h103_rfid;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Forwards a method-channel reply to the main thread, at most once.
+ * Used where the reply is produced on the command executor or the BLE notify thread.
+ */
+class MainThreadResult implements MethodChannel.Result {
+
+    private final Handler mainHandler;
+    private final MethodChannel.Result result;
+    private boolean replied = false;
+
+    MainThreadResult(Handler mainHandler, MethodChannel.Result result) {
+        this.mainHandler = mainHandler;
+        this.result = result;
+    }
+
+    private synchronized boolean claim() {
+        if (replied) return false;
+        replied = true;
+        return true;
+    }
+
+    @Override
+    public void success(Object value) {
+        if (claim()) mainHandler.post(() -> result.success(value));
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+        if (claim()) mainHandler.post(() -> result.error(errorCode, errorMessage, errorDetails));
+    }
+
+    @Override
+    public void notImplemented() {
+        if (claim()) mainHandler.post(result::notImplemented);
+    }
+}
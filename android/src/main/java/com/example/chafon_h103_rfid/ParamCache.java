@@ -0,0 +1,430 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.AllParamBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached AllParamBean of one reader, written through diffed, coalesced transactions.
+ *
+ * The cache holds the parameters the reader last acknowledged (or reported through
+ * get-all-param) and a desired copy that edits are applied to. An update whose encoded
+ * frame equals the reader's is answered without a write. While a RAM write is in
+ * flight, further updates only edit the desired copy and share the next write, so a
+ * burst of slider ticks costs at most two writes, the last value winning. A write that
+ * fails drops every pending edit and the desired copy falls back to the reader's.
+ *
+ * Flash (0x79) is not written per update: a persisted update marks the RAM state as
+ * wanted in flash, and the flash write goes out once the reader has been idle for
+ * flashDelayMs, or at {@link #flush} before a disconnect.
+ *
+ * Callbacks run on the command executor, except for an update that needs no write,
+ * which is answered on the calling thread.
+ */
+final class ParamCache {
+
+    static final long WRITE_TIMEOUT_MS = 1000;
+    static final long FLASH_TIMEOUT_MS = 2000;
+    static final long DEFAULT_FLASH_DELAY_MS = 3000;
+
+    /** Changes fields of the desired parameters; called under the cache lock. */
+    interface Edit {
+        void apply(AllParamBean p);
+    }
+
+    interface Callback {
+        /** @param written false when the reader already had these parameters and nothing was sent */
+        void onDone(boolean written);
+
+        void onError(String code, String message);
+    }
+
+    /** Whether the reader may take a flash write now, e.g. inventory is stopped. */
+    interface IdleCheck {
+        boolean isIdle();
+    }
+
+    interface FlashListener {
+        void onFlashSaved();
+
+        void onFlashFailed(String code, String message);
+    }
+
+    private final CommandScheduler scheduler;
+    private final ScheduledExecutorService executor;
+    private final IdleCheck idle;
+    private final long writeTimeoutMs;
+    private final long flashTimeoutMs;
+    private final long flashDelayMs;
+    // Used under the lock for diffing and for the frames handed to the scheduler
+    private final FrameEncoder encoder = new FrameEncoder();
+    private volatile FlashListener flashListener;
+
+    // What the reader has; replaced on every ack, never modified
+    private AllParamBean device;
+    private byte[] deviceImage;
+    private AllParamBean desired;
+    private boolean writing;
+    private List<Callback> queued = new ArrayList<>();
+    private boolean queuedPersist;
+    // Incremented on disconnect so late callbacks of the old connection are ignored
+    private int epoch;
+
+    // RAM has been written since the last flash; a persisted update wants it flashed
+    private boolean ramDirty;
+    private boolean flashWanted;
+    private boolean flashing;
+    // flush() was called while a RAM write was in flight
+    private boolean flushRequested;
+    private ScheduledFuture<?> flashTimer;
+    private final List<Runnable> flushWaiters = new ArrayList<>();
+
+    private long ramWrites;
+    private long skipped;
+    private long coalesced;
+    private long flashWrites;
+    private long failures;
+
+    ParamCache(CommandScheduler scheduler, ScheduledExecutorService executor, IdleCheck idle,
+               long writeTimeoutMs, long flashTimeoutMs, long flashDelayMs) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.idle = idle;
+        this.writeTimeoutMs = writeTimeoutMs;
+        this.flashTimeoutMs = flashTimeoutMs;
+        this.flashDelayMs = Math.max(0, flashDelayMs);
+    }
+
+    void setFlashListener(FlashListener listener) {
+        this.flashListener = listener;
+    }
+
+    /** Parameters the reader last acknowledged, or null before the first read/write. Do not modify. */
+    synchronized AllParamBean device() {
+        return device;
+    }
+
+    /** Parameters reported by the reader (get-all-param). Pending edits are kept. */
+    synchronized void load(AllParamBean p) {
+        device = copy(p);
+        deviceImage = image(device);
+        ramDirty = false;
+        if (!writing && queued.isEmpty()) desired = copy(device);
+    }
+
+    /**
+     * Applies edit to the desired parameters and writes them to RAM if they differ from
+     * the reader's.
+     *
+     * @param fallback starting point while nothing is known about the reader; null to fail instead
+     * @param persist  also save to flash, deferred until idle or {@link #flush}
+     */
+    void update(AllParamBean fallback, Edit edit, boolean persist, Callback callback) {
+        boolean unchanged;
+        synchronized (this) {
+            if (desired == null) {
+                if (fallback == null) {
+                    callback.onError("PARAMS_UNKNOWN", "Reader parameters not read yet");
+                    return;
+                }
+                desired = copy(fallback);
+            }
+            edit.apply(desired);
+            if (writing) {
+                queued.add(callback);
+                queuedPersist |= persist;
+                coalesced++;
+                return;
+            }
+            unchanged = device != null && Arrays.equals(image(desired), deviceImage);
+            if (unchanged) {
+                skipped++;
+                if (persist) requestFlash();
+            } else {
+                List<Callback> waiters = new ArrayList<>();
+                waiters.add(callback);
+                startWrite(waiters, persist);
+            }
+        }
+        if (unchanged) callback.onDone(false);
+    }
+
+    /**
+     * Puts saved parameters (e.g. from before a dropped connection) back on the reader,
+     * RAM only. Nothing is sent if the reader still has them.
+     */
+    void restore(AllParamBean saved, Callback callback) {
+        update(saved, p -> assign(saved, p), false, callback);
+    }
+
+    /**
+     * Writes a pending flash save now, then runs done (on the command executor, or on the
+     * calling thread when nothing is pending).
+     */
+    void flush(Runnable done) {
+        synchronized (this) {
+            cancelFlashTimer();
+            if (flashing || writing) {
+                flushWaiters.add(done);
+                flushRequested |= writing;
+                return;
+            }
+            if (flashWanted) {
+                flushWaiters.add(done);
+                startFlash();
+                return;
+            }
+        }
+        done.run();
+    }
+
+    /** Forgets the reader's parameters; edits not written yet fail with code. */
+    void onDisconnected(String code) {
+        List<Callback> dropped;
+        List<Runnable> waiters;
+        synchronized (this) {
+            epoch++;
+            cancelFlashTimer();
+            device = null;
+            deviceImage = null;
+            desired = null;
+            writing = false;
+            flashing = false;
+            flushRequested = false;
+            flashWanted = false;
+            ramDirty = false;
+            dropped = queued;
+            queued = new ArrayList<>();
+            queuedPersist = false;
+            waiters = new ArrayList<>(flushWaiters);
+            flushWaiters.clear();
+        }
+        for (Callback c : dropped) c.onError(code, "Reader disconnected");
+        for (Runnable r : waiters) r.run();
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("known", device != null);
+        m.put("writing", writing);
+        m.put("flashPending", flashWanted || flashing);
+        m.put("ramWrites", ramWrites);
+        m.put("skipped", skipped);
+        m.put("coalesced", coalesced);
+        m.put("flashWrites", flashWrites);
+        m.put("failures", failures);
+        return m;
+    }
+
+    // ---- under the lock ----
+
+    private void startWrite(List<Callback> waiters, boolean persist) {
+        AllParamBean target = copy(desired);
+        byte[] frame = encoder.setAllParam(target).clone();
+        int writeEpoch = epoch;
+        writing = true;
+        ramWrites++;
+        scheduler.submit(CommandScheduler.Command.request("setAllParam", () -> frame,
+                FrameEncoder.CMD_SET_ALL_PARAM, writeTimeoutMs, new CommandScheduler.Callback() {
+                    @Override
+                    public void onResponse(byte[] response) {
+                        onWritten(writeEpoch, target, Arrays.copyOfRange(frame, 5, 30), persist, waiters);
+                    }
+
+                    @Override
+                    public void onError(String code, String message) {
+                        onWriteFailed(writeEpoch, code, message, waiters);
+                    }
+                }).exclusive());
+    }
+
+    private void requestFlash() {
+        if (!ramDirty) return;
+        flashWanted = true;
+        if (!writing && !flashing) scheduleFlash();
+    }
+
+    private void scheduleFlash() {
+        cancelFlashTimer();
+        flashTimer = executor.schedule(this::flashIfIdle, flashDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelFlashTimer() {
+        if (flashTimer != null) {
+            flashTimer.cancel(false);
+            flashTimer = null;
+        }
+    }
+
+    private void startFlash() {
+        int flashEpoch = epoch;
+        flashing = true;
+        flashWanted = false;
+        ramDirty = false;
+        flashWrites++;
+        scheduler.submit(CommandScheduler.Command.request("saveFlash",
+                FrameEncoder.SAVE_FLASH, FrameEncoder.CMD_SAVE_FLASH, flashTimeoutMs,
+                new CommandScheduler.Callback() {
+                    @Override
+                    public void onResponse(byte[] response) {
+                        onFlashed(flashEpoch, null, null);
+                    }
+
+                    @Override
+                    public void onError(String code, String message) {
+                        onFlashed(flashEpoch, code, message);
+                    }
+                }).exclusive());
+    }
+
+    /** After a RAM write completed: flush now if asked to, else arm the idle timer. */
+    private List<Runnable> afterWrite() {
+        if (writing || flashing) return null;
+        if (flushRequested) {
+            flushRequested = false;
+            if (flashWanted) {
+                startFlash();
+                return null;
+            }
+            List<Runnable> waiters = new ArrayList<>(flushWaiters);
+            flushWaiters.clear();
+            return waiters;
+        }
+        if (flashWanted) scheduleFlash();
+        return null;
+    }
+
+    // ---- callbacks, on the command executor ----
+
+    private void onWritten(int writeEpoch, AllParamBean target, byte[] image, boolean persist,
+                           List<Callback> waiters) {
+        List<Callback> skippedWaiters = null;
+        List<Runnable> flushed = null;
+        synchronized (this) {
+            if (writeEpoch == epoch) {
+                writing = false;
+                device = target;
+                deviceImage = image;
+                ramDirty = true;
+                if (persist) flashWanted = true;
+                if (!queued.isEmpty()) {
+                    List<Callback> next = queued;
+                    boolean nextPersist = queuedPersist;
+                    queued = new ArrayList<>();
+                    queuedPersist = false;
+                    if (Arrays.equals(image(desired), deviceImage)) {
+                        // The edits since this write came back to what was just written
+                        skipped += next.size();
+                        if (nextPersist) flashWanted = true;
+                        skippedWaiters = next;
+                    } else {
+                        startWrite(next, nextPersist);
+                    }
+                }
+                flushed = afterWrite();
+            }
+        }
+        for (Callback c : waiters) c.onDone(true);
+        if (skippedWaiters != null) for (Callback c : skippedWaiters) c.onDone(false);
+        if (flushed != null) for (Runnable r : flushed) r.run();
+    }
+
+    private void onWriteFailed(int writeEpoch, String code, String message, List<Callback> waiters) {
+        List<Callback> dropped = new ArrayList<>();
+        List<Runnable> flushed = null;
+        synchronized (this) {
+            if (writeEpoch == epoch) {
+                writing = false;
+                failures++;
+                desired = device != null ? copy(device) : null;
+                dropped = queued;
+                queued = new ArrayList<>();
+                queuedPersist = false;
+                flushed = afterWrite();
+            }
+        }
+        for (Callback c : waiters) c.onError(code, message);
+        for (Callback c : dropped) c.onError(code, message);
+        if (flushed != null) for (Runnable r : flushed) r.run();
+    }
+
+    private void flashIfIdle() {
+        synchronized (this) {
+            flashTimer = null;
+            if (!flashWanted || flashing) return;
+            if (writing || !idle.isIdle()) {
+                scheduleFlash();
+                return;
+            }
+            startFlash();
+        }
+    }
+
+    private void onFlashed(int flashEpoch, String code, String message) {
+        List<Runnable> waiters;
+        synchronized (this) {
+            if (flashEpoch != epoch) return;
+            flashing = false;
+            if (code != null) {
+                // Kept pending: the next persisted update or flush() tries again
+                failures++;
+                flashWanted = true;
+                ramDirty = true;
+            } else if (flashWanted && !writing) {
+                scheduleFlash();
+            }
+            waiters = new ArrayList<>(flushWaiters);
+            flushWaiters.clear();
+        }
+        FlashListener listener = flashListener;
+        if (listener != null) {
+            if (code == null) listener.onFlashSaved();
+            else listener.onFlashFailed(code, message);
+        }
+        for (Runnable r : waiters) r.run();
+    }
+
+    private byte[] image(AllParamBean p) {
+        return Arrays.copyOfRange(encoder.setAllParam(p), 5, 30);
+    }
+
+    static AllParamBean copy(AllParamBean p) {
+        AllParamBean c = new AllParamBean();
+        c.mRfidFreq = new AllParamBean.RfidFreq();
+        assign(p, c);
+        return c;
+    }
+
+    /** Copies every field of src into dst; dst.mRfidFreq must exist and is not shared with src. */
+    private static void assign(AllParamBean src, AllParamBean dst) {
+        dst.mAddr = src.mAddr;
+        dst.mRFIDPRO = src.mRFIDPRO;
+        dst.mWorkMode = src.mWorkMode;
+        dst.mInterface = src.mInterface;
+        dst.mBaudrate = src.mBaudrate;
+        dst.mWGSet = src.mWGSet;
+        dst.mAnt = src.mAnt;
+        dst.mRfidFreq.mREGION = src.mRfidFreq.mREGION;
+        dst.mRfidFreq.mSTRATFREI = src.mRfidFreq.mSTRATFREI.clone();
+        dst.mRfidFreq.mSTRATFRED = src.mRfidFreq.mSTRATFRED.clone();
+        dst.mRfidFreq.mSTEPFRE = src.mRfidFreq.mSTEPFRE.clone();
+        dst.mRfidFreq.mCN = src.mRfidFreq.mCN;
+        dst.mRfidPower = src.mRfidPower;
+        dst.mInquiryArea = src.mInquiryArea;
+        dst.mQValue = src.mQValue;
+        dst.mSession = src.mSession;
+        dst.mAcsAddr = src.mAcsAddr;
+        dst.mAcsDataLen = src.mAcsDataLen;
+        dst.mFilterTime = src.mFilterTime;
+        dst.mTriggerTime = src.mTriggerTime;
+        dst.mBuzzerTime = src.mBuzzerTime;
+        dst.mPollingInterval = src.mPollingInterval;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stage latencies of the read path, from BLE notify to the Flutter channel call.
+ *
+ *   notify ──decode──▶ decoded ──post──▶ main-thread run ──channel──▶ channel call
+ *   └──────────────────────── endToEnd (radar reads: radar) ─────────────────────┘
+ *
+ * Stamps come from System.nanoTime. While disabled every hook is a single volatile
+ * read. The notify/decoded stamps are written by the BLE callback thread only.
+ * connectToFirstTag (connect or reconnect start to the first read) is recorded even
+ * while disabled, as it happens once per connection.
+ */
+final class PipelineMetrics {
+
+    private volatile boolean enabled = false;
+
+    final LatencyHistogram decode = new LatencyHistogram();
+    final LatencyHistogram post = new LatencyHistogram();
+    final LatencyHistogram channel = new LatencyHistogram();
+    final LatencyHistogram endToEnd = new LatencyHistogram();
+    final LatencyHistogram radar = new LatencyHistogram();
+    final LatencyHistogram commandRtt = new LatencyHistogram();
+    final LatencyHistogram connectToFirstTag = new LatencyHistogram();
+
+    // BLE callback thread
+    private long notifyNs;
+    private long decodedNs;
+
+    private final RateCounter reads = new RateCounter();
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Notification arrived in IOnNotifyCallback. */
+    void onNotify() {
+        if (!enabled) return;
+        notifyNs = System.nanoTime();
+    }
+
+    /** A read has been decoded and enters delivery. */
+    void onDecoded() {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        decodedNs = now;
+        if (notifyNs != 0) decode.recordNanos(now - notifyNs);
+        reads.add(1, now);
+    }
+
+    long notifyNanos() {
+        return enabled ? notifyNs : 0;
+    }
+
+    long decodedNanos() {
+        return enabled ? decodedNs : 0;
+    }
+
+    /**
+     * Records a read delivered by its own main-thread post.
+     * notify/decoded are the stamps captured when the post was made; 0 = not measured.
+     */
+    void delivered(long notify, long decoded, long postRun, boolean radarRead) {
+        if (!enabled || notify == 0 || decoded == 0) return;
+        long now = System.nanoTime();
+        post.recordNanos(postRun - decoded);
+        channel.recordNanos(now - postRun);
+        (radarRead ? radar : endToEnd).recordNanos(now - notify);
+    }
+
+    void onCommandRoundTrip(long nanos) {
+        if (!enabled) return;
+        commandRtt.recordNanos(nanos);
+    }
+
+    void onConnectToFirstTag(long nanos) {
+        connectToFirstTag.recordNanos(nanos);
+    }
+
+    /**
+     * Delivery path where reads are buffered and flushed later (batches, event queues).
+     * Only the oldest read of each flush is timed, which is the one that waited longest.
+     */
+    final class Delivery {
+        private final boolean radarPath;
+        private volatile long pendingNotify;
+        private volatile long pendingDecoded;
+        private long postRunNs;
+
+        Delivery(boolean radarPath) {
+            this.radarPath = radarPath;
+        }
+
+        /** A read was buffered (BLE callback thread). */
+        void queued() {
+            if (!enabled || pendingNotify != 0 || notifyNs == 0) return;
+            pendingDecoded = decodedNs;
+            pendingNotify = notifyNs;
+        }
+
+        /** The flush started on the main thread. */
+        void flushStarted() {
+            if (pendingNotify == 0) return;
+            postRunNs = System.nanoTime();
+        }
+
+        /** The first channel call of the flush was issued (main thread). */
+        void flushed() {
+            long notify = pendingNotify;
+            if (notify == 0 || postRunNs == 0) return;
+            pendingNotify = 0;
+            delivered(notify, pendingDecoded, postRunNs, radarPath);
+            postRunNs = 0;
+        }
+    }
+
+    void reset() {
+        decode.reset();
+        post.reset();
+        channel.reset();
+        endToEnd.reset();
+        radar.reset();
+        commandRtt.reset();
+        connectToFirstTag.reset();
+        reads.reset();
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> stages = new HashMap<>();
+        stages.put("decode", decode.snapshot());
+        stages.put("post", post.snapshot());
+        stages.put("channel", channel.snapshot());
+        stages.put("endToEnd", endToEnd.snapshot());
+        stages.put("radar", radar.snapshot());
+        stages.put("commandRtt", commandRtt.snapshot());
+        stages.put("connectToFirstTag", connectToFirstTag.snapshot());
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("enabled", enabled);
+        m.put("unit", "us");
+        m.put("stages", stages);
+        m.put("readsTotal", reads.total());
+        m.put("readsPerSecond", reads.perSecond(System.nanoTime()));
+        return m;
+    }
+}
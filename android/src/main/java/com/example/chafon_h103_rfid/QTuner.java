@@ -0,0 +1,280 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adaptive Gen2 Q and session selection for a running inventory.
+ *
+ * Reads are counted in fixed windows. At the end of each window the number of distinct
+ * EPCs read in it estimates the tag population, and the Q whose frame size (2^Q slots)
+ * is closest to it becomes the target. Q moves one step at a time, and only after the
+ * target has pointed the same way for holdWindows windows and minIntervalMs has passed
+ * since the last change. A step that costs more than a quarter of the read rate without
+ * bringing new tags is reverted and that direction is blocked for a while.
+ *
+ * With session tuning on, large populations use S1 (a read tag stays quiet for a while,
+ * so weaker tags get slots) and small ones S0 (tags answer every round), with a band
+ * between sessionLowTags and sessionHighTags in which the session is kept.
+ *
+ * {@link #onRead} is called from the notify thread, everything else from the command executor.
+ */
+final class QTuner {
+
+    static final long DEFAULT_WINDOW_MS = 1000;
+    static final int DEFAULT_HOLD_WINDOWS = 2;
+    static final long DEFAULT_MIN_INTERVAL_MS = 3000;
+    static final int DEFAULT_SESSION_HIGH_TAGS = 32;
+    static final int DEFAULT_SESSION_LOW_TAGS = 16;
+
+    // Read-rate loss after a step, without new tags, that makes the step revert
+    static final double REVERT_DROP = 0.25;
+    static final int BLOCK_WINDOWS = 10;
+    private static final int HISTORY = 32;
+
+    /** One Q/session change, with the rates measured before it and, one window later, after it. */
+    static final class Decision {
+        final long timeMs;
+        final int fromQ;
+        final int toQ;
+        final int fromSession;
+        final int toSession;
+        final String reason;
+        final int activeTags;
+        final double readsPerSecond;
+        final double newTagsPerSecond;
+        boolean applied;
+        String error;
+        double readsPerSecondAfter = -1;
+        double newTagsPerSecondAfter = -1;
+
+        Decision(long timeMs, int fromQ, int toQ, int fromSession, int toSession, String reason,
+                 int activeTags, double readsPerSecond, double newTagsPerSecond) {
+            this.timeMs = timeMs;
+            this.fromQ = fromQ;
+            this.toQ = toQ;
+            this.fromSession = fromSession;
+            this.toSession = toSession;
+            this.reason = reason;
+            this.activeTags = activeTags;
+            this.readsPerSecond = readsPerSecond;
+            this.newTagsPerSecond = newTagsPerSecond;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("time", timeMs);
+            m.put("fromQ", fromQ);
+            m.put("toQ", toQ);
+            m.put("fromSession", fromSession);
+            m.put("toSession", toSession);
+            m.put("reason", reason);
+            m.put("activeTags", activeTags);
+            m.put("readsPerSecond", readsPerSecond);
+            m.put("newTagsPerSecond", newTagsPerSecond);
+            m.put("applied", applied);
+            if (error != null) m.put("error", error);
+            if (readsPerSecondAfter >= 0) {
+                m.put("readsPerSecondAfter", readsPerSecondAfter);
+                m.put("newTagsPerSecondAfter", newTagsPerSecondAfter);
+            }
+            return m;
+        }
+    }
+
+    private final long windowMs;
+    private final int holdWindows;
+    private final long minIntervalMs;
+    private final int minQ;
+    private final int maxQ;
+    private final boolean tuneSession;
+    private final int sessionHighTags;
+    private final int sessionLowTags;
+
+    private int q;
+    private int session;
+
+    // Every EPC seen since start, and the ones seen in the current window
+    private final EpcHashSet seen = new EpcHashSet();
+    private final EpcHashSet window = new EpcHashSet();
+    private int windowReads;
+    private int windowNew;
+    private long windowStartMs;
+
+    private int pendingDirection;
+    private int pendingWindows;
+    private long lastChangeMs;
+    private int blockedDirection;
+    private long blockedUntilMs;
+    private Decision inFlight;
+    private Decision measuring;
+    private Decision measured;
+
+    private final ArrayDeque<Decision> history = new ArrayDeque<>();
+    private long windows;
+    private long changes;
+    private long reverts;
+
+    QTuner(int q, int session, long windowMs, int holdWindows, long minIntervalMs, int minQ, int maxQ,
+           boolean tuneSession, int sessionHighTags, int sessionLowTags, long nowMs) {
+        this.minQ = Math.max(0, Math.min(15, minQ));
+        this.maxQ = Math.max(this.minQ, Math.min(15, maxQ));
+        this.q = Math.max(this.minQ, Math.min(this.maxQ, q));
+        this.session = session;
+        this.windowMs = Math.max(100, windowMs);
+        this.holdWindows = Math.max(1, holdWindows);
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+        this.tuneSession = tuneSession;
+        this.sessionHighTags = Math.max(2, sessionHighTags);
+        this.sessionLowTags = Math.max(1, Math.min(this.sessionHighTags - 1, sessionLowTags));
+        this.windowStartMs = nowMs;
+        this.lastChangeMs = nowMs - this.minIntervalMs;
+    }
+
+    long windowMs() {
+        return windowMs;
+    }
+
+    synchronized void onRead(byte[] buf, int offset, int length) {
+        long h = EpcHashSet.hash(buf, offset, length);
+        windowReads++;
+        window.add(h);
+        if (seen.add(h)) windowNew++;
+    }
+
+    /** Adopts Q/session written by someone else, e.g. sendAndSaveAllParams from Dart. */
+    synchronized void sync(int q, int session) {
+        if (inFlight != null || (q == this.q && session == this.session)) return;
+        this.q = Math.max(minQ, Math.min(maxQ, q));
+        this.session = session;
+        pendingDirection = 0;
+        pendingWindows = 0;
+    }
+
+    /** Restarts the window without a decision, e.g. while inventory is stopped. */
+    synchronized void idle(long nowMs) {
+        // A change waiting for its "after" window is reported without one
+        if (measuring != null) {
+            measured = measuring;
+            measuring = null;
+        }
+        resetWindow(nowMs);
+        pendingDirection = 0;
+        pendingWindows = 0;
+    }
+
+    /**
+     * Closes the current window.
+     *
+     * @return the change to apply now, or null; the caller reports back through {@link #applied}
+     */
+    synchronized Decision evaluate(long nowMs) {
+        long elapsed = nowMs - windowStartMs;
+        if (elapsed <= 0) return null;
+        double readsPerSecond = windowReads * 1000.0 / elapsed;
+        double newPerSecond = windowNew * 1000.0 / elapsed;
+        int active = window.size();
+        resetWindow(nowMs);
+        windows++;
+
+        Decision last = measuring;
+        measuring = null;
+        if (last != null) {
+            last.readsPerSecondAfter = readsPerSecond;
+            last.newTagsPerSecondAfter = newPerSecond;
+            measured = last;
+            boolean worse = readsPerSecond < last.readsPerSecond * (1 - REVERT_DROP)
+                    && newPerSecond <= last.newTagsPerSecond;
+            if (worse && last.fromQ != last.toQ && !"revert".equals(last.reason)) {
+                blockedDirection = Integer.signum(last.toQ - last.fromQ);
+                blockedUntilMs = nowMs + BLOCK_WINDOWS * windowMs;
+                reverts++;
+                return propose(nowMs, last.fromQ, last.fromSession, "revert", active, readsPerSecond, newPerSecond);
+            }
+        }
+        if (inFlight != null || active == 0) return null;
+
+        int target = Math.max(minQ, Math.min(maxQ, (int) Math.round(Math.log(active) / Math.log(2))));
+        int direction = Integer.signum(target - q);
+        if (direction == 0 || (direction == blockedDirection && nowMs < blockedUntilMs)) {
+            pendingDirection = 0;
+            pendingWindows = 0;
+        } else if (direction == pendingDirection) {
+            pendingWindows++;
+        } else {
+            pendingDirection = direction;
+            pendingWindows = 1;
+        }
+
+        int nextSession = session;
+        if (tuneSession) {
+            if (session == 0 && active >= sessionHighTags) nextSession = 1;
+            else if (session != 0 && active <= sessionLowTags) nextSession = 0;
+        }
+        boolean stepQ = pendingDirection != 0 && pendingWindows >= holdWindows;
+        if ((!stepQ && nextSession == session) || nowMs - lastChangeMs < minIntervalMs) return null;
+
+        int nextQ = stepQ ? q + pendingDirection : q;
+        String reason = stepQ
+                ? (pendingDirection > 0 ? "population_up" : "population_down")
+                : (nextSession != 0 ? "session_quiet" : "session_fast");
+        return propose(nowMs, nextQ, nextSession, reason, active, readsPerSecond, newPerSecond);
+    }
+
+    /** Result of sending a decision; on success it becomes the current Q/session. */
+    synchronized void applied(Decision d, boolean ok, String error, long nowMs) {
+        if (inFlight == d) inFlight = null;
+        d.applied = ok;
+        d.error = error;
+        if (!ok) return;
+        q = d.toQ;
+        session = d.toSession;
+        lastChangeMs = nowMs;
+        pendingDirection = 0;
+        pendingWindows = 0;
+        changes++;
+        // Rates of the next full window are the "after" values
+        measuring = d;
+        resetWindow(nowMs);
+    }
+
+    /** The last applied change once its "after" rates are known, or null; returned once. */
+    synchronized Decision takeMeasured() {
+        Decision d = measured;
+        measured = null;
+        return d;
+    }
+
+    synchronized Map<String, Object> stats() {
+        List<Map<String, Object>> decisions = new ArrayList<>();
+        for (Decision d : history) decisions.add(d.toMap());
+        Map<String, Object> m = new HashMap<>();
+        m.put("q", q);
+        m.put("session", session);
+        m.put("uniqueTags", seen.size());
+        m.put("windows", windows);
+        m.put("changes", changes);
+        m.put("reverts", reverts);
+        m.put("decisions", decisions);
+        return m;
+    }
+
+    private Decision propose(long nowMs, int toQ, int toSession, String reason, int active,
+                             double readsPerSecond, double newPerSecond) {
+        Decision d = new Decision(nowMs, q, toQ, session, toSession, reason, active, readsPerSecond, newPerSecond);
+        inFlight = d;
+        history.addLast(d);
+        if (history.size() > HISTORY) history.removeFirst();
+        return d;
+    }
+
+    private void resetWindow(long nowMs) {
+        window.clear();
+        windowReads = 0;
+        windowNew = 0;
+        windowStartMs = nowMs;
+    }
+}
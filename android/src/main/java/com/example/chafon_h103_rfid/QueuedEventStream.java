@@ -0,0 +1,82 @@
+package com.example.chafon_h103_rfid;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * EventChannel stream fed from a {@link BoundedEventQueue}.
+ * Producers call {@link #offer} from any thread; events are handed to the sink on the
+ * main thread in slices, so one slow frame cannot hold an unbounded backlog.
+ */
+class QueuedEventStream implements EventChannel.StreamHandler {
+
+    private static final int MAX_EVENTS_PER_DRAIN = 128;
+
+    private final Handler mainHandler;
+    private final BoundedEventQueue queue;
+    private final Runnable drainRunnable = this::drain;
+
+    private volatile EventChannel.EventSink sink;
+    private final PipelineMetrics.Delivery delivery;
+
+    QueuedEventStream(Handler mainHandler, int capacity, BoundedEventQueue.OverflowPolicy policy) {
+        this(mainHandler, capacity, policy, null);
+    }
+
+    QueuedEventStream(Handler mainHandler, int capacity, BoundedEventQueue.OverflowPolicy policy,
+                      PipelineMetrics.Delivery delivery) {
+        this.mainHandler = mainHandler;
+        this.queue = new BoundedEventQueue(capacity, policy);
+        this.delivery = delivery;
+    }
+
+    BoundedEventQueue queue() {
+        return queue;
+    }
+
+    boolean hasListener() {
+        return sink != null;
+    }
+
+    /**
+     * Queues an event for the stream.
+     *
+     * @return false when nobody listens, so the caller can fall back to the method channel
+     */
+    boolean offer(Object key, Object event) {
+        if (sink == null) return false;
+        if (delivery != null) delivery.queued();
+        if (queue.offer(key, event)) {
+            mainHandler.post(drainRunnable);
+        }
+        return true;
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        sink = events;
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        sink = null;
+        mainHandler.removeCallbacks(drainRunnable);
+        queue.clear();
+    }
+
+    // Runs on the main thread
+    private void drain() {
+        EventChannel.EventSink s = sink;
+        if (s == null) return;
+        if (delivery != null) delivery.flushStarted();
+
+        for (int i = 0; i < MAX_EVENTS_PER_DRAIN; i++) {
+            Object event = queue.poll();
+            if (event == null) return;
+            s.success(event);
+            if (i == 0 && delivery != null) delivery.flushed();
+        }
+        if (!queue.isEmpty()) mainHandler.post(drainRunnable);
+    }
+}
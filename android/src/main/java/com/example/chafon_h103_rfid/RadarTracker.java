@@ -0,0 +1,199 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Radar (locate) mode for a set of target EPCs.
+ *
+ * Reads are matched on the raw EPC bytes against a fixed open-addressing table built at
+ * start, so non-target reads cost one hash and a probe. Each target keeps a smoothed RSSI
+ * (EMA or a scalar Kalman filter). Output is pulled by {@link #drain}: a target is reported
+ * at most once per interval while it is being read, and every {@link #STALE_REPORT_MS}
+ * once it has gone silent so the UI can show how long it has been lost.
+ */
+final class RadarTracker {
+
+    enum Filter { EMA, KALMAN }
+
+    static final double DEFAULT_ALPHA = 0.3;
+    static final double DEFAULT_PROCESS_NOISE = 0.5;
+    static final double DEFAULT_MEASUREMENT_NOISE = 4.0;
+    static final int DEFAULT_MAX_RATE_HZ = 10;
+    static final long STALE_REPORT_MS = 1000;
+    // Smoothed RSSI change (dB) between reports below which the trend is "steady"
+    static final double TREND_THRESHOLD_DB = 1.0;
+
+    private static final class Target {
+        final byte[] epc;
+        final int hash;
+        final String epcHex;
+
+        double estimate;
+        double variance;
+        int lastRssi;
+        int antenna;
+        String reader;
+        long lastSeenMs = -1;
+        int readsSinceReport;
+
+        long lastReportMs = -1;
+        double lastReportedEstimate;
+
+        Target(byte[] epc, String epcHex) {
+            this.epc = epc;
+            this.hash = EpcStringCache.hash(epc, 0, epc.length);
+            this.epcHex = epcHex;
+        }
+    }
+
+    private final Target[] targets;
+    private final Target[] table;
+    private final int mask;
+
+    private final Filter filter;
+    private final double alpha;
+    private final double processNoise;
+    private final double measurementNoise;
+    private final long intervalMs;
+
+    /**
+     * @param epcs      target EPCs as hex strings; duplicates are ignored
+     * @param maxRateHz maximum reports per second per target
+     * @throws IllegalArgumentException if an EPC is not valid hex
+     */
+    RadarTracker(List<String> epcs, Filter filter, double alpha,
+                 double processNoise, double measurementNoise, int maxRateHz) {
+        this.filter = filter;
+        this.alpha = Math.max(0.01, Math.min(1.0, alpha));
+        this.processNoise = Math.max(1e-6, processNoise);
+        this.measurementNoise = Math.max(1e-6, measurementNoise);
+        this.intervalMs = 1000L / Math.max(1, Math.min(1000, maxRateHz));
+
+        int size = 16;
+        while (size < epcs.size() * 2) size <<= 1;
+        table = new Target[size];
+        mask = size - 1;
+
+        List<Target> unique = new ArrayList<>();
+        for (String hex : epcs) {
+            byte[] epc = HexCodec.decodeStrict(hex);
+            if (epc.length == 0 || find(epc, 0, epc.length) != null) continue;
+            Target t = new Target(epc, HexCodec.encode(epc));
+            int slot = t.hash & mask;
+            while (table[slot] != null) slot = (slot + 1) & mask;
+            table[slot] = t;
+            unique.add(t);
+        }
+        targets = unique.toArray(new Target[0]);
+    }
+
+    int size() {
+        return targets.length;
+    }
+
+    long intervalMs() {
+        return intervalMs;
+    }
+
+    List<byte[]> targetEpcs() {
+        List<byte[]> epcs = new ArrayList<>(targets.length);
+        for (Target t : targets) epcs.add(t.epc);
+        return epcs;
+    }
+
+    /**
+     * Feeds one inventory read (BLE callback thread).
+     *
+     * @param reader address of the reader that produced it, or null
+     * @return true if the read belongs to a target
+     */
+    boolean record(byte[] buf, int offset, int length, int rssi, int antenna, String reader, long nowMs) {
+        Target t = find(buf, offset, length);
+        if (t == null) return false;
+        synchronized (t) {
+            if (t.lastSeenMs < 0) {
+                t.estimate = rssi;
+                t.variance = measurementNoise;
+                t.lastReportedEstimate = rssi;
+            } else if (filter == Filter.KALMAN) {
+                // Random-walk model: predict, then correct with the new sample
+                double p = t.variance + processNoise;
+                double k = p / (p + measurementNoise);
+                t.estimate += k * (rssi - t.estimate);
+                t.variance = (1 - k) * p;
+            } else {
+                t.estimate += alpha * (rssi - t.estimate);
+            }
+            t.lastRssi = rssi;
+            t.antenna = antenna;
+            t.reader = reader;
+            t.lastSeenMs = nowMs;
+            t.readsSinceReport++;
+        }
+        return true;
+    }
+
+    /** Reports for every target that is due at nowMs; null when none is. */
+    List<Map<String, Object>> drain(long nowMs) {
+        List<Map<String, Object>> out = null;
+        for (Target t : targets) {
+            Map<String, Object> m;
+            synchronized (t) {
+                if (t.lastSeenMs < 0) continue;
+                long sinceReport = t.lastReportMs < 0 ? Long.MAX_VALUE : nowMs - t.lastReportMs;
+                boolean fresh = t.readsSinceReport > 0 && sinceReport >= intervalMs;
+                boolean stale = t.readsSinceReport == 0 && sinceReport >= STALE_REPORT_MS;
+                if (!fresh && !stale) continue;
+                m = report(t, nowMs, sinceReport);
+            }
+            if (out == null) out = new ArrayList<>();
+            out.add(m);
+        }
+        return out;
+    }
+
+    private Map<String, Object> report(Target t, long nowMs, long sinceReport) {
+        double delta = t.estimate - t.lastReportedEstimate;
+        String trend = delta > TREND_THRESHOLD_DB ? "approaching"
+                : delta < -TREND_THRESHOLD_DB ? "receding" : "steady";
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("epc", t.epcHex);
+        m.put("rssi", t.lastRssi);
+        m.put("smoothedRssi", Math.round(t.estimate * 10) / 10.0);
+        m.put("trend", trend);
+        m.put("trendDbPerSecond", sinceReport == Long.MAX_VALUE || sinceReport == 0
+                ? 0.0 : Math.round(delta * 10000.0 / sinceReport) / 10.0);
+        m.put("sinceLastSeenMs", nowMs - t.lastSeenMs);
+        m.put("reads", t.readsSinceReport);
+        m.put("antenna", t.antenna);
+        if (t.reader != null) m.put("reader", t.reader);
+
+        t.lastReportMs = nowMs;
+        t.lastReportedEstimate = t.estimate;
+        t.readsSinceReport = 0;
+        return m;
+    }
+
+    private Target find(byte[] buf, int offset, int length) {
+        int hash = EpcStringCache.hash(buf, offset, length);
+        int slot = hash & mask;
+        Target t;
+        while ((t = table[slot]) != null) {
+            if (t.hash == hash && matches(t.epc, buf, offset, length)) return t;
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] key, byte[] buf, int offset, int length) {
+        if (key.length != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buf[offset + i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.chafon_h103_rfid;
+
+/**
+ * Event counter with a per-second rate over the last full one-second window.
+ */
+final class RateCounter {
+
+    private static final long WINDOW_NS = 1_000_000_000L;
+
+    private long total;
+    private long windowStartNs;
+    private long inWindow;
+    private long lastWindow;
+
+    synchronized void add(long amount, long nowNs) {
+        total += amount;
+        if (windowStartNs == 0) windowStartNs = nowNs;
+        long elapsed = nowNs - windowStartNs;
+        if (elapsed >= WINDOW_NS) {
+            lastWindow = elapsed >= 2 * WINDOW_NS ? 0 : inWindow;
+            inWindow = 0;
+            windowStartNs = nowNs;
+        }
+        inWindow += amount;
+    }
+
+    synchronized long total() {
+        return total;
+    }
+
+    /** Amount counted in the last full second; 0 once nothing has arrived for two seconds. */
+    synchronized long perSecond(long nowNs) {
+        if (windowStartNs == 0 || nowNs - windowStartNs >= 2 * WINDOW_NS) return 0;
+        return lastWindow;
+    }
+
+    synchronized void reset() {
+        total = 0;
+        windowStartNs = 0;
+        inWindow = 0;
+        lastWindow = 0;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes inventory tag frames straight from notify bytes.
+ *
+ * Frame: CF FF CMDH CMDL LEN DATA[LEN] CRCH CRCL, CRC16 (poly 0x8408, init 0xFFFF) over
+ * everything before the CRC. Tag frames are CMD 0x0001 with
+ *   DATA = status, rssi*10 (i16 BE), antenna, channel, epcLen, EPC[LEN - 6]
+ *
+ * Complete frames are parsed in place and the EPC is handed to the sink as an
+ * (array, offset, length) slice, valid only for the duration of the call. Only the
+ * incomplete tail of a notification is copied, to be joined with the next one; several
+ * frames packed into one notification are all decoded. On a bad CRC the decoder
+ * resynchronizes on the next CF FF.
+ *
+ * Joining only happens where the link passes continuation notifications on: GattReaderLink
+ * does; BleCore (the primary reader) drops any notification not starting with CF, so there
+ * a split frame is lost. Both negotiate a 512-byte MTU, so frames normally arrive whole.
+ *
+ * Fed from the BLE callback thread; the lock only guards stats/reset from other threads.
+ * Other threads ask for a reset with {@link #requestReset}, applied by the next feed, so
+ * they never wait behind a feed that is calling the sink.
+ */
+class RawFrameDecoder {
+
+    interface TagSink {
+        void onTag(byte[] buf, int epcOffset, int epcLength, int rssi, int antenna, int channel);
+    }
+
+    static final int HEADER_SIZE = 5;
+    static final int CRC_SIZE = 2;
+    static final int CMD_INVENTORY = 0x0001;
+
+    private static final int MAX_DATA_LEN = 0xFF;
+
+    private final TagSink sink;
+
+    // Incomplete frame carried over from the previous notification
+    private byte[] pending = new byte[HEADER_SIZE + MAX_DATA_LEN + CRC_SIZE];
+    private int pendingLen = 0;
+    private volatile boolean resetRequested;
+
+    private long frames;
+    private long tags;
+    private long crcErrors;
+    private long skippedBytes;
+    private long reassembled;
+
+    private int lastTags; // tags decoded by the last parse()
+
+    RawFrameDecoder(TagSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Feeds one notification.
+     *
+     * @return number of tag reads delivered to the sink
+     */
+    synchronized int feed(byte[] data, int offset, int length) {
+        if (resetRequested) {
+            resetRequested = false;
+            pendingLen = 0;
+        }
+        if (pendingLen == 0) {
+            int consumed = parse(data, offset, length);
+            keep(data, offset + consumed, length - consumed);
+            return lastTags;
+        }
+
+        // Join with the carried-over bytes; the joined buffer is at most one frame plus this notification
+        int total = pendingLen + length;
+        if (total > pending.length) {
+            pending = Arrays.copyOf(pending, total);
+        }
+        System.arraycopy(data, offset, pending, pendingLen, length);
+        pendingLen = 0;
+
+        long framesBefore = frames;
+        int consumed = parse(pending, 0, total);
+        if (frames > framesBefore) reassembled++;
+        keep(pending, consumed, total - consumed);
+        return lastTags;
+    }
+
+    synchronized void reset() {
+        pendingLen = 0;
+    }
+
+    /** Drops the carried-over bytes at the start of the next feed, on the feeding thread. */
+    void requestReset() {
+        resetRequested = true;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("frames", frames);
+        m.put("tags", tags);
+        m.put("crcErrors", crcErrors);
+        m.put("skippedBytes", skippedBytes);
+        m.put("reassembled", reassembled);
+        return m;
+    }
+
+    /**
+     * Decodes every complete frame in buf[offset, offset + length).
+     *
+     * @return number of bytes consumed; the rest is a frame prefix
+     */
+    private int parse(byte[] buf, int offset, int length) {
+        lastTags = 0;
+        int p = offset;
+        int end = offset + length;
+
+        while (end - p >= HEADER_SIZE) {
+            if ((buf[p] & 0xFF) != 0xCF || (buf[p + 1] & 0xFF) != 0xFF) {
+                p++;
+                skippedBytes++;
+                continue;
+            }
+
+            int dataLen = buf[p + 4] & 0xFF;
+            int frameLen = HEADER_SIZE + dataLen + CRC_SIZE;
+            if (end - p < frameLen) break; // wait for the rest
+
+            int crcAt = p + HEADER_SIZE + dataLen;
+            int expected = ((buf[crcAt] & 0xFF) << 8) | (buf[crcAt + 1] & 0xFF);
+            if (FrameEncoder.crc16(buf, p, HEADER_SIZE + dataLen) != expected) {
+                crcErrors++;
+                p++;
+                skippedBytes++;
+                continue;
+            }
+
+            frames++;
+            int cmd = ((buf[p + 2] & 0xFF) << 8) | (buf[p + 3] & 0xFF);
+            if (cmd == CMD_INVENTORY && dataLen > 6) {
+                int d = p + HEADER_SIZE;
+                int rssi = ((buf[d + 1] << 8) | (buf[d + 2] & 0xFF)) / 10;
+                int antenna = buf[d + 3];
+                int channel = buf[d + 4];
+                sink.onTag(buf, d + 6, dataLen - 6, rssi, antenna, channel);
+                tags++;
+                lastTags++;
+            }
+            p += frameLen;
+        }
+        // Bytes that cannot start a frame are dropped rather than carried over
+        while (p < end && (buf[p] & 0xFF) != 0xCF) {
+            p++;
+            skippedBytes++;
+        }
+        return p - offset;
+    }
+
+    private void keep(byte[] buf, int offset, int length) {
+        if (length <= 0) {
+            pendingLen = 0;
+            return;
+        }
+        if (buf != pending || offset != 0) {
+            System.arraycopy(buf, offset, pending, 0, length);
+        }
+        pendingLen = length;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.AllParamBean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * State of one connected H103: its command queue, parameter cache, inventory state,
+ * frame decoder and throughput counters. Sessions are keyed by MAC address.
+ */
+final class ReaderSession {
+
+    /** Tag read decoded from this reader's raw frames; the EPC slice is only valid for the call. */
+    interface TagSink {
+        void onTag(ReaderSession session, byte[] buf, int offset, int length, int rssi, int antenna);
+    }
+
+    volatile String address;
+    final CommandScheduler scheduler;
+    final RawFrameDecoder decoder;
+    final ParamCache params;
+
+    volatile boolean bleReady = false;
+    volatile boolean inventoryRunning = false;
+    // Select mask sent before each inventory start; kept across reconnects
+    volatile InventoryFilter filter = null;
+    // A non-empty mask may still be active on the reader
+    volatile boolean selectProgrammed = false;
+    // A bulk tag operation owns the select state and the read/write responses
+    volatile boolean bulkOperation = false;
+    // Adaptive Q/session tuning, evaluated on the command executor while inventory runs
+    volatile QTuner qTuner = null;
+    ScheduledFuture<?> qTunerTask = null;
+    // Duty-cycled burst inventory; its timer runs on the command executor
+    volatile BurstScheduler burst = null;
+    ScheduledFuture<?> burstTask = null;
+    long lastBatteryPollMs = 0;
+    // Automatic reconnect after an unexpected drop (null: off); attempts run on the main thread
+    volatile ReconnectBackoff reconnect = null;
+    ScheduledFuture<?> reconnectTask = null;
+    // Brought back once a reconnect is ready, captured when the link dropped
+    AllParamBean restoreParams = null;
+    boolean restoreInventory = false;
+    int reconnects = 0;
+    // Connect-to-first-tag: stamped when a (re)connect starts, cleared by the first read
+    volatile long connectStartNs = 0;
+    volatile long connectToFirstTagMs = -1;
+    // Notify trace being recorded (null: off); fed from the notify thread
+    volatile TraceRecorder trace = null;
+    // MTU and connection priority requested on each (re)connect (null: leave the link as is)
+    volatile LinkTuning linkTuning = null;
+    // Largest notification on this connection: the usable ATT payload, at least
+    private volatile int largestNotify = 0;
+
+    private final RateCounter reads = new RateCounter();
+    private final RateCounter filteredReads = new RateCounter();
+    private final RateCounter unfilteredReads = new RateCounter();
+    private final RateCounter notifications = new RateCounter();
+    private final RateCounter notifyBytes = new RateCounter();
+    private final RateCounter frames = new RateCounter();
+
+    ReaderSession(String address, ScheduledExecutorService executor,
+                  CommandScheduler.FrameWriter writer, TagSink sink) {
+        this.address = address;
+        this.scheduler = new CommandScheduler(executor, writer);
+        this.decoder = new RawFrameDecoder(
+                (buf, off, len, rssi, antenna, channel) -> sink.onTag(this, buf, off, len, rssi, antenna));
+        this.params = new ParamCache(scheduler, executor, () -> !inventoryRunning && !bulkOperation,
+                ParamCache.WRITE_TIMEOUT_MS, ParamCache.FLASH_TIMEOUT_MS, ParamCache.DEFAULT_FLASH_DELAY_MS);
+    }
+
+    /** Called on the notify thread for every notification. */
+    void countNotify(byte[] value) {
+        long now = System.nanoTime();
+        notifications.add(1, now);
+        notifyBytes.add(value.length, now);
+        if (value.length > largestNotify) largestNotify = value.length;
+
+        // Frames starting in this notification: several may be packed into one, and a frame
+        // split across notifications counts where it starts
+        int started = 0;
+        int p = 0;
+        while (p + 4 < value.length && (value[p] & 0xFF) == 0xCF && (value[p + 1] & 0xFF) == 0xFF) {
+            started++;
+            p += 7 + (value[p + 4] & 0xFF);
+        }
+        if (started > 0) frames.add(started, now);
+    }
+
+    void countRead() {
+        long now = System.nanoTime();
+        reads.add(1, now);
+        (filter != null ? filteredReads : unfilteredReads).add(1, now);
+    }
+
+    /** First read after a (re)connect: time since it started in ns, or -1 if already reported. */
+    long firstTagAfterConnect(long nowNs) {
+        long start = connectStartNs;
+        if (start == 0) return -1;
+        connectStartNs = 0;
+        connectToFirstTagMs = (nowNs - start) / 1_000_000;
+        return nowNs - start;
+    }
+
+    /** Drops connection-scoped state; counters are kept. */
+    void onDisconnected(String code) {
+        bleReady = false;
+        inventoryRunning = false;
+        largestNotify = 0;
+        params.onDisconnected(code);
+        decoder.reset();
+        scheduler.failAll(code, "Reader " + address + " disconnected");
+    }
+
+    /** Negotiated link settings and notify throughput over the last full second. */
+    Map<String, Object> linkStats(long nowNs) {
+        LinkTuning tuning = linkTuning;
+        int largest = largestNotify;
+        Map<String, Object> m = tuning != null ? tuning.toMap(largest) : new HashMap<>();
+        long perSecond = notifications.perSecond(nowNs);
+        long bytesPerSecond = notifyBytes.perSecond(nowNs);
+        m.put("address", address);
+        m.put("notificationsPerSecond", perSecond);
+        m.put("notifyBytesPerSecond", bytesPerSecond);
+        m.put("framesPerSecond", frames.perSecond(nowNs));
+        m.put("bytesPerNotification", perSecond > 0 ? (double) bytesPerSecond / perSecond : 0.0);
+        m.put("largestNotifyBytes", largest);
+        m.put("notificationsTotal", notifications.total());
+        m.put("notifyBytesTotal", notifyBytes.total());
+        m.put("framesTotal", frames.total());
+        return m;
+    }
+
+    Map<String, Object> stats() {
+        long now = System.nanoTime();
+        Map<String, Object> m = new HashMap<>();
+        m.put("address", address);
+        m.put("ready", bleReady);
+        m.put("inventoryRunning", inventoryRunning);
+        m.put("readsTotal", reads.total());
+        m.put("readsPerSecond", reads.perSecond(now));
+        m.put("filter", filter != null ? filter.toMap() : null);
+        m.put("filteredReadsTotal", filteredReads.total());
+        m.put("filteredReadsPerSecond", filteredReads.perSecond(now));
+        m.put("unfilteredReadsTotal", unfilteredReads.total());
+        m.put("unfilteredReadsPerSecond", unfilteredReads.perSecond(now));
+        m.put("notificationsPerSecond", notifications.perSecond(now));
+        m.put("notifyBytesPerSecond", notifyBytes.perSecond(now));
+        m.put("link", linkStats(now));
+        m.put("commandQueue", scheduler.stats());
+        m.put("params", params.stats());
+        m.put("autoReconnect", reconnect != null);
+        m.put("reconnects", reconnects);
+        m.put("connectToFirstTagMs", connectToFirstTagMs);
+        return m;
+    }
+}
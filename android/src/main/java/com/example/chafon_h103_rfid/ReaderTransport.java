@@ -0,0 +1,75 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.ble.interfaces.IOnNotifyCallback;
+
+/**
+ * The primary reader's link: scan, connect/disconnect, notify registration and frame
+ * writes. {@link BleCoreTransport} drives the vendor BleCore; {@link SimulatedH103} is an
+ * in-process reader for load tests.
+ *
+ * No Android types appear here, so implementations other than BleCore run on a plain JVM.
+ * Callbacks arrive on the transport's own thread (a binder thread for BleCore).
+ * Notifications are delivered like BleCore does: the typed CmdHandler bean first, then the
+ * raw frame.
+ */
+interface ReaderTransport extends CommandScheduler.FrameWriter {
+
+    /** MTU BleCore requests on every connect; it reports the connection done from onMtuChanged. */
+    int CONNECT_MTU = 512;
+
+    interface ConnectionListener {
+        /** Outcome of {@link #connect}; on success the link is up but notify is not yet enabled. */
+        void onConnectDone(boolean success);
+
+        /** An established link dropped without {@link #disconnect} being called. */
+        void onLinkLost();
+    }
+
+    interface ScanListener {
+        /**
+         * One advertisement. device is the platform handle to pass back to {@link #connect}
+         * (a BluetoothDevice for BLE); name may be null.
+         */
+        void onAdvertisement(String address, String name, int rssi, boolean readerService, Object device);
+
+        void onScanFailed(int errorCode);
+    }
+
+    void setNotifyCallback(IOnNotifyCallback callback);
+
+    void setConnectionListener(ConnectionListener listener);
+
+    /**
+     * Starts connecting; the outcome goes to the connection listener.
+     *
+     * @param device a handle from {@link ScanListener#onAdvertisement}, or null to connect
+     *               by address without scanning
+     * @return false if the attempt could not be started
+     */
+    boolean connect(String address, Object device);
+
+    /** Enables notifications on the reader's notify characteristic. */
+    boolean enableNotify();
+
+    void disconnect();
+
+    boolean isConnected();
+
+    /**
+     * Asks for a larger ATT MTU on the current connection.
+     *
+     * @return false if the request could not be issued (not connected, another GATT
+     *         operation outstanding)
+     */
+    boolean requestMtu(int mtu);
+
+    /** Asks for a connection priority, one of the LinkTuning.PRIORITY_* values. */
+    boolean requestConnectionPriority(int priority);
+
+    /** The negotiated MTU, or 0 if the transport does not learn it. */
+    int mtu();
+
+    void startScan(ScanListener listener);
+
+    void stopScan();
+}
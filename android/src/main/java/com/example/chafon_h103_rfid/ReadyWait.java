@@ -0,0 +1,43 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continues once a condition holds (e.g. a reader finished connecting) instead of blocking
+ * until it does. The condition is checked inline first; after that it is polled on the
+ * executor, and the continuation or the timeout runs there. The calling thread is never held.
+ */
+final class ReadyWait {
+
+    interface Condition {
+        boolean isMet();
+    }
+
+    static final long DEFAULT_POLL_MS = 50;
+
+    private ReadyWait() {}
+
+    static void when(ScheduledExecutorService executor, Condition condition, long timeoutMs, long pollMs,
+                     Runnable next, Runnable timedOut) {
+        if (condition.isMet()) {
+            next.run();
+            return;
+        }
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        poll(executor, condition, deadlineNs, Math.max(1, pollMs), next, timedOut);
+    }
+
+    private static void poll(ScheduledExecutorService executor, Condition condition, long deadlineNs, long pollMs,
+                             Runnable next, Runnable timedOut) {
+        executor.schedule(() -> {
+            if (condition.isMet()) {
+                next.run();
+            } else if (System.nanoTime() - deadlineNs >= 0) {
+                timedOut.run();
+            } else {
+                poll(executor, condition, deadlineNs, pollMs, next, timedOut);
+            }
+        }, pollMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.Random;
+
+/**
+ * Delays between automatic reconnect attempts after a reader dropped.
+ *
+ * The delay starts at initialMs and doubles per attempt up to maxMs, with up to
+ * +/- jitter of it added so readers that dropped together do not retry in lockstep.
+ * After maxAttempts attempts {@link #nextDelayMs} returns -1 and the caller gives up.
+ */
+final class ReconnectBackoff {
+
+    static final long DEFAULT_INITIAL_MS = 500;
+    static final long DEFAULT_MAX_MS = 30_000;
+    static final int DEFAULT_MAX_ATTEMPTS = 10;
+    static final double DEFAULT_JITTER = 0.2;
+
+    private final long initialMs;
+    private final long maxMs;
+    private final int maxAttempts;
+    private final double jitter;
+    private final Random random;
+
+    private int attempts;
+
+    ReconnectBackoff(long initialMs, long maxMs, int maxAttempts, double jitter, Random random) {
+        this.initialMs = Math.max(1, initialMs);
+        this.maxMs = Math.max(this.initialMs, maxMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        this.random = random;
+    }
+
+    /** Delay before the next attempt, or -1 once maxAttempts have been made. */
+    synchronized long nextDelayMs() {
+        if (attempts >= maxAttempts) return -1;
+        long base = attempts >= 31 ? maxMs : Math.min(maxMs, initialMs << attempts);
+        attempts++;
+        if (jitter == 0) return base;
+        double offset = (random.nextDouble() * 2 - 1) * jitter * base;
+        return Math.max(1, Math.round(base + offset));
+    }
+
+    synchronized int attempts() {
+        return attempts;
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /** After a successful reconnect, so the next drop starts from initialMs again. */
+    synchronized void reset() {
+        attempts = 0;
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.CmdData;
+import com.cf.ble.interfaces.IOnNotifyCallback;
+import com.cf.zsdk.cmd.CmdHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process H103 behind {@link ReaderTransport}, so throughput and latency can be
+ * exercised without a reader or a phone.
+ *
+ * Commands are answered with protocol-correct CF FF frames after ackLatencyMs (plus up to
+ * ackJitterMs), and each answer is lost with probability ackLoss. While inventory runs,
+ * tag frames for a population of `tags` EPCs are emitted at readsPerSecond, in ticks of
+ * tickMs. Notifications go through CmdHandler like BleCore does, so the callback gets the
+ * TagInfoBean / AllParamBean / BatteryCapacityBean first and the raw frame after.
+ *
+ * Everything runs on the simulator's own thread. Tag choice and RSSI come from one Random
+ * and ack loss and jitter from another, both seeded, so the n-th tag read and the n-th
+ * answer are the same in every run with the same seed; only how many reads fall into
+ * a tick depends on the wall clock.
+ */
+final class SimulatedH103 implements ReaderTransport {
+
+    static final String DEFAULT_ADDRESS = "02:00:00:00:01:03";
+    static final String NAME = "H103-SIM";
+
+    static final class Config {
+        String address = DEFAULT_ADDRESS;
+        int tags = 5000;
+        int epcBytes = 12;
+        int readsPerSecond = 800;
+        long tickMs = 10;
+        long ackLatencyMs = 20;
+        long ackJitterMs = 10;
+        double ackLoss = 0;
+        long connectLatencyMs = 150;
+        int battery = 80;
+        // Largest MTU the simulated reader accepts in the exchange
+        int maxMtu = 247;
+        long seed = 1;
+    }
+
+    private static final long ADVERTISE_INTERVAL_MS = 100;
+
+    private final Config config;
+    private final ScheduledExecutorService executor;
+    private final Random tagRandom;
+    private final Random linkRandom;
+    private final byte[][] epcs;
+
+    // Parameter block of get/set-all-param, frame bytes 5..29 of set-all-param
+    private final byte[] params = {
+            0x00, 0x00, 0x01, (byte) 0x80, 0x04, 0x00, 0x01, // addr .. ant
+            0x03, 0x03, 0x61, 0x00, 0x64, 0x00, (byte) 0xC8, 0x0F, // region, freqs, CN
+            0x1A, 0x00, 0x04, 0x00, // power, inquiry area, Q, session
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00 // acs, filter, trigger, buzzer, polling
+    };
+
+    private volatile IOnNotifyCallback notifyCallback;
+    private volatile ConnectionListener connectionListener;
+    private volatile boolean connected;
+    private volatile boolean notifying;
+    private volatile int mtu = LinkTuning.DEFAULT_MTU;
+    private volatile int connectionPriority = LinkTuning.PRIORITY_BALANCED;
+
+    // Simulator thread only
+    private ScheduledFuture<?> inventoryTask;
+    private ScheduledFuture<?> scanTask;
+    private long lastTickNs;
+    private double owedReads;
+
+    private volatile long commands;
+    private volatile long answers;
+    private volatile long answersLost;
+    private volatile long tagReads;
+
+    SimulatedH103(Config config) {
+        this.config = config;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SimulatedH103");
+            t.setDaemon(true);
+            return t;
+        });
+        this.tagRandom = new Random(config.seed);
+        this.linkRandom = new Random(config.seed * 31 + 7);
+        this.epcs = population(Math.max(1, config.tags), Math.max(4, config.epcBytes), config.seed);
+    }
+
+    /** EPCs E2 80, seeded filler, then the index, so all are distinct. */
+    static byte[][] population(int tags, int epcBytes, long seed) {
+        Random random = new Random(seed);
+        byte[][] out = new byte[tags][];
+        for (int i = 0; i < tags; i++) {
+            byte[] epc = new byte[epcBytes];
+            random.nextBytes(epc);
+            epc[0] = (byte) 0xE2;
+            epc[1] = (byte) 0x80;
+            for (int b = 0; b < 4 && b < epcBytes - 2; b++) {
+                epc[epcBytes - 1 - b] = (byte) (i >>> (8 * b));
+            }
+            out[i] = epc;
+        }
+        return out;
+    }
+
+    @Override
+    public boolean write(byte[] frame) {
+        if (!connected) return false;
+        // The scheduler may reuse its encoder buffer once write() returns
+        byte[] copy = frame.clone();
+        executor.execute(() -> handle(copy));
+        return true;
+    }
+
+    @Override
+    public void setNotifyCallback(IOnNotifyCallback callback) {
+        notifyCallback = callback;
+    }
+
+    @Override
+    public void setConnectionListener(ConnectionListener listener) {
+        connectionListener = listener;
+    }
+
+    @Override
+    public boolean connect(String address, Object device) {
+        executor.schedule(() -> {
+            boolean ok = config.address.equalsIgnoreCase(address);
+            connected = ok;
+            // As BleCore, which asks for 512 while connecting
+            mtu = Math.min(CONNECT_MTU, config.maxMtu);
+            connectionPriority = LinkTuning.PRIORITY_BALANCED;
+            ConnectionListener l = connectionListener;
+            if (l != null) l.onConnectDone(ok);
+        }, config.connectLatencyMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    @Override
+    public boolean enableNotify() {
+        if (!connected) return false;
+        notifying = true;
+        return true;
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+        notifying = false;
+        executor.execute(this::stopInventory);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public boolean requestMtu(int requested) {
+        if (!connected) return false;
+        mtu = Math.max(LinkTuning.DEFAULT_MTU, Math.min(requested, config.maxMtu));
+        return true;
+    }
+
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        if (!connected) return false;
+        connectionPriority = priority;
+        return true;
+    }
+
+    @Override
+    public int mtu() {
+        return mtu;
+    }
+
+    @Override
+    public void startScan(ScanListener listener) {
+        executor.execute(() -> {
+            if (scanTask != null) scanTask.cancel(false);
+            scanTask = executor.scheduleAtFixedRate(() -> listener.onAdvertisement(config.address, NAME,
+                    -45 - linkRandom.nextInt(10), true, config.address), 0, ADVERTISE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    @Override
+    public void stopScan() {
+        executor.execute(() -> {
+            if (scanTask != null) scanTask.cancel(false);
+            scanTask = null;
+        });
+    }
+
+    /** Drops an established link as if the reader went out of range. */
+    void dropLink() {
+        executor.execute(() -> {
+            if (!connected) return;
+            connected = false;
+            notifying = false;
+            stopInventory();
+            ConnectionListener l = connectionListener;
+            if (l != null) l.onLinkLost();
+        });
+    }
+
+    void shutdown() {
+        connected = false;
+        executor.shutdownNow();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("connected", connected);
+        m.put("commands", commands);
+        m.put("answers", answers);
+        m.put("answersLost", answersLost);
+        m.put("tagReads", tagReads);
+        m.put("tags", epcs.length);
+        m.put("readsPerSecond", config.readsPerSecond);
+        m.put("mtu", mtu);
+        m.put("connectionPriority", LinkTuning.priorityName(connectionPriority));
+        return m;
+    }
+
+    // ==== Simulator thread ====
+
+    private void handle(byte[] f) {
+        if (f.length < 7 || (f[0] & 0xFF) != 0xCF || (f[1] & 0xFF) != 0xFF) return;
+        int crc = ((f[f.length - 2] & 0xFF) << 8) | (f[f.length - 1] & 0xFF);
+        if (FrameEncoder.crc16(f, 0, f.length - 2) != crc) return; // the reader ignores it
+        commands++;
+        int cmd = ((f[2] & 0xFF) << 8) | (f[3] & 0xFF);
+        switch (cmd) {
+            case FrameEncoder.CMD_START_INVENTORY:
+                answer(cmd, new byte[] {0x00});
+                startInventory();
+                break;
+            case FrameEncoder.CMD_STOP_INVENTORY:
+                stopInventory();
+                answer(cmd, new byte[] {0x00});
+                break;
+            case FrameEncoder.CMD_GET_ALL_PARAM: {
+                byte[] data = new byte[1 + params.length];
+                System.arraycopy(params, 0, data, 1, params.length);
+                answer(cmd, data);
+                break;
+            }
+            case FrameEncoder.CMD_SET_ALL_PARAM:
+                if ((f[4] & 0xFF) >= params.length) System.arraycopy(f, 5, params, 0, params.length);
+                answer(cmd, new byte[] {0x00});
+                break;
+            case FrameEncoder.CMD_GET_BATTERY:
+                answer(cmd, new byte[] {0x00, (byte) config.battery});
+                break;
+            default:
+                answer(cmd, new byte[] {0x00});
+        }
+    }
+
+    private void answer(int cmd, byte[] data) {
+        if (config.ackLoss > 0 && linkRandom.nextDouble() < config.ackLoss) {
+            answersLost++;
+            return;
+        }
+        long delay = config.ackLatencyMs
+                + (config.ackJitterMs > 0 ? (long) (linkRandom.nextDouble() * (config.ackJitterMs + 1)) : 0);
+        byte[] frame = frame(cmd, data);
+        executor.schedule(() -> {
+            answers++;
+            deliver(frame);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void startInventory() {
+        if (inventoryTask != null) return;
+        // Tags follow the ack, as on the reader
+        lastTickNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.ackLatencyMs);
+        owedReads = 0;
+        long tick = Math.max(1, config.tickMs);
+        inventoryTask = executor.scheduleAtFixedRate(this::tick, config.ackLatencyMs + tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopInventory() {
+        if (inventoryTask != null) inventoryTask.cancel(false);
+        inventoryTask = null;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        owedReads += config.readsPerSecond * ((now - lastTickNs) / 1e9);
+        lastTickNs = now;
+        // A stalled thread catches up by at most one second of reads
+        int reads = (int) Math.min(owedReads, Math.max(1, config.readsPerSecond));
+        owedReads -= reads;
+        if (owedReads > config.readsPerSecond) owedReads = 0;
+        for (int i = 0; i < reads && inventoryTask != null; i++) {
+            deliver(tagFrame(epcs[tagRandom.nextInt(epcs.length)], -40 - tagRandom.nextInt(36)));
+        }
+    }
+
+    private byte[] tagFrame(byte[] epc, int rssi) {
+        // status, rssi*10 (i16 BE), antenna, channel, epcLen, EPC
+        byte[] data = new byte[6 + epc.length];
+        int r = rssi * 10;
+        data[1] = (byte) (r >> 8);
+        data[2] = (byte) r;
+        data[3] = 0x01;
+        data[4] = (byte) tagRandom.nextInt(16);
+        data[5] = (byte) epc.length;
+        System.arraycopy(epc, 0, data, 6, epc.length);
+        tagReads++;
+        return frame(FrameEncoder.CMD_START_INVENTORY, data);
+    }
+
+    private static byte[] frame(int cmd, byte[] data) {
+        byte[] f = new byte[RawFrameDecoder.HEADER_SIZE + data.length + RawFrameDecoder.CRC_SIZE];
+        f[0] = (byte) 0xCF;
+        f[1] = (byte) 0xFF;
+        f[2] = (byte) (cmd >> 8);
+        f[3] = (byte) cmd;
+        f[4] = (byte) data.length;
+        System.arraycopy(data, 0, f, RawFrameDecoder.HEADER_SIZE, data.length);
+        int crc = FrameEncoder.crc16(f, 0, f.length - 2);
+        f[f.length - 2] = (byte) (crc >> 8);
+        f[f.length - 1] = (byte) crc;
+        return f;
+    }
+
+    private void deliver(byte[] frame) {
+        IOnNotifyCallback cb = notifyCallback;
+        if (!connected || !notifying || cb == null) return;
+        int cmdType = CmdHandler.getCmdType(frame);
+        CmdData data = new CmdData();
+        data.setData(CmdHandler.handleCmd(cmdType, frame));
+        cb.onNotify(cmdType, data);
+        cb.onNotify(frame);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-EPC aggregation of inventory reads.
+ *
+ * Open-addressing table (linear probing) keyed on the raw EPC bytes. Entries live in
+ * parallel primitive arrays and EPC bytes are copied once into a shared arena, so a
+ * repeated read of a known tag costs a hash, a probe and a few array stores.
+ */
+class TagAggregator {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Object lock = new Object();
+
+    // slot -> entry index + 1 (0 = empty)
+    private int[] table;
+    private int tableMask;
+
+    // entry columns
+    private int[] hashes;
+    private int[] epcOffsets;
+    private int[] epcLengths;
+    private long[] firstSeen;
+    private long[] lastSeen;
+    private int[] readCounts;
+    private int[] rssiMin;
+    private int[] rssiMax;
+    private long[] rssiSum;
+    private int[] antennas;
+    private boolean[] dirty;
+    private int size;
+
+    private byte[] arena;
+    private int arenaUsed;
+
+    TagAggregator() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Records one read.
+     *
+     * @return true if this is the first sighting of the EPC
+     */
+    boolean record(byte[] buf, int offset, int length, int rssi, int antenna, long nowMs) {
+        int hash = EpcStringCache.hash(buf, offset, length);
+        synchronized (lock) {
+            int slot = hash & tableMask;
+            while (true) {
+                int ref = table[slot];
+                if (ref == 0) break;
+                int e = ref - 1;
+                if (hashes[e] == hash && sameEpc(e, buf, offset, length)) {
+                    lastSeen[e] = nowMs;
+                    readCounts[e]++;
+                    if (rssi < rssiMin[e]) rssiMin[e] = rssi;
+                    if (rssi > rssiMax[e]) rssiMax[e] = rssi;
+                    rssiSum[e] += rssi;
+                    antennas[e] = antenna;
+                    dirty[e] = true;
+                    return false;
+                }
+                slot = (slot + 1) & tableMask;
+            }
+
+            if (size == hashes.length) {
+                grow();
+                slot = hash & tableMask;
+                while (table[slot] != 0) slot = (slot + 1) & tableMask;
+            }
+
+            int e = size++;
+            if (arenaUsed + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + length));
+            }
+            System.arraycopy(buf, offset, arena, arenaUsed, length);
+            epcOffsets[e] = arenaUsed;
+            epcLengths[e] = length;
+            arenaUsed += length;
+
+            hashes[e] = hash;
+            firstSeen[e] = nowMs;
+            lastSeen[e] = nowMs;
+            readCounts[e] = 1;
+            rssiMin[e] = rssi;
+            rssiMax[e] = rssi;
+            rssiSum[e] = rssi;
+            antennas[e] = antenna;
+            dirty[e] = false; // first sighting is reported on its own
+            table[slot] = e + 1;
+            return true;
+        }
+    }
+
+    int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    void clear() {
+        synchronized (lock) {
+            allocate(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * All known EPCs with their aggregates.
+     */
+    List<Map<String, Object>> snapshot(EpcStringCache epcStrings) {
+        synchronized (lock) {
+            List<Map<String, Object>> out = new ArrayList<>(size);
+            for (int e = 0; e < size; e++) {
+                out.add(toMap(e, epcStrings));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * EPCs read again since the previous call; clears their changed flag.
+     */
+    List<Map<String, Object>> drainChanged(EpcStringCache epcStrings) {
+        synchronized (lock) {
+            List<Map<String, Object>> out = null;
+            for (int e = 0; e < size; e++) {
+                if (!dirty[e]) continue;
+                dirty[e] = false;
+                if (out == null) out = new ArrayList<>();
+                out.add(toMap(e, epcStrings));
+            }
+            return out;
+        }
+    }
+
+    private Map<String, Object> toMap(int e, EpcStringCache epcStrings) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("epc", epcStrings.get(arena, epcOffsets[e], epcLengths[e]));
+        m.put("count", readCounts[e]);
+        m.put("firstSeen", firstSeen[e]);
+        m.put("lastSeen", lastSeen[e]);
+        m.put("rssiMin", rssiMin[e]);
+        m.put("rssiMax", rssiMax[e]);
+        m.put("rssiMean", (double) rssiSum[e] / readCounts[e]);
+        m.put("antenna", antennas[e]);
+        return m;
+    }
+
+    private boolean sameEpc(int e, byte[] buf, int offset, int length) {
+        if (epcLengths[e] != length) return false;
+        int base = epcOffsets[e];
+        for (int i = 0; i < length; i++) {
+            if (arena[base + i] != buf[offset + i]) return false;
+        }
+        return true;
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity * 2];
+        tableMask = table.length - 1;
+        hashes = new int[capacity];
+        epcOffsets = new int[capacity];
+        epcLengths = new int[capacity];
+        firstSeen = new long[capacity];
+        lastSeen = new long[capacity];
+        readCounts = new int[capacity];
+        rssiMin = new int[capacity];
+        rssiMax = new int[capacity];
+        rssiSum = new long[capacity];
+        antennas = new int[capacity];
+        dirty = new boolean[capacity];
+        arena = new byte[capacity * 12];
+        arenaUsed = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, capacity);
+        epcOffsets = Arrays.copyOf(epcOffsets, capacity);
+        epcLengths = Arrays.copyOf(epcLengths, capacity);
+        firstSeen = Arrays.copyOf(firstSeen, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        readCounts = Arrays.copyOf(readCounts, capacity);
+        rssiMin = Arrays.copyOf(rssiMin, capacity);
+        rssiMax = Arrays.copyOf(rssiMax, capacity);
+        rssiSum = Arrays.copyOf(rssiSum, capacity);
+        antennas = Arrays.copyOf(antennas, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+
+        table = new int[capacity * 2];
+        tableMask = table.length - 1;
+        for (int e = 0; e < size; e++) {
+            int slot = hashes[e] & tableMask;
+            while (table[slot] != 0) slot = (slot + 1) & tableMask;
+            table[slot] = e + 1;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects tag reads between flushes so they can be sent to Dart as one "onTagBatch" call.
+ * A batch is due when it holds maxTags reads or when intervalMs has passed since the first read.
+ */
+class TagBatcher {
+
+    static final int DEFAULT_INTERVAL_MS = 100;
+    static final int DEFAULT_MAX_TAGS = 50;
+    static final int MIN_INTERVAL_MS = 10;
+
+    // What the caller's flush timer should do after add()
+    static final int KEEP_TIMER = 0;
+    static final int FLUSH_AFTER_INTERVAL = 1;
+    static final int FLUSH_NOW = 2;
+
+    private final Object lock = new Object();
+    private List<Map<String, Object>> pending = new ArrayList<>();
+
+    private volatile boolean enabled = false;
+    private volatile int intervalMs = DEFAULT_INTERVAL_MS;
+    private volatile int maxTags = DEFAULT_MAX_TAGS;
+
+    void configure(boolean enabled, int intervalMs, int maxTags) {
+        this.intervalMs = Math.max(MIN_INTERVAL_MS, intervalMs);
+        this.maxTags = Math.max(1, maxTags);
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    int getIntervalMs() {
+        return intervalMs;
+    }
+
+    int getMaxTags() {
+        return maxTags;
+    }
+
+    /**
+     * Adds one read to the current batch.
+     *
+     * @return number of reads now buffered (1 means a new batch was started)
+     */
+    int add(Map<String, Object> tag) {
+        synchronized (lock) {
+            pending.add(tag);
+            return pending.size();
+        }
+    }
+
+    /**
+     * Flush timing for a batch that now holds buffered reads: at once when it is full,
+     * after intervalMs when this read started it, otherwise leave the pending timer.
+     */
+    int flushAction(int buffered) {
+        if (buffered >= maxTags) return FLUSH_NOW;
+        return buffered == 1 ? FLUSH_AFTER_INTERVAL : KEEP_TIMER;
+    }
+
+    /**
+     * Takes everything buffered so far and starts an empty batch.
+     */
+    List<Map<String, Object>> drain() {
+        synchronized (lock) {
+            if (pending.isEmpty()) return null;
+            List<Map<String, Object>> out = pending;
+            pending = new ArrayList<>(Math.min(out.size(), maxTags));
+            return out;
+        }
+    }
+
+    void clear() {
+        synchronized (lock) {
+            pending.clear();
+        }
+    }
+}
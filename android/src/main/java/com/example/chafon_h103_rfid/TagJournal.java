@@ -0,0 +1,453 @@
+package com.example.chafon_h103_rfid;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of tag reads in fixed-size records, written natively so reads are
+ * kept even while the Dart side is paused, busy or in the background.
+ *
+ * The journal is a directory of segment files. The segment being written is memory-mapped,
+ * so an append is a 48-byte copy with no system call, and a full segment is sealed and a
+ * new one started. Every record has a cursor (its sequence number); cursors only grow, and
+ * may skip values where segments were compacted.
+ *
+ * Segment layout, little-endian:
+ *   header (16 bytes): i32 magic "CHJ1", i32 record count (0 while being written), i64 first cursor
+ *   record (48 bytes): u8 epcLen, u8 antenna, i16 rssi, u32 read count, i64 timestamp (ms),
+ *                      32 bytes EPC (zero padded)
+ *
+ * An epcLen of 0 marks the end of a segment that was not sealed, e.g. after a crash; the
+ * length byte is written last so a torn record is never seen.
+ */
+final class TagJournal {
+
+    static final int RECORD_SIZE = 48;
+    static final int MAX_EPC_BYTES = 32;
+    static final int HEADER_SIZE = 16;
+    static final int DEFAULT_SEGMENT_RECORDS = 65536;
+    static final int DEFAULT_MAX_SEGMENTS = 64;
+
+    private static final int MAGIC = 0x314A4843; // "CHJ1"
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+
+    private static final class Segment {
+        final File file;
+        final long base;
+        final int capacity;
+        int count;
+        MappedByteBuffer map; // only while this is the segment being written
+
+        Segment(File file, long base, int capacity, int count) {
+            this.file = file;
+            this.base = base;
+            this.capacity = capacity;
+            this.count = count;
+        }
+
+        long end() {
+            return base + count;
+        }
+    }
+
+    private final File dir;
+    private final int segmentRecords;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private long nextCursor;
+    private boolean compacting;
+    private boolean closed;
+
+    private long appended;
+    private long failed;
+    private long droppedRecords;
+    private long truncatedEpcs;
+
+    /** Opens the journal in dir, creating it if needed and picking up existing segments. */
+    TagJournal(File dir, int segmentRecords, int maxSegments) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        this.dir = dir;
+        this.segmentRecords = Math.max(1, segmentRecords);
+        this.maxSegments = Math.max(2, maxSegments);
+
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files); // names carry the first cursor in fixed-width hex
+            for (File f : files) {
+                Segment s = openSegment(f);
+                if (s == null) continue;
+                segments.add(s);
+                nextCursor = Math.max(nextCursor, s.end());
+            }
+        }
+        // Keep appending to an unsealed last segment, e.g. after the process was killed
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            if (last.count < last.capacity && readHeaderCount(last.file) == 0) {
+                last.map = map(last.file, last.capacity);
+                active = last;
+            }
+        }
+    }
+
+    /**
+     * Appends one read.
+     *
+     * @return false if no segment could be written (e.g. the disk is full)
+     */
+    synchronized boolean append(byte[] epc, int offset, int length, int rssi, int antenna, long timestamp) {
+        if (closed) return false;
+        try {
+            if (active == null || active.count == active.capacity) startSegment();
+        } catch (IOException e) {
+            failed++;
+            return false;
+        }
+        int len = length;
+        if (len > MAX_EPC_BYTES) {
+            len = MAX_EPC_BYTES;
+            truncatedEpcs++;
+        }
+        MappedByteBuffer m = active.map;
+        int p = HEADER_SIZE + active.count * RECORD_SIZE;
+        m.put(p + 1, (byte) antenna);
+        m.putShort(p + 2, (short) rssi);
+        m.putInt(p + 4, 1);
+        m.putLong(p + 8, timestamp);
+        for (int i = 0; i < len; i++) m.put(p + 16 + i, epc[offset + i]);
+        m.put(p, (byte) len);
+        active.count++;
+        nextCursor++;
+        appended++;
+        return true;
+    }
+
+    /**
+     * Copies up to max records starting at cursor (or the oldest record still kept, if later).
+     *
+     * @return records (raw 48-byte records), count, cursor (of the first record returned),
+     *         nextCursor (to pass to the next call) and recordSize
+     */
+    synchronized Map<String, Object> read(long cursor, int max) throws IOException {
+        int limit = Math.max(0, max);
+        ByteBuffer out = ByteBuffer.allocate(Math.min(limit, (int) Math.min(records(), Integer.MAX_VALUE / RECORD_SIZE)) * RECORD_SIZE);
+        long first = -1;
+        long next = Math.max(cursor, firstCursor());
+        int count = 0;
+        for (Segment s : segments) {
+            if (count == limit) break;
+            if (s.end() <= next) continue;
+            long from = Math.max(next, s.base);
+            int n = (int) Math.min(limit - count, s.end() - from);
+            if (first < 0) first = from;
+            readRecords(s, (int) (from - s.base), n, out);
+            count += n;
+            next = from + n;
+        }
+        if (count == 0 || count < limit) next = Math.max(next, nextCursor);
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("records", Arrays.copyOf(out.array(), count * RECORD_SIZE));
+        m.put("count", count);
+        m.put("cursor", first < 0 ? next : first);
+        m.put("nextCursor", next);
+        m.put("recordSize", RECORD_SIZE);
+        return m;
+    }
+
+    /**
+     * Rewrites every record written so far as one record per EPC: the latest read, with the
+     * read counts added up. Appends carry on into a new segment meanwhile.
+     *
+     * @return before, after (record counts), uniqueEpcs and elapsedMs
+     */
+    Map<String, Object> compact() throws IOException {
+        long startNs = System.nanoTime();
+        List<Segment> sealed;
+        synchronized (this) {
+            if (compacting) throw new IllegalStateException("Compaction already running");
+            if (active != null) {
+                seal(active);
+                active = null;
+            }
+            sealed = new ArrayList<>(segments);
+            compacting = true;
+        }
+
+        try {
+            long before = 0;
+            Map<ByteBuffer, byte[]> unique = new LinkedHashMap<>();
+            ByteBuffer chunk = ByteBuffer.allocate(4096 * RECORD_SIZE);
+            for (Segment s : sealed) {
+                before += s.count;
+                for (int i = 0; i < s.count; i += 4096) {
+                    chunk.clear();
+                    int n = Math.min(4096, s.count - i);
+                    readRecords(s, i, n, chunk);
+                    byte[] a = chunk.array();
+                    for (int r = 0; r < n; r++) merge(unique, a, r * RECORD_SIZE);
+                }
+            }
+
+            Segment merged = null;
+            File tmp = null;
+            if (!sealed.isEmpty() && !unique.isEmpty()) {
+                long base = sealed.get(0).base;
+                tmp = new File(dir, segmentName(base) + ".tmp");
+                writeSealed(tmp, base, unique.values());
+                merged = new Segment(new File(dir, segmentName(base)), base, unique.size(), unique.size());
+            }
+
+            synchronized (this) {
+                // A truncate while compacting wins; its segments are gone already
+                if (!segments.containsAll(sealed)) {
+                    if (tmp != null && !tmp.delete()) tmp.deleteOnExit();
+                    return compactReport(before, before, unique.size(), startNs);
+                }
+                for (Segment s : sealed) {
+                    if (!s.file.delete() && s.file.exists()) throw new IOException("Cannot delete " + s.file);
+                }
+                segments.removeAll(sealed);
+                if (merged != null) {
+                    if (!tmp.renameTo(merged.file)) throw new IOException("Cannot rename " + tmp);
+                    segments.add(0, merged);
+                }
+            }
+            return compactReport(before, unique.size(), unique.size(), startNs);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Drops whole segments whose records all lie before the cursor, or everything if
+     * cursor is negative. Cursors keep counting from where they were.
+     *
+     * @return number of records dropped
+     */
+    synchronized long truncate(long before) throws IOException {
+        long dropped = 0;
+        boolean all = before < 0;
+        for (java.util.Iterator<Segment> it = segments.iterator(); it.hasNext(); ) {
+            Segment s = it.next();
+            if (!all && (s == active || s.end() > before)) break;
+            s.map = null;
+            if (!s.file.delete() && s.file.exists()) throw new IOException("Cannot delete " + s.file);
+            dropped += s.count;
+            it.remove();
+        }
+        if (all) {
+            active = null;
+            // An empty segment keeps the next cursor across restarts
+            if (!closed) startSegment();
+        }
+        return dropped;
+    }
+
+    synchronized Map<String, Object> stats() {
+        long bytes = 0;
+        for (Segment s : segments) bytes += s.file.length();
+        Map<String, Object> m = new HashMap<>();
+        m.put("directory", dir.getAbsolutePath());
+        m.put("segments", segments.size());
+        m.put("records", records());
+        m.put("bytes", bytes);
+        m.put("firstCursor", firstCursor());
+        m.put("nextCursor", nextCursor);
+        m.put("appended", appended);
+        m.put("failed", failed);
+        m.put("droppedRecords", droppedRecords);
+        m.put("truncatedEpcs", truncatedEpcs);
+        m.put("recordSize", RECORD_SIZE);
+        return m;
+    }
+
+    /** Seals the segment being written; further appends are refused. */
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (active != null) {
+            seal(active);
+            active = null;
+        }
+    }
+
+    // ==== Internals, called with the lock held unless noted ====
+
+    private long records() {
+        long n = 0;
+        for (Segment s : segments) n += s.count;
+        return n;
+    }
+
+    private long firstCursor() {
+        return segments.isEmpty() ? nextCursor : segments.get(0).base;
+    }
+
+    private void startSegment() throws IOException {
+        if (active != null) seal(active);
+        File f = new File(dir, segmentName(nextCursor));
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(0);
+            raf.setLength(HEADER_SIZE + (long) segmentRecords * RECORD_SIZE);
+        }
+        Segment s = new Segment(f, nextCursor, segmentRecords, 0);
+        s.map = map(f, segmentRecords);
+        s.map.putInt(0, MAGIC);
+        s.map.putInt(4, 0);
+        s.map.putLong(8, nextCursor);
+        segments.add(s);
+        active = s;
+
+        // Oldest reads go first once the journal is full
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            droppedRecords += oldest.count;
+            if (!oldest.file.delete()) oldest.file.deleteOnExit();
+        }
+    }
+
+    private void seal(Segment s) {
+        if (s.map == null) return;
+        s.map.putInt(4, s.count);
+        s.map.force();
+        s.map = null;
+    }
+
+    private void readRecords(Segment s, int index, int n, ByteBuffer out) throws IOException {
+        if (s.map != null) {
+            ByteBuffer src = s.map.duplicate();
+            src.position(HEADER_SIZE + index * RECORD_SIZE);
+            src.limit(HEADER_SIZE + (index + n) * RECORD_SIZE);
+            out.put(src);
+            return;
+        }
+        int end = out.position() + n * RECORD_SIZE;
+        ByteBuffer dst = out.duplicate();
+        dst.limit(end);
+        try (RandomAccessFile raf = new RandomAccessFile(s.file, "r")) {
+            FileChannel ch = raf.getChannel();
+            long pos = HEADER_SIZE + (long) index * RECORD_SIZE;
+            while (dst.hasRemaining()) {
+                int r = ch.read(dst, pos);
+                if (r < 0) throw new IOException("Segment truncated: " + s.file);
+                pos += r;
+            }
+        }
+        out.position(end);
+    }
+
+    // Not locked: the file is new and not in the segment list yet
+    private static void writeSealed(File f, long base, Iterable<byte[]> records) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(0);
+            FileChannel ch = raf.getChannel();
+            int count = 0;
+            ByteBuffer buf = ByteBuffer.allocate(4096 * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(0).putLong(base);
+            for (byte[] r : records) {
+                if (buf.remaining() < RECORD_SIZE) {
+                    buf.flip();
+                    while (buf.hasRemaining()) ch.write(buf);
+                    buf.clear();
+                }
+                buf.put(r);
+                count++;
+            }
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, count);
+            ch.write(header, 4);
+            ch.force(true);
+        }
+    }
+
+    private static void merge(Map<ByteBuffer, byte[]> unique, byte[] a, int p) {
+        int len = a[p] & 0xFF;
+        if (len == 0) return;
+        ByteBuffer key = ByteBuffer.wrap(Arrays.copyOfRange(a, p + 16, p + 16 + len));
+        byte[] latest = Arrays.copyOfRange(a, p, p + RECORD_SIZE);
+        byte[] prev = unique.get(key);
+        if (prev != null) {
+            ByteBuffer pb = ByteBuffer.wrap(prev).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer lb = ByteBuffer.wrap(latest).order(ByteOrder.LITTLE_ENDIAN);
+            long total = (pb.getInt(4) & 0xFFFFFFFFL) + (lb.getInt(4) & 0xFFFFFFFFL);
+            lb.putInt(4, (int) Math.min(total, 0xFFFFFFFFL));
+        }
+        unique.put(key, latest);
+    }
+
+    private static Map<String, Object> compactReport(long before, long after, int unique, long startNs) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("before", before);
+        m.put("after", after);
+        m.put("uniqueEpcs", unique);
+        m.put("elapsedMs", (System.nanoTime() - startNs) / 1_000_000);
+        return m;
+    }
+
+    private static Segment openSegment(File f) throws IOException {
+        long length = f.length();
+        if (length < HEADER_SIZE) return null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        int capacity = (int) ((length - HEADER_SIZE) / RECORD_SIZE);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            FileChannel ch = raf.getChannel();
+            while (header.hasRemaining()) {
+                if (ch.read(header, header.position()) < 0) return null;
+            }
+            if (header.getInt(0) != MAGIC) return null;
+            int count = header.getInt(4);
+            if (count == 0) count = countWritten(ch, capacity);
+            return new Segment(f, header.getLong(8), capacity, count);
+        }
+    }
+
+    // Records are written in order, so the written ones are a prefix: binary search for its end
+    private static int countWritten(FileChannel ch, int capacity) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(1);
+        int lo = 0, hi = capacity;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            b.clear();
+            ch.read(b, HEADER_SIZE + (long) mid * RECORD_SIZE);
+            if (b.get(0) != 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int readHeaderCount(File f) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            raf.seek(4);
+            return Integer.reverseBytes(raf.readInt());
+        }
+    }
+
+    private static MappedByteBuffer map(File f, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            MappedByteBuffer m = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            m.order(ByteOrder.LITTLE_ENDIAN);
+            return m;
+        }
+    }
+
+    private static String segmentName(long base) {
+        return PREFIX + String.format("%016x", base) + SUFFIX;
+    }
+}
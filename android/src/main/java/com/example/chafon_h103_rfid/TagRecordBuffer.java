@@ -0,0 +1,85 @@
+package com.example.chafon_h103_rfid;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Packs tag reads into the fixed-layout binary message sent on "chafon_h103_rfid/tags".
+ *
+ * Little-endian layout:
+ *   header: u8 version, u16 record count
+ *   record: u8 epcLen, epcLen bytes EPC, i16 rssi, u8 antenna, i64 timestamp (ms)
+ *
+ * A 12-byte EPC costs 24 bytes per record, versus 89 bytes for an onTagRead method call
+ * (78 for the same map as an onTagBatch entry), as measured by TagWireSizeTest.
+ */
+final class TagRecordBuffer {
+
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 3;
+    static final int MAX_RECORDS = 0xFFFF;
+
+    static int recordSize(int epcLength) {
+        return 1 + epcLength + 2 + 1 + 8;
+    }
+
+    private byte[] buf = new byte[1024];
+    private int used = HEADER_SIZE;
+    private int count = 0;
+
+    /**
+     * Appends one record.
+     *
+     * @return number of records now buffered, or -1 if the buffer is full and must be drained first
+     */
+    synchronized int append(byte[] epc, int offset, int length, int rssi, int antenna, long timestamp) {
+        if (count == MAX_RECORDS) return -1;
+        int len = Math.min(length, 0xFF);
+        int need = used + recordSize(len);
+        if (need > buf.length) {
+            buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, need));
+        }
+
+        byte[] b = buf;
+        int p = used;
+        b[p++] = (byte) len;
+        System.arraycopy(epc, offset, b, p, len);
+        p += len;
+        b[p++] = (byte) rssi;
+        b[p++] = (byte) (rssi >> 8);
+        b[p++] = (byte) antenna;
+        for (int i = 0; i < 8; i++) {
+            b[p++] = (byte) (timestamp >>> (8 * i));
+        }
+        used = p;
+        return ++count;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns the buffered records as one message and starts a new one.
+     * The returned direct buffer has its position at the end of the data, as the
+     * BinaryMessenger expects for messages passed through BinaryCodec.
+     */
+    synchronized ByteBuffer drain() {
+        if (count == 0) return null;
+        buf[0] = (byte) VERSION;
+        buf[1] = (byte) count;
+        buf[2] = (byte) (count >> 8);
+
+        ByteBuffer message = ByteBuffer.allocateDirect(used).order(ByteOrder.LITTLE_ENDIAN);
+        message.put(buf, 0, used);
+
+        used = HEADER_SIZE;
+        count = 0;
+        return message;
+    }
+
+    synchronized void clear() {
+        used = HEADER_SIZE;
+        count = 0;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.chafon_h103_rfid;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Records one reader's notify stream to a binary trace file: every raw frame and every
+ * typed callback, in arrival order, with System.nanoTime() deltas. {@link TraceReplayer}
+ * feeds a trace back into the notify path.
+ *
+ * File layout, little-endian:
+ *   header (16 bytes): i32 magic "CFT1", i32 version (1), i64 wall-clock start (ms)
+ *   record: u8 kind, varint nanoseconds since the previous record (or the start), then
+ *           kind 1 (raw frame): varint length, bytes
+ *           kind 2 (typed callback): varint cmdType
+ *
+ * A typed record carries only the command type: BleCore derives the bean from the raw frame
+ * that follows it, so the replayer rebuilds the bean from that frame the same way.
+ *
+ * Records are appended to an in-memory block on the notify thread; full blocks are written
+ * to the file on the io executor. Recording stops at maxBytes.
+ */
+final class TraceRecorder {
+
+    static final int MAGIC = 0x31544643; // "CFT1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int KIND_RAW = 1;
+    static final int KIND_TYPED = 2;
+    static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    // kind + two varints + the largest frame a notification carries
+    private static final int MAX_RECORD = 1 + 10 + 5 + 512;
+
+    private final File file;
+    private final ExecutorService io;
+    private final long maxBytes;
+    private final OutputStream out;
+    private final long startNs;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLen;
+    private long lastNs;
+    private long bytes = HEADER_SIZE;
+    private long rawFrames;
+    private long typed;
+    private boolean truncated;
+    private boolean closed;
+    private volatile IOException writeError;
+
+    TraceRecorder(File file, ExecutorService io, long maxBytes, long nowNs, long wallMs) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        this.file = file;
+        this.io = io;
+        this.maxBytes = Math.max(HEADER_SIZE, maxBytes);
+        this.out = new FileOutputStream(file);
+        this.startNs = nowNs;
+        this.lastNs = nowNs;
+
+        putInt(MAGIC);
+        putInt(VERSION);
+        putInt((int) wallMs);
+        putInt((int) (wallMs >>> 32));
+    }
+
+    synchronized void onRaw(byte[] frame, long nowNs) {
+        if (!reserve(1 + 10 + 5 + frame.length)) return;
+        int start = blockLen;
+        block[blockLen++] = KIND_RAW;
+        putDelta(nowNs);
+        putVarint(frame.length);
+        if (blockLen + frame.length > block.length) block = Arrays.copyOf(block, blockLen + frame.length);
+        System.arraycopy(frame, 0, block, blockLen, frame.length);
+        blockLen += frame.length;
+        bytes += blockLen - start;
+        rawFrames++;
+    }
+
+    synchronized void onTyped(int cmdType, long nowNs) {
+        if (!reserve(1 + 10 + 5)) return;
+        int start = blockLen;
+        block[blockLen++] = KIND_TYPED;
+        putDelta(nowNs);
+        putVarint(cmdType);
+        bytes += blockLen - start;
+        typed++;
+    }
+
+    /** Writes what is buffered and closes the file; the io executor finishes the writes. */
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        byte[] last = block;
+        int len = blockLen;
+        block = null;
+        io.execute(() -> {
+            try {
+                if (len > 0) out.write(last, 0, len);
+            } catch (IOException e) {
+                writeError = e;
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    synchronized Map<String, Object> stats(long nowNs) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("path", file.getAbsolutePath());
+        m.put("recording", !closed);
+        m.put("rawFrames", rawFrames);
+        m.put("typed", typed);
+        m.put("bytes", bytes);
+        m.put("durationMs", ((closed ? lastNs : nowNs) - startNs) / 1_000_000);
+        m.put("truncated", truncated);
+        IOException e = writeError;
+        if (e != null) m.put("error", e.getMessage());
+        return m;
+    }
+
+    private boolean reserve(int max) {
+        if (closed || truncated) return false;
+        if (bytes + max > maxBytes || writeError != null) {
+            truncated = true;
+            return false;
+        }
+        if (blockLen + Math.min(max, MAX_RECORD) > block.length) {
+            byte[] full = block;
+            int len = blockLen;
+            block = new byte[BLOCK_SIZE];
+            blockLen = 0;
+            io.execute(() -> {
+                try {
+                    out.write(full, 0, len);
+                } catch (IOException e) {
+                    writeError = e;
+                }
+            });
+        }
+        return true;
+    }
+
+    private void putDelta(long nowNs) {
+        putVarint(Math.max(0, nowNs - lastNs));
+        lastNs = Math.max(lastNs, nowNs);
+    }
+
+    private void putVarint(long v) {
+        while ((v & ~0x7FL) != 0) {
+            block[blockLen++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        block[blockLen++] = (byte) v;
+    }
+
+    private void putInt(int v) {
+        block[blockLen++] = (byte) v;
+        block[blockLen++] = (byte) (v >>> 8);
+        block[blockLen++] = (byte) (v >>> 16);
+        block[blockLen++] = (byte) (v >>> 24);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.CmdData;
+import com.cf.ble.interfaces.IOnNotifyCallback;
+import com.cf.zsdk.cmd.CmdHandler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a trace written by {@link TraceRecorder} into a notify callback, exactly as the
+ * transport would have: typed callbacks (bean rebuilt with CmdHandler from the raw frame
+ * that follows) and raw frames, in recorded order.
+ *
+ * With speed 0 records are delivered as fast as possible; otherwise at the recorded
+ * spacing divided by speed (1.0 is real time). A trace cut short, e.g. because the app
+ * was killed while recording, is replayed up to its last complete record.
+ */
+final class TraceReplayer {
+
+    private final byte[] data;
+    private final long startWallMs;
+    private volatile boolean cancelled;
+
+    TraceReplayer(File file) throws IOException {
+        long length = file.length();
+        if (length < TraceRecorder.HEADER_SIZE || length > Integer.MAX_VALUE) {
+            throw new IOException("Not a trace file: " + file);
+        }
+        data = new byte[(int) length];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) throw new IOException("Trace file shrank while reading: " + file);
+                read += n;
+            }
+        }
+        if (getInt(0) != TraceRecorder.MAGIC || getInt(4) != TraceRecorder.VERSION) {
+            throw new IOException("Not a trace file: " + file);
+        }
+        startWallMs = (getInt(8) & 0xFFFFFFFFL) | ((long) getInt(12) << 32);
+    }
+
+    long startWallMs() {
+        return startWallMs;
+    }
+
+    /** Stops a replay running on another thread after the current record. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /** Replays the whole trace on the calling thread; returns counts and timings. */
+    Map<String, Object> replay(IOnNotifyCallback target, double speed) throws InterruptedException {
+        long rawFrames = 0;
+        long typed = 0;
+        long recordedNs = 0;
+        long maxLagNs = 0;
+        long startNs = System.nanoTime();
+
+        int[] pos = {TraceRecorder.HEADER_SIZE};
+        int pendingCmdType = -1;
+        while (!cancelled && pos[0] < data.length) {
+            int kind = data[pos[0]++] & 0xFF;
+            long delta = varint(pos);
+            if (delta < 0) break;
+            recordedNs += delta;
+
+            if (speed > 0) {
+                long due = startNs + (long) (recordedNs / speed);
+                long wait = due - System.nanoTime();
+                if (wait >= 1_000_000) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } else if (wait < 0) {
+                    maxLagNs = Math.max(maxLagNs, -wait);
+                }
+            }
+
+            if (kind == TraceRecorder.KIND_TYPED) {
+                long cmdType = varint(pos);
+                if (cmdType < 0) break;
+                pendingCmdType = (int) cmdType;
+                typed++;
+            } else if (kind == TraceRecorder.KIND_RAW) {
+                long length = varint(pos);
+                if (length < 0 || pos[0] + length > data.length) break;
+                byte[] frame = new byte[(int) length];
+                System.arraycopy(data, pos[0], frame, 0, frame.length);
+                pos[0] += frame.length;
+                if (pendingCmdType != -1) {
+                    CmdData bean = new CmdData();
+                    bean.setData(CmdHandler.handleCmd(pendingCmdType, frame));
+                    target.onNotify(pendingCmdType, bean);
+                    pendingCmdType = -1;
+                }
+                target.onNotify(frame);
+                rawFrames++;
+            } else {
+                break; // unknown record: the rest cannot be framed
+            }
+        }
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("rawFrames", rawFrames);
+        m.put("typed", typed);
+        m.put("recordedMs", recordedNs / 1_000_000);
+        m.put("replayMs", (System.nanoTime() - startNs) / 1_000_000);
+        m.put("maxLagMs", maxLagNs / 1_000_000);
+        m.put("speed", speed);
+        m.put("cancelled", cancelled);
+        m.put("complete", !cancelled && pos[0] >= data.length);
+        return m;
+    }
+
+    /** The next varint, or -1 if the trace ends inside it. */
+    private long varint(int[] pos) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) return -1;
+            int b = data[pos[0]++] & 0xFF;
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        return -1;
+    }
+
+    private int getInt(int at) {
+        return (data[at] & 0xFF) | (data[at + 1] & 0xFF) << 8 | (data[at + 2] & 0xFF) << 16 | (data[at + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class BoundedEventQueueTest {
+  @Test
+  public void dropOldest_keepsNewestEvents() {
+    BoundedEventQueue queue = new BoundedEventQueue(2, BoundedEventQueue.OverflowPolicy.DROP_OLDEST);
+    assertTrue(queue.offer(null, "a"));
+    assertFalse(queue.offer(null, "b"));
+    queue.offer(null, "c");
+
+    assertEquals("b", queue.poll());
+    assertEquals("c", queue.poll());
+    assertNull(queue.poll());
+
+    Map<String, Object> stats = queue.stats();
+    assertEquals(3L, stats.get("enqueued"));
+    assertEquals(2L, stats.get("delivered"));
+    assertEquals(1L, stats.get("dropped"));
+  }
+
+  @Test
+  public void dropNewest_keepsOldestEvents() {
+    BoundedEventQueue queue = new BoundedEventQueue(2, BoundedEventQueue.OverflowPolicy.DROP_NEWEST);
+    queue.offer(null, "a");
+    queue.offer(null, "b");
+    queue.offer(null, "c");
+
+    assertEquals("a", queue.poll());
+    assertEquals("b", queue.poll());
+    assertNull(queue.poll());
+    assertEquals(1L, queue.stats().get("dropped"));
+  }
+
+  @Test
+  public void coalesce_replacesQueuedEventWithSameEpc() {
+    BoundedEventQueue queue = new BoundedEventQueue(4, BoundedEventQueue.OverflowPolicy.COALESCE_BY_KEY);
+    queue.offer("E200", "first");
+    queue.offer("E300", "other");
+    queue.offer("E200", "second");
+
+    assertEquals("second", queue.poll());
+    assertEquals("other", queue.poll());
+    assertNull(queue.poll());
+
+    queue.offer("E200", "third");
+    assertEquals("third", queue.poll());
+
+    Map<String, Object> stats = queue.stats();
+    assertEquals(1L, stats.get("coalesced"));
+    assertEquals(0L, stats.get("dropped"));
+  }
+}
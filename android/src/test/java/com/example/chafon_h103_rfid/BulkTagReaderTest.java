@@ -0,0 +1,88 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class BulkTagReaderTest {
+  private static final String EPC_A = "E2000017221101441890ABCD";
+  private static final String EPC_B = "E20000172211014418900001";
+  private static final String EPC_MISSING = "300833B2DDD9014000000000";
+  private static final byte[] PASSWORD = new byte[4];
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final SimulatedReader reader = new SimulatedReader();
+  private final CommandScheduler scheduler = new CommandScheduler(executor, reader);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private Map<String, Object> run(String[] epcs, int bank, int ptr, int words, int chunkWords,
+      int retries) throws Exception {
+    reader.attach(scheduler);
+    CompletableFuture<Map<String, Object>> done = new CompletableFuture<>();
+    BulkTagReader bulk = new BulkTagReader(scheduler, new FrameEncoder(), Arrays.asList(epcs),
+        PASSWORD, bank, ptr, words, chunkWords, retries, 100, FrameEncoder.CLEAR_SELECT,
+        done::complete);
+    bulk.start();
+    Map<String, Object> report = done.get(5, TimeUnit.SECONDS);
+    // let the trailing restore commands go out before looking at reader.commands
+    executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    return report;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> result(Map<String, Object> report, String epc) {
+    return (Map<String, Object>) ((Map<String, Object>) report.get("results")).get(epc);
+  }
+
+  @Test
+  public void readsEachTagBehindItsOwnSelect() throws Exception {
+    SimulatedReader.Tag a = reader.addTag(EPC_A, 0);
+    SimulatedReader.Tag b = reader.addTag(EPC_B, 0);
+
+    Map<String, Object> report = run(new String[] {EPC_B, EPC_A, EPC_B}, SimulatedReader.BANK_TID, 0, 6, 16, 0);
+
+    assertEquals(2, report.get("succeeded"));
+    assertEquals(HexCodec.encode(b.banks[SimulatedReader.BANK_TID]), result(report, EPC_B).get("data"));
+    assertEquals(HexCodec.encode(a.banks[SimulatedReader.BANK_TID]), result(report, EPC_A).get("data"));
+    // select, read per tag, then the session's select is restored
+    assertEquals(Arrays.asList(0x07, 0x03, 0x07, 0x03, 0x07), reader.commands);
+  }
+
+  @Test
+  public void splitsLongRangesIntoChunks() throws Exception {
+    SimulatedReader.Tag a = reader.addTag(EPC_A, 40);
+
+    Map<String, Object> report = run(new String[] {EPC_A}, SimulatedReader.BANK_USER, 2, 37, 16, 0);
+
+    byte[] expected = Arrays.copyOfRange(a.banks[SimulatedReader.BANK_USER], 4, 4 + 74);
+    assertEquals(HexCodec.encode(expected), result(report, EPC_A).get("data"));
+    assertEquals(Arrays.asList(0x07, 0x03, 0x03, 0x03, 0x07), reader.commands);
+  }
+
+  @Test
+  public void retriesTimeoutsAndReportsMissingTags() throws Exception {
+    reader.addTag(EPC_A, 0);
+    reader.dropNextReads(1);
+
+    Map<String, Object> report = run(new String[] {EPC_A, EPC_MISSING}, SimulatedReader.BANK_TID, 0, 2, 16, 1);
+
+    assertEquals(1, report.get("succeeded"));
+    assertEquals(1, report.get("failed"));
+    assertEquals(2, result(report, EPC_A).get("attempts"));
+    assertEquals("TAG_ERROR", result(report, EPC_MISSING).get("error"));
+    assertEquals(2, result(report, EPC_MISSING).get("attempts"));
+    assertTrue((Double) report.get("tagsPerSecond") > 0);
+  }
+}
@@ -0,0 +1,166 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class BulkTagWriterTest {
+  private static final String EPC_A = "E2000017221101441890ABCD";
+  private static final String EPC_B = "E20000172211014418900001";
+  private static final byte[] PASSWORD = new byte[4];
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final SimulatedReader reader = new SimulatedReader();
+  private final CommandScheduler scheduler = new CommandScheduler(executor, reader);
+  private final List<Map<String, Object>> progress = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static BulkTagWriter.WriteJob job(String target, int bank, int ptr, String data) {
+    return new BulkTagWriter.WriteJob(HexCodec.decode(target), bank, ptr, HexCodec.decode(data), PASSWORD);
+  }
+
+  private Map<String, Object> run(List<BulkTagWriter.WriteJob> jobs, int chunkWords, int retries,
+      CommandScheduler.FrameSource retryPower, int progressEvery) throws Exception {
+    reader.attach(scheduler);
+    CompletableFuture<Map<String, Object>> done = new CompletableFuture<>();
+    byte[] restorePower = powerFrame(20);
+    BulkTagWriter writer = new BulkTagWriter(scheduler, new FrameEncoder(), jobs, chunkWords, retries, 100,
+        retryPower, () -> restorePower, FrameEncoder.CLEAR_SELECT, progressEvery,
+        new BulkTagWriter.Listener() {
+          @Override
+          public void onProgress(Map<String, Object> p) {
+            progress.add(p);
+          }
+
+          @Override
+          public void onComplete(Map<String, Object> report) {
+            done.complete(report);
+          }
+        });
+    writer.start();
+    Map<String, Object> report = done.get(5, TimeUnit.SECONDS);
+    // let the trailing restore commands go out before looking at reader.commands
+    executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    return report;
+  }
+
+  private static byte[] powerFrame(int power) {
+    byte[] f = new byte[32];
+    f[0] = (byte) 0xCF;
+    f[1] = (byte) 0xFF;
+    f[3] = (byte) FrameEncoder.CMD_SET_ALL_PARAM;
+    f[20] = (byte) power;
+    return f;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> result(Map<String, Object> report, int index) {
+    return ((List<Map<String, Object>>) report.get("results")).get(index);
+  }
+
+  @Test
+  public void writesUserDataInChunksAndVerifies() throws Exception {
+    SimulatedReader.Tag a = reader.addTag(EPC_A, 32);
+    String data = "00112233445566778899AABBCCDDEEFF0102030405060708";
+
+    Map<String, Object> report = run(Arrays.asList(job(EPC_A, SimulatedReader.BANK_USER, 4, data)), 8, 0, null, 25);
+
+    assertEquals(1, report.get("succeeded"));
+    assertEquals(true, result(report, 0).get("ok"));
+    assertArrayEquals(HexCodec.decode(data), Arrays.copyOfRange(a.banks[SimulatedReader.BANK_USER], 8, 32));
+    // select, two writes (8 + 4 words), two read-backs, restore select
+    assertEquals(Arrays.asList(0x07, 0x04, 0x04, 0x03, 0x03, 0x07), reader.commands);
+  }
+
+  @Test
+  public void epcWrite_verifiesAgainstNewEpc() throws Exception {
+    reader.addTag(EPC_A, 0);
+    reader.addTag(EPC_B, 0);
+    String newEpc = "300833B2DDD9014000000001";
+
+    Map<String, Object> report = run(Arrays.asList(job(EPC_A, SimulatedReader.BANK_EPC, 2, newEpc)), 16, 0, null, 25);
+
+    assertEquals(true, result(report, 0).get("ok"));
+    assertEquals(newEpc, result(report, 0).get("epc"));
+    assertNotNull(reader.tag(newEpc));
+    assertNull(reader.tag(EPC_A));
+    assertNotNull(reader.tag(EPC_B));
+  }
+
+  @Test
+  public void failedWrites_retryAtRaisedPowerAndRestoreIt() throws Exception {
+    reader.addTag(EPC_A, 8);
+    reader.addTag(EPC_B, 8).minWritePower = 30;
+    byte[] boosted = powerFrame(30);
+
+    Map<String, Object> report = run(Arrays.asList(
+        job(EPC_A, SimulatedReader.BANK_USER, 0, "CAFE"),
+        job(EPC_B, SimulatedReader.BANK_USER, 0, "BEEF")), 16, 1, () -> boosted, 1);
+
+    assertEquals(2, report.get("succeeded"));
+    assertEquals(2, report.get("passes"));
+    assertEquals(true, report.get("powerChanged"));
+    assertEquals(1, result(report, 0).get("attempts"));
+    assertEquals(2, result(report, 1).get("attempts"));
+    assertEquals(20, reader.power);
+    assertEquals(2, progress.size());
+    assertEquals(2, progress.get(1).get("done"));
+  }
+
+  @Test
+  public void missingTag_isReportedAfterRetries() throws Exception {
+    Map<String, Object> report = run(Arrays.asList(job(EPC_A, SimulatedReader.BANK_USER, 0, "CAFE")), 16, 2, null, 25);
+
+    assertEquals(0, report.get("succeeded"));
+    assertEquals(3, result(report, 0).get("attempts"));
+    assertEquals("TAG_ERROR", result(report, 0).get("error"));
+  }
+
+  @Test
+  public void lostSelect_writesNothingToThePreviouslySelectedTag() throws Exception {
+    SimulatedReader.Tag a = reader.addTag(EPC_A, 8);
+    reader.addTag(EPC_B, 8);
+    byte[] before = a.banks[SimulatedReader.BANK_USER].clone();
+    // The reader is still selected on A when the Select for B is lost
+    reader.attach(scheduler);
+    reader.write(new InventoryFilter(0, HexCodec.decode(EPC_A), 96).frame());
+    reader.commands.clear();
+    reader.dropNextSelects(1);
+
+    Map<String, Object> report = run(Arrays.asList(job(EPC_B, SimulatedReader.BANK_USER, 0, "BEEF")), 16, 0, null, 25);
+
+    assertEquals("TIMEOUT", result(report, 0).get("error"));
+    assertArrayEquals(before, a.banks[SimulatedReader.BANK_USER]);
+    // Select (lost), restore select: no write, no read-back
+    assertEquals(Arrays.asList(0x07, 0x07), reader.commands);
+  }
+
+  @Test
+  public void readBackFromAnotherTag_failsAsWrongTag() throws Exception {
+    // A longer EPC sharing the target's 96 bits also matches its Select, and answers first
+    reader.addTag(EPC_A + "0001", 8);
+    reader.addTag(EPC_A, 8);
+
+    Map<String, Object> report = run(Arrays.asList(job(EPC_A, SimulatedReader.BANK_USER, 0, "CAFE")), 16, 0, null, 25);
+
+    assertEquals(0, report.get("succeeded"));
+    assertEquals("WRONG_TAG", result(report, 0).get("error"));
+    assertEquals("Answered by " + EPC_A + "0001", result(report, 0).get("message"));
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class BurstSchedulerTest {
+  private long now = 0;
+
+  private static BurstScheduler scheduler() {
+    return new BurstScheduler(2000, 1000, 5000, 1000, 8000, new int[] {50, 20}, new double[] {0.5, 0.2});
+  }
+
+  private static void read(BurstScheduler s, int tag, long at) {
+    byte[] epc = HexCodec.decode(String.format("E2000017221101441890%04X", tag));
+    s.onRead(epc, 0, epc.length, at);
+  }
+
+  private BurstScheduler.Step advance(BurstScheduler s, BurstScheduler.Step step) {
+    now += step.durationMs;
+    return s.tick(now);
+  }
+
+  @Test
+  public void staticField_doublesOffPeriodUpToMax() {
+    BurstScheduler s = scheduler();
+    BurstScheduler.Step step = s.start(now);
+    long[] expectedOff = {2000, 4000, 8000, 8000};
+    for (long off : expectedOff) {
+      step = advance(s, step);
+      assertFalse(step.on);
+      assertEquals("static_field", step.reason);
+      assertEquals(off, step.durationMs);
+      step = advance(s, step);
+      assertTrue(step.on);
+    }
+  }
+
+  @Test
+  public void newTags_extendBurstThenResetBackoff() {
+    BurstScheduler s = scheduler();
+    BurstScheduler.Step step = s.start(now);
+    read(s, 1, now + 1900);
+
+    step = advance(s, step);
+    assertTrue(step.on);
+    assertEquals("new_tags", step.reason);
+    read(s, 2, now + 900);
+    step = advance(s, step);
+    assertTrue(step.on);
+    read(s, 3, now + 900);
+    step = advance(s, step);
+    assertTrue(step.on);
+    read(s, 4, now + 900);
+    // 5000 ms cap reached
+    step = advance(s, step);
+    assertFalse(step.on);
+    assertEquals("new_tags_seen", step.reason);
+    assertEquals(1000, step.durationMs);
+    assertEquals(3L, s.stats(now).get("extensions"));
+  }
+
+  @Test
+  public void lowBattery_capsDutyCycle() {
+    BurstScheduler s = scheduler();
+    s.onBattery(15, now);
+    BurstScheduler.Step step = s.start(now);
+    read(s, 1, now + 100);
+
+    step = advance(s, step);
+    assertEquals("battery_low", step.reason);
+    assertEquals(8000, step.durationMs); // 2000 ms on at most 20 % duty
+    step = advance(s, step);
+    assertEquals(0.2, (Double) s.stats(now).get("dutyCycle"), 1e-9);
+  }
+
+  @Test
+  public void readsPerBatteryPercent_countsFromFirstLevel() {
+    BurstScheduler s = scheduler();
+    read(s, 0, 0);
+    s.onBattery(90, 0);
+    assertNull(s.stats(0).get("readsPerBatteryPercent"));
+    for (int i = 0; i < 500; i++) read(s, i % 20, i);
+    s.onBattery(88, 500);
+
+    Map<String, Object> stats = s.stats(500);
+    assertEquals(250.0, (Double) stats.get("readsPerBatteryPercent"), 1e-9);
+    assertEquals(20, stats.get("uniqueTags"));
+  }
+}
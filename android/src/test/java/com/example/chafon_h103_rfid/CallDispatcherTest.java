@@ -0,0 +1,89 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class CallDispatcherTest {
+  private final ExecutorService main = Executors.newSingleThreadExecutor(r -> new Thread(r, "main"));
+  private final CallDispatcher dispatcher = new CallDispatcher(main);
+  private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+  @After
+  public void tearDown() {
+    main.shutdownNow();
+  }
+
+  /** Holds the main thread until the returned latch is released. */
+  private CountDownLatch blockMain() {
+    CountDownLatch release = new CountDownLatch(1);
+    main.execute(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException ignored) {
+      }
+    });
+    return release;
+  }
+
+  private void drainMain() throws Exception {
+    main.submit(() -> {}).get(5, TimeUnit.SECONDS);
+  }
+
+  private void call(String method) {
+    dispatcher.dispatch(ChafonH103RfidPlugin.MAIN_THREAD_METHODS.contains(method),
+        () -> ran.add(method + "@" + Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void queueCall_runsInlineWhenNothingIsPending() {
+    dispatcher.dispatch(false, () -> ran.add("get"));
+    assertEquals(Arrays.asList("get"), ran);
+    assertEquals(0, dispatcher.pendingOnMain());
+  }
+
+  @Test
+  public void getterAfterMainThreadSetter_waitsBehindIt() throws Exception {
+    String[][] pairs = {
+        {"resetMetrics", "getMetrics"},
+        {"setMetricsEnabled", "getMetrics"},
+        {"clearInventorySnapshot", "getInventorySnapshot"},
+        {"setRawFrameDecoding", "getFrameDecoderStats"},
+    };
+    for (String[] pair : pairs) {
+      // The split itself: setter on main, getter on the task queue
+      assertTrue(pair[0], ChafonH103RfidPlugin.MAIN_THREAD_METHODS.contains(pair[0]));
+      assertFalse(pair[1], ChafonH103RfidPlugin.MAIN_THREAD_METHODS.contains(pair[1]));
+
+      ran.clear();
+      CountDownLatch release = blockMain();
+      call(pair[0]);
+      call(pair[1]);
+      assertTrue(ran.isEmpty());
+
+      release.countDown();
+      drainMain();
+      assertEquals(Arrays.asList(pair[0] + "@main", pair[1] + "@main"), ran);
+      assertEquals(0, dispatcher.pendingOnMain());
+    }
+  }
+
+  @Test
+  public void onceMainCatchesUp_queueCallsRunInlineAgain() throws Exception {
+    call("resetMetrics");
+    drainMain();
+    call("getMetrics");
+    assertEquals("getMetrics@" + Thread.currentThread().getName(), ran.get(1));
+  }
+}
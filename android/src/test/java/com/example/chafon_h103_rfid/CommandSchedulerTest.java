@@ -0,0 +1,119 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class CommandSchedulerTest {
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final List<Integer> written = new CopyOnWriteArrayList<>();
+  private final List<String> events = new CopyOnWriteArrayList<>();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void exclusiveCommand_holdsQueueUntilAck() throws Exception {
+    CommandScheduler scheduler = new CommandScheduler(executor, recordingWriter());
+    scheduler.configure(4, 1, 0);
+
+    CountDownLatch done = new CountDownLatch(2);
+    scheduler.submit(CommandScheduler.Command.ack("stop", frame(0x02), 0x02, 1000,
+        callback("stop", done)).exclusive());
+    scheduler.submit(CommandScheduler.Command.ack("start", frame(0x01), 0x01, 1000,
+        callback("start", done)));
+
+    awaitIdle();
+    assertEquals(List.of(0x02), written);
+
+    assertTrue(scheduler.onFrame(ack(0x02)));
+    awaitIdle();
+    assertEquals(List.of(0x02, 0x01), written);
+
+    assertTrue(scheduler.onFrame(ack(0x01)));
+    assertTrue(done.await(1, TimeUnit.SECONDS));
+    assertEquals(List.of("stop:response", "start:response"), events);
+  }
+
+  @Test
+  public void missingResponse_timesOutAndReleasesQueue() throws Exception {
+    CommandScheduler scheduler = new CommandScheduler(executor, recordingWriter());
+
+    CountDownLatch done = new CountDownLatch(2);
+    scheduler.submit(CommandScheduler.Command.request("flash", frame(0x79), 0x79, 50,
+        callback("flash", done)));
+    scheduler.submit(CommandScheduler.Command.send("start", frame(0x01), callback("start", done)));
+
+    assertTrue(done.await(1, TimeUnit.SECONDS));
+    assertEquals(List.of("flash:TIMEOUT", "start:response"), events);
+    assertEquals(1L, scheduler.stats().get("timedOut"));
+  }
+
+  @Test
+  public void failedWrite_isRetriedThenReported() throws Exception {
+    int[] attempts = {0};
+    CommandScheduler scheduler = new CommandScheduler(executor, f -> ++attempts[0] > 2);
+    scheduler.configure(1, 2, 1);
+
+    CountDownLatch done = new CountDownLatch(1);
+    scheduler.submit(CommandScheduler.Command.send("start", frame(0x01), callback("start", done)));
+
+    assertTrue(done.await(1, TimeUnit.SECONDS));
+    assertEquals(2, attempts[0]);
+    assertEquals(List.of("start:WRITE_FAILED"), events);
+  }
+
+  @Test
+  public void unrelatedFrame_doesNotCompleteCommand() throws Exception {
+    CommandScheduler scheduler = new CommandScheduler(executor, recordingWriter());
+    scheduler.submit(CommandScheduler.Command.ack("stop", frame(0x02), 0x02, 1000,
+        callback("stop", new CountDownLatch(1))));
+    awaitIdle();
+
+    byte[] tagFrame = {(byte) 0xCF, (byte) 0xFF, 0x00, 0x02, 0x10, 0x00};
+    assertTrue(!scheduler.onFrame(tagFrame)); // LEN != 1: inventory data, not the stop ack
+    assertEquals(1, scheduler.stats().get("inFlight"));
+  }
+
+  private CommandScheduler.FrameWriter recordingWriter() {
+    return f -> written.add(f[3] & 0xFF);
+  }
+
+  private CommandScheduler.Callback callback(String name, CountDownLatch done) {
+    return new CommandScheduler.Callback() {
+      @Override
+      public void onResponse(byte[] frame) {
+        events.add(name + ":response");
+        done.countDown();
+      }
+
+      @Override
+      public void onError(String code, String message) {
+        events.add(name + ":" + code);
+        done.countDown();
+      }
+    };
+  }
+
+  private void awaitIdle() throws Exception {
+    executor.submit(() -> {}).get(1, TimeUnit.SECONDS);
+  }
+
+  private static byte[] frame(int cmd) {
+    return new byte[] {(byte) 0xCF, (byte) 0xFF, 0x00, (byte) cmd, 0x00, 0x00, 0x00};
+  }
+
+  private static byte[] ack(int cmd) {
+    return new byte[] {(byte) 0xCF, (byte) 0xFF, 0x00, (byte) cmd, 0x01, 0x00, 0x00, 0x00};
+  }
+}
@@ -0,0 +1,67 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class DeviceCacheTest {
+
+  @Test
+  public void rssiUpdates_areThrottledPerDevice() {
+    DeviceCache<String> cache = new DeviceCache<>(30_000, 16, 1000);
+    assertTrue(cache.onSighting("AA", "dev", "H103", -60, 0));
+    assertFalse(cache.onSighting("AA", "dev", null, -55, 10));
+
+    List<Map<String, Object>> first = cache.drainUpdates(20);
+    assertEquals(1, first.size());
+    assertEquals(true, first.get(0).get("isNew"));
+    assertEquals(-55, first.get(0).get("rssi"));
+    assertEquals("H103", first.get(0).get("name"));
+
+    for (int t = 100; t < 1000; t += 100) cache.onSighting("AA", "dev", null, -50 - t / 100, t);
+    assertNull(cache.drainUpdates(900));
+
+    List<Map<String, Object>> later = cache.drainUpdates(1020);
+    assertEquals(1, later.size());
+    assertEquals(false, later.get(0).get("isNew"));
+    assertEquals(-59, later.get(0).get("rssi"));
+    assertNull(cache.drainUpdates(3000));
+  }
+
+  @Test
+  public void devicesNotSeenWithinTtl_areReportedLost() {
+    DeviceCache<String> cache = new DeviceCache<>(1000, 16, 0);
+    cache.onSighting("AA", "a", "A", -60, 0);
+    cache.onSighting("BB", "b", "B", -60, 0);
+    cache.drainUpdates(0);
+    cache.onSighting("BB", "b", "B", -60, 800);
+
+    cache.drainUpdates(1500);
+    assertNull(cache.get("AA"));
+    assertEquals("b", cache.get("BB"));
+    assertEquals(Arrays.asList("AA"), cache.drainLost());
+    assertNull(cache.drainLost());
+  }
+
+  @Test
+  public void beyondMaxDevices_leastRecentlySeenIsEvicted() {
+    DeviceCache<String> cache = new DeviceCache<>(30_000, 2, 0);
+    cache.onSighting("AA", "a", null, -60, 0);
+    cache.onSighting("BB", "b", null, -60, 1);
+    cache.onSighting("AA", "a", null, -60, 2);
+    cache.onSighting("CC", "c", null, -60, 3);
+
+    assertEquals(2, cache.size());
+    assertNull(cache.get("BB"));
+    assertEquals("a", cache.get("AA"));
+    // BB was never reported, so it is not reported lost either
+    assertNull(cache.drainLost());
+    assertEquals(1L, cache.stats().get("evicted"));
+  }
+}
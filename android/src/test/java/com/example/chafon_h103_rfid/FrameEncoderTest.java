@@ -0,0 +1,162 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.cf.beans.AllParamBean;
+import com.cf.zsdk.cmd.CmdBuilder;
+import java.util.Random;
+import org.junit.Test;
+
+public class FrameEncoderTest {
+  @Test
+  public void constantFrames_matchCmdBuilder() {
+    assertArrayEquals(CmdBuilder.buildInventoryISOContinueCmd((byte) 0x00, 0), FrameEncoder.START_INVENTORY);
+    assertArrayEquals(CmdBuilder.buildStopInventoryCmd(), FrameEncoder.STOP_INVENTORY);
+    assertArrayEquals(CmdBuilder.buildGetBatteryCapacityCmd(), FrameEncoder.GET_BATTERY);
+    assertArrayEquals(CmdBuilder.buildGetAllParamCmd(), FrameEncoder.GET_ALL_PARAM);
+  }
+
+  @Test
+  public void saveFlashFrame_matchesHandBuiltFrame() {
+    byte[] expected = {(byte) 0xCF, (byte) 0xFF, 0x00, 0x79, 0x00, 0x00, 0x00};
+    int crc = bitwiseCrc(expected, 5);
+    expected[5] = (byte) (crc >> 8);
+    expected[6] = (byte) crc;
+    assertArrayEquals(expected, FrameEncoder.SAVE_FLASH);
+  }
+
+  @Test
+  public void selectMask_matchesCmdBuilder() {
+    byte[] mask = FormatUtil.hexStringToBytes("E2000017");
+    assertArrayEquals(CmdBuilder.buildSelectMaskCmd(mask), FrameEncoder.selectMask(0, mask, 32));
+    assertArrayEquals(CmdBuilder.buildSelectMaskCmd(new byte[0]), FrameEncoder.CLEAR_SELECT);
+  }
+
+  @Test
+  public void writeTag_matchesCmdBuilder() {
+    byte[] pwd = {0x11, 0x22, 0x33, 0x44};
+    byte[] data = FormatUtil.hexStringToBytes("AABBCCDDEEFF00112233");
+    byte[] words = java.util.Arrays.copyOfRange(data, 2, 8);
+    assertArrayEquals(CmdBuilder.buildWriteISOTagCmd(pwd, (byte) 0x03, new byte[] {0x01, 0x02}, (byte) 3, words),
+        FrameEncoder.writeTag(pwd, (byte) 0x03, 0x0102, 3, data, 2));
+  }
+
+  @Test
+  public void inventoryFilter_trimsMaskToBitLength() {
+    InventoryFilter filter = new InventoryFilter(0x0120, new byte[] {(byte) 0xAB, (byte) 0xFF, 0x11}, 12);
+    byte[] frame = filter.frame();
+    assertEquals(5, frame[4]); // pointer (2) + bit length (1) + two mask bytes
+    assertEquals(0x01, frame[5]);
+    assertEquals(0x20, frame[6]);
+    assertEquals(12, frame[7]);
+    assertEquals((byte) 0xAB, frame[8]);
+    assertEquals((byte) 0xF0, frame[9]);
+  }
+
+  @Test
+  public void commonEpcPrefix_findsSharedLeadingBits() {
+    byte[] a = FormatUtil.hexStringToBytes("E2000017AAAA");
+    byte[] b = FormatUtil.hexStringToBytes("E2000017A0BB");
+    InventoryFilter filter = InventoryFilter.commonEpcPrefix(java.util.Arrays.asList(a, b), 8);
+    assertEquals(36, filter.bitLength);
+    assertEquals("E2000017A0", HexCodec.encode(filter.mask));
+    assertEquals(null, InventoryFilter.commonEpcPrefix(
+        java.util.Arrays.asList(a, FormatUtil.hexStringToBytes("12")), 8));
+  }
+
+  @Test
+  public void setAllParam_matchesCmdBuilderAcrossReuse() {
+    FrameEncoder encoder = new FrameEncoder();
+    Random random = new Random(7);
+    for (int i = 0; i < 50; i++) {
+      AllParamBean p = randomParams(random);
+      assertArrayEquals(CmdBuilder.buildSetAllParamCmd(p), encoder.setAllParam(p));
+    }
+  }
+
+  @Test
+  public void setAllParam_overridesLeaveBeanUntouched() {
+    FrameEncoder encoder = new FrameEncoder();
+    AllParamBean p = randomParams(new Random(3));
+    byte power = p.mRfidPower, q = p.mQValue, session = p.mSession;
+    byte[] frame = encoder.setAllParam(p, 30, 7, 1).clone();
+
+    assertEquals(power, p.mRfidPower);
+    assertEquals(q, p.mQValue);
+    assertEquals(session, p.mSession);
+    p.mRfidPower = 30;
+    p.mQValue = 7;
+    p.mSession = 1;
+    assertArrayEquals(CmdBuilder.buildSetAllParamCmd(p), frame);
+  }
+
+  @Test
+  public void readTag_matchesCmdBuilderAcrossReuse() {
+    FrameEncoder encoder = new FrameEncoder();
+    Random random = new Random(11);
+    for (int i = 0; i < 50; i++) {
+      byte[] pwd = bytes(random, 4);
+      byte[] ptr = bytes(random, 2);
+      byte bank = (byte) random.nextInt(4);
+      byte count = (byte) random.nextInt(32);
+      assertArrayEquals(CmdBuilder.buildReadISOTagCmd(pwd, bank, ptr, count),
+          encoder.readTag(pwd, bank, ptr, count));
+    }
+  }
+
+  @Test
+  public void tableCrc_matchesBitwiseCrc() {
+    Random random = new Random(3);
+    for (int len = 0; len < 300; len++) {
+      byte[] data = bytes(random, len);
+      assertEquals(bitwiseCrc(data, len), FrameEncoder.crc16(data, 0, len));
+    }
+  }
+
+  private static AllParamBean randomParams(Random r) {
+    AllParamBean p = new AllParamBean();
+    p.mAddr = (byte) r.nextInt();
+    p.mRFIDPRO = (byte) r.nextInt();
+    p.mWorkMode = (byte) r.nextInt();
+    p.mInterface = (byte) r.nextInt();
+    p.mBaudrate = (byte) r.nextInt();
+    p.mWGSet = (byte) r.nextInt();
+    p.mAnt = (byte) r.nextInt();
+    p.mRfidFreq = new AllParamBean.RfidFreq();
+    p.mRfidFreq.mREGION = (byte) r.nextInt();
+    p.mRfidFreq.mSTRATFREI = bytes(r, 2);
+    p.mRfidFreq.mSTRATFRED = bytes(r, 2);
+    p.mRfidFreq.mSTEPFRE = bytes(r, 2);
+    p.mRfidFreq.mCN = (byte) r.nextInt();
+    p.mRfidPower = (byte) r.nextInt();
+    p.mInquiryArea = (byte) r.nextInt();
+    p.mQValue = (byte) r.nextInt();
+    p.mSession = (byte) r.nextInt();
+    p.mAcsAddr = (byte) r.nextInt();
+    p.mAcsDataLen = (byte) r.nextInt();
+    p.mFilterTime = (byte) r.nextInt();
+    p.mTriggerTime = (byte) r.nextInt();
+    p.mBuzzerTime = (byte) r.nextInt();
+    p.mPollingInterval = (byte) r.nextInt();
+    return p;
+  }
+
+  private static byte[] bytes(Random r, int n) {
+    byte[] b = new byte[n];
+    r.nextBytes(b);
+    return b;
+  }
+
+  // The original calculateCRC16 loop
+  private static int bitwiseCrc(byte[] data, int length) {
+    int crc = 0xFFFF;
+    for (int i = 0; i < length; i++) {
+      crc ^= data[i] & 0xFF;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 0x0001) != 0 ? (crc >> 1) ^ 0x8408 : crc >> 1;
+      }
+    }
+    return crc;
+  }
+}
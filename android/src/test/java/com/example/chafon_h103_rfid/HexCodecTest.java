@@ -0,0 +1,78 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class HexCodecTest {
+  @Test
+  public void encode_matchesStringFormat() {
+    byte[] epc = new byte[256];
+    for (int i = 0; i < epc.length; i++) epc[i] = (byte) i;
+
+    StringBuilder expected = new StringBuilder();
+    for (byte b : epc) expected.append(String.format("%02X", b));
+
+    assertEquals(expected.toString(), HexCodec.encode(epc));
+    assertEquals(expected.toString(), FormatUtil.bytesToHexString(epc));
+    assertEquals("", HexCodec.encode(null));
+  }
+
+  @Test
+  public void decode_skipsWhitespaceAndAcceptsLowerCase() {
+    assertArrayEquals(new byte[]{(byte) 0xE2, (byte) 0x80, 0x11, (byte) 0xAB},
+        FormatUtil.hexStringToBytes(" E2 80\t11ab\n"));
+    assertArrayEquals(new byte[0], FormatUtil.hexStringToBytes(""));
+  }
+
+  @Test
+  public void decodeStrict_acceptsWellFormedHex() {
+    assertArrayEquals(new byte[]{(byte) 0xE2, (byte) 0x80, 0x11, (byte) 0xAB}, HexCodec.decodeStrict("E2 80 11ab"));
+    assertArrayEquals(new byte[0], HexCodec.decodeStrict(null));
+  }
+
+  @Test
+  public void decodeStrict_rejectsNonHexCharacters() {
+    for (String hex : new String[]{"ZZZZ", "E2G0", "E2-80", "E2\u00C980"}) {
+      try {
+        HexCodec.decodeStrict(hex);
+        fail("accepted " + hex);
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void decodeStrict_rejectsOddLength() {
+    for (String hex : new String[]{"12345", "E", "E2 8"}) {
+      try {
+        HexCodec.decodeStrict(hex);
+        fail("accepted " + hex);
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void epcCache_returnsSameInstanceForRepeatedEpc() {
+    EpcStringCache cache = new EpcStringCache(16);
+    byte[] epc = FormatUtil.hexStringToBytes("E28011700000020A1B2C3D4E");
+
+    String first = cache.get(epc);
+    String second = cache.get(epc.clone());
+
+    assertEquals("E28011700000020A1B2C3D4E", first);
+    assertSame(first, second);
+  }
+
+  @Test
+  public void epcCache_encodesSliceOfFrame() {
+    EpcStringCache cache = new EpcStringCache(16);
+    byte[] frame = {0x00, 0x01, (byte) 0xE2, 0x00, 0x7F, 0x00};
+
+    assertEquals("E2007F", cache.get(frame, 2, 3));
+  }
+}
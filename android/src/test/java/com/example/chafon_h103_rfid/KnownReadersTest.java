@@ -0,0 +1,33 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class KnownReadersTest {
+
+  @Test
+  public void formatAndParse_roundTrip() {
+    List<KnownReaders.Reader> readers = Arrays.asList(
+        new KnownReaders.Reader("AA:BB:CC:DD:EE:01", "H103\tdock", 1700000000000L),
+        new KnownReaders.Reader("AA:BB:CC:DD:EE:02", "", 1600000000000L));
+
+    List<KnownReaders.Reader> parsed = KnownReaders.parse(KnownReaders.format(readers));
+    assertEquals(2, parsed.size());
+    assertEquals("AA:BB:CC:DD:EE:01", parsed.get(0).address);
+    assertEquals("H103 dock", parsed.get(0).name);
+    assertEquals(1700000000000L, parsed.get(0).lastConnectedMs);
+    assertEquals("", parsed.get(1).name);
+  }
+
+  @Test
+  public void parse_skipsDamagedLines() {
+    List<KnownReaders.Reader> parsed =
+        KnownReaders.parse("AA:BB:CC:DD:EE:01\tnot-a-time\tx\n\nAA:BB:CC:DD:EE:02\t5\tH103");
+    assertEquals(1, parsed.size());
+    assertEquals(5L, parsed.get(0).lastConnectedMs);
+    assertEquals(0, KnownReaders.parse("").size());
+  }
+}
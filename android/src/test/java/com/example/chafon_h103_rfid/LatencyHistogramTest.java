@@ -0,0 +1,49 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+  @Test
+  public void bucketBounds_coverEveryValueWithinOneEighth() {
+    for (long v = 0; v < 5_000_000; v += 1 + v / 97) {
+      int index = LatencyHistogram.index(v);
+      long upper = LatencyHistogram.upperBound(index);
+      assertTrue("value " + v, upper >= v);
+      assertTrue("value " + v, upper - v <= Math.max(0, v / 8));
+      if (index > 0) assertTrue(LatencyHistogram.upperBound(index - 1) < v);
+    }
+  }
+
+  @Test
+  public void percentiles_followRecordedDistribution() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) h.record(i);
+
+    assertEquals(1000L, h.count());
+    assertWithinEighth(500, h.percentile(0.50));
+    assertWithinEighth(900, h.percentile(0.90));
+    assertWithinEighth(990, h.percentile(0.99));
+    assertEquals(1000L, h.percentile(1.0));
+
+    Map<String, Object> snapshot = h.snapshot();
+    assertEquals(1000L, snapshot.get("max"));
+    assertEquals(500.5, (double) snapshot.get("mean"), 1e-9);
+  }
+
+  @Test
+  public void reset_clearsEverything() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.recordNanos(250_000);
+    h.reset();
+    assertEquals(0L, h.count());
+    assertEquals(0L, h.percentile(0.99));
+  }
+
+  private static void assertWithinEighth(long expected, long actual) {
+    assertTrue("expected ~" + expected + " got " + actual, actual >= expected && actual <= expected + expected / 8);
+  }
+}
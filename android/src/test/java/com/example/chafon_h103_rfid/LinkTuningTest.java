@@ -0,0 +1,139 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class LinkTuningTest {
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private SimulatedH103 reader;
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    if (reader != null) reader.shutdown();
+  }
+
+  private SimulatedH103 connected(int maxMtu) throws Exception {
+    SimulatedH103.Config config = new SimulatedH103.Config();
+    config.connectLatencyMs = 1;
+    config.maxMtu = maxMtu;
+    reader = new SimulatedH103(config);
+    CompletableFuture<Boolean> done = new CompletableFuture<>();
+    reader.setConnectionListener(new ReaderTransport.ConnectionListener() {
+      @Override
+      public void onConnectDone(boolean success) {
+        done.complete(success);
+      }
+
+      @Override
+      public void onLinkLost() {}
+    });
+    assertTrue(reader.connect(config.address, null));
+    assertTrue(done.get(5, TimeUnit.SECONDS));
+    return reader;
+  }
+
+  @Test
+  public void profiles_andOverrides() {
+    LinkTuning throughput = LinkTuning.of(null, null, null);
+    assertEquals(LinkTuning.PROFILE_THROUGHPUT, throughput.profile);
+    assertEquals(LinkTuning.KEEP, throughput.mtu);
+    assertEquals(LinkTuning.PRIORITY_HIGH, throughput.priority);
+
+    LinkTuning balanced = LinkTuning.of("balanced", 185, null);
+    assertEquals(185, balanced.mtu);
+    assertEquals(LinkTuning.PRIORITY_BALANCED, balanced.priority);
+
+    LinkTuning none = LinkTuning.of("none", null, "lowPower");
+    assertEquals(LinkTuning.KEEP, none.mtu);
+    assertEquals(LinkTuning.PRIORITY_LOW_POWER, none.priority);
+  }
+
+  @Test
+  public void invalidSettings_areRejected() {
+    String[][] cases = {{"throughput", "600", null}, {"turbo", null, null}, {"balanced", null, "fast"}};
+    for (String[] c : cases) {
+      try {
+        LinkTuning.of(c[0], c[1] != null ? Integer.valueOf(c[1]) : null, c[2]);
+        fail("accepted " + String.join(",", c[0], c[1], c[2]));
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void defaultProfile_keepsMtuNegotiatedOnConnect() throws Exception {
+    SimulatedH103 reader = connected(247);
+    LinkTuning tuning = LinkTuning.of(null, null, null);
+    tuning.applyTo(reader, 1000);
+
+    Map<String, Object> m = tuning.toMap(0);
+    assertEquals(false, m.get("mtuRequested"));
+    assertNull(m.get("requestedMtu"));
+    assertEquals(247, m.get("mtu"));
+    assertEquals("high", reader.stats().get("connectionPriority"));
+  }
+
+  @Test
+  public void applyTo_reportsMtuTheReaderAccepted() throws Exception {
+    SimulatedH103 reader = connected(185);
+    LinkTuning tuning = LinkTuning.of("throughput", 247, null);
+    tuning.applyTo(reader, 1000);
+
+    Map<String, Object> m = tuning.toMap(0);
+    assertEquals(true, m.get("mtuRequested"));
+    assertEquals(true, m.get("priorityRequested"));
+    assertEquals(247, m.get("requestedMtu"));
+    assertEquals(185, m.get("mtu"));
+    assertEquals(185, m.get("effectiveMtu"));
+    assertEquals("high", reader.stats().get("connectionPriority"));
+  }
+
+  @Test
+  public void unreportedMtu_isBoundedByLargestNotification() {
+    LinkTuning tuning = LinkTuning.of("balanced", null, null);
+    tuning.begin(0);
+    tuning.onMtuRequested(true);
+
+    Map<String, Object> m = tuning.toMap(120);
+    assertNull(m.get("mtu"));
+    assertEquals(123, m.get("effectiveMtu"));
+    assertFalse((Boolean) m.get("priorityRequested"));
+  }
+
+  @Test
+  public void countNotify_countsFramesStartingInEachNotification() {
+    ReaderSession session = new ReaderSession("AA", executor, frame -> true, (s, buf, off, len, rssi, ant) -> {});
+    session.linkTuning = LinkTuning.of(null, null, null);
+    // Two complete 9-byte frames packed into one notification, then a 27-byte frame split 20 + 7
+    byte[] packed = {(byte) 0xCF, (byte) 0xFF, 0, 0x01, 2, 0, 0, 0, 0,
+        (byte) 0xCF, (byte) 0xFF, 0, 0x01, 2, 0, 0, 0, 0};
+    byte[] head = new byte[20];
+    head[0] = (byte) 0xCF;
+    head[1] = (byte) 0xFF;
+    head[4] = 20;
+    byte[] tail = new byte[7];
+    session.countNotify(packed);
+    session.countNotify(head);
+    session.countNotify(tail);
+
+    Map<String, Object> m = session.linkStats(System.nanoTime());
+    assertEquals(3L, m.get("notificationsTotal"));
+    assertEquals(45L, m.get("notifyBytesTotal"));
+    assertEquals(3L, m.get("framesTotal"));
+    assertEquals(20, m.get("largestNotifyBytes"));
+    assertEquals(23, m.get("effectiveMtu"));
+    assertEquals("throughput", m.get("profile"));
+  }
+}
@@ -0,0 +1,170 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParamCacheTest {
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final SimulatedReader reader = new SimulatedReader();
+  private final CommandScheduler scheduler = new CommandScheduler(executor, reader);
+  private final AtomicBoolean idle = new AtomicBoolean(true);
+  private final CountDownLatch flashed = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private ParamCache cache(long flashDelayMs) {
+    reader.attach(scheduler);
+    ParamCache cache = new ParamCache(scheduler, executor, idle::get, 1000, 1000, flashDelayMs);
+    cache.setFlashListener(new ParamCache.FlashListener() {
+      @Override
+      public void onFlashSaved() {
+        flashed.countDown();
+      }
+
+      @Override
+      public void onFlashFailed(String code, String message) {}
+    });
+    return cache;
+  }
+
+  private static final class Result implements ParamCache.Callback {
+    final CompletableFuture<Object> done = new CompletableFuture<>();
+
+    @Override
+    public void onDone(boolean written) {
+      done.complete(written);
+    }
+
+    @Override
+    public void onError(String code, String message) {
+      done.complete(code);
+    }
+
+    Object get() throws Exception {
+      return done.get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private Result setPower(ParamCache cache, int power, boolean persist) {
+    Result r = new Result();
+    cache.update(null, p -> p.mRfidPower = (byte) power, persist, r);
+    return r;
+  }
+
+  private List<Integer> commands() throws Exception {
+    executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    synchronized (reader) {
+      return new ArrayList<>(reader.commands);
+    }
+  }
+
+  @Test
+  public void unchangedValue_isNotWritten() throws Exception {
+    ParamCache cache = cache(0);
+    cache.load(SimulatedReader.params(20));
+
+    assertEquals(false, setPower(cache, 20, false).get());
+    assertTrue(commands().isEmpty());
+    assertEquals(1L, cache.stats().get("skipped"));
+  }
+
+  @Test
+  public void updatesDuringWrite_coalesceLatestWins() throws Exception {
+    ParamCache cache = cache(0);
+    cache.load(SimulatedReader.params(20));
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException ignored) {
+      }
+    });
+
+    List<Result> results = new ArrayList<>();
+    for (int power = 21; power <= 25; power++) results.add(setPower(cache, power, false));
+    release.countDown();
+    for (Result r : results) assertEquals(true, r.get());
+
+    assertEquals(Arrays.asList(FrameEncoder.CMD_SET_ALL_PARAM, FrameEncoder.CMD_SET_ALL_PARAM), commands());
+    assertEquals(25, reader.power);
+    assertEquals(25, cache.device().mRfidPower);
+    assertEquals(4L, cache.stats().get("coalesced"));
+    assertEquals(2L, cache.stats().get("ramWrites"));
+  }
+
+  @Test
+  public void transaction_changesSeveralFieldsInOneWrite() throws Exception {
+    ParamCache cache = cache(0);
+    cache.load(SimulatedReader.params(20));
+    Result r = new Result();
+    cache.update(null, p -> {
+      p.mRfidPower = 30;
+      p.mQValue = 6;
+      p.mSession = 1;
+    }, false, r);
+
+    assertEquals(true, r.get());
+    assertEquals(Arrays.asList(FrameEncoder.CMD_SET_ALL_PARAM), commands());
+    assertEquals(6, cache.device().mQValue);
+    assertEquals(1, cache.device().mSession);
+  }
+
+  @Test
+  public void persist_waitsForIdleBeforeFlash() throws Exception {
+    idle.set(false);
+    ParamCache cache = cache(20);
+    cache.load(SimulatedReader.params(20));
+
+    setPower(cache, 26, true).get();
+    setPower(cache, 27, true).get();
+    Thread.sleep(100);
+    assertFalse(commands().contains(FrameEncoder.CMD_SAVE_FLASH));
+    assertEquals(true, cache.stats().get("flashPending"));
+
+    idle.set(true);
+    assertTrue(flashed.await(5, TimeUnit.SECONDS));
+    assertEquals(1, commands().stream().filter(c -> c == FrameEncoder.CMD_SAVE_FLASH).count());
+    assertEquals(false, cache.stats().get("flashPending"));
+  }
+
+  @Test
+  public void flush_savesPendingFlashBeforeDone() throws Exception {
+    idle.set(false);
+    ParamCache cache = cache(60_000);
+    cache.load(SimulatedReader.params(20));
+    setPower(cache, 26, true).get();
+
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    cache.flush(() -> done.complete(null));
+    done.get(5, TimeUnit.SECONDS);
+    assertEquals(0, flashed.getCount());
+    assertEquals(FrameEncoder.CMD_SAVE_FLASH, (int) commands().get(1));
+  }
+
+  @Test
+  public void unknownParams_withoutFallbackFail() throws Exception {
+    ParamCache cache = cache(0);
+    assertEquals("PARAMS_UNKNOWN", setPower(cache, 20, false).get());
+
+    Result r = new Result();
+    cache.update(SimulatedReader.params(10), p -> p.mRfidPower = 12, false, r);
+    assertEquals(true, r.get());
+    assertEquals(12, reader.power);
+  }
+}
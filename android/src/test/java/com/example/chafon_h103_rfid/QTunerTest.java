@@ -0,0 +1,102 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class QTunerTest {
+  private long now = 10_000;
+
+  private QTuner tuner(int q, boolean tuneSession) {
+    return new QTuner(q, 0, 1000, 2, 0, 0, 15, tuneSession, 32, 16, now);
+  }
+
+  // One window: every tag in [first, first + tags) read readsPerTag times
+  private QTuner.Decision window(QTuner tuner, int first, int tags, int readsPerTag) {
+    for (int r = 0; r < readsPerTag; r++) {
+      for (int t = first; t < first + tags; t++) {
+        byte[] epc = HexCodec.decode(String.format("E2000017221101441890%04X", t));
+        tuner.onRead(epc, 0, epc.length);
+      }
+    }
+    now += 1000;
+    return tuner.evaluate(now);
+  }
+
+  @Test
+  public void steadyPopulation_keepsQ() {
+    QTuner tuner = tuner(4, false);
+    for (int i = 0; i < 5; i++) assertNull(window(tuner, 0, 16, 3));
+  }
+
+  @Test
+  public void largerPopulation_raisesQOneStepAfterHold() {
+    QTuner tuner = tuner(4, false);
+
+    assertNull(window(tuner, 0, 100, 2));
+    QTuner.Decision d = window(tuner, 0, 100, 2);
+    assertNotNull(d);
+    assertEquals(4, d.fromQ);
+    assertEquals(5, d.toQ);
+    assertEquals("population_up", d.reason);
+    tuner.applied(d, true, null, now);
+
+    // the hold starts over after a change
+    assertNull(window(tuner, 0, 100, 2));
+    assertEquals(6, window(tuner, 0, 100, 2).toQ);
+  }
+
+  @Test
+  public void stepThatLosesReads_isRevertedAndBlocked() {
+    QTuner tuner = tuner(4, false);
+    window(tuner, 0, 64, 4);
+    QTuner.Decision up = window(tuner, 0, 64, 4);
+    tuner.applied(up, true, null, now);
+
+    QTuner.Decision revert = window(tuner, 0, 64, 1);
+    assertNotNull(revert);
+    assertEquals("revert", revert.reason);
+    assertEquals(4, revert.toQ);
+    assertEquals(256.0, up.readsPerSecond, 0.01);
+    assertEquals(64.0, up.readsPerSecondAfter, 0.01);
+    assertEquals(up, tuner.takeMeasured());
+    assertNull(tuner.takeMeasured());
+    tuner.applied(revert, true, null, now);
+
+    for (int i = 0; i < 4; i++) assertNull(window(tuner, 0, 64, 1));
+    Map<String, Object> stats = tuner.stats();
+    assertEquals(1L, stats.get("reverts"));
+    assertEquals(2, ((List<?>) stats.get("decisions")).size());
+  }
+
+  @Test
+  public void session_switchesWithHysteresis() {
+    QTuner tuner = tuner(5, true);
+
+    QTuner.Decision quiet = window(tuner, 0, 40, 2);
+    assertEquals(1, quiet.toSession);
+    assertEquals(5, quiet.toQ);
+    tuner.applied(quiet, true, null, now);
+
+    // inside the 16..32 band: keep S1
+    assertNull(window(tuner, 0, 24, 2));
+    QTuner.Decision fast = window(tuner, 0, 12, 2);
+    assertNotNull(fast);
+    assertEquals(0, fast.toSession);
+  }
+
+  @Test
+  public void failedChange_keepsCurrentSettings() {
+    QTuner tuner = tuner(4, false);
+    window(tuner, 0, 100, 1);
+    QTuner.Decision d = window(tuner, 0, 100, 1);
+    tuner.applied(d, false, "TIMEOUT", now);
+
+    assertEquals(4, tuner.stats().get("q"));
+    assertEquals(false, d.toMap().get("applied"));
+  }
+}
@@ -0,0 +1,92 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class RadarTrackerTest {
+  private static final String EPC_A = "E2000017221101441890ABCD";
+  private static final String EPC_B = "E20000172211014418900001";
+
+  private static RadarTracker ema(int maxRateHz, String... epcs) {
+    return new RadarTracker(Arrays.asList(epcs), RadarTracker.Filter.EMA, 0.5,
+        RadarTracker.DEFAULT_PROCESS_NOISE, RadarTracker.DEFAULT_MEASUREMENT_NOISE, maxRateHz);
+  }
+
+  @Test
+  public void record_matchesRawBytesInsideLargerBuffer() {
+    RadarTracker tracker = ema(10, EPC_A.toLowerCase(), EPC_A, EPC_B);
+    assertEquals(2, tracker.size());
+
+    byte[] epc = FormatUtil.hexStringToBytes(EPC_B);
+    byte[] frame = new byte[epc.length + 11];
+    System.arraycopy(epc, 0, frame, 11, epc.length);
+
+    assertTrue(tracker.record(frame, 11, epc.length, -60, 1, null, 0));
+    assertFalse(tracker.record(frame, 10, epc.length, -60, 1, null, 0));
+    assertFalse(tracker.record(frame, 11, epc.length - 1, -60, 1, null, 0));
+  }
+
+  @Test
+  public void drain_rateLimitsPerTargetAndReportsTrend() {
+    RadarTracker tracker = ema(10, EPC_A);
+    byte[] epc = FormatUtil.hexStringToBytes(EPC_A);
+
+    tracker.record(epc, 0, epc.length, -70, 1, "AA:BB", 0);
+    Map<String, Object> first = tracker.drain(10).get(0);
+    assertEquals(EPC_A, first.get("epc"));
+    assertEquals(-70.0, (Double) first.get("smoothedRssi"), 0.001);
+    assertEquals("steady", first.get("trend"));
+    assertEquals(10L, first.get("sinceLastSeenMs"));
+    assertEquals("AA:BB", first.get("reader"));
+
+    tracker.record(epc, 0, epc.length, -50, 1, null, 20);
+    tracker.record(epc, 0, epc.length, -50, 1, null, 40);
+    assertNull(tracker.drain(50)); // within 100 ms of the last report
+
+    Map<String, Object> second = tracker.drain(110).get(0);
+    assertEquals(-55.0, (Double) second.get("smoothedRssi"), 0.001);
+    assertEquals(-50, second.get("rssi"));
+    assertEquals("approaching", second.get("trend"));
+    assertEquals(2, second.get("reads"));
+    assertEquals(70L, second.get("sinceLastSeenMs"));
+  }
+
+  @Test
+  public void drain_reportsSilentTargetOncePerStaleInterval() {
+    RadarTracker tracker = ema(10, EPC_A, EPC_B);
+    byte[] epc = FormatUtil.hexStringToBytes(EPC_A);
+
+    tracker.record(epc, 0, epc.length, -60, 1, null, 0);
+    assertEquals(1, tracker.drain(0).size()); // B was never seen
+    assertNull(tracker.drain(500));
+
+    List<Map<String, Object>> stale = tracker.drain(RadarTracker.STALE_REPORT_MS);
+    assertEquals(1, stale.size());
+    assertEquals(0, stale.get(0).get("reads"));
+    assertEquals(RadarTracker.STALE_REPORT_MS, stale.get(0).get("sinceLastSeenMs"));
+  }
+
+  @Test
+  public void kalman_convergesAndDampsOutliers() {
+    RadarTracker tracker = new RadarTracker(Arrays.asList(EPC_A), RadarTracker.Filter.KALMAN,
+        RadarTracker.DEFAULT_ALPHA, 0.1, 4.0, 1000);
+    byte[] epc = FormatUtil.hexStringToBytes(EPC_A);
+
+    for (int i = 0; i < 50; i++) {
+      tracker.record(epc, 0, epc.length, -60, 1, null, i);
+    }
+    tracker.drain(50);
+    tracker.record(epc, 0, epc.length, -30, 1, null, 51);
+
+    double smoothed = (Double) tracker.drain(100).get(0).get("smoothedRssi");
+    assertTrue("outlier should move the estimate by far less than 30 dB", smoothed < -55);
+    assertTrue(smoothed > -60);
+  }
+}
@@ -0,0 +1,111 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class RawFrameDecoderTest {
+  private final List<byte[]> epcs = new ArrayList<>();
+  private final List<Integer> rssis = new ArrayList<>();
+  private final RawFrameDecoder decoder = new RawFrameDecoder(
+      (buf, off, len, rssi, antenna, channel) -> {
+        epcs.add(Arrays.copyOfRange(buf, off, off + len));
+        rssis.add(rssi);
+      });
+
+  @Test
+  public void singleFrame_decodesEpcAndRssi() {
+    byte[] epc = {0x30, 0x08, 0x33, (byte) 0xB2, (byte) 0xDD, (byte) 0xD9, 0x01, 0x40, 0x00, 0x00, 0x00, 0x01};
+    byte[] frame = tagFrame(epc, -612);
+
+    assertEquals(1, decoder.feed(frame, 0, frame.length));
+    assertArrayEquals(epc, epcs.get(0));
+    assertEquals(Integer.valueOf(-61), rssis.get(0));
+  }
+
+  @Test
+  public void packedFrames_areAllDecoded() {
+    byte[] a = tagFrame(new byte[] {1, 2, 3, 4}, -500);
+    byte[] b = tagFrame(new byte[] {5, 6, 7, 8}, -400);
+    byte[] packed = concat(a, b);
+
+    assertEquals(2, decoder.feed(packed, 0, packed.length));
+    assertArrayEquals(new byte[] {5, 6, 7, 8}, epcs.get(1));
+  }
+
+  @Test
+  public void splitFrame_isReassembled() {
+    byte[] frame = tagFrame(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, -700);
+
+    assertEquals(0, decoder.feed(frame, 0, 9));
+    assertEquals(1, decoder.feed(frame, 9, frame.length - 9));
+    assertEquals(1L, decoder.stats().get("reassembled"));
+  }
+
+  @Test
+  public void requestedReset_dropsCarriedOverBytesAtNextFeed() {
+    byte[] split = tagFrame(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, -700);
+    byte[] next = tagFrame(new byte[] {9, 9, 9, 9}, -500);
+
+    assertEquals(0, decoder.feed(split, 0, 9));
+    decoder.requestReset();
+    byte[] stream = concat(Arrays.copyOfRange(split, 9, split.length), next);
+    assertEquals(1, decoder.feed(stream, 0, stream.length));
+    assertArrayEquals(new byte[] {9, 9, 9, 9}, epcs.get(0));
+    assertEquals(0L, decoder.stats().get("reassembled"));
+  }
+
+  @Test
+  public void badCrc_isSkippedAndNextFrameDecoded() {
+    byte[] bad = tagFrame(new byte[] {1, 2, 3, 4}, -500);
+    bad[bad.length - 1] ^= 0x01;
+    byte[] good = tagFrame(new byte[] {9, 9, 9, 9}, -500);
+    byte[] stream = concat(bad, good);
+
+    assertEquals(1, decoder.feed(stream, 0, stream.length));
+    assertArrayEquals(new byte[] {9, 9, 9, 9}, epcs.get(0));
+    assertEquals(1L, decoder.stats().get("crcErrors"));
+  }
+
+  @Test
+  public void ackFrame_isNotATag() {
+    byte[] ack = withCrc(new byte[] {(byte) 0xCF, (byte) 0xFF, 0x00, 0x01, 0x01, 0x00, 0, 0});
+    assertEquals(0, decoder.feed(ack, 0, ack.length));
+    assertEquals(1L, decoder.stats().get("frames"));
+  }
+
+  static byte[] tagFrame(byte[] epc, int rssiTimesTen) {
+    int dataLen = 6 + epc.length;
+    byte[] f = new byte[5 + dataLen + 2];
+    f[0] = (byte) 0xCF;
+    f[1] = (byte) 0xFF;
+    f[2] = 0x00;
+    f[3] = 0x01;
+    f[4] = (byte) dataLen;
+    f[5] = 0x00; // status
+    f[6] = (byte) (rssiTimesTen >> 8);
+    f[7] = (byte) rssiTimesTen;
+    f[8] = 0x01; // antenna
+    f[9] = 0x05; // channel
+    f[10] = (byte) epc.length;
+    System.arraycopy(epc, 0, f, 11, epc.length);
+    return withCrc(f);
+  }
+
+  private static byte[] withCrc(byte[] f) {
+    int crc = FrameEncoder.crc16(f, 0, f.length - 2);
+    f[f.length - 2] = (byte) (crc >> 8);
+    f[f.length - 1] = (byte) crc;
+    return f;
+  }
+
+  private static byte[] concat(byte[] a, byte[] b) {
+    byte[] out = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, out, a.length, b.length);
+    return out;
+  }
+}
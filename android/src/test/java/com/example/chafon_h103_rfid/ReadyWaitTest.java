@@ -0,0 +1,81 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+
+public class ReadyWaitTest {
+  private static final long MS = 1_000_000;
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final SimulatedReader reader = new SimulatedReader();
+  private final CommandScheduler scheduler = new CommandScheduler(executor, reader);
+  private final AtomicBoolean ready = new AtomicBoolean(false);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void alreadyMet_continuesInline() {
+    ready.set(true);
+    boolean[] ran = new boolean[1];
+    ReadyWait.when(executor, ready::get, 1000, 50, () -> ran[0] = true, () -> {});
+    assertTrue(ran[0]);
+  }
+
+  @Test
+  public void neverMet_timesOutOnceOnTheExecutor() throws Exception {
+    CompletableFuture<String> outcome = new CompletableFuture<>();
+    long start = System.nanoTime();
+    ReadyWait.when(executor, ready::get, 120, 20,
+        () -> outcome.complete("next"), () -> outcome.complete(Thread.currentThread().getName()));
+    assertTrue((System.nanoTime() - start) / MS < 20);
+
+    String thread = outcome.get(5, TimeUnit.SECONDS);
+    assertTrue((System.nanoTime() - start) / MS >= 110);
+    assertTrue(!"next".equals(thread) && !thread.equals(Thread.currentThread().getName()));
+  }
+
+  /**
+   * A power change issued while the reader is still connecting: the calling (main) thread
+   * returns at once and the write goes out once the reader is ready.
+   */
+  @Test
+  public void configChangeWhileConnecting_doesNotStallCaller() throws Exception {
+    reader.attach(scheduler);
+    ParamCache params = new ParamCache(scheduler, executor, () -> true, 1000, 1000, 0);
+    params.load(SimulatedReader.params(20));
+    executor.schedule(() -> ready.set(true), 300, TimeUnit.MILLISECONDS);
+
+    CompletableFuture<Object> done = new CompletableFuture<>();
+    long start = System.nanoTime();
+    ReadyWait.when(executor, ready::get, 1000, ReadyWait.DEFAULT_POLL_MS,
+        () -> params.update(null, p -> p.mRfidPower = 27, false, new ParamCache.Callback() {
+          @Override
+          public void onDone(boolean written) {
+            done.complete(written);
+          }
+
+          @Override
+          public void onError(String code, String message) {
+            done.complete(code);
+          }
+        }),
+        () -> done.complete("BLE_NOT_READY"));
+    long stallMs = (System.nanoTime() - start) / MS;
+
+    assertTrue("caller stalled " + stallMs + " ms", stallMs < 20);
+    assertEquals(true, done.get(5, TimeUnit.SECONDS));
+    assertTrue((System.nanoTime() - start) / MS >= 290);
+    assertEquals(27, reader.power);
+  }
+}
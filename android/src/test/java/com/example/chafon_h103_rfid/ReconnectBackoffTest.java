@@ -0,0 +1,38 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ReconnectBackoffTest {
+
+  @Test
+  public void doublesUpToMaxThenGivesUp() {
+    ReconnectBackoff backoff = new ReconnectBackoff(500, 3000, 6, 0, new Random(1));
+    long[] expected = {500, 1000, 2000, 3000, 3000, 3000};
+    for (long delay : expected) assertEquals(delay, backoff.nextDelayMs());
+    assertEquals(-1, backoff.nextDelayMs());
+    assertEquals(6, backoff.attempts());
+  }
+
+  @Test
+  public void reset_startsFromInitialDelay() {
+    ReconnectBackoff backoff = new ReconnectBackoff(200, 10_000, 3, 0, new Random(1));
+    backoff.nextDelayMs();
+    backoff.nextDelayMs();
+    backoff.reset();
+    assertEquals(200, backoff.nextDelayMs());
+    assertEquals(1, backoff.attempts());
+  }
+
+  @Test
+  public void jitter_staysWithinBounds() {
+    ReconnectBackoff backoff = new ReconnectBackoff(1000, 1000, 100, 0.2, new Random(42));
+    for (int i = 0; i < 100; i++) {
+      long delay = backoff.nextDelayMs();
+      assertTrue(delay >= 800 && delay <= 1200);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cf.beans.AllParamBean;
+import com.cf.beans.CmdData;
+import com.cf.beans.TagInfoBean;
+import com.cf.ble.interfaces.IOnNotifyCallback;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class SimulatedH103Test {
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final List<SimulatedH103> readers = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    for (SimulatedH103 r : readers) r.shutdown();
+  }
+
+  private SimulatedH103 connected(SimulatedH103.Config config, IOnNotifyCallback notify) throws Exception {
+    SimulatedH103 reader = new SimulatedH103(config);
+    readers.add(reader);
+    reader.setNotifyCallback(notify);
+    CompletableFuture<Boolean> done = new CompletableFuture<>();
+    reader.setConnectionListener(new ReaderTransport.ConnectionListener() {
+      @Override
+      public void onConnectDone(boolean success) {
+        done.complete(success);
+      }
+
+      @Override
+      public void onLinkLost() {}
+    });
+    assertTrue(reader.connect(config.address, null));
+    assertTrue(done.get(5, TimeUnit.SECONDS));
+    assertTrue(reader.enableNotify());
+    return reader;
+  }
+
+  private static SimulatedH103.Config config() {
+    SimulatedH103.Config config = new SimulatedH103.Config();
+    config.connectLatencyMs = 1;
+    config.ackLatencyMs = 5;
+    config.ackJitterMs = 5;
+    return config;
+  }
+
+  private static CompletableFuture<Object> request(CommandScheduler scheduler, byte[] frame, int cmd, long timeoutMs) {
+    CompletableFuture<Object> f = new CompletableFuture<>();
+    scheduler.submit(CommandScheduler.Command.request("test", frame, cmd, timeoutMs, new CommandScheduler.Callback() {
+      @Override
+      public void onResponse(byte[] response) {
+        f.complete(response);
+      }
+
+      @Override
+      public void onError(String code, String message) {
+        f.complete(code);
+      }
+    }));
+    return f;
+  }
+
+  @Test
+  public void commands_areAnsweredWithTypedBeanThenRawFrame() throws Exception {
+    List<Object> typed = new ArrayList<>();
+    CommandScheduler[] scheduler = new CommandScheduler[1];
+    SimulatedH103 reader = connected(config(), new IOnNotifyCallback() {
+      @Override
+      public void onNotify(int cmdType, CmdData data) {
+        typed.add(data.getData());
+      }
+
+      @Override
+      public void onNotify(byte[] frame) {
+        scheduler[0].onFrame(frame);
+      }
+    });
+    scheduler[0] = new CommandScheduler(executor, reader);
+
+    Object response = request(scheduler[0], FrameEncoder.GET_ALL_PARAM, FrameEncoder.CMD_GET_ALL_PARAM, 1000)
+        .get(5, TimeUnit.SECONDS);
+    assertTrue(response instanceof byte[]);
+    AllParamBean params = (AllParamBean) typed.get(0);
+    assertEquals(0x1A, params.mRfidPower);
+
+    AllParamBean edited = params;
+    edited.mRfidPower = 30;
+    request(scheduler[0], new FrameEncoder().setAllParam(edited), FrameEncoder.CMD_SET_ALL_PARAM, 1000)
+        .get(5, TimeUnit.SECONDS);
+    request(scheduler[0], FrameEncoder.GET_ALL_PARAM, FrameEncoder.CMD_GET_ALL_PARAM, 1000).get(5, TimeUnit.SECONDS);
+    assertEquals(30, ((AllParamBean) typed.get(typed.size() - 1)).mRfidPower);
+  }
+
+  @Test
+  public void inventory_emitsDecodableTagFramesAtTheConfiguredRate() throws Exception {
+    SimulatedH103.Config config = config();
+    config.tags = 5000;
+    config.readsPerSecond = 800;
+    AtomicInteger beans = new AtomicInteger();
+    AtomicInteger mismatches = new AtomicInteger();
+    byte[][] lastEpc = new byte[1][];
+    RawFrameDecoder decoder = new RawFrameDecoder((buf, off, len, rssi, antenna, channel) -> {
+      byte[] epc = Arrays.copyOfRange(buf, off, off + len);
+      if (!Arrays.equals(epc, lastEpc[0]) || rssi > -40 || rssi < -75 || antenna != 1) {
+        mismatches.incrementAndGet();
+      }
+    });
+    CommandScheduler[] scheduler = new CommandScheduler[1];
+    SimulatedH103 reader = connected(config, new IOnNotifyCallback() {
+      @Override
+      public void onNotify(int cmdType, CmdData data) {
+        // The status-only start ack also comes through as a TagInfoBean, without an EPC
+        if (data.getData() instanceof TagInfoBean && ((TagInfoBean) data.getData()).mEPCLen > 0) {
+          beans.incrementAndGet();
+          lastEpc[0] = ((TagInfoBean) data.getData()).mEPCNum;
+        }
+      }
+
+      @Override
+      public void onNotify(byte[] frame) {
+        if (!scheduler[0].onFrame(frame)) decoder.feed(frame, 0, frame.length);
+      }
+    });
+    scheduler[0] = new CommandScheduler(executor, reader);
+
+    CompletableFuture<Object> ack = new CompletableFuture<>();
+    scheduler[0].submit(CommandScheduler.Command.ack("start", FrameEncoder.START_INVENTORY,
+        FrameEncoder.CMD_START_INVENTORY, 1000, new CommandScheduler.Callback() {
+          @Override
+          public void onResponse(byte[] frame) {
+            ack.complete(frame);
+          }
+
+          @Override
+          public void onError(String code, String message) {
+            ack.complete(code);
+          }
+        }));
+    assertTrue(ack.get(5, TimeUnit.SECONDS) instanceof byte[]);
+    Thread.sleep(1000);
+    request(scheduler[0], FrameEncoder.STOP_INVENTORY, FrameEncoder.CMD_STOP_INVENTORY, 1000).get(5, TimeUnit.SECONDS);
+
+    long tags = (long) decoder.stats().get("tags");
+    assertTrue("tags: " + tags, tags > 500 && tags < 1100);
+    assertEquals(tags, (long) beans.get());
+    assertEquals(0, mismatches.get());
+    assertEquals(0L, decoder.stats().get("crcErrors"));
+  }
+
+  @Test
+  public void sameSeed_readsTheSameTagSequence() throws Exception {
+    List<String> first = readSequence(42, 50);
+    assertEquals(first, readSequence(42, 50));
+    assertTrue(!first.equals(readSequence(43, 50)));
+  }
+
+  private List<String> readSequence(long seed, int count) throws Exception {
+    SimulatedH103.Config config = config();
+    config.seed = seed;
+    config.tags = 100;
+    config.readsPerSecond = 2000;
+    List<String> epcs = new ArrayList<>();
+    CountDownLatch enough = new CountDownLatch(count);
+    SimulatedH103 reader = connected(config, new IOnNotifyCallback() {
+      @Override
+      public void onNotify(int cmdType, CmdData data) {
+        if (data.getData() instanceof TagInfoBean && ((TagInfoBean) data.getData()).mEPCLen > 0 && epcs.size() < count) {
+          epcs.add(HexCodec.encode(((TagInfoBean) data.getData()).mEPCNum));
+          enough.countDown();
+        }
+      }
+    });
+    reader.write(FrameEncoder.START_INVENTORY);
+    assertTrue(enough.await(5, TimeUnit.SECONDS));
+    reader.disconnect();
+    return epcs;
+  }
+
+  @Test
+  public void lostAnswers_timeOut() throws Exception {
+    SimulatedH103.Config config = config();
+    config.ackLoss = 1.0;
+    CommandScheduler[] scheduler = new CommandScheduler[1];
+    SimulatedH103 reader = connected(config, new IOnNotifyCallback() {
+      @Override
+      public void onNotify(int cmdType, CmdData data) {}
+
+      @Override
+      public void onNotify(byte[] frame) {
+        scheduler[0].onFrame(frame);
+      }
+    });
+    scheduler[0] = new CommandScheduler(executor, reader);
+
+    assertEquals("TIMEOUT", request(scheduler[0], FrameEncoder.GET_BATTERY, FrameEncoder.CMD_GET_BATTERY, 100)
+        .get(5, TimeUnit.SECONDS));
+    assertEquals(1L, reader.stats().get("answersLost"));
+  }
+
+  @Test
+  public void population_isDistinct() {
+    byte[][] epcs = SimulatedH103.population(5000, 12, 7);
+    Set<String> unique = new HashSet<>();
+    for (byte[] epc : epcs) unique.add(HexCodec.encode(epc));
+    assertEquals(5000, unique.size());
+    assertArrayEquals(epcs[3], SimulatedH103.population(5000, 12, 7)[3]);
+  }
+}
@@ -0,0 +1,201 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.AllParamBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory H103 for tests: answers select (0x07), read (0x03), write (0x04) and
+ * set-all-param (0x71) frames for a field of tags, delivering responses to the attached
+ * scheduler as if they came from notify. A read or write is answered by the first tag in
+ * the field that matches the current Select; writes fail below a tag's minimum power.
+ */
+final class SimulatedReader implements CommandScheduler.FrameWriter {
+
+  static final int BANK_RESERVED = 0;
+  static final int BANK_EPC = 1;
+  static final int BANK_TID = 2;
+  static final int BANK_USER = 3;
+
+  static final class Tag {
+    byte[] epc;
+    final byte[][] banks = new byte[4][];
+    int minWritePower;
+
+    Tag(byte[] epc, int userWords) {
+      this.epc = epc;
+      banks[BANK_RESERVED] = new byte[8];
+      banks[BANK_EPC] = new byte[4 + epc.length];
+      System.arraycopy(epc, 0, banks[BANK_EPC], 4, epc.length);
+      banks[BANK_TID] = new byte[12];
+      for (int i = 0; i < 12; i++) banks[BANK_TID][i] = (byte) (epc[epc.length - 1] + i);
+      banks[BANK_USER] = new byte[userWords * 2];
+      for (int i = 0; i < banks[BANK_USER].length; i++) banks[BANK_USER][i] = (byte) (i * 7);
+    }
+  }
+
+  private final Map<String, Tag> field = new LinkedHashMap<>();
+  final List<Integer> commands = new ArrayList<>();
+  private CommandScheduler scheduler;
+  private byte[] selectMask = new byte[0];
+  private int selectBits;
+  private int selectPointer;
+  // Read and select responses to drop, e.g. to exercise timeouts
+  private int dropReads;
+  private int dropSelects;
+  int power = 20;
+
+  /** Parameter block the reader reports: ETSI band, power as given, Q 4. */
+  static AllParamBean params(int power) {
+    AllParamBean p = new AllParamBean();
+    p.mRfidFreq = new AllParamBean.RfidFreq();
+    p.mRfidFreq.mREGION = 0x03;
+    p.mRfidFreq.mSTRATFREI = new byte[] {0x03, 0x61};
+    p.mRfidFreq.mSTRATFRED = new byte[] {0x00, 0x64};
+    p.mRfidFreq.mSTEPFRE = new byte[] {0x00, (byte) 0xC8};
+    p.mRfidFreq.mCN = 0x0F;
+    p.mRfidPower = (byte) power;
+    p.mQValue = 4;
+    return p;
+  }
+
+  void attach(CommandScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  Tag addTag(String epcHex, int userWords) {
+    Tag tag = new Tag(HexCodec.decode(epcHex), userWords);
+    field.put(HexCodec.encode(tag.epc), tag);
+    return tag;
+  }
+
+  void dropNextReads(int count) {
+    dropReads = count;
+  }
+
+  /** The dropped Selects are not applied either: the previous mask stays in place. */
+  void dropNextSelects(int count) {
+    dropSelects = count;
+  }
+
+  @Override
+  public synchronized boolean write(byte[] frame) {
+    int cmd = ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+    commands.add(cmd);
+    switch (cmd) {
+      case FrameEncoder.CMD_SELECT_MASK:
+        if (dropSelects > 0) {
+          dropSelects--;
+          break;
+        }
+        selectPointer = ((frame[5] & 0xFF) << 8) | (frame[6] & 0xFF);
+        selectBits = frame[7] & 0xFF;
+        selectMask = java.util.Arrays.copyOfRange(frame, 8, frame.length - 2);
+        respond(cmd, new byte[] {0x00});
+        break;
+      case FrameEncoder.CMD_READ_TAG:
+        if (dropReads > 0) {
+          dropReads--;
+          break;
+        }
+        read(frame);
+        break;
+      case FrameEncoder.CMD_WRITE_TAG:
+        writeTag(frame);
+        break;
+      case FrameEncoder.CMD_SET_ALL_PARAM:
+        power = frame[20];
+        respond(cmd, new byte[] {0x00});
+        break;
+      default:
+        respond(cmd, new byte[] {0x00});
+    }
+    return true;
+  }
+
+  private void read(byte[] frame) {
+    int bank = frame[10];
+    int ptr = ((frame[11] & 0xFF) << 8) | (frame[12] & 0xFF);
+    int words = frame[13] & 0xFF;
+    Tag tag = selected();
+    if (tag == null) {
+      respond(FrameEncoder.CMD_READ_TAG, new byte[] {0x01}); // no tag
+      return;
+    }
+    byte[] memory = tag.banks[bank];
+    if ((ptr + words) * 2 > memory.length) {
+      respond(FrameEncoder.CMD_READ_TAG, new byte[] {0x03}); // memory overrun
+      return;
+    }
+    byte[] data = new byte[9 + tag.epc.length + words * 2];
+    data[2] = 1; // antenna
+    data[7] = (byte) tag.epc.length;
+    System.arraycopy(tag.epc, 0, data, 8, tag.epc.length);
+    data[8 + tag.epc.length] = (byte) words;
+    System.arraycopy(memory, ptr * 2, data, 9 + tag.epc.length, words * 2);
+    respond(FrameEncoder.CMD_READ_TAG, data);
+  }
+
+  private void writeTag(byte[] frame) {
+    int bank = frame[10];
+    int ptr = ((frame[11] & 0xFF) << 8) | (frame[12] & 0xFF);
+    int words = frame[13] & 0xFF;
+    Tag tag = selected();
+    if (tag == null || power < tag.minWritePower) {
+      respond(FrameEncoder.CMD_WRITE_TAG, new byte[] {0x01}); // no tag answered
+      return;
+    }
+    byte[] memory = tag.banks[bank];
+    if ((ptr + words) * 2 > memory.length) {
+      respond(FrameEncoder.CMD_WRITE_TAG, new byte[] {0x03}); // memory overrun
+      return;
+    }
+    System.arraycopy(frame, 14, memory, ptr * 2, words * 2);
+    if (bank == BANK_EPC) {
+      tag.epc = java.util.Arrays.copyOfRange(memory, 4, 4 + tag.epc.length);
+    }
+    respond(FrameEncoder.CMD_WRITE_TAG, new byte[] {0x00});
+  }
+
+  Tag tag(String epcHex) {
+    byte[] epc = HexCodec.decode(epcHex);
+    for (Tag tag : field.values()) {
+      if (java.util.Arrays.equals(tag.epc, epc)) return tag;
+    }
+    return null;
+  }
+
+  private Tag selected() {
+    for (Tag tag : field.values()) {
+      if (matches(tag.epc)) return tag;
+    }
+    return null;
+  }
+
+  private boolean matches(byte[] epc) {
+    for (int i = 0; i < selectBits; i++) {
+      int bit = selectPointer + i;
+      if (bit >= epc.length * 8) return false;
+      int a = (epc[bit >> 3] >> (7 - (bit & 7))) & 1;
+      int b = (selectMask[i >> 3] >> (7 - (i & 7))) & 1;
+      if (a != b) return false;
+    }
+    return true;
+  }
+
+  private void respond(int cmd, byte[] data) {
+    byte[] f = new byte[7 + data.length];
+    f[0] = (byte) 0xCF;
+    f[1] = (byte) 0xFF;
+    f[2] = (byte) (cmd >> 8);
+    f[3] = (byte) cmd;
+    f[4] = (byte) data.length;
+    System.arraycopy(data, 0, f, 5, data.length);
+    int crc = FrameEncoder.crc16(f, 0, f.length - 2);
+    f[f.length - 2] = (byte) (crc >> 8);
+    f[f.length - 1] = (byte) crc;
+    scheduler.onFrame(f);
+  }
+}
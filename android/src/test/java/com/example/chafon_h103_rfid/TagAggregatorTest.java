@@ -0,0 +1,69 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class TagAggregatorTest {
+  private final EpcStringCache epcStrings = new EpcStringCache();
+
+  @Test
+  public void record_tracksFirstSightingAndAggregates() {
+    TagAggregator aggregator = new TagAggregator();
+    byte[] epc = FormatUtil.hexStringToBytes("E2000017221101441890ABCD");
+
+    assertTrue(aggregator.record(epc, 0, epc.length, -60, 1, 1000));
+    assertFalse(aggregator.record(epc.clone(), 0, epc.length, -50, 2, 1200));
+    assertFalse(aggregator.record(epc, 0, epc.length, -70, 2, 1500));
+
+    List<Map<String, Object>> snapshot = aggregator.snapshot(epcStrings);
+    assertEquals(1, snapshot.size());
+    Map<String, Object> tag = snapshot.get(0);
+    assertEquals("E2000017221101441890ABCD", tag.get("epc"));
+    assertEquals(3, tag.get("count"));
+    assertEquals(1000L, tag.get("firstSeen"));
+    assertEquals(1500L, tag.get("lastSeen"));
+    assertEquals(-70, tag.get("rssiMin"));
+    assertEquals(-50, tag.get("rssiMax"));
+    assertEquals(-60.0, (Double) tag.get("rssiMean"), 0.001);
+    assertEquals(2, tag.get("antenna"));
+  }
+
+  @Test
+  public void record_growsPastInitialCapacity() {
+    TagAggregator aggregator = new TagAggregator();
+    byte[] epc = new byte[12];
+    for (int i = 0; i < 5000; i++) {
+      epc[10] = (byte) (i >> 8);
+      epc[11] = (byte) i;
+      assertTrue(aggregator.record(epc, 0, epc.length, -40, 1, i));
+    }
+    for (int i = 0; i < 5000; i++) {
+      epc[10] = (byte) (i >> 8);
+      epc[11] = (byte) i;
+      assertFalse(aggregator.record(epc, 0, epc.length, -40, 1, i));
+    }
+    assertEquals(5000, aggregator.size());
+  }
+
+  @Test
+  public void drainChanged_reportsOnlyRereadTags() {
+    TagAggregator aggregator = new TagAggregator();
+    byte[] a = {1, 2, 3, 4};
+    byte[] b = {5, 6, 7, 8};
+    aggregator.record(a, 0, 4, -40, 1, 0);
+    aggregator.record(b, 0, 4, -40, 1, 0);
+    assertNull(aggregator.drainChanged(epcStrings));
+
+    aggregator.record(b, 0, 4, -45, 1, 10);
+    List<Map<String, Object>> changed = aggregator.drainChanged(epcStrings);
+    assertEquals(1, changed.size());
+    assertEquals("05060708", changed.get(0).get("epc"));
+    assertNull(aggregator.drainChanged(epcStrings));
+  }
+}
@@ -0,0 +1,81 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class TagBatcherTest {
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+  @After
+  public void tearDown() {
+    timer.shutdownNow();
+  }
+
+  private static Map<String, Object> tag(int n) {
+    return Collections.singletonMap("epc", String.format("E2000017221101441890%04X", n));
+  }
+
+  @Test
+  public void fullBatch_flushesAtOnce() {
+    TagBatcher batcher = new TagBatcher();
+    batcher.configure(true, 100, 3);
+
+    assertEquals(TagBatcher.FLUSH_AFTER_INTERVAL, batcher.flushAction(batcher.add(tag(0))));
+    assertEquals(TagBatcher.KEEP_TIMER, batcher.flushAction(batcher.add(tag(1))));
+    assertEquals(TagBatcher.FLUSH_NOW, batcher.flushAction(batcher.add(tag(2))));
+
+    List<Map<String, Object>> batch = batcher.drain();
+    assertEquals(3, batch.size());
+    assertEquals(tag(0), batch.get(0));
+    assertEquals(tag(2), batch.get(2));
+    assertNull(batcher.drain());
+    // The next read starts a new batch
+    assertEquals(TagBatcher.FLUSH_AFTER_INTERVAL, batcher.flushAction(batcher.add(tag(3))));
+  }
+
+  @Test
+  public void partialBatch_flushesWhenTheIntervalTimerFires() throws Exception {
+    TagBatcher batcher = new TagBatcher();
+    batcher.configure(true, 40, 50);
+    CompletableFuture<List<Map<String, Object>>> flushed = new CompletableFuture<>();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      // Scheduled the way the plugin posts its flush runnable
+      if (batcher.flushAction(batcher.add(tag(i))) == TagBatcher.FLUSH_AFTER_INTERVAL) {
+        timer.schedule(() -> flushed.complete(batcher.drain()), batcher.getIntervalMs(), TimeUnit.MILLISECONDS);
+      }
+    }
+
+    List<Map<String, Object>> batch = flushed.get(5, TimeUnit.SECONDS);
+    assertTrue((System.nanoTime() - start) / 1_000_000 >= 35);
+    assertEquals(5, batch.size());
+    assertNull(batcher.drain());
+  }
+
+  @Test
+  public void configure_clampsIntervalAndMaxTags() {
+    TagBatcher batcher = new TagBatcher();
+    assertFalse(batcher.isEnabled());
+    assertEquals(TagBatcher.DEFAULT_INTERVAL_MS, batcher.getIntervalMs());
+    assertEquals(TagBatcher.DEFAULT_MAX_TAGS, batcher.getMaxTags());
+
+    batcher.configure(true, 0, -5);
+    assertTrue(batcher.isEnabled());
+    assertEquals(TagBatcher.MIN_INTERVAL_MS, batcher.getIntervalMs());
+    assertEquals(1, batcher.getMaxTags());
+    assertEquals(TagBatcher.FLUSH_NOW, batcher.flushAction(batcher.add(tag(0))));
+  }
+}
@@ -0,0 +1,133 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+public class TagJournalTest {
+  private final File dir;
+
+  public TagJournalTest() throws Exception {
+    dir = Files.createTempDirectory("journal").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = dir.listFiles();
+    if (files != null) for (File f : files) f.delete();
+    dir.delete();
+  }
+
+  private static byte[] epc(int n) {
+    return HexCodec.decode(String.format("E2000017221101441890%04X", n));
+  }
+
+  private static void append(TagJournal journal, int n, int rssi, long timestamp) {
+    byte[] epc = epc(n);
+    journal.append(epc, 0, epc.length, rssi, 1, timestamp);
+  }
+
+  private static ByteBuffer records(Map<String, Object> page) {
+    return ByteBuffer.wrap((byte[]) page.get("records")).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static byte[] epcAt(ByteBuffer records, int index) {
+    int p = index * TagJournal.RECORD_SIZE;
+    int len = records.get(p) & 0xFF;
+    return Arrays.copyOfRange(records.array(), p + 16, p + 16 + len);
+  }
+
+  @Test
+  public void readsRangesAcrossSegments() throws Exception {
+    TagJournal journal = new TagJournal(dir, 4, 16);
+    for (int i = 0; i < 10; i++) append(journal, i, -40 - i, 1000 + i);
+
+    Map<String, Object> first = journal.read(0, 6);
+    assertEquals(6, first.get("count"));
+    assertEquals(6L, first.get("nextCursor"));
+    Map<String, Object> rest = journal.read(6, 100);
+    assertEquals(4, rest.get("count"));
+    assertEquals(10L, rest.get("nextCursor"));
+
+    ByteBuffer r = records(rest);
+    assertArrayEquals(epc(6), epcAt(r, 0));
+    assertEquals(-46, r.getShort(2));
+    assertEquals(1, r.getInt(4));
+    assertEquals(1006L, r.getLong(8));
+    assertEquals(3, journal.stats().get("segments"));
+  }
+
+  @Test
+  public void reopen_continuesAfterUnsealedSegment() throws Exception {
+    TagJournal crashed = new TagJournal(dir, 8, 16);
+    for (int i = 0; i < 5; i++) append(crashed, i, -50, i);
+    // no close(): the last segment is left unsealed, as after the process is killed
+
+    TagJournal journal = new TagJournal(dir, 8, 16);
+    assertEquals(5L, journal.stats().get("nextCursor"));
+    for (int i = 5; i < 7; i++) append(journal, i, -50, i);
+
+    Map<String, Object> all = journal.read(0, 100);
+    assertEquals(7, all.get("count"));
+    assertArrayEquals(epc(6), epcAt(records(all), 6));
+  }
+
+  @Test
+  public void compact_keepsLatestReadPerEpcWithCounts() throws Exception {
+    TagJournal journal = new TagJournal(dir, 4, 16);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 3; i++) append(journal, i, -60 + round, round * 10 + i);
+    }
+
+    Map<String, Object> report = journal.compact();
+    assertEquals(9L, report.get("before"));
+    assertEquals(3L, report.get("after"));
+    append(journal, 7, -30, 99);
+
+    Map<String, Object> all = journal.read(0, 100);
+    assertEquals(4, all.get("count"));
+    ByteBuffer r = records(all);
+    assertArrayEquals(epc(0), epcAt(r, 0));
+    assertEquals(3, r.getInt(4));
+    assertEquals(-58, r.getShort(2));
+    assertEquals(20L, r.getLong(8));
+    assertArrayEquals(epc(7), epcAt(r, 3));
+    assertEquals(1, r.getInt(3 * TagJournal.RECORD_SIZE + 4));
+  }
+
+  @Test
+  public void truncate_dropsWholeSegmentsAndKeepsCursors() throws Exception {
+    TagJournal journal = new TagJournal(dir, 4, 16);
+    for (int i = 0; i < 10; i++) append(journal, i, -50, i);
+
+    assertEquals(4L, journal.truncate(6));
+    Map<String, Object> page = journal.read(0, 100);
+    assertEquals(4L, page.get("cursor"));
+    assertEquals(6, page.get("count"));
+
+    assertEquals(6L, journal.truncate(-1));
+    append(journal, 10, -50, 10);
+    page = journal.read(0, 100);
+    assertEquals(10L, page.get("cursor"));
+    assertEquals(1, page.get("count"));
+  }
+
+  @Test
+  public void full_dropsOldestSegments() throws Exception {
+    TagJournal journal = new TagJournal(dir, 4, 2);
+    for (int i = 0; i < 12; i++) append(journal, i, -50, i);
+
+    Map<String, Object> stats = journal.stats();
+    assertEquals(2, stats.get("segments"));
+    assertEquals(4L, stats.get("droppedRecords"));
+    assertEquals(4L, stats.get("firstCursor"));
+  }
+}
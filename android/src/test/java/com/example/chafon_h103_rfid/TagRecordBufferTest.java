@@ -0,0 +1,36 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+public class TagRecordBufferTest {
+  @Test
+  public void drain_packsRecordsInFixedLayout() {
+    TagRecordBuffer buffer = new TagRecordBuffer();
+    byte[] epc = FormatUtil.hexStringToBytes("E2000017221101441890ABCD");
+
+    assertEquals(1, buffer.append(epc, 0, epc.length, -61, 1, 1700000000000L));
+    assertEquals(2, buffer.append(epc, 0, epc.length, -58, 2, 1700000000005L));
+
+    ByteBuffer message = buffer.drain();
+    assertEquals(TagRecordBuffer.HEADER_SIZE + 2 * 24, message.position());
+
+    ByteBuffer in = message.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    in.flip();
+    assertEquals(TagRecordBuffer.VERSION, in.get());
+    assertEquals(2, in.getShort());
+    assertEquals(12, in.get());
+    byte[] decoded = new byte[12];
+    in.get(decoded);
+    assertEquals("E2000017221101441890ABCD", FormatUtil.bytesToHexString(decoded));
+    assertEquals(-61, in.getShort());
+    assertEquals(1, in.get());
+    assertEquals(1700000000000L, in.getLong());
+
+    assertNull(buffer.drain());
+  }
+}
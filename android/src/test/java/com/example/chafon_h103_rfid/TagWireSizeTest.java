@@ -0,0 +1,54 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertEquals;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.StandardMessageCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/** Bytes on the wire per read of a 96-bit EPC, as listed in the README. */
+public class TagWireSizeTest {
+  private static final String EPC = "E2000017221101441890ABCD";
+  private static final long TIMESTAMP = 1700000000000L;
+
+  private static Map<String, Object> read() {
+    return ChafonH103RfidPlugin.tagMap(EPC, -61, 1, TIMESTAMP, null);
+  }
+
+  private static int batchSize(int tags) {
+    List<Map<String, Object>> list = new ArrayList<>();
+    for (int i = 0; i < tags; i++) list.add(read());
+    Map<String, Object> batch = new HashMap<>();
+    batch.put("count", tags);
+    batch.put("tags", list);
+    return StandardMethodCodec.INSTANCE.encodeMethodCall(new MethodCall("onTagBatch", batch)).capacity();
+  }
+
+  @Test
+  public void onTagReadCall_is89Bytes() {
+    ByteBuffer call = StandardMethodCodec.INSTANCE.encodeMethodCall(new MethodCall("onTagRead", read()));
+    assertEquals(89, call.capacity());
+  }
+
+  @Test
+  public void batchEntry_is78Bytes() {
+    assertEquals(78, StandardMessageCodec.INSTANCE.encodeMessage(read()).capacity());
+    // What one more read adds to an onTagBatch call (list length still a one-byte size)
+    assertEquals(78, batchSize(11) - batchSize(10));
+  }
+
+  @Test
+  public void binaryRecord_is24Bytes() {
+    TagRecordBuffer buffer = new TagRecordBuffer();
+    byte[] epc = HexCodec.decode(EPC);
+    buffer.append(epc, 0, epc.length, -61, 1, TIMESTAMP);
+    buffer.append(epc, 0, epc.length, -61, 1, TIMESTAMP);
+    assertEquals(TagRecordBuffer.HEADER_SIZE + 2 * 24, buffer.drain().position());
+  }
+}
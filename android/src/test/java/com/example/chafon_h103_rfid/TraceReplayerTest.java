@@ -0,0 +1,143 @@
+package com.example.chafon_h103_rfid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cf.beans.CmdData;
+import com.cf.beans.TagInfoBean;
+import com.cf.ble.interfaces.IOnNotifyCallback;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class TraceReplayerTest {
+  private static final long MS = 1_000_000;
+
+  private final ExecutorService io = Executors.newSingleThreadExecutor();
+  private final File file;
+
+  public TraceReplayerTest() throws Exception {
+    file = Files.createTempFile("trace", ".cft").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    io.shutdownNow();
+    file.delete();
+  }
+
+  private static byte[] tagFrame(int n) {
+    byte[] epc = HexCodec.decode(String.format("E2000017221101441890%04X", n));
+    byte[] f = new byte[7 + 6 + epc.length];
+    f[0] = (byte) 0xCF;
+    f[1] = (byte) 0xFF;
+    f[3] = 0x01;
+    f[4] = (byte) (6 + epc.length);
+    f[6] = (byte) 0xFE; // rssi -50.0
+    f[7] = 0x0C;
+    f[8] = 1;
+    f[10] = (byte) epc.length;
+    System.arraycopy(epc, 0, f, 11, epc.length);
+    int crc = FrameEncoder.crc16(f, 0, f.length - 2);
+    f[f.length - 2] = (byte) (crc >> 8);
+    f[f.length - 1] = (byte) crc;
+    return f;
+  }
+
+  /** Records count tag notifications, typed then raw, spacedMs apart. */
+  private void record(int count, long spacedMs) throws Exception {
+    TraceRecorder recorder = new TraceRecorder(file, io, TraceRecorder.DEFAULT_MAX_BYTES, 0, 1234L);
+    for (int i = 0; i < count; i++) {
+      long t = i * spacedMs * MS;
+      recorder.onTyped(0x0001, t);
+      recorder.onRaw(tagFrame(i), t + 1000);
+    }
+    recorder.close();
+    io.submit(() -> {}).get(5, TimeUnit.SECONDS);
+  }
+
+  private static final class Capture implements IOnNotifyCallback {
+    final List<String> epcs = new ArrayList<>();
+    final List<byte[]> frames = new ArrayList<>();
+
+    @Override
+    public void onNotify(int cmdType, CmdData data) {
+      epcs.add(HexCodec.encode(((TagInfoBean) data.getData()).mEPCNum));
+    }
+
+    @Override
+    public void onNotify(byte[] frame) {
+      frames.add(frame);
+    }
+  }
+
+  @Test
+  public void replay_deliversTypedThenRawInRecordedOrder() throws Exception {
+    record(3000, 0);
+    TraceReplayer replayer = new TraceReplayer(file);
+    assertEquals(1234L, replayer.startWallMs());
+
+    Capture capture = new Capture();
+    Map<String, Object> summary = replayer.replay(capture, 0);
+
+    assertEquals(3000L, summary.get("rawFrames"));
+    assertEquals(3000L, summary.get("typed"));
+    assertEquals(true, summary.get("complete"));
+    for (int i = 0; i < 3000; i += 999) {
+      assertArrayEquals(tagFrame(i), capture.frames.get(i));
+      assertEquals(String.format("E2000017221101441890%04X", i), capture.epcs.get(i));
+    }
+  }
+
+  @Test
+  public void realTimeReplay_keepsRecordedSpacing() throws Exception {
+    record(6, 20);
+    Capture capture = new Capture();
+
+    long start = System.nanoTime();
+    Map<String, Object> summary = new TraceReplayer(file).replay(capture, 1.0);
+    long elapsedMs = (System.nanoTime() - start) / MS;
+    assertEquals(100L, summary.get("recordedMs"));
+    assertTrue("elapsed " + elapsedMs, elapsedMs >= 95);
+
+    start = System.nanoTime();
+    new TraceReplayer(file).replay(new Capture(), 4.0);
+    elapsedMs = (System.nanoTime() - start) / MS;
+    assertTrue("elapsed " + elapsedMs, elapsedMs >= 20 && elapsedMs < 95);
+  }
+
+  @Test
+  public void truncatedTrace_replaysUpToLastCompleteRecord() throws Exception {
+    record(10, 0);
+    try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+      f.setLength(f.length() - 5);
+    }
+    Capture capture = new Capture();
+    Map<String, Object> summary = new TraceReplayer(file).replay(capture, 0);
+    assertEquals(9L, summary.get("rawFrames"));
+    assertEquals(false, summary.get("complete"));
+  }
+
+  @Test
+  public void recording_stopsAtMaxBytes() throws Exception {
+    TraceRecorder recorder = new TraceRecorder(file, io, 1000, 0, 0);
+    for (int i = 0; i < 100; i++) recorder.onRaw(tagFrame(i), i);
+    recorder.close();
+    io.submit(() -> {}).get(5, TimeUnit.SECONDS);
+
+    Map<String, Object> stats = recorder.stats(0);
+    assertEquals(true, stats.get("truncated"));
+    assertTrue(file.length() <= 1000);
+    assertEquals(file.length(), (long) stats.get("bytes"));
+    assertEquals(stats.get("rawFrames"), new TraceReplayer(file).replay(new Capture(), 0).get("rawFrames"));
+  }
+}
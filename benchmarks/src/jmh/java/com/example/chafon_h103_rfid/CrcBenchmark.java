@@ -0,0 +1,43 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** CRC16 over one 25-byte tag frame (everything before the CRC), as checked per notify. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CrcBenchmark {
+
+    private NotifyTrace trace;
+    private int i;
+
+    @Setup
+    public void setup() {
+        trace = NotifyTrace.synthetic(200, 4096, 1, 7);
+    }
+
+    private byte[] nextFrame() {
+        byte[] frame = trace.notifications[i];
+        i = (i + 1) & 4095;
+        return frame;
+    }
+
+    @Benchmark
+    public int legacyBitwise() {
+        byte[] f = nextFrame();
+        return Legacy.calculateCRC16(f, f.length - 2);
+    }
+
+    @Benchmark
+    public int table() {
+        byte[] f = nextFrame();
+        return FrameEncoder.crc16(f, 0, f.length - 2);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Unique-EPC bookkeeping, one trace read per operation. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DedupBenchmark {
+
+    @Param({"50", "1000"})
+    int population;
+
+    private NotifyTrace trace;
+    private TagAggregator aggregator;
+    private Map<String, int[]> stringMap;
+    private int i;
+
+    @Setup
+    public void setupTrace() {
+        trace = NotifyTrace.synthetic(population, 8192, 1, 5);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        aggregator = new TagAggregator();
+        stringMap = new HashMap<>();
+    }
+
+    /** Hex String key + HashMap, the usual app-side approach. */
+    @Benchmark
+    public boolean hashMapByHexString() {
+        int n = i;
+        i = (i + 1) & 8191;
+        String epc = HexCodec.encode(trace.epcs[n]);
+        int[] stats = stringMap.get(epc);
+        if (stats == null) {
+            stringMap.put(epc, new int[] {1, trace.rssi[n]});
+            return true;
+        }
+        stats[0]++;
+        stats[1] = trace.rssi[n];
+        return false;
+    }
+
+    @Benchmark
+    public boolean tagAggregator() {
+        int n = i;
+        i = (i + 1) & 8191;
+        byte[] epc = trace.epcs[n];
+        return aggregator.record(epc, 0, epc.length, trace.rssi[n], 1, n);
+    }
+}
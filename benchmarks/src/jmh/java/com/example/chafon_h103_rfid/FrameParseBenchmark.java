@@ -0,0 +1,83 @@
+package com.example.chafon_h103_rfid;
+
+import com.cf.beans.TagInfoBean;
+import com.cf.zsdk.cmd.CmdHandler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replays a notify trace (1024 notifications per invocation) through the frame parsers.
+ * Scores are notifications/s; divide gc.alloc.rate.norm by 1024 for bytes per notify.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FrameParseBenchmark {
+
+    private static final int NOTIFIES = 1024;
+
+    private NotifyTrace single;
+    private NotifyTrace packed;
+    private RawFrameDecoder decoder;
+    private Blackhole sink;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        single = NotifyTrace.synthetic(200, NOTIFIES, 1, 1);
+        packed = NotifyTrace.synthetic(200, NOTIFIES * 3, 3, 1);
+        sink = blackhole;
+        decoder = new RawFrameDecoder((buf, off, len, rssi, antenna, channel) -> {
+            sink.consume(buf[off + len - 1]);
+            sink.consume(rssi);
+        });
+    }
+
+    /** What BleCore does for every notify: type lookup + TagInfoBean with a fresh EPC array. */
+    @Benchmark
+    @OperationsPerInvocation(NOTIFIES)
+    public void sdkTagInfoBean(Blackhole bh) {
+        for (byte[] n : single.notifications) {
+            if (CmdHandler.getCmdType(n) == 0x0001) {
+                TagInfoBean bean = CmdHandler.handleInventoryISOContinue(n);
+                bh.consume(bean.mEPCNum);
+                bh.consume(bean.mRSSI);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NOTIFIES)
+    public void rawDecoder() {
+        for (byte[] n : single.notifications) {
+            decoder.feed(n, 0, n.length);
+        }
+    }
+
+    /** Three frames per notification. */
+    @Benchmark
+    @OperationsPerInvocation(NOTIFIES)
+    public void rawDecoderPacked() {
+        for (byte[] n : packed.notifications) {
+            decoder.feed(n, 0, n.length);
+        }
+    }
+
+    /** Each notification split in two; exercises the carry-over path. */
+    @Benchmark
+    @OperationsPerInvocation(NOTIFIES)
+    public void rawDecoderSplit() {
+        for (byte[] n : single.notifications) {
+            int half = n.length / 2;
+            decoder.feed(n, 0, half);
+            decoder.feed(n, half, n.length - half);
+        }
+    }
+}
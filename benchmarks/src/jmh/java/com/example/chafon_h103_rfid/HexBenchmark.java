@@ -0,0 +1,52 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** EPC bytes -> hex String, one trace read per operation. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HexBenchmark {
+
+    @Param({"50", "1000"})
+    int population;
+
+    private NotifyTrace trace;
+    private EpcStringCache cache;
+    private int i;
+
+    @Setup
+    public void setup() {
+        trace = NotifyTrace.synthetic(population, 8192, 1, 42);
+        cache = new EpcStringCache();
+    }
+
+    private byte[] nextEpc() {
+        byte[] epc = trace.epcs[i];
+        i = (i + 1) & 8191;
+        return epc;
+    }
+
+    @Benchmark
+    public String legacyStringFormat() {
+        return Legacy.bytesToHex(nextEpc());
+    }
+
+    @Benchmark
+    public String hexCodec() {
+        return HexCodec.encode(nextEpc());
+    }
+
+    @Benchmark
+    public String epcStringCache() {
+        return cache.get(nextEpc());
+    }
+}
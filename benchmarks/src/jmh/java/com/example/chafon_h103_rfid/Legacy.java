@@ -0,0 +1,33 @@
+package com.example.chafon_h103_rfid;
+
+/**
+ * The per-tag code as it was before the hot-path work, kept as benchmark baselines.
+ */
+final class Legacy {
+
+    private Legacy() {}
+
+    static String bytesToHex(byte[] bytes) {
+        if (bytes == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
+    static int calculateCRC16(byte[] data, int length) {
+        int crc = 0xFFFF;
+        for (int i = 0; i < length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int j = 0; j < 8; j++) {
+                if ((crc & 0x0001) != 0) {
+                    crc = (crc >> 1) ^ 0x8408;
+                } else {
+                    crc >>= 1;
+                }
+            }
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.chafon_h103_rfid;
+
+import java.util.Random;
+
+/**
+ * A notify stream to replay through the hot paths: the notifications exactly as BleCore
+ * hands them to onNotify(byte[]), plus the decoded reads for benchmarks that start later
+ * in the pipeline.
+ *
+ * The synthetic trace models a continuous inventory: a population of 96-bit EPCs read
+ * in random order (a few tags dominate, as with tags close to the antenna), RSSI between
+ * -40 and -80 dBm, and optionally several frames packed into one notification.
+ */
+final class NotifyTrace {
+
+    final byte[][] notifications;
+    final byte[][] epcs;   // per read
+    final int[] rssi;      // per read
+    final int reads;
+    final long bytes;
+
+    private NotifyTrace(byte[][] notifications, byte[][] epcs, int[] rssi, long bytes) {
+        this.notifications = notifications;
+        this.epcs = epcs;
+        this.rssi = rssi;
+        this.reads = epcs.length;
+        this.bytes = bytes;
+    }
+
+    static NotifyTrace synthetic(int population, int reads, int framesPerNotify, long seed) {
+        Random random = new Random(seed);
+        byte[][] tags = new byte[population][];
+        for (int i = 0; i < population; i++) {
+            byte[] epc = new byte[12];
+            random.nextBytes(epc);
+            epc[0] = (byte) 0xE2;
+            tags[i] = epc;
+        }
+
+        byte[][] epcs = new byte[reads][];
+        int[] rssi = new int[reads];
+        int notifyCount = (reads + framesPerNotify - 1) / framesPerNotify;
+        byte[][] notifications = new byte[notifyCount][];
+        long bytes = 0;
+
+        int read = 0;
+        for (int n = 0; n < notifyCount; n++) {
+            int frames = Math.min(framesPerNotify, reads - read);
+            byte[] notify = new byte[frames * frameSize(12)];
+            int p = 0;
+            for (int f = 0; f < frames; f++, read++) {
+                // Squared uniform: low indices are read far more often
+                double u = random.nextDouble();
+                byte[] epc = tags[(int) (u * u * population)];
+                int dbm = -40 - random.nextInt(41);
+                epcs[read] = epc;
+                rssi[read] = dbm;
+                p = writeTagFrame(notify, p, epc, dbm * 10, 1, random.nextInt(50));
+            }
+            notifications[n] = notify;
+            bytes += notify.length;
+        }
+        return new NotifyTrace(notifications, epcs, rssi, bytes);
+    }
+
+    static int frameSize(int epcLength) {
+        return RawFrameDecoder.HEADER_SIZE + 6 + epcLength + RawFrameDecoder.CRC_SIZE;
+    }
+
+    // CMD 0x0001 tag frame, as sent by the reader during continuous inventory
+    static int writeTagFrame(byte[] out, int p, byte[] epc, int rssiTimesTen, int antenna, int channel) {
+        int start = p;
+        int dataLen = 6 + epc.length;
+        out[p++] = (byte) 0xCF;
+        out[p++] = (byte) 0xFF;
+        out[p++] = 0x00;
+        out[p++] = 0x01;
+        out[p++] = (byte) dataLen;
+        out[p++] = 0x00;
+        out[p++] = (byte) (rssiTimesTen >> 8);
+        out[p++] = (byte) rssiTimesTen;
+        out[p++] = (byte) antenna;
+        out[p++] = (byte) channel;
+        out[p++] = (byte) epc.length;
+        System.arraycopy(epc, 0, out, p, epc.length);
+        p += epc.length;
+        int crc = FrameEncoder.crc16(out, start, p - start);
+        out[p++] = (byte) (crc >> 8);
+        out[p++] = (byte) crc;
+        return p;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.chafon_h103_rfid;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Per-read message construction for Dart, one trace read per operation. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TagDeliveryBenchmark {
+
+    private NotifyTrace trace;
+    private EpcStringCache cache;
+    private TagRecordBuffer records;
+    private int i;
+
+    @Setup
+    public void setup() {
+        trace = NotifyTrace.synthetic(200, 8192, 1, 3);
+        cache = new EpcStringCache();
+        records = new TagRecordBuffer();
+    }
+
+    /** The original onTagRead map: String.format hex + boxed values. */
+    @Benchmark
+    public Map<String, Object> legacyTagMap() {
+        int n = i;
+        i = (i + 1) & 8191;
+        Map<String, Object> tagMap = new HashMap<>();
+        tagMap.put("epc", Legacy.bytesToHex(trace.epcs[n]));
+        tagMap.put("rssi", trace.rssi[n]);
+        tagMap.put("antenna", 1);
+        tagMap.put("timestamp", System.currentTimeMillis());
+        return tagMap;
+    }
+
+    @Benchmark
+    public Map<String, Object> cachedTagMap() {
+        int n = i;
+        i = (i + 1) & 8191;
+        Map<String, Object> tagMap = new HashMap<>();
+        tagMap.put("epc", cache.get(trace.epcs[n]));
+        tagMap.put("rssi", trace.rssi[n]);
+        tagMap.put("antenna", 1);
+        tagMap.put("timestamp", System.currentTimeMillis());
+        return tagMap;
+    }
+
+    /** Binary record append; drained every 50 reads like a default batch. */
+    @Benchmark
+    public ByteBuffer binaryRecord() {
+        int n = i;
+        i = (i + 1) & 8191;
+        byte[] epc = trace.epcs[n];
+        int buffered = records.append(epc, 0, epc.length, trace.rssi[n], 1, System.currentTimeMillis());
+        return buffered >= 50 ? records.drain() : null;
+    }
+}
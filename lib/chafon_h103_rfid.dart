@@ -1,27 +1,90 @@
+import 'dart:async';
+
 import 'package:flutter/services.dart';
 import 'package:flutter/material.dart';
 
+import 'chafon_h103_rfid_method_channel.dart' show TagRead, TagJournalCodec;
+import 'chafon_h103_rfid_platform_interface.dart';
+
+export 'chafon_h103_rfid_method_channel.dart' show TagRead, TagRecordCodec, TagJournalCodec;
+
 class ChafonH103RfidService {
   static const MethodChannel _channel = MethodChannel('chafon_h103_rfid');
 
+  static StreamSubscription<List<TagRead>>? _tagReadsSub;
+
+  static const EventChannel _tagEventChannel = EventChannel('chafon_h103_rfid/tag_events');
+  static const EventChannel _radarEventChannel = EventChannel('chafon_h103_rfid/radar_events');
+  static const EventChannel _batteryEventChannel = EventChannel('chafon_h103_rfid/battery_events');
+
+  /// Tag reads as a stream fed from a bounded native queue.
+  /// While listened to, it replaces the per-read onTagRead callback.
+  static Stream<Map<String, dynamic>> get tagEvents => _tagEventChannel
+      .receiveBroadcastStream()
+      .map((event) => Map<String, dynamic>.from(event));
+
+  /// Radar signals ({epc, rssi}); replaces onRadarSignal while listened to.
+  static Stream<Map<String, dynamic>> get radarEvents => _radarEventChannel
+      .receiveBroadcastStream()
+      .map((event) => Map<String, dynamic>.from(event));
+
+  /// Battery levels ({level}); replaces onBatteryLevel while listened to.
+  static Stream<Map<String, dynamic>> get batteryEvents => _batteryEventChannel
+      .receiveBroadcastStream()
+      .map((event) => Map<String, dynamic>.from(event));
+
   /// Stream events for data coming from the device:
   static void initCallbacks({
     Function(Map<String, dynamic>)? onTagRead,
+    Function(Map<String, dynamic>)? onTagBatch,
+    Function(Map<String, dynamic>)? onInventoryDelta,
     Function(Map<String, dynamic>)? onTagReadSingle,
     Function(Map<String, dynamic>)? onRadarResult,
     Function(Map<String, dynamic>)? onBatteryLevel,
     Function()? onBatteryTimeout,
     Function(Map<String, dynamic>)? onReadError,
     Function()? onDisconnected,
+    Function(Map<String, dynamic>)? onReaderDisconnected,
+    Function(Map<String, dynamic>)? onReconnecting,
+    Function(Map<String, dynamic>)? onReconnected,
+    Function(Map<String, dynamic>)? onReconnectFailed,
+    Function(Map<String, dynamic>)? onLinkTuned,
+    Function(Map<String, dynamic>)? onBulkWriteProgress,
+    Function(Map<String, dynamic>)? onQAdjust,
     Function(Map<String, dynamic>)? onDeviceFound,
+    Function(Map<String, dynamic>)? onScanBatch,
     Function()? onFlashSaved,
     Function(String)? onScanError,
+    Function(List<TagRead>)? onTagRecords,
   }) {
+    _tagReadsSub?.cancel();
+    _tagReadsSub = onTagRecords == null
+        ? null
+        : ChafonH103RfidPlatform.instance.tagReads.listen(onTagRecords);
+
     _channel.setMethodCallHandler((call) async {
       switch (call.method) {
         case 'onTagRead':
           if (onTagRead != null) onTagRead(Map<String, dynamic>.from(call.arguments));
           break;
+        case 'onTagBatch':
+          if (onTagBatch != null) {
+            final batch = Map<String, dynamic>.from(call.arguments);
+            batch['tags'] = (batch['tags'] as List)
+                .map((tag) => Map<String, dynamic>.from(tag))
+                .toList();
+            onTagBatch(batch);
+          }
+          break;
+        case 'onInventoryDelta':
+          if (onInventoryDelta != null) {
+            final delta = Map<String, dynamic>.from(call.arguments);
+            delta['tags'] = (delta['tags'] as List)
+                .map((tag) => Map<String, dynamic>.from(tag))
+                .toList();
+            onInventoryDelta(delta);
+          }
+          break;
         case 'onTagReadSingle':
           if (onTagReadSingle != null) onTagReadSingle(Map<String, dynamic>.from(call.arguments));
           break;
@@ -40,9 +103,33 @@ class ChafonH103RfidService {
         case 'onDisconnected':
           if (onDisconnected != null) onDisconnected();
           break;
+        case 'onReaderDisconnected':
+          if (onReaderDisconnected != null) onReaderDisconnected(Map<String, dynamic>.from(call.arguments));
+          break;
+        case 'onReconnecting':
+          if (onReconnecting != null) onReconnecting(Map<String, dynamic>.from(call.arguments));
+          break;
+        case 'onReconnected':
+          if (onReconnected != null) onReconnected(Map<String, dynamic>.from(call.arguments));
+          break;
+        case 'onReconnectFailed':
+          if (onReconnectFailed != null) onReconnectFailed(Map<String, dynamic>.from(call.arguments));
+          break;
+        case 'onLinkTuned':
+          if (onLinkTuned != null) onLinkTuned(Map<String, dynamic>.from(call.arguments));
+          break;
+        case 'onBulkWriteProgress':
+          if (onBulkWriteProgress != null) onBulkWriteProgress(Map<String, dynamic>.from(call.arguments));
+          break;
+        case 'onQAdjust':
+          if (onQAdjust != null) onQAdjust(Map<String, dynamic>.from(call.arguments));
+          break;
         case 'onDeviceFound':
           if (onDeviceFound != null) onDeviceFound(Map<String, dynamic>.from(call.arguments));
           break;
+        case 'onScanBatch':
+          if (onScanBatch != null) onScanBatch(Map<String, dynamic>.from(call.arguments));
+          break;
         case 'onFlashSaved':
           if (onFlashSaved != null) onFlashSaved();
           break;
@@ -65,20 +152,93 @@ class ChafonH103RfidService {
     return await _channel.invokeMethod<String>('getPlatformVersion');
   }
 
-  static Future<String?> getBatteryLevel() async {
-    return await _channel.invokeMethod<String>('getBatteryLevel');
+  static Future<String?> getBatteryLevel({String? address}) async {
+    return await _channel.invokeMethod<String>('getBatteryLevel', {
+      if (address != null) 'address': address,
+    });
+  }
+
+  /// Starts a BLE scan. [filter] is 'none' (default), 'service' (advertises
+  /// the reader service), 'name' (name matches [namePattern], default
+  /// `(?i)h103`) or 'h103' (either). Without [batchIntervalMs] each new device
+  /// is reported once via onDeviceFound; with it, onScanBatch delivers
+  /// {devices, lost, total} at that interval, with each device's RSSI updated at
+  /// most every [rssiIntervalMs]. Devices not seen for [ttlMs] are dropped and,
+  /// beyond [maxDevices], the least recently seen.
+  static Future<String?> startScan({
+    String? filter,
+    String? namePattern,
+    int? batchIntervalMs,
+    int? rssiIntervalMs,
+    int? ttlMs,
+    int? maxDevices,
+  }) async {
+    return await _channel.invokeMethod<String>('startScan', {
+      if (filter != null) 'filter': filter,
+      if (namePattern != null) 'namePattern': namePattern,
+      if (batchIntervalMs != null) 'batchIntervalMs': batchIntervalMs,
+      if (rssiIntervalMs != null) 'rssiIntervalMs': rssiIntervalMs,
+      if (ttlMs != null) 'ttlMs': ttlMs,
+      if (maxDevices != null) 'maxDevices': maxDevices,
+    });
   }
 
-  static Future<String?> startScan() async {
-    return await _channel.invokeMethod<String>('startScan');
+  /// Device cache size, sightings, evictions and advertisements rejected by the filter.
+  static Future<Map<String, dynamic>> getScanStats() async {
+    final result = await _channel.invokeMethod<Map>('getScanStats');
+    return Map<String, dynamic>.from(result ?? {});
   }
 
   static Future<String?> stopScan() async {
     return await _channel.invokeMethod<String>('stopScan');
   }
 
-  static Future<bool?> connect(String address) async {
-    return await _channel.invokeMethod<bool>('connect', {'address': address});
+  /// Connects by MAC address; a scan is not needed for readers that are in
+  /// range (see [getKnownReaders]). Completes once notifications are confirmed.
+  /// With [autoReconnect] an unexpected drop is followed by up to
+  /// [reconnectMaxAttempts] attempts with backoff from [reconnectInitialMs]
+  /// doubling to [reconnectMaxMs]; parameters and a running inventory or radar
+  /// mode are restored (onReconnecting / onReconnected / onReconnectFailed).
+  ///
+  /// The MTU is negotiated (512 requested) while connecting. Once connected the
+  /// connection priority is set per [linkProfile]: 'throughput' (default, high),
+  /// 'balanced' (for battery-sensitive shifts), 'lowPower' or 'none' (left as is).
+  /// [connectionPriority] ('high' | 'balanced' | 'lowPower') overrides the
+  /// profile; [mtu] requests a different MTU afterwards. The outcome is reported
+  /// by onLinkTuned and [getLinkStats].
+  static Future<bool?> connect(
+    String address, {
+    bool autoReconnect = true,
+    int? reconnectMaxAttempts,
+    int? reconnectInitialMs,
+    int? reconnectMaxMs,
+    String? linkProfile,
+    int? mtu,
+    String? connectionPriority,
+  }) async {
+    return await _channel.invokeMethod<bool>('connect', {
+      'address': address,
+      'autoReconnect': autoReconnect,
+      if (reconnectMaxAttempts != null) 'reconnectMaxAttempts': reconnectMaxAttempts,
+      if (reconnectInitialMs != null) 'reconnectInitialMs': reconnectInitialMs,
+      if (reconnectMaxMs != null) 'reconnectMaxMs': reconnectMaxMs,
+      if (linkProfile != null) 'linkProfile': linkProfile,
+      if (mtu != null) 'mtu': mtu,
+      if (connectionPriority != null) 'connectionPriority': connectionPriority,
+    });
+  }
+
+  /// Readers connected before, most recent first: {address, name, lastConnected}.
+  static Future<List<Map<String, dynamic>>> getKnownReaders() async {
+    final result = await _channel.invokeMethod<List>('getKnownReaders');
+    return result?.map((r) => Map<String, dynamic>.from(r as Map)).toList() ?? [];
+  }
+
+  /// Removes [address] from the known readers, or all of them when null.
+  static Future<bool?> forgetReader([String? address]) async {
+    return await _channel.invokeMethod<bool>('forgetReader', {
+      if (address != null) 'address': address,
+    });
   }
 
   static Future<bool?> isConnected() async {
@@ -95,7 +255,9 @@ class ChafonH103RfidService {
   }
 
   /// NEW: Simple API that only writes power (native: setOnlyOutputPower)
-  /// [saveToFlash]=true -> saves to FLASH, [resumeInventory]=true -> resumes inventory if it was running
+  /// Inventory keeps running; nothing is sent if the power is unchanged.
+  /// [saveToFlash]=true -> saved to FLASH once the reader is idle (onFlashSaved).
+  /// [resumeInventory] is kept for compatibility and has no effect.
   static Future<String?> setOnlyOutputPower({
     required int power,
     bool saveToFlash = true,
@@ -113,7 +275,7 @@ class ChafonH103RfidService {
       debugPrint(
         'setOnlyOutputPower: $res (p=$p save=$saveToFlash resume=$resumeInventory region=$region)',
       );
-      return res; // "ok" | "flash_saved"
+      return res; // "ok"
     } catch (e) {
       debugPrint('setOnlyOutputPower error: $e');
       return null;
@@ -137,15 +299,27 @@ class ChafonH103RfidService {
         'session': session,
       });
       debugPrint('sendAndSaveAllParams: $result (p=$p region=$region q=$qValue s=$session)');
-      return result; // "flash_saved" etc.
+      return result; // "ok"; the FLASH save follows via onFlashSaved
     } catch (e) {
       debugPrint('sendAndSaveAllParams error: $e');
       return null;
     }
   }
 
-  static Future<String?> startInventory() async {
-    return await _channel.invokeMethod<String>('startInventory');
+  /// [address] selects a reader connected with [connectReader]; default is the primary one.
+  /// [epcMask] (hex) sets a reader-side filter first, as [setInventoryFilter] does.
+  static Future<String?> startInventory({
+    String? address,
+    String? epcMask,
+    int bitPointer = 0,
+    int? bitLength,
+  }) async {
+    return await _channel.invokeMethod<String>('startInventory', {
+      if (address != null) 'address': address,
+      if (epcMask != null) 'mask': epcMask,
+      if (epcMask != null) 'bitPointer': bitPointer,
+      if (bitLength != null) 'bitLength': bitLength,
+    });
   }
 
   /// NOTE: If 'startInventoryWithBank' is not available on the native side, use this.
@@ -157,8 +331,10 @@ class ChafonH103RfidService {
     });
   }
 
-  static Future<String?> stopInventory() async {
-    return await _channel.invokeMethod<String>('stopInventory');
+  static Future<String?> stopInventory({String? address}) async {
+    return await _channel.invokeMethod<String>('stopInventory', {
+      if (address != null) 'address': address,
+    });
   }
 
   /// Read EPC (default EPC bank: 0x01). Use the parameterized version if needed.
@@ -171,8 +347,586 @@ class ChafonH103RfidService {
     return await _channel.invokeMethod<String>('readSingleTag', {'memoryBank': memBank});
   }
 
+  /// Reads [wordCount] words at [wordPtr] of [bank] (0 reserved, 1 EPC, 2 TID, 3 USER)
+  /// from every tag in [epcs] in one native batch. Each tag is isolated with a Select
+  /// on its EPC; ranges above [chunkWords] are read in chunks and failed tags are
+  /// retried up to [retries] times. Returns `results` (EPC -> {data} or {error,
+  /// message}, plus attempts), succeeded, failed, elapsedMs and tagsPerSecond.
+  static Future<Map<String, dynamic>> readTagsBulk(
+    List<String> epcs, {
+    int bank = 0x02,
+    int wordPtr = 0,
+    int wordCount = 6,
+    String password = '00000000',
+    int? chunkWords,
+    int? retries,
+    int? timeoutMs,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('readTagsBulk', {
+      'epcs': epcs,
+      'bank': bank,
+      'wordPtr': wordPtr,
+      'wordCount': wordCount,
+      'password': password,
+      if (chunkWords != null) 'chunkWords': chunkWords,
+      if (retries != null) 'retries': retries,
+      if (timeoutMs != null) 'timeoutMs': timeoutMs,
+      if (address != null) 'address': address,
+    });
+    if (result == null) return {};
+    final report = Map<String, dynamic>.from(result);
+    report['results'] = (report['results'] as Map).map((epc, r) =>
+        MapEntry(epc.toString(), Map<String, dynamic>.from(r as Map)));
+    return report;
+  }
+
+  /// Writes each job's hex `data` to the tag with EPC `target` at `bank` (default
+  /// 3, USER) / `wordPtr`, with optional `password`, and reads every write back.
+  /// Writes to the EPC (bank 1, from word 2) are verified against the new EPC.
+  /// Nothing is written when a job's Select is not acknowledged, and a read-back
+  /// answered by another tag fails with WRONG_TAG. Malformed hex in `target`,
+  /// `data` or `password` rejects the call with INVALID_ARGUMENT. Failed jobs are retried up to [retries] times; with [retryPower] the retries
+  /// run at that power (RAM only, restored afterwards; needs getAllDeviceConfig
+  /// first). Progress arrives via onBulkWriteProgress every [progressEvery] jobs.
+  /// Returns `results` (one {target, epc?, ok, error?, message?, attempts} per
+  /// job), succeeded, failed, passes, powerChanged, elapsedMs and tagsPerSecond.
+  static Future<Map<String, dynamic>> writeTagsBulk(
+    List<Map<String, dynamic>> jobs, {
+    int? chunkWords,
+    int? retries,
+    int? timeoutMs,
+    int? retryPower,
+    int? progressEvery,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('writeTagsBulk', {
+      'jobs': jobs,
+      if (chunkWords != null) 'chunkWords': chunkWords,
+      if (retries != null) 'retries': retries,
+      if (timeoutMs != null) 'timeoutMs': timeoutMs,
+      if (retryPower != null) 'retryPower': retryPower,
+      if (progressEvery != null) 'progressEvery': progressEvery,
+      if (address != null) 'address': address,
+    });
+    if (result == null) return {};
+    final report = Map<String, dynamic>.from(result);
+    report['results'] = (report['results'] as List)
+        .map((r) => Map<String, dynamic>.from(r as Map))
+        .toList();
+    return report;
+  }
+
+  /// Programs a Gen2 Select on the reader so only tags whose EPC matches [mask]
+  /// (hex) at [bitPointer] answer; applied now and before every inventory start.
+  /// The H103 select command only matches the EPC bank ([bank] must be 'epc').
+  /// Filtered and unfiltered read rates are reported by [getReaders].
+  static Future<Map<String, dynamic>> setInventoryFilter({
+    required String mask,
+    String bank = 'epc',
+    int bitPointer = 0,
+    int? bitLength,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('setInventoryFilter', {
+      'mask': mask,
+      'bank': bank,
+      'bitPointer': bitPointer,
+      if (bitLength != null) 'bitLength': bitLength,
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  static Future<void> clearInventoryFilter({String? address}) async {
+    await _channel.invokeMethod('clearInventoryFilter', {
+      if (address != null) 'address': address,
+    });
+  }
+
+  /// Connects an additional reader next to the primary one. Reads then carry a
+  /// `reader` key with the MAC address of the reader that produced them.
+  /// As [connect], for an additional reader.
+  static Future<bool?> connectReader(
+    String address, {
+    bool autoReconnect = true,
+    int? reconnectMaxAttempts,
+    int? reconnectInitialMs,
+    int? reconnectMaxMs,
+    String? linkProfile,
+    int? mtu,
+    String? connectionPriority,
+  }) async {
+    return await _channel.invokeMethod<bool>('connectReader', {
+      'address': address,
+      'autoReconnect': autoReconnect,
+      if (reconnectMaxAttempts != null) 'reconnectMaxAttempts': reconnectMaxAttempts,
+      if (reconnectInitialMs != null) 'reconnectInitialMs': reconnectInitialMs,
+      if (reconnectMaxMs != null) 'reconnectMaxMs': reconnectMaxMs,
+      if (linkProfile != null) 'linkProfile': linkProfile,
+      if (mtu != null) 'mtu': mtu,
+      if (connectionPriority != null) 'connectionPriority': connectionPriority,
+    });
+  }
+
+  static Future<bool?> disconnectReader(String address) async {
+    return await _channel.invokeMethod<bool>('disconnectReader', {'address': address});
+  }
+
+  /// Per-reader state and counters: address, primary, ready, inventoryRunning,
+  /// readsTotal, readsPerSecond, notificationsPerSecond, notifyBytesPerSecond, commandQueue,
+  /// params, autoReconnect, reconnects, connectToFirstTagMs, link (see [getLinkStats]).
+  static Future<List<Map<String, dynamic>>> getReaders() async {
+    final result = await _channel.invokeMethod<List>('getReaders');
+    return result?.map((r) => Map<String, dynamic>.from(r as Map)).toList() ?? [];
+  }
+
+  /// Link settings and notify throughput of a reader (default: the primary one):
+  /// profile, requestedMtu, requestedPriority, mtuRequested, priorityRequested,
+  /// mtu (null where the platform does not report it), effectiveMtu (at least
+  /// the largest notification plus the ATT header), notificationsPerSecond,
+  /// notifyBytesPerSecond, framesPerSecond, bytesPerNotification,
+  /// largestNotifyBytes and totals.
+  static Future<Map<String, dynamic>> getLinkStats({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('getLinkStats', {
+      if (address != null) 'address': address,
+    });
+    return Map<String, dynamic>.from(result ?? {});
+  }
+
+  /// Sets capacity and overflow policy of a native event queue.
+  /// [stream]: 'tag' | 'radar' | 'battery'; [policy]: 'dropOldest' | 'dropNewest' | 'coalesceByEpc'
+  static Future<Map<String, dynamic>> configureEventQueue({
+    String stream = 'tag',
+    int? capacity,
+    String? policy,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('configureEventQueue', {
+      'stream': stream,
+      if (capacity != null) 'capacity': capacity,
+      if (policy != null) 'policy': policy,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Per-stream counters: enqueued, delivered, dropped, coalesced, queued, highWater.
+  static Future<Map<String, Map<String, dynamic>>> getEventQueueStats() async {
+    final result = await _channel.invokeMethod<Map>('getEventQueueStats');
+    return result?.map((key, value) =>
+            MapEntry(key.toString(), Map<String, dynamic>.from(value as Map))) ??
+        {};
+  }
+
+  /// Turns read-path latency instrumentation on or off (off by default).
+  static Future<bool?> setMetricsEnabled(bool enabled, {bool reset = false}) async {
+    return await _channel.invokeMethod<bool>('setMetricsEnabled', {'enabled': enabled, 'reset': reset});
+  }
+
+  /// Latency per stage in microseconds (count, p50, p90, p99, max, mean) under `stages`:
+  /// decode, post, channel, endToEnd, radar, commandRtt, connectToFirstTag; plus readsTotal and readsPerSecond.
+  static Future<Map<String, dynamic>> getMetrics() async {
+    final result = await _channel.invokeMethod<Map>('getMetrics');
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  static Future<bool?> resetMetrics() async {
+    return await _channel.invokeMethod<bool>('resetMetrics');
+  }
+
+  /// Decodes inventory frames natively from the raw notify bytes (CRC-checked, packed and
+  /// split notifications handled) instead of going through the SDK's per-tag beans.
+  /// Applies to every connected reader. Frames split across notifications are joined for
+  /// additional readers only: the SDK behind the primary reader drops continuation
+  /// notifications. It negotiates a 512-byte MTU, so frames normally arrive whole.
+  static Future<String?> setRawFrameDecoding(bool enabled) async {
+    return await _channel.invokeMethod<String>('setRawFrameDecoding', {'enabled': enabled});
+  }
+
+  /// Raw decoder counters of a reader (default: the primary one): frames, tags,
+  /// crcErrors, skippedBytes, reassembled.
+  static Future<Map<String, dynamic>> getFrameDecoderStats({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('getFrameDecoderStats', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Tunes a reader's native command queue (default: the primary reader). [inFlightDepth]
+  /// is how many commands may await a response at once (commands with the same
+  /// response code are always serialized).
+  static Future<Map<String, dynamic>> configureCommandQueue({
+    int? inFlightDepth,
+    int? writeAttempts,
+    int? retryBackoffMs,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('configureCommandQueue', {
+      if (address != null) 'address': address,
+      if (inFlightDepth != null) 'inFlightDepth': inFlightDepth,
+      if (writeAttempts != null) 'writeAttempts': writeAttempts,
+      if (retryBackoffMs != null) 'retryBackoffMs': retryBackoffMs,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Command queue counters of a reader (default: the primary one): queued,
+  /// inFlight, maxInFlight, completed, timedOut, failed.
+  static Future<Map<String, dynamic>> getCommandQueueStats({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('getCommandQueueStats', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Replaces the BLE link with an in-process simulated H103 for load testing
+  /// without a reader: [tags] EPCs read at [readsPerSecond] during inventory,
+  /// commands answered after [ackLatencyMs] (+ up to [ackJitterMs]) and lost
+  /// with probability [ackLoss]. Returns the address to pass to [connect].
+  /// Only while no reader is connected; `enabled: false` switches back to BLE.
+  static Future<String?> useSimulatedReader({
+    bool enabled = true,
+    int? tags,
+    int? readsPerSecond,
+    int? ackLatencyMs,
+    int? ackJitterMs,
+    double? ackLoss,
+    int? connectLatencyMs,
+    int? battery,
+    int? seed,
+  }) async {
+    return await _channel.invokeMethod<String>('useSimulatedReader', {
+      'enabled': enabled,
+      if (tags != null) 'tags': tags,
+      if (readsPerSecond != null) 'readsPerSecond': readsPerSecond,
+      if (ackLatencyMs != null) 'ackLatencyMs': ackLatencyMs,
+      if (ackJitterMs != null) 'ackJitterMs': ackJitterMs,
+      if (ackLoss != null) 'ackLoss': ackLoss,
+      if (connectLatencyMs != null) 'connectLatencyMs': connectLatencyMs,
+      if (battery != null) 'battery': battery,
+      if (seed != null) 'seed': seed,
+    });
+  }
+
+  /// Commands, answers, lost answers and tag reads of the simulated reader, or null.
+  static Future<Map<String, dynamic>?> getSimulatedReaderStats() async {
+    final result = await _channel.invokeMethod<Map>('getSimulatedReaderStats');
+    return result == null ? null : Map<String, dynamic>.from(result);
+  }
+
+  /// Binary transport: reads arrive as typed [TagRead] lists through onTagRecords
+  /// instead of onTagRead/onTagBatch maps. Works together with [setTagBatching].
+  static Future<String?> setTagTransport({required bool binary}) async {
+    return await _channel.invokeMethod<String>('setTagTransport', {'binary': binary});
+  }
+
+  /// Batched delivery: reads arrive through onTagBatch ({count, tags}) instead of onTagRead.
+  /// A batch is flushed every [intervalMs] or as soon as it holds [maxTags] reads.
+  static Future<String?> setTagBatching({
+    required bool enabled,
+    int intervalMs = 100,
+    int maxTags = 50,
+  }) async {
+    return await _channel.invokeMethod<String>('setTagBatching', {
+      'enabled': enabled,
+      'intervalMs': intervalMs,
+      'maxTags': maxTags,
+    });
+  }
+
+  /// Inventory mode: 'raw' forwards every read, 'unique' forwards only first sightings
+  /// and reports re-reads through onInventoryDelta every [deltaIntervalMs].
+  static Future<String?> setInventoryMode({
+    required String mode,
+    int deltaIntervalMs = 1000,
+  }) async {
+    return await _channel.invokeMethod<String>('setInventoryMode', {
+      'mode': mode,
+      'deltaIntervalMs': deltaIntervalMs,
+    });
+  }
+
+  /// Per-EPC aggregates collected natively
+  /// (epc, count, firstSeen, lastSeen, rssiMin, rssiMax, rssiMean, antenna).
+  static Future<List<Map<String, dynamic>>> getInventorySnapshot() async {
+    final result = await _channel.invokeMethod<List>('getInventorySnapshot');
+    return result?.map((tag) => Map<String, dynamic>.from(tag)).toList() ?? [];
+  }
+
+  static Future<bool?> clearInventorySnapshot() async {
+    return await _channel.invokeMethod<bool>('clearInventorySnapshot');
+  }
+
+  /// Runs inventory in bursts of [burstMs], extended by [extendMs] (up to
+  /// [maxBurstMs]) while never-seen EPCs keep arriving. Off periods start at
+  /// [minOffMs] and double in a static field up to [maxOffMs]. Below each of
+  /// [batteryLevels] (percent) the duty cycle is capped at the matching
+  /// [maxDutyCycles] entry (0..1); the battery is read every [batteryPollMs]
+  /// during off periods. startInventory / stopInventory end burst mode.
+  static Future<Map<String, dynamic>> startBurstInventory({
+    int? burstMs,
+    int? extendMs,
+    int? maxBurstMs,
+    int? minOffMs,
+    int? maxOffMs,
+    List<int> batteryLevels = const [50, 20],
+    List<double> maxDutyCycles = const [0.5, 0.2],
+    int? batteryPollMs,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('startBurstInventory', {
+      if (burstMs != null) 'burstMs': burstMs,
+      if (extendMs != null) 'extendMs': extendMs,
+      if (maxBurstMs != null) 'maxBurstMs': maxBurstMs,
+      if (minOffMs != null) 'minOffMs': minOffMs,
+      if (maxOffMs != null) 'maxOffMs': maxOffMs,
+      'batteryLevels': batteryLevels,
+      'maxDutyCycles': maxDutyCycles,
+      if (batteryPollMs != null) 'batteryPollMs': batteryPollMs,
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Ends burst mode and stops inventory. Returns the final stats.
+  static Future<Map<String, dynamic>> stopBurstInventory({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('stopBurstInventory', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// running, on, bursts, extensions, reads, uniqueTags, onTimeMs, offTimeMs,
+  /// dutyCycle, maxDutyCycle, offMs, battery, batteryStart and
+  /// readsPerBatteryPercent (null until the battery has dropped).
+  /// Changes any of [power], [region], [qValue] and [session] in one RAM
+  /// write; omitted fields keep the reader's values and nothing is sent when
+  /// nothing changes. Calls made while a write is in flight are merged into
+  /// the next write, last value wins. With [persist] the FLASH save is deferred
+  /// until the reader is idle or disconnects (see [flushParams]).
+  /// Returns {written, flashPending}.
+  static Future<Map<String, dynamic>> updateParams({
+    int? power,
+    int? region,
+    int? qValue,
+    int? session,
+    bool persist = true,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('updateParams', {
+      if (power != null) 'power': _normalizePower(power),
+      if (region != null) 'region': region,
+      if (qValue != null) 'qValue': qValue,
+      if (session != null) 'session': session,
+      'persist': persist,
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Writes a deferred FLASH save now; returns the parameter cache stats.
+  static Future<Map<String, dynamic>> flushParams({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('flushParams', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// RAM writes, skipped and coalesced updates, FLASH writes and failures.
+  static Future<Map<String, dynamic>> getParamCacheStats({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('getParamCacheStats', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  static Future<Map<String, dynamic>> getBurstStats({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('getBurstStats', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Tunes Q (and with [tuneSession] S0/S1) while inventory runs, from the
+  /// distinct EPCs and reads per [windowMs] window. Changes are RAM-only
+  /// set-all-param writes without stopping inventory, one Q step at a time
+  /// after [holdWindows] agreeing windows and at most every [minIntervalMs];
+  /// a step that loses reads is reverted. Each change is reported through
+  /// onQAdjust with reads/new tags per second before and after it. Needs
+  /// getAllDeviceConfig first.
+  static Future<Map<String, dynamic>> startAdaptiveQ({
+    int? windowMs,
+    int? holdWindows,
+    int? minIntervalMs,
+    int? minQ,
+    int? maxQ,
+    bool tuneSession = true,
+    int? sessionHighTags,
+    int? sessionLowTags,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('startAdaptiveQ', {
+      if (windowMs != null) 'windowMs': windowMs,
+      if (holdWindows != null) 'holdWindows': holdWindows,
+      if (minIntervalMs != null) 'minIntervalMs': minIntervalMs,
+      if (minQ != null) 'minQ': minQ,
+      if (maxQ != null) 'maxQ': maxQ,
+      'tuneSession': tuneSession,
+      if (sessionHighTags != null) 'sessionHighTags': sessionHighTags,
+      if (sessionLowTags != null) 'sessionLowTags': sessionLowTags,
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Stops tuning; the reader keeps its current Q and session until the next
+  /// parameter write. Returns the final stats.
+  static Future<Map<String, dynamic>> stopAdaptiveQ({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('stopAdaptiveQ', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// running, q, session, uniqueTags, windows, changes, reverts and the last
+  /// `decisions`.
+  static Future<Map<String, dynamic>> getAdaptiveQStats({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('getAdaptiveQStats', {
+      if (address != null) 'address': address,
+    });
+    if (result == null) return {};
+    final stats = Map<String, dynamic>.from(result);
+    if (stats['decisions'] != null) {
+      stats['decisions'] = (stats['decisions'] as List)
+          .map((d) => Map<String, dynamic>.from(d as Map))
+          .toList();
+    }
+    return stats;
+  }
+
+  /// Journals every read natively to an append-only file in the app's files
+  /// directory, independent of the channel, so reads survive UI stalls and
+  /// backgrounding. Segments hold [segmentRecords] reads; past [maxSegments]
+  /// the oldest segment is dropped. Existing journal files are picked up again.
+  static Future<Map<String, dynamic>> enableJournal({
+    bool enabled = true,
+    int? segmentRecords,
+    int? maxSegments,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('enableJournal', {
+      'enabled': enabled,
+      if (segmentRecords != null) 'segmentRecords': segmentRecords,
+      if (maxSegments != null) 'maxSegments': maxSegments,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// enabled, segments, records, bytes, firstCursor, nextCursor, appended,
+  /// failed, droppedRecords, truncatedEpcs.
+  static Future<Map<String, dynamic>> getJournalStats() async {
+    final result = await _channel.invokeMethod<Map>('getJournalStats');
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Up to [maxRecords] journaled reads from [cursor] on. Returns `reads`
+  /// (List<TagRead>), `cursor` of the first one and `nextCursor` for the
+  /// next call; cursors before the oldest kept read start at the oldest.
+  static Future<Map<String, dynamic>> readJournal({int cursor = 0, int maxRecords = 4096}) async {
+    final result = await _channel.invokeMethod<Map>('readJournal', {
+      'cursor': cursor,
+      'maxRecords': maxRecords,
+    });
+    if (result == null) return {};
+    final page = Map<String, dynamic>.from(result);
+    page['reads'] = TagJournalCodec.decode(page.remove('records') as Uint8List);
+    return page;
+  }
+
+  /// Rewrites the journal as one read per EPC (latest read, `count` = reads
+  /// merged). Returns before, after, uniqueEpcs and elapsedMs.
+  static Future<Map<String, dynamic>> compactJournal() async {
+    final result = await _channel.invokeMethod<Map>('compactJournal');
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Deletes journal segments whose reads all lie before [before], or the
+  /// whole journal if null. Cursors keep counting.
+  static Future<Map<String, dynamic>> truncateJournal({int? before}) async {
+    final result = await _channel.invokeMethod<Map>('truncateJournal', {
+      if (before != null) 'before': before,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Records every raw notify frame and typed callback of a reader, with
+  /// nanosecond timing, to a binary trace at [path] (default: a new file in
+  /// the app's files directory) until [stopTraceRecording] or [maxBytes].
+  static Future<Map<String, dynamic>> startTraceRecording({
+    String? path,
+    int? maxBytes,
+    String? address,
+  }) async {
+    final result = await _channel.invokeMethod<Map>('startTraceRecording', {
+      if (path != null) 'path': path,
+      if (maxBytes != null) 'maxBytes': maxBytes,
+      if (address != null) 'address': address,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  /// Stops recording; returns path, rawFrames, typed, bytes, durationMs and
+  /// truncated, or null if nothing was being recorded.
+  static Future<Map<String, dynamic>?> stopTraceRecording({String? address}) async {
+    final result = await _channel.invokeMethod<Map>('stopTraceRecording', {
+      if (address != null) 'address': address,
+    });
+    return result == null ? null : Map<String, dynamic>.from(result);
+  }
+
+  /// Feeds a recorded trace into the notify path as if the reader sent it,
+  /// so the usual callbacks and events fire. [speed] 1.0 is real time, 0 as
+  /// fast as possible. The reader must be disconnected. Completes when the
+  /// replay ends with rawFrames, typed, recordedMs, replayMs and maxLagMs.
+  static Future<Map<String, dynamic>> replayTrace(String path, {double speed = 1.0}) async {
+    final result = await _channel.invokeMethod<Map>('replayTrace', {
+      'path': path,
+      'speed': speed,
+    });
+    return result == null ? {} : Map<String, dynamic>.from(result);
+  }
+
+  static Future<bool?> stopTraceReplay() async {
+    return await _channel.invokeMethod<bool>('stopTraceReplay');
+  }
+
   static Future<void> startRadar(String epc) async {
-    await _channel.invokeMethod('startRadarTracking', {'epc': epc});
+    await startRadarTargets([epc]);
+  }
+
+  /// Radar mode for several EPCs at once. Each target is reported through
+  /// onRadarResult / radarEvents at most [maxRateHz] times per second with
+  /// rssi, smoothedRssi, trend ('approaching' | 'receding' | 'steady'),
+  /// trendDbPerSecond, sinceLastSeenMs and reads since the previous report.
+  /// [filter]: 'ema' (uses [alpha]) | 'kalman' (uses [processNoise], [measurementNoise])
+  /// With [selectOnReader] the reader only answers for tags sharing the targets'
+  /// common EPC prefix (at least 8 bits) while radar mode runs.
+  static Future<void> startRadarTargets(
+    List<String> epcs, {
+    String filter = 'ema',
+    double? alpha,
+    double? processNoise,
+    double? measurementNoise,
+    int? maxRateHz,
+    bool selectOnReader = false,
+  }) async {
+    await _channel.invokeMethod('startRadarTracking', {
+      'selectOnReader': selectOnReader,
+      'epcs': epcs,
+      'filter': filter,
+      if (alpha != null) 'alpha': alpha,
+      if (processNoise != null) 'processNoise': processNoise,
+      if (measurementNoise != null) 'measurementNoise': measurementNoise,
+      if (maxRateHz != null) 'maxRateHz': maxRateHz,
+    });
   }
 
   static Future<void> stopRadar() async {
@@ -1,17 +1,138 @@
+import 'dart:async';
+
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
 import 'chafon_h103_rfid_platform_interface.dart';
 
+/// One inventory read delivered over the binary tag channel.
+class TagRead {
+  const TagRead({
+    required this.epc,
+    required this.rssi,
+    required this.antenna,
+    required this.timestamp,
+    this.count = 1,
+  });
+
+  /// EPC as upper-case hex, same format as the 'epc' key of onTagRead.
+  final String epc;
+  final int rssi;
+  final int antenna;
+
+  /// Milliseconds since epoch, taken natively when the read arrived.
+  final int timestamp;
+
+  /// Reads merged into this one; above 1 only for compacted journal records.
+  final int count;
+
+  Map<String, dynamic> toMap() => {
+        'epc': epc,
+        'rssi': rssi,
+        'antenna': antenna,
+        'timestamp': timestamp,
+        if (count != 1) 'count': count,
+      };
+
+  @override
+  String toString() =>
+      'TagRead(epc: $epc, rssi: $rssi, antenna: $antenna, timestamp: $timestamp, count: $count)';
+}
+
+/// Decoder for the fixed-layout records sent on 'chafon_h103_rfid/tags'.
+///
+/// Little-endian: header u8 version, u16 count; then per record
+/// u8 epcLen, EPC bytes, i16 rssi, u8 antenna, i64 timestamp (ms).
+class TagRecordCodec {
+  static const int version = 1;
+
+  static const List<String> _hex = [
+    '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F',
+  ];
+
+  static List<TagRead> decode(ByteData data) {
+    if (data.lengthInBytes < 3 || data.getUint8(0) != version) return const [];
+    final count = data.getUint16(1, Endian.little);
+    final reads = <TagRead>[];
+    var p = 3;
+    for (var i = 0; i < count; i++) {
+      final epcLen = data.getUint8(p++);
+      final epc = StringBuffer();
+      for (var j = 0; j < epcLen; j++) {
+        final b = data.getUint8(p++);
+        epc
+          ..write(_hex[b >> 4])
+          ..write(_hex[b & 0x0F]);
+      }
+      final rssi = data.getInt16(p, Endian.little);
+      final antenna = data.getUint8(p + 2);
+      final timestamp = data.getInt64(p + 3, Endian.little);
+      p += 11;
+      reads.add(TagRead(epc: epc.toString(), rssi: rssi, antenna: antenna, timestamp: timestamp));
+    }
+    return reads;
+  }
+}
+
+/// Decoder for the 48-byte records returned by readJournal.
+///
+/// Little-endian: u8 epcLen, u8 antenna, i16 rssi, u32 read count,
+/// i64 timestamp (ms), then the EPC zero-padded to 32 bytes.
+class TagJournalCodec {
+  static const int recordSize = 48;
+
+  static List<TagRead> decode(Uint8List records) {
+    final data = ByteData.sublistView(records);
+    final reads = <TagRead>[];
+    for (var p = 0; p + recordSize <= data.lengthInBytes; p += recordSize) {
+      final epcLen = data.getUint8(p);
+      if (epcLen == 0) break;
+      final epc = StringBuffer();
+      for (var j = 0; j < epcLen; j++) {
+        final b = data.getUint8(p + 16 + j);
+        epc
+          ..write(TagRecordCodec._hex[b >> 4])
+          ..write(TagRecordCodec._hex[b & 0x0F]);
+      }
+      reads.add(TagRead(
+        epc: epc.toString(),
+        antenna: data.getUint8(p + 1),
+        rssi: data.getInt16(p + 2, Endian.little),
+        count: data.getUint32(p + 4, Endian.little),
+        timestamp: data.getInt64(p + 8, Endian.little),
+      ));
+    }
+    return reads;
+  }
+}
+
 /// An implementation of [ChafonH103RfidPlatform] that uses method channels.
 class MethodChannelChafonH103Rfid extends ChafonH103RfidPlatform {
   /// The method channel used to interact with the native platform.
   @visibleForTesting
   final methodChannel = const MethodChannel('chafon_h103_rfid');
 
+  /// Binary channel carrying packed tag records (see [TagRecordCodec]).
+  @visibleForTesting
+  final tagChannel = const BasicMessageChannel<ByteData?>('chafon_h103_rfid/tags', BinaryCodec());
+
+  StreamController<List<TagRead>>? _tagReads;
+
   @override
   Future<String?> getPlatformVersion() async {
     final version = await methodChannel.invokeMethod<String>('getPlatformVersion');
     return version;
   }
+
+  @override
+  Stream<List<TagRead>> get tagReads {
+    _tagReads ??= StreamController<List<TagRead>>.broadcast(
+      onListen: () => tagChannel.setMessageHandler((data) async {
+        if (data != null) _tagReads?.add(TagRecordCodec.decode(data));
+        return null;
+      }),
+      onCancel: () => tagChannel.setMessageHandler(null),
+    );
+    return _tagReads!.stream;
+  }
 }
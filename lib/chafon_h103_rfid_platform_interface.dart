@@ -26,4 +26,9 @@ abstract class ChafonH103RfidPlatform extends PlatformInterface {
   Future<String?> getPlatformVersion() {
     throw UnimplementedError('platformVersion() has not been implemented.');
   }
+
+  /// Tag reads sent over the binary tag channel, one list per native flush.
+  Stream<List<TagRead>> get tagReads {
+    throw UnimplementedError('tagReads has not been implemented.');
+  }
 }
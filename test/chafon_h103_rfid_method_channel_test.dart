@@ -24,4 +24,24 @@ void main() {
   test('getPlatformVersion', () async {
     expect(await platform.getPlatformVersion(), '42');
   });
+
+  test('TagRecordCodec decodes packed records', () {
+    final data = ByteData(3 + 24);
+    data.setUint8(0, TagRecordCodec.version);
+    data.setUint16(1, 1, Endian.little);
+    data.setUint8(3, 12);
+    for (var i = 0; i < 12; i++) {
+      data.setUint8(4 + i, 0xE0 + i);
+    }
+    data.setInt16(16, -61, Endian.little);
+    data.setUint8(18, 1);
+    data.setInt64(19, 1700000000000, Endian.little);
+
+    final reads = TagRecordCodec.decode(data);
+    expect(reads, hasLength(1));
+    expect(reads.first.epc, 'E0E1E2E3E4E5E6E7E8E9EAEB');
+    expect(reads.first.rssi, -61);
+    expect(reads.first.antenna, 1);
+    expect(reads.first.timestamp, 1700000000000);
+  });
 }
@@ -10,6 +10,9 @@ class MockChafonH103RfidPlatform
 
   @override
   Future<String?> getPlatformVersion() => Future.value('42');
+
+  @override
+  Stream<List<TagRead>> get tagReads => const Stream.empty();
 }
 
 void main() {